@@ -0,0 +1,223 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, pre-parsed view of the settings of one run. All the run-array
+ * values are resolved for the run index, the values are trimmed and
+ * parsed to numbers and booleans, and the settings are indexed by their
+ * namespaces, so {@link Settings} can answer a request with a single hash
+ * map lookup instead of concatenating names and parsing the value again.
+ * Namespace combinations (e.g., "Group3" with the defaults from "Group")
+ * are merged once and shared by all Settings objects that use them.
+ * Settings with an empty value are left out, just like they are ignored by
+ * the getters.
+ */
+final class CompiledSettings {
+	/** cache key part for the null namespace */
+	private static final String NO_NS = "\u0001";
+
+	/** the properties this snapshot was compiled from */
+	private final Properties source;
+	/** all settings by their full names */
+	private final Map<String, Value> values;
+	/** settings by namespace and the name inside the namespace */
+	private final Map<String, Map<String, Value>> namespaces;
+	/** merged primary and secondary namespaces */
+	private final Map<String, Map<String, Value>> scopes;
+	/** values of setting strings with filled in value requests */
+	private final Map<String, String> filled;
+
+	/**
+	 * Compiles the settings.
+	 * @param props The properties to compile (including the defaults)
+	 * @param runIndex The run index used for run-array values
+	 */
+	CompiledSettings(Properties props, int runIndex) {
+		this.source = props;
+		this.values = new HashMap<String, Value>();
+		this.namespaces = new HashMap<String, Map<String, Value>>();
+		this.scopes = new ConcurrentHashMap<String, Map<String, Value>>();
+		this.filled = new HashMap<String, String>();
+
+		for (String key : props.stringPropertyNames()) {
+			String value = Settings.parseRunSetting(
+					props.getProperty(key).trim(), runIndex);
+			if (value.length() == 0) {
+				continue;
+			}
+			Value v = new Value(key, value);
+			values.put(key, v);
+
+			/* a namespace may contain dots too, so index all prefixes */
+			for (int i = key.indexOf('.'); i >= 0;
+					i = key.indexOf('.', i + 1)) {
+				String ns = key.substring(0, i);
+				Map<String, Value> m = namespaces.get(ns);
+				if (m == null) {
+					m = new HashMap<String, Value>();
+					namespaces.put(ns, m);
+				}
+				m.put(key.substring(i + 1), v);
+			}
+		}
+
+		for (Value v : values.values()) {
+			if (v.value.contains(Settings.FILL_DELIMITER)) {
+				String result = fill(v.value);
+				if (result != null) {
+					filled.put(v.value, result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this snapshot was compiled from the given properties
+	 * @param props The properties
+	 * @return true if the properties are the source of this snapshot
+	 */
+	boolean isCompiledFrom(Properties props) {
+		return this.source == props;
+	}
+
+	/**
+	 * Returns the settings visible in a namespace, with the settings of the
+	 * secondary namespace included where the primary one has no value
+	 * @param namespace The primary namespace (null for full names)
+	 * @param secondary The secondary namespace or null
+	 * @return The settings by their names in the namespace
+	 */
+	Map<String, Value> getScope(String namespace, String secondary) {
+		if (secondary == null) {
+			return getNamespace(namespace);
+		}
+
+		String key = (namespace == null ? NO_NS : namespace) + '\0' +
+			secondary;
+		Map<String, Value> scope = scopes.get(key);
+		if (scope == null) {
+			scope = new HashMap<String, Value>(getNamespace(secondary));
+			scope.putAll(getNamespace(namespace));
+			scopes.put(key, scope);
+		}
+		return scope;
+	}
+
+	private Map<String, Value> getNamespace(String namespace) {
+		if (namespace == null) {
+			return values;
+		}
+		Map<String, Value> m = namespaces.get(namespace);
+		return m != null ? m : Collections.<String, Value>emptyMap();
+	}
+
+	/**
+	 * Returns a setting string with its value requests filled in, if the
+	 * string is the value of some setting
+	 * @param input The string
+	 * @return The filled string or null if it wasn't compiled
+	 * @see Settings#valueFillString(String)
+	 */
+	String getFilled(String input) {
+		return filled.get(input);
+	}
+
+	/**
+	 * Fills the value requests of a string
+	 * @return The filled string or null if some requested setting doesn't
+	 * exist
+	 */
+	private String fill(String input) {
+		StringBuilder result = new StringBuilder();
+		Scanner scan = new Scanner(input);
+		scan.useDelimiter(Settings.FILL_DELIMITER);
+		boolean request = input.startsWith(Settings.FILL_DELIMITER);
+
+		while (scan.hasNext()) {
+			String part = scan.next();
+			if (request) {
+				Value v = values.get(part);
+				if (v == null) {
+					return null;
+				}
+				part = v.value;
+			}
+			result.append(part);
+			request = !request;
+		}
+		return result.toString();
+	}
+
+	/**
+	 * A compiled setting value
+	 */
+	static final class Value {
+		/** full name of the setting */
+		final String key;
+		/** the (run-specific and trimmed) value */
+		final String value;
+		/** true if the value is numeric, i.e. {@link #number} is valid */
+		final boolean isNumber;
+		/** the value as a number */
+		final double number;
+		/** the value as a boolean: 1 for true, 0 for false and -1 for none */
+		final int bool;
+		/** the value split into comma separated values (parsed on demand) */
+		private volatile String[] csv;
+
+		private Value(String key, String value) {
+			this.key = key;
+			this.value = value;
+
+			double d = 0;
+			boolean ok = true;
+			try {
+				d = Settings.parseDouble(value);
+			} catch (NumberFormatException e) {
+				ok = false;
+			}
+			this.number = d;
+			this.isNumber = ok;
+
+			if (value.equalsIgnoreCase("true") || value.equals("1")) {
+				this.bool = 1;
+			}
+			else if (value.equalsIgnoreCase("false") || value.equals("0")) {
+				this.bool = 0;
+			}
+			else {
+				this.bool = -1;
+			}
+		}
+
+		/**
+		 * Returns the comma separated values of the setting
+		 * @return A new array of the trimmed values
+		 */
+		String[] getCsv() {
+			String[] parts = this.csv;
+			if (parts == null) {
+				ArrayList<String> list = new ArrayList<String>();
+				Scanner s = new Scanner(value);
+				s.useDelimiter(",");
+				while (s.hasNext()) {
+					list.add(s.next().trim());
+				}
+				parts = list.toArray(new String[0]);
+				this.csv = parts;
+			}
+			return parts.clone();
+		}
+	}
+}
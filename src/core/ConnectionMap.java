@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Map from host addresses to connections. The addresses are stored in a
+ * primitive open addressing hash table (like in
+ * {@link routing.util.MessageIdSet}), so finding the connection to a host
+ * doesn't need to go through all the connections. The table is allocated
+ * only when the first connection is added.
+ */
+class ConnectionMap {
+	/** Initial capacity of the hash table */
+	private static final int INITIAL_CAPACITY = 8;
+	/** Value used for empty hash table slots (not a valid address) */
+	private static final int EMPTY = -1;
+	/** Shared (never modified) table of the maps that have no table yet */
+	private static final int[] NO_KEYS = {EMPTY};
+	private static final Connection[] NO_VALUES = {null};
+
+	private int[] keys;
+	private Connection[] values;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty map.
+	 */
+	ConnectionMap() {
+		this.keys = NO_KEYS;
+		this.values = NO_VALUES;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the connection to a host
+	 * @param address Address of the host
+	 * @return The connection or null if there is no connection to the host
+	 */
+	Connection get(int address) {
+		int mask = keys.length - 1;
+		for (int i = hash(address) & mask; ; i = (i + 1) & mask) {
+			if (keys[i] == address) {
+				return values[i];
+			}
+			if (keys[i] == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Sets the connection to a host
+	 * @param address Address of the host (non-negative)
+	 * @param con The connection
+	 * @return The previous connection to the host or null if there was none
+	 */
+	Connection put(int address, Connection con) {
+		if (keys == NO_KEYS) {
+			rehash(INITIAL_CAPACITY);
+		}
+		int mask = keys.length - 1;
+		int i = hash(address) & mask;
+		for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == address) {
+				Connection old = values[i];
+				values[i] = con;
+				return old;
+			}
+		}
+
+		keys[i] = address;
+		values[i] = con;
+		size++;
+		if (size * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the connection to a host
+	 * @param address Address of the host
+	 * @return The removed connection or null if there was none
+	 */
+	Connection remove(int address) {
+		int mask = keys.length - 1;
+		int i = hash(address) & mask;
+		for (; keys[i] != address; i = (i + 1) & mask) {
+			if (keys[i] == EMPTY) {
+				return null;
+			}
+		}
+		Connection old = values[i];
+
+		/* shift back the following entries of the probe sequence so that
+		 * no entry becomes unreachable (no tombstones needed) */
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = hash(keys[j]) & mask;
+			/* entry at j can move to i if its home isn't in (i, j] */
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		values[i] = null;
+		size--;
+		return old;
+	}
+
+	/**
+	 * Returns the number of hosts in the map
+	 * @return the number of hosts in the map
+	 */
+	int size() {
+		return this.size;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Connection[] oldValues = values;
+		keys = new int[capacity];
+		values = new Connection[capacity];
+		Arrays.fill(keys, EMPTY);
+
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = hash(oldKeys[j]) & mask;
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Mixes the bits of an address (finalizer of the MurmurHash3 32 bit
+	 * hash) so that runs of consecutive addresses don't form long probe
+	 * sequences
+	 */
+	private static int hash(int address) {
+		address ^= address >>> 16;
+		address *= 0x85ebca6b;
+		address ^= address >>> 13;
+		address *= 0xc2b2ae35;
+		address ^= address >>> 16;
+		return address;
+	}
+}
@@ -21,6 +21,13 @@ public class Coord implements Cloneable, Comparable<Coord> {
 		setLocation(x,y);
 	}
 
+	/**
+	 * Constructor for subclasses that store the coordinates elsewhere and
+	 * override the getters and setters.
+	 */
+	protected Coord() {
+	}
+
 	/**
 	 * Sets the location of this coordinate object
 	 * @param x The x coordinate to set
@@ -37,8 +44,8 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @param c The other coordinate
 	 */
 	public void setLocation(Coord c) {
-		this.x = c.x;
-		this.y = c.y;
+		this.x = c.getX();
+		this.y = c.getY();
 	}
 
 	/**
@@ -57,8 +64,8 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return The distance between this and another coordinate
 	 */
 	public double distance(Coord other) {
-		double dx = this.x - other.x;
-		double dy = this.y - other.y;
+		double dx = getX() - other.getX();
+		double dy = getY() - other.getY();
 
 		return Math.sqrt(dx*dx + dy*dy);
 	}
@@ -84,7 +91,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return a text representation of the coordinate
 	 */
 	public String toString() {
-		return String.format("(%.2f,%.2f)",x,y);
+		return String.format("(%.2f,%.2f)",getX(),getY());
 	}
 
 	/**
@@ -111,7 +118,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 			return true;
 		}
 		else {
-			return (x == c.x && y == c.y); // XXX: == for doubles...
+			return (getX() == c.getX() && getY() == c.getY()); // XXX: == for doubles...
 		}
 	}
 
@@ -126,7 +133,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * (actually a hash of the String made of the coordinates)
 	 */
 	public int hashCode() {
-		return (x+","+y).hashCode();
+		return (getX()+","+getY()).hashCode();
 	}
 
 	/**
@@ -137,16 +144,21 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * after the other coordinate
 	 */
 	public int compareTo(Coord other) {
-		if (this.y < other.y) {
+		double x = getX();
+		double y = getY();
+		double ox = other.getX();
+		double oy = other.getY();
+
+		if (y < oy) {
 			return -1;
 		}
-		else if (this.y > other.y) {
+		else if (y > oy) {
 			return 1;
 		}
-		else if (this.x < other.x) {
+		else if (x < ox) {
 			return -1;
 		}
-		else if (this.x > other.x) {
+		else if (x > ox) {
 			return 1;
 		}
 		else {
@@ -6,6 +6,7 @@ package core;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import movement.MovementModel;
@@ -20,20 +21,24 @@ import static core.Constants.DEBUG;
  */
 public class DTNHost implements Comparable<DTNHost> {
 	private static int nextAddress = 0;
+	/** movement state of all the hosts */
+	private static HostStates hostStates;
 	private int address;
 
-	private Coord location; 	// where is the host
+	private HostStates states;	// where this host's state is stored
+	private HostStates.Location location; // where is the host
 	private Coord destination;	// where is it going
 
 	private MessageRouter router;
 	private MovementModel movement;
 	private Path path;
-	private double speed;
-	private double nextTimeToMove;
 	private String name;
+	private String groupId;
 	private List<MessageListener> msgListeners;
 	private List<MovementListener> movListeners;
 	private List<NetworkInterface> net;
+	/** connections of all the interfaces (null if not up to date) */
+	private List<Connection> connections;
 	private ModuleCommunicationBus comBus;
 
 	static {
@@ -55,15 +60,40 @@ public class DTNHost implements Comparable<DTNHost> {
 			String groupId, List<NetworkInterface> interf,
 			ModuleCommunicationBus comBus,
 			MovementModel mmProto, MessageRouter mRouterProto) {
+		this(msgLs, movLs, groupId, interf, comBus, mRouterProto);
+		setMovement(mmProto.replicate());
+		register();
+	}
+
+	/**
+	 * Creates a new DTNHost without a movement model. The movement model is
+	 * set with {@link #setMovement(MovementModel)} and the host is taken into
+	 * use with {@link #register()}. The movement models of different hosts
+	 * can be set concurrently, which is used for creating the hosts of large
+	 * scenarios in parallel.
+	 * @param msgLs Message listeners
+	 * @param movLs Movement listeners
+	 * @param groupId GroupID of this host
+	 * @param interf List of NetworkInterfaces for the class
+	 * @param comBus Module communication bus object
+	 * @param mRouterProto Prototype of the message router of this host
+	 */
+	DTNHost(List<MessageListener> msgLs,
+			List<MovementListener> movLs,
+			String groupId, List<NetworkInterface> interf,
+			ModuleCommunicationBus comBus, MessageRouter mRouterProto) {
 		this.comBus = comBus;
-		this.location = new Coord(0,0);
 		this.address = getNextAddress();
+		this.states = hostStates;
+		this.states.add(address);
+		this.location = new HostStates.Location(states, address);
 		this.name = groupId+address;
-		this.net = new ArrayList<NetworkInterface>();
+		this.groupId = groupId;
+		this.net = new ArrayList<NetworkInterface>(interf.size());
 
 		for (NetworkInterface i : interf) {
 			NetworkInterface ni = i.replicate();
-			ni.setHost(this);
+			ni.setHost(this, false); // added to the optimizer in register()
 			net.add(ni);
 		}
 
@@ -72,20 +102,36 @@ public class DTNHost implements Comparable<DTNHost> {
 
 		this.msgListeners = msgLs;
 		this.movListeners = movLs;
+		setRouter(mRouterProto.replicate());
+	}
 
-		// create instances by replicating the prototypes
-		this.movement = mmProto.replicate();
+	/**
+	 * Sets the movement model of a host created without one and places the
+	 * host to the initial location given by the model
+	 * @param movement The movement model (a replica of the group's prototype)
+	 */
+	void setMovement(MovementModel movement) {
+		this.movement = movement;
 		this.movement.setComBus(comBus);
 		this.movement.setHost(this);
-		setRouter(mRouterProto.replicate());
-
-		this.location = movement.getInitialLocation();
-
-		this.nextTimeToMove = movement.nextPathAvailable();
+		setInitialLocation(movement.getInitialLocation());
+		states.setNextMoveTime(address, movement.nextPathAvailable());
 		this.path = null;
+	}
 
-		if (movLs != null) { // inform movement listeners about the location
-			for (MovementListener l : movLs) {
+	/**
+	 * Adds the network interfaces of a host created without a movement model
+	 * to the connectivity optimizers and informs the movement listeners about
+	 * the initial location. Must be called after
+	 * {@link #setMovement(MovementModel)}, from the simulation thread.
+	 */
+	void register() {
+		for (NetworkInterface ni : net) {
+			ni.addToOptimizer();
+		}
+
+		if (movListeners != null) {
+			for (MovementListener l : movListeners) {
 				l.initialLocation(this, this.location);
 			}
 		}
@@ -105,6 +151,17 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public static void reset() {
 		nextAddress = 0;
+		hostStates = new HostStates();
+	}
+
+	/**
+	 * Returns the store where the movement state (location, destination,
+	 * speed etc.) of the hosts is kept, indexed by the host addresses.
+	 * Loops over many hosts can read the state from the store directly.
+	 * @return The store of the hosts created since the last reset
+	 */
+	public static HostStates getStates() {
+		return hostStates;
 	}
 
 	/**
@@ -173,19 +230,42 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 
 	/**
-	 * Returns a copy of the list of connections this host has with other hosts
-	 * @return a copy of the list of connections this host has with other hosts
+	 * Returns the connections this host has with other hosts. The list is
+	 * a snapshot that can't be modified and that doesn't change when the
+	 * connections change; the same list is returned until that happens.
+	 * @return the list of connections this host has with other hosts
 	 */
 	public List<Connection> getConnections() {
-		List<Connection> lc = new ArrayList<Connection>();
-
-		for (NetworkInterface i : net) {
-			lc.addAll(i.getConnections());
+		List<Connection> lc = this.connections;
+		if (lc == null) {
+			int count = 0;
+			for (NetworkInterface i : net) {
+				count += i.getConnections().size();
+			}
+			if (count == 0) {
+				lc = Collections.emptyList();
+			}
+			else {
+				List<Connection> all = new ArrayList<Connection>(count);
+				for (NetworkInterface i : net) {
+					all.addAll(i.getConnections());
+				}
+				lc = Collections.unmodifiableList(all);
+			}
+			this.connections = lc;
 		}
 
 		return lc;
 	}
 
+	/**
+	 * Called by the network interfaces of this host when their connections
+	 * change
+	 */
+	void connectionsChanged() {
+		this.connections = null;
+	}
+
 	/**
 	 * Returns the current location of this host.
 	 * @return The location
@@ -209,7 +289,34 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param location The location to set
 	 */
 	public void setLocation(Coord location) {
-		this.location = location.clone();
+		/* the old location object keeps the old coordinates */
+		if (this.location != null) {
+			this.location.detach();
+		}
+		this.location = new HostStates.Location(states, address);
+		this.location.setLocation(location);
+	}
+
+	/**
+	 * Sets the location given by the movement model for a new host
+	 * @param location The location or null if the model gave none
+	 */
+	private void setInitialLocation(Coord location) {
+		if (location == null) {
+			this.location.detach();
+			this.location = null;
+		}
+		else {
+			this.location.setLocation(location);
+		}
+	}
+
+	/**
+	 * Returns the ID of the group this host belongs to
+	 * @return the group ID
+	 */
+	public String getGroupId() {
+		return this.groupId;
 	}
 
 	/**
@@ -374,10 +481,10 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public void move(double timeIncrement) {
 		double possibleMovement;
-		double distance;
-		double dx, dy;
+		double left;
 
-		if (!isMovementActive() || SimClock.getTime() < this.nextTimeToMove) {
+		if (!isMovementActive() ||
+				SimClock.getTime() < states.getNextMoveTime(address)) {
 			return;
 		}
 		if (this.destination == null) {
@@ -386,25 +493,16 @@ public class DTNHost implements Comparable<DTNHost> {
 			}
 		}
 
-		possibleMovement = timeIncrement * speed;
-		distance = this.location.distance(this.destination);
+		possibleMovement = timeIncrement * states.getSpeed(address);
 
-		while (possibleMovement >= distance) {
-			// node can move past its next destination
-			this.location.setLocation(this.destination); // snap to destination
-			possibleMovement -= distance;
+		while ((left = states.moveTowardsDestination(address,
+				possibleMovement)) >= 0) {
+			// node moved past its next destination
+			possibleMovement = left;
 			if (!setNextWaypoint()) { // get a new waypoint
 				return; // no more waypoints left
 			}
-			distance = this.location.distance(this.destination);
 		}
-
-		// move towards the point for possibleMovement amount
-		dx = (possibleMovement/distance) * (this.destination.getX() -
-				this.location.getX());
-		dy = (possibleMovement/distance) * (this.destination.getY() -
-				this.location.getY());
-		this.location.translate(dx, dy);
 	}
 
 	/**
@@ -419,17 +517,21 @@ public class DTNHost implements Comparable<DTNHost> {
 		}
 
 		if (path == null || !path.hasNext()) {
-			this.nextTimeToMove = movement.nextPathAvailable();
+			states.setNextMoveTime(address, movement.nextPathAvailable());
 			this.path = null;
 			return false;
 		}
 
-		this.destination = path.getNextWaypoint();
-		this.speed = path.getSpeed();
+		if (this.destination == null) {
+			this.destination = new HostStates.Destination(states, address);
+		}
+		path.getNextWaypoint(this.destination); // sets the destination
+		double speed = path.getSpeed();
+		states.setSpeed(address, speed);
 
 		if (this.movListeners != null) {
 			for (MovementListener l : this.movListeners) {
-				l.newDestination(this, this.destination, this.speed);
+				l.newDestination(this, this.destination.clone(), speed);
 			}
 		}
 
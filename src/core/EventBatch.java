@@ -0,0 +1,290 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Connection and message events of one update cycle, stored as columns of
+ * primitive values. A batch is not modified after it has been dispatched
+ * by an {@link EventBus}, so it can be read from any thread. Host and
+ * message specific values (hop count and receive time) are recorded when
+ * the event happens.
+ */
+public class EventBatch {
+	/** Event type for connection up */
+	public static final int CONN_UP = 0;
+	/** Event type for connection down */
+	public static final int CONN_DOWN = 1;
+	/** Event type for message creation */
+	public static final int MSG_CREATED = 2;
+	/** Event type for started message transfer */
+	public static final int MSG_STARTED = 3;
+	/** Event type for aborted message transfer */
+	public static final int MSG_ABORTED = 4;
+	/** Event type for finished message transfer */
+	public static final int MSG_TRANSFERRED = 5;
+	/** Event type for message deletion (drop or removal) */
+	public static final int MSG_DELETED = 6;
+	/** Number of event types */
+	public static final int NROF_TYPES = 7;
+
+	/** Type mask of connection events */
+	public static final int CONNECTION_EVENTS = mask(CONN_UP) | mask(CONN_DOWN);
+	/** Type mask of message events */
+	public static final int MESSAGE_EVENTS = mask(MSG_CREATED) |
+		mask(MSG_STARTED) | mask(MSG_ABORTED) | mask(MSG_TRANSFERRED) |
+		mask(MSG_DELETED);
+	/** Type mask of all events */
+	public static final int ALL_EVENTS = CONNECTION_EVENTS | MESSAGE_EVENTS;
+
+	private double updateTime;
+	private int size;
+	private byte[] types;
+	/** dropped flags of deletions and first delivery flags of transfers */
+	private boolean[] flags;
+	/** true for transfers whose receiver buffered the message */
+	private boolean[] buffered;
+	private double[] times;
+	private int[] hosts1;
+	private int[] hosts2;
+	private Message[] messages;
+	private int[] hopCounts;
+	private double[] receiveTimes;
+	/** hosts indexed by address */
+	private DTNHost[] hostTable;
+
+	/**
+	 * Creates an empty batch
+	 * @param capacity Initial capacity
+	 */
+	EventBatch(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.size = 0;
+		this.types = new byte[capacity];
+		this.flags = new boolean[capacity];
+		this.buffered = new boolean[capacity];
+		this.times = new double[capacity];
+		this.hosts1 = new int[capacity];
+		this.hosts2 = new int[capacity];
+		this.messages = new Message[capacity];
+		this.hopCounts = new int[capacity];
+		this.receiveTimes = new double[capacity];
+		this.hostTable = null;
+	}
+
+	/**
+	 * Returns the type mask of an event type
+	 * @param type The event type
+	 * @return The mask
+	 */
+	public static int mask(int type) {
+		return 1 << type;
+	}
+
+	/**
+	 * Adds an event to the batch
+	 */
+	void add(int type, double time, int host1, int host2, Message m,
+			boolean flag, boolean isBuffered) {
+		if (size == types.length) {
+			int n = size * 2;
+			types = Arrays.copyOf(types, n);
+			flags = Arrays.copyOf(flags, n);
+			buffered = Arrays.copyOf(buffered, n);
+			times = Arrays.copyOf(times, n);
+			hosts1 = Arrays.copyOf(hosts1, n);
+			hosts2 = Arrays.copyOf(hosts2, n);
+			messages = Arrays.copyOf(messages, n);
+			hopCounts = Arrays.copyOf(hopCounts, n);
+			receiveTimes = Arrays.copyOf(receiveTimes, n);
+		}
+
+		int i = size++;
+		types[i] = (byte)type;
+		times[i] = time;
+		hosts1[i] = host1;
+		hosts2[i] = host2;
+		messages[i] = m;
+		if (m != null) {
+			hopCounts[i] = m.getHopCount();
+			receiveTimes[i] = m.getReceiveTime();
+		}
+		flags[i] = flag;
+		buffered[i] = isBuffered;
+	}
+
+	/**
+	 * Copies an event of another batch to this batch
+	 */
+	private void add(EventBatch b, int i) {
+		add(b.types[i], b.times[i], b.hosts1[i], b.hosts2[i], null,
+				b.flags[i], b.buffered[i]);
+		int j = size - 1;
+		messages[j] = b.messages[i];
+		hopCounts[j] = b.hopCounts[i];
+		receiveTimes[j] = b.receiveTimes[i];
+	}
+
+	/**
+	 * Returns a new batch with the events of this batch that the filter
+	 * accepts
+	 * @param filter The filter
+	 * @return The filtered batch
+	 */
+	EventBatch select(EventFilter filter) {
+		EventBatch b = new EventBatch(size);
+		b.seal(updateTime, hostTable);
+		for (int i=0; i<size; i++) {
+			if (filter.accepts(types[i], times[i], getHost1(i),
+					getHost2(i))) {
+				b.add(this, i);
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Ends adding events to the batch
+	 * @param time Simulation time of the update that ended the batch
+	 * @param hostTable Table of hosts indexed by address
+	 */
+	void seal(double time, DTNHost[] hostTable) {
+		this.updateTime = time;
+		this.hostTable = hostTable;
+	}
+
+	/**
+	 * Returns the simulation time of the update cycle of this batch
+	 * @return the simulation time when the batch was dispatched
+	 */
+	public double getUpdateTime() {
+		return this.updateTime;
+	}
+
+	/**
+	 * Returns the number of events in the batch
+	 * @return the number of events in the batch
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the type of an event
+	 * @param i Index of the event
+	 * @return The type of the event
+	 */
+	public int getType(int i) {
+		return types[i];
+	}
+
+	/**
+	 * Returns the simulation time of an event
+	 * @param i Index of the event
+	 * @return The time of the event
+	 */
+	public double getTime(int i) {
+		return times[i];
+	}
+
+	/**
+	 * Returns the first host of an event: the host that initiated the
+	 * (dis)connection, the creator of a message, the sender of a message or
+	 * the host where a message was deleted
+	 * @param i Index of the event
+	 * @return The first host of the event
+	 */
+	public DTNHost getHost1(int i) {
+		return hostTable[hosts1[i]];
+	}
+
+	/**
+	 * Returns the second host of an event: the other end of the
+	 * (dis)connection or the receiver of a message
+	 * @param i Index of the event
+	 * @return The second host of the event or null if there's no second host
+	 */
+	public DTNHost getHost2(int i) {
+		return hosts2[i] < 0 ? null : hostTable[hosts2[i]];
+	}
+
+	/**
+	 * Returns the address of the first host of an event
+	 * @param i Index of the event
+	 * @return The address of the first host
+	 */
+	public int getAddress1(int i) {
+		return hosts1[i];
+	}
+
+	/**
+	 * Returns the address of the second host of an event
+	 * @param i Index of the event
+	 * @return The address of the second host or -1 if there's none
+	 */
+	public int getAddress2(int i) {
+		return hosts2[i];
+	}
+
+	/**
+	 * Returns the message of a message event. Only the values that don't
+	 * change (ID, source, destination, size, creation time, etc.) should be
+	 * read from the message.
+	 * @param i Index of the event
+	 * @return The message or null for connection events
+	 */
+	public Message getMessage(int i) {
+		return messages[i];
+	}
+
+	/**
+	 * Returns the hop count of the message when the event happened
+	 * @param i Index of the event
+	 * @return The hop count
+	 */
+	public int getHopCount(int i) {
+		return hopCounts[i];
+	}
+
+	/**
+	 * Returns the receive time of the message when the event happened
+	 * @param i Index of the event
+	 * @return The receive time
+	 */
+	public double getReceiveTime(int i) {
+		return receiveTimes[i];
+	}
+
+	/**
+	 * Returns true if the message of a deletion event was dropped
+	 * @param i Index of the event
+	 * @return True for dropped messages, false for removed messages
+	 */
+	public boolean isDropped(int i) {
+		return types[i] == MSG_DELETED && flags[i];
+	}
+
+	/**
+	 * Returns true if the transfer event was the first delivery of the
+	 * message to its final recipient
+	 * @param i Index of the event
+	 * @return True for first deliveries
+	 */
+	public boolean isFirstDelivery(int i) {
+		return types[i] == MSG_TRANSFERRED && flags[i];
+	}
+
+	/**
+	 * Returns true if the receiver of a transfer event put the message to
+	 * its buffer. False for final recipients and for messages that an
+	 * application of the receiver dropped.
+	 * @param i Index of the event
+	 * @return True for transfers whose receiver buffered the message
+	 */
+	public boolean isBuffered(int i) {
+		return types[i] == MSG_TRANSFERRED && buffered[i];
+	}
+}
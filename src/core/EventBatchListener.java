@@ -0,0 +1,22 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Interface for classes that want to get connection and message events in
+ * batches from an {@link EventBus} instead of one by one.
+ */
+public interface EventBatchListener {
+
+	/**
+	 * Method is called with the (filtered) events of one update cycle.
+	 * If the listener was subscribed to get the events in a separate
+	 * thread, the simulation has already advanced and the listener must
+	 * not rely on the current state of the simulation (e.g., sim time).
+	 * @param events The events in the order they happened
+	 */
+	public void eventsDispatched(EventBatch events);
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <P>
+ * Event bus that collects the connection and message events of every update
+ * cycle into an {@link EventBatch} and dispatches the batch to the
+ * subscribed {@link EventBatchListener}s once per update. Each subscriber
+ * has an {@link EventFilter} and gets only the events it accepts, so
+ * e.g. warm up events never reach subscribers that aren't interested in
+ * them.
+ * </P><P>
+ * Subscribers can get the batches in the simulation thread or in their own
+ * thread. Separate threads let heavy subscribers (e.g. reports writing
+ * large logs) run in parallel with the simulation and each other. At most
+ * {@value #QUEUE_SIZE} batches are queued for a subscriber thread; if the
+ * subscriber falls behind, the simulation waits for it.
+ * </P><P>
+ * The bus gets the events as a connection, message and update listener (see
+ * {@link SimScenario#getEventBus()}). {@link #close()} must be called
+ * when the simulation ends to dispatch the last events and to wait for the
+ * subscriber threads.
+ * </P>
+ */
+public class EventBus implements ConnectionListener, MessageListener,
+		UpdateListener {
+	/** Maximum number of batches queued for a subscriber thread */
+	public static final int QUEUE_SIZE = 16;
+	/** Batch that tells a subscriber thread to stop */
+	private static final EventBatch END_OF_EVENTS = new EventBatch(1);
+
+	private List<Subscription> subscriptions;
+	private EventBatch batch;
+	/** hosts indexed by address */
+	private DTNHost[] hostTable;
+	private boolean closed;
+
+	/**
+	 * Constructor.
+	 */
+	public EventBus() {
+		this.subscriptions = new ArrayList<Subscription>();
+		this.batch = new EventBatch(64);
+		this.hostTable = new DTNHost[64];
+		this.closed = false;
+	}
+
+	/**
+	 * Subscribes a listener to the events
+	 * @param listener The listener
+	 * @param filter Filter for the events or null to get all events
+	 * @param ownThread If true, the listener gets the events in its own
+	 * thread, if false, in the simulation thread
+	 */
+	public void subscribe(EventBatchListener listener, EventFilter filter,
+			boolean ownThread) {
+		if (filter == null) {
+			filter = new EventFilter();
+		}
+		Subscription s = new Subscription(listener, filter);
+		if (ownThread) {
+			s.start();
+		}
+		this.subscriptions.add(s);
+	}
+
+	/**
+	 * Records an event to the current batch
+	 */
+	private void record(int type, DTNHost host1, DTNHost host2, Message m,
+			boolean flag) {
+		record(type, host1, host2, m, flag, false);
+	}
+
+	private void record(int type, DTNHost host1, DTNHost host2, Message m,
+			boolean flag, boolean buffered) {
+		int a1 = addHost(host1);
+		int a2 = host2 != null ? addHost(host2) : -1;
+		batch.add(type, SimClock.getTime(), a1, a2, m, flag, buffered);
+	}
+
+	private int addHost(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= hostTable.length) {
+			hostTable = Arrays.copyOf(hostTable,
+					Math.max(hostTable.length * 2, address + 1));
+		}
+		hostTable[address] = host;
+		return address;
+	}
+
+	/**
+	 * Dispatches the events recorded since the previous dispatch to the
+	 * subscribers. Empty batches are not dispatched.
+	 */
+	public void dispatch() {
+		checkErrors();
+		if (batch.size() == 0) {
+			return;
+		}
+
+		EventBatch events = batch;
+		events.seal(SimClock.getTime(), hostTable);
+		this.batch = new EventBatch(events.size());
+
+		for (Subscription s : subscriptions) {
+			EventBatch selected = s.filter.acceptsAll() ? events :
+				events.select(s.filter);
+			if (selected.size() > 0) {
+				s.deliver(selected);
+			}
+		}
+	}
+
+	/**
+	 * Dispatches the remaining events and waits until all the subscriber
+	 * threads have processed their events. The bus doesn't record any
+	 * events after this.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		dispatch();
+		closed = true;
+		for (Subscription s : subscriptions) {
+			s.stop();
+		}
+		checkErrors();
+	}
+
+	/**
+	 * Throws an error if some subscriber thread failed
+	 */
+	private void checkErrors() {
+		for (Subscription s : subscriptions) {
+			if (s.error instanceof Error) {
+				throw (Error)s.error;
+			}
+			else if (s.error != null) {
+				throw new SimError("Event listener " + s.listener +
+						" failed: " + s.error, (Exception)s.error);
+			}
+		}
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		if (!closed) {
+			record(EventBatch.CONN_UP, host1, host2, null, false);
+		}
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		if (!closed) {
+			record(EventBatch.CONN_DOWN, host1, host2, null, false);
+		}
+	}
+
+	public void newMessage(Message m) {
+		if (!closed) {
+			record(EventBatch.MSG_CREATED, m.getFrom(), null, m, false);
+		}
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		if (!closed) {
+			record(EventBatch.MSG_STARTED, from, to, m, false);
+		}
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		if (!closed) {
+			record(EventBatch.MSG_ABORTED, from, to, m, false);
+		}
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		if (!closed) {
+			record(EventBatch.MSG_TRANSFERRED, from, to, m, firstDelivery,
+					to.getRouter().hasMessage(m.getId()));
+		}
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		if (!closed) {
+			record(EventBatch.MSG_DELETED, where, null, m, dropped);
+		}
+	}
+
+	/**
+	 * Dispatches the events of the update cycle
+	 */
+	public void updated(List<DTNHost> hosts) {
+		dispatch();
+	}
+
+	/**
+	 * A subscriber with its filter and (optional) thread
+	 */
+	private static class Subscription implements Runnable {
+		private final EventBatchListener listener;
+		private final EventFilter filter;
+		private BlockingQueue<EventBatch> queue;
+		private Thread thread;
+		private volatile Throwable error;
+
+		private Subscription(EventBatchListener listener, EventFilter filter) {
+			this.listener = listener;
+			this.filter = filter;
+			this.queue = null;
+			this.thread = null;
+			this.error = null;
+		}
+
+		private void start() {
+			this.queue = new ArrayBlockingQueue<EventBatch>(QUEUE_SIZE);
+			this.thread = new Thread(this, "Events to " +
+					listener.getClass().getSimpleName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private void deliver(EventBatch events) {
+			if (thread == null) {
+				listener.eventsDispatched(events);
+				return;
+			}
+			if (error != null) {
+				return; // thread has stopped
+			}
+			try {
+				queue.put(events);
+			} catch (InterruptedException e) {
+				throw new SimError("Interrupted while dispatching events", e);
+			}
+		}
+
+		private void stop() {
+			if (thread == null) {
+				return;
+			}
+			try {
+				if (error == null) {
+					queue.put(END_OF_EVENTS);
+				}
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new SimError("Interrupted while waiting for " +
+						thread.getName(), e);
+			}
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					EventBatch events = queue.take();
+					if (events == END_OF_EVENTS) {
+						return;
+					}
+					listener.eventsDispatched(events);
+				}
+			} catch (Throwable t) {
+				this.error = t;
+				queue.clear(); // unblock the simulation thread
+			}
+		}
+	}
+}
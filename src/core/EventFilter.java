@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Filter that selects which events of an {@link EventBus} a subscriber
+ * gets. Events can be selected by type, by the group of the hosts involved
+ * and by the time of the event.
+ */
+public class EventFilter {
+	private int typeMask;
+	private double startTime;
+	private double endTime;
+	private String groupId;
+
+	/**
+	 * Creates a filter that accepts all the events
+	 */
+	public EventFilter() {
+		this(EventBatch.ALL_EVENTS);
+	}
+
+	/**
+	 * Creates a filter that accepts all the events of the given types
+	 * @param typeMask Mask of the accepted event types (e.g.,
+	 * {@link EventBatch#MESSAGE_EVENTS})
+	 */
+	public EventFilter(int typeMask) {
+		this.typeMask = typeMask;
+		this.startTime = Double.NEGATIVE_INFINITY;
+		this.endTime = Double.POSITIVE_INFINITY;
+		this.groupId = null;
+	}
+
+	/**
+	 * Accepts only the events that happen during a time window
+	 * @param start Start time of the window (inclusive)
+	 * @param end End time of the window (exclusive)
+	 */
+	public void setTimeWindow(double start, double end) {
+		this.startTime = start;
+		this.endTime = end;
+	}
+
+	/**
+	 * Accepts only the events where (at least) one of the hosts belongs to
+	 * the given group
+	 * @param groupId The group ID of the hosts or null to accept all groups
+	 */
+	public void setGroup(String groupId) {
+		this.groupId = groupId;
+	}
+
+	/**
+	 * Returns true if the filter accepts all events
+	 * @return true if the filter accepts all events
+	 */
+	public boolean acceptsAll() {
+		return typeMask == EventBatch.ALL_EVENTS && groupId == null &&
+			startTime == Double.NEGATIVE_INFINITY &&
+			endTime == Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns true if the filter accepts an event
+	 * @param type Type of the event
+	 * @param time Time of the event
+	 * @param host1 The first host of the event
+	 * @param host2 The second host of the event (or null)
+	 * @return true if the event is accepted
+	 */
+	public boolean accepts(int type, double time, DTNHost host1,
+			DTNHost host2) {
+		if ((typeMask & EventBatch.mask(type)) == 0 || time < startTime ||
+				time >= endTime) {
+			return false;
+		}
+		if (groupId == null) {
+			return true;
+		}
+		return groupId.equals(host1.getGroupId()) ||
+			(host2 != null && groupId.equals(host2.getGroupId()));
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays store of the movement state of hosts: the locations,
+ * destinations, speeds and the times when the hosts can move next are
+ * kept in primitive arrays indexed by the host addresses, instead of in
+ * objects of every host. Loops over all the hosts (e.g., moving them or
+ * checking which hosts are within some range) read consecutive memory and
+ * no per-host objects are needed for the state. {@link DTNHost} is a view
+ * to its slot in the store.
+ */
+public class HostStates {
+	/** Initial capacity of the arrays */
+	private static final int INITIAL_CAPACITY = 64;
+	/**
+	 * Relative margin of the squared distance comparisons ({@value}). The
+	 * square of a range is rounded, so distances this close to the range
+	 * are not decided by comparing the squares.
+	 */
+	public static final double RANGE_MARGIN = 1e-9;
+
+	private double[] xs;
+	private double[] ys;
+	private double[] destXs;
+	private double[] destYs;
+	/** true for the hosts that have a destination */
+	private boolean[] hasDestination;
+	private double[] speeds;
+	private double[] nextMoveTimes;
+
+	/** work arrays of the range checks */
+	private double[] workX = new double[INITIAL_CAPACITY];
+	private double[] workY = new double[INITIAL_CAPACITY];
+
+	/**
+	 * Creates an empty store
+	 */
+	public HostStates() {
+		this.xs = new double[INITIAL_CAPACITY];
+		this.ys = new double[INITIAL_CAPACITY];
+		this.destXs = new double[INITIAL_CAPACITY];
+		this.destYs = new double[INITIAL_CAPACITY];
+		this.hasDestination = new boolean[INITIAL_CAPACITY];
+		this.speeds = new double[INITIAL_CAPACITY];
+		this.nextMoveTimes = new double[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Makes room for a host and resets the host's state (location 0,0, no
+	 * destination, speed 0 and may move at time 0)
+	 * @param address Address of the host
+	 */
+	synchronized void add(int address) {
+		if (address >= xs.length) {
+			int capacity = Math.max(xs.length * 2, address + 1);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			destXs = Arrays.copyOf(destXs, capacity);
+			destYs = Arrays.copyOf(destYs, capacity);
+			hasDestination = Arrays.copyOf(hasDestination, capacity);
+			speeds = Arrays.copyOf(speeds, capacity);
+			nextMoveTimes = Arrays.copyOf(nextMoveTimes, capacity);
+		}
+		xs[address] = 0;
+		ys[address] = 0;
+		hasDestination[address] = false;
+		speeds[address] = 0;
+		nextMoveTimes[address] = 0;
+	}
+
+	/**
+	 * Returns the X coordinate of a host's location
+	 * @param address Address of the host
+	 * @return The X coordinate
+	 */
+	public double getX(int address) {
+		return xs[address];
+	}
+
+	/**
+	 * Returns the Y coordinate of a host's location
+	 * @param address Address of the host
+	 * @return The Y coordinate
+	 */
+	public double getY(int address) {
+		return ys[address];
+	}
+
+	/**
+	 * Sets the location of a host
+	 * @param address Address of the host
+	 * @param x The X coordinate
+	 * @param y The Y coordinate
+	 */
+	void setLocation(int address, double x, double y) {
+		xs[address] = x;
+		ys[address] = y;
+	}
+
+	/**
+	 * Returns true if a host has a destination
+	 * @param address Address of the host
+	 * @return true if the host has a destination
+	 */
+	public boolean hasDestination(int address) {
+		return hasDestination[address];
+	}
+
+	/**
+	 * Returns the X coordinate of a host's destination
+	 * @param address Address of the host (that has a destination)
+	 * @return The X coordinate
+	 */
+	public double getDestinationX(int address) {
+		return destXs[address];
+	}
+
+	/**
+	 * Returns the Y coordinate of a host's destination
+	 * @param address Address of the host (that has a destination)
+	 * @return The Y coordinate
+	 */
+	public double getDestinationY(int address) {
+		return destYs[address];
+	}
+
+	/**
+	 * Sets the destination of a host
+	 * @param address Address of the host
+	 * @param x The X coordinate
+	 * @param y The Y coordinate
+	 */
+	void setDestination(int address, double x, double y) {
+		destXs[address] = x;
+		destYs[address] = y;
+		hasDestination[address] = true;
+	}
+
+	/**
+	 * Returns the speed of a host
+	 * @param address Address of the host
+	 * @return The speed (m/s)
+	 */
+	public double getSpeed(int address) {
+		return speeds[address];
+	}
+
+	/**
+	 * Sets the speed of a host
+	 * @param address Address of the host
+	 * @param speed The speed (m/s)
+	 */
+	void setSpeed(int address, double speed) {
+		speeds[address] = speed;
+	}
+
+	/**
+	 * Returns the simulation time when a host can move the next time
+	 * @param address Address of the host
+	 * @return The time
+	 */
+	public double getNextMoveTime(int address) {
+		return nextMoveTimes[address];
+	}
+
+	/**
+	 * Sets the simulation time when a host can move the next time
+	 * @param address Address of the host
+	 * @param time The time
+	 */
+	void setNextMoveTime(int address, double time) {
+		nextMoveTimes[address] = time;
+	}
+
+	/**
+	 * Moves a host towards its destination, snapping to the destination if
+	 * it is no further than the given distance
+	 * @param address Address of the host (that has a destination)
+	 * @param distance How far to move (meters)
+	 * @return The distance that was left over after reaching the
+	 * destination, or a negative value if the destination was not reached
+	 */
+	double moveTowardsDestination(int address, double distance) {
+		double dx = destXs[address] - xs[address];
+		double dy = destYs[address] - ys[address];
+		double toDest = Math.sqrt(dx*dx + dy*dy);
+
+		if (distance >= toDest) { // snap to destination
+			xs[address] = destXs[address];
+			ys[address] = destYs[address];
+			return distance - toDest;
+		}
+
+		xs[address] += (distance/toDest) * dx;
+		ys[address] += (distance/toDest) * dy;
+		return -1;
+	}
+
+	/**
+	 * Selects the hosts that may be within a range from a point. The
+	 * coordinates of the candidates are first copied to contiguous arrays
+	 * and then the squared distances are compared to the squared range in
+	 * a simple loop that the JIT compiler can vectorize. The comparison has
+	 * a small margin (see {@link #RANGE_MARGIN}), so no host within the
+	 * range is left out because of rounding, but hosts almost exactly at
+	 * the range may be selected too. Not thread-safe.
+	 * @param addresses Addresses of the candidate hosts
+	 * @param count Number of the candidates (from the start of the array)
+	 * @param x X coordinate of the point
+	 * @param y Y coordinate of the point
+	 * @param range The range
+	 * @param selected Array for the indexes (in the addresses array) of the
+	 * selected candidates, in the same order as the candidates. Must be at
+	 * least as long as the number of candidates.
+	 * @return The number of selected candidates
+	 */
+	public int selectWithinRange(int[] addresses, int count, double x,
+			double y, double range, int[] selected) {
+		if (workX.length < count) {
+			int capacity = Math.max(workX.length * 2, count);
+			workX = new double[capacity];
+			workY = new double[capacity];
+		}
+		double[] dxs = workX;
+		double[] dys = workY;
+		double limit = range * range * (1 + RANGE_MARGIN);
+
+		for (int i = 0; i < count; i++) {
+			int a = addresses[i];
+			dxs[i] = xs[a] - x;
+			dys[i] = ys[a] - y;
+		}
+		for (int i = 0; i < count; i++) {
+			dxs[i] = dxs[i] * dxs[i] + dys[i] * dys[i];
+		}
+
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (dxs[i] <= limit) {
+				selected[n++] = i;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Destination of a host as a Coord object. Setting the location of the
+	 * object sets the destination of the host.
+	 */
+	static class Destination extends Coord {
+		private final HostStates states;
+		private final int address;
+
+		/**
+		 * Creates a view of a host's destination
+		 * @param states The store
+		 * @param address Address of the host
+		 */
+		Destination(HostStates states, int address) {
+			this.states = states;
+			this.address = address;
+		}
+
+		@Override
+		public double getX() {
+			return states.destXs[address];
+		}
+
+		@Override
+		public double getY() {
+			return states.destYs[address];
+		}
+
+		@Override
+		public void setLocation(double x, double y) {
+			states.setDestination(address, x, y);
+		}
+
+		@Override
+		public void setLocation(Coord c) {
+			states.setDestination(address, c.getX(), c.getY());
+		}
+
+		@Override
+		public void translate(double dx, double dy) {
+			states.setDestination(address, getX() + dx, getY() + dy);
+		}
+
+		@Override
+		public Coord clone() {
+			return new Coord(getX(), getY());
+		}
+	}
+
+	/**
+	 * Location of a host as a Coord object. The coordinates are read from
+	 * and written to the store, so the object always follows the host,
+	 * until it is detached. Clones of the object are normal Coords.
+	 */
+	static class Location extends Coord {
+		private final HostStates states;
+		private final int address;
+		/** true if the object no longer follows the host */
+		private boolean detached;
+
+		/**
+		 * Creates a view of a host's location
+		 * @param states The store
+		 * @param address Address of the host
+		 */
+		Location(HostStates states, int address) {
+			this.states = states;
+			this.address = address;
+		}
+
+		/**
+		 * Detaches the object from the host: the object keeps the current
+		 * location of the host as its own location and doesn't follow the
+		 * host any more.
+		 */
+		void detach() {
+			super.setLocation(getX(), getY());
+			this.detached = true;
+		}
+
+		@Override
+		public double getX() {
+			return detached ? super.getX() : states.xs[address];
+		}
+
+		@Override
+		public double getY() {
+			return detached ? super.getY() : states.ys[address];
+		}
+
+		@Override
+		public void setLocation(double x, double y) {
+			if (detached) {
+				super.setLocation(x, y);
+			}
+			else {
+				states.setLocation(address, x, y);
+			}
+		}
+
+		@Override
+		public void setLocation(Coord c) {
+			setLocation(c.getX(), c.getY());
+		}
+
+		@Override
+		public void translate(double dx, double dy) {
+			setLocation(getX() + dx, getY() + dy);
+		}
+
+		@Override
+		public Coord clone() {
+			return new Coord(getX(), getY());
+		}
+	}
+}
@@ -4,11 +4,10 @@
  */
 package core;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * A message that is created at a node or passed between nodes.
@@ -20,14 +19,20 @@ public class Message implements Comparable<Message> {
 	private DTNHost to;
 	/** Identifier of the message */
 	private String id;
+	/** Interned index of the identifier */
+	private int idIndex;
 	/** Size of the message (bytes) */
 	private int size;
-	/** List of nodes this message has passed */
-	private List<DTNHost> path;
+	/** Last node of the (immutable) chain of nodes this message has passed.
+	 * Replicates share the chain and only add their own nodes to it. */
+	private Hop path;
 	/** Next unique identifier to be given */
 	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
+	/** Interned indexes of all message identifiers. Has an entry for every
+	 * ID created during the run and is cleared only by {@link #reset()} */
+	private static Map<String, Integer> idIndexes;
 	/** The time this message was received */
 	private double timeReceived;
 	/** The time when this message was created */
@@ -45,6 +50,9 @@ public class Message implements Comparable<Message> {
 	 * stored in the properties should be immutable because only a shallow
 	 * copy of the properties is made when replicating messages */
 	private Map<String, Object> properties;
+	/** True if the properties map may be shared with a replicate; the map
+	 * is then copied before it's modified */
+	private boolean sharedProperties;
 
 	/** Application ID of the application that created the message */
 	private String	appID;
@@ -66,8 +74,9 @@ public class Message implements Comparable<Message> {
 		this.from = from;
 		this.to = to;
 		this.id = id;
+		this.idIndex = internId(id);
 		this.size = size;
-		this.path = new ArrayList<DTNHost>();
+		this.path = null;
 		this.uniqueId = nextUniqueId;
 
 		this.timeCreated = SimClock.getTime();
@@ -76,6 +85,7 @@ public class Message implements Comparable<Message> {
 		this.responseSize = 0;
 		this.requestMsg = null;
 		this.properties = null;
+		this.sharedProperties = false;
 		this.appID = null;
 
 		Message.nextUniqueId++;
@@ -106,6 +116,49 @@ public class Message implements Comparable<Message> {
 		return this.id;
 	}
 
+	/**
+	 * Returns the interned index of the message ID. All messages with the
+	 * same ID (i.e., the replicates) have the same index and the indexes
+	 * are given in the order of the IDs' first use (0, 1, 2, ...), so they
+	 * can be used for compact primitive maps and sets of messages.
+	 * @return The index of the message id
+	 */
+	public int getIdIndex() {
+		return this.idIndex;
+	}
+
+	/**
+	 * Returns the interned index of a message ID
+	 * @param id The message ID
+	 * @return The index or -1 if no message has had the ID
+	 * @see #getIdIndex()
+	 */
+	public static int getIdIndex(String id) {
+		Integer index = idIndexes.get(id);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Returns the number of interned message IDs. All the ID indexes are
+	 * smaller than this.
+	 * @return the number of interned message IDs
+	 */
+	public static int getNrofIds() {
+		return idIndexes.size();
+	}
+
+	/**
+	 * Returns the index of a message ID, interning the ID if it's new
+	 */
+	private static int internId(String id) {
+		Integer index = idIndexes.get(id);
+		if (index == null) {
+			index = idIndexes.size();
+			idIndexes.put(id, index);
+		}
+		return index;
+	}
+
 	/**
 	 * Returns an ID that is unique per message instance
 	 * (different for replicates too)
@@ -128,15 +181,15 @@ public class Message implements Comparable<Message> {
 	 * @param node The node to add
 	 */
 	public void addNodeOnPath(DTNHost node) {
-		this.path.add(node);
+		this.path = new Hop(node, this.path);
 	}
 
 	/**
 	 * Returns a list of nodes this message has passed so far
-	 * @return The list as vector
+	 * @return The list (unmodifiable)
 	 */
 	public List<DTNHost> getHops() {
-		return this.path;
+		return this.path.getList();
 	}
 
 	/**
@@ -144,7 +197,7 @@ public class Message implements Comparable<Message> {
 	 * @return the amount of hops this message has passed
 	 */
 	public int getHopCount() {
-		return this.path.size() -1;
+		return this.path.length - 1;
 	}
 
 	/**
@@ -250,13 +303,15 @@ public class Message implements Comparable<Message> {
 	}
 
 	/**
-	 * Deep copies message data from other message. If new fields are
+	 * Copies message data from other message. The path and the properties
+	 * are shared with the other message (until either of the messages
+	 * modifies them), so copying takes constant time. If new fields are
 	 * introduced to this class, most likely they should be copied here too
 	 * (unless done in constructor).
 	 * @param m The message where the data is copied
 	 */
 	protected void copyFrom(Message m) {
-		this.path = new ArrayList<DTNHost>(m.path);
+		this.path = m.path;
 		this.timeCreated = m.timeCreated;
 		this.responseSize = m.responseSize;
 		this.requestMsg  = m.requestMsg;
@@ -264,10 +319,9 @@ public class Message implements Comparable<Message> {
 		this.appID = m.appID;
 
 		if (m.properties != null) {
-			Set<String> keys = m.properties.keySet();
-			for (String key : keys) {
-				updateProperty(key, m.getProperty(key));
-			}
+			this.properties = m.properties;
+			this.sharedProperties = true;
+			m.sharedProperties = true;
 		}
 	}
 
@@ -317,6 +371,11 @@ public class Message implements Comparable<Message> {
 			   that don't use the property feature  */
 			this.properties = new HashMap<String, Object>();
 		}
+		else if (this.sharedProperties) {
+			/* copy on write: don't change the replicates' properties */
+			this.properties = new HashMap<String, Object>(this.properties);
+			this.sharedProperties = false;
+		}
 
 		this.properties.put(key, value);
 	}
@@ -331,6 +390,49 @@ public class Message implements Comparable<Message> {
 		return m;
 	}
 
+	/**
+	 * A node on the path of a message. The nodes form an immutable chain
+	 * from the last node to the first one.
+	 */
+	private static final class Hop {
+		private final DTNHost host;
+		private final Hop previous;
+		/** number of nodes in the chain up to and including this node */
+		private final int length;
+		/** the chain as a list (created when needed) */
+		private List<DTNHost> list;
+
+		private Hop(DTNHost host, Hop previous) {
+			this.host = host;
+			this.previous = previous;
+			this.length = (previous == null ? 0 : previous.length) + 1;
+		}
+
+		/**
+		 * Returns the nodes of the chain (from the first to this one)
+		 */
+		private List<DTNHost> getList() {
+			if (list == null) {
+				final DTNHost[] hosts = new DTNHost[length];
+				Hop h = this;
+				for (int i = length - 1; i >= 0; i--) {
+					hosts[i] = h.host;
+					h = h.previous;
+				}
+				list = new AbstractList<DTNHost>() {
+					public DTNHost get(int index) {
+						return hosts[index];
+					}
+
+					public int size() {
+						return hosts.length;
+					}
+				};
+			}
+			return list;
+		}
+	}
+
 	/**
 	 * Compares two messages by their ID (alphabetically).
 	 * @see String#compareTo(String)
@@ -344,6 +446,7 @@ public class Message implements Comparable<Message> {
 	 */
 	public static void reset() {
 		nextUniqueId = 0;
+		idIndexes = new HashMap<String, Integer>();
 	}
 
 	/**
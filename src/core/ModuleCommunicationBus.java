@@ -5,6 +5,7 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -13,14 +14,39 @@ import java.util.List;
  * post data, subscribe to data changes and also poll for data values.
  * This is fairly similar to Message class' property interface, but these
  * values are shared for a node instead of message.
+ * <P>
+ * Keys of frequently used double and integer values can be registered
+ * to typed slots (see {@link #registerDouble(String)} and
+ * {@link #registerInt(String)}). The values of the slots are stored as
+ * primitives in arrays indexed by the slot, so they can be read and
+ * updated using the slot index without boxing or hash lookups. The
+ * listeners of a slot are notified only when its value changes. The
+ * string key methods work for the slot values too.</P>
  */
 public class ModuleCommunicationBus {
 	/** Initial capacity for the listener lists (instead of 10) */
 	private static int INIT_CAPACITY = 3;
+
+	/** Slot indexes of the registered keys. Replaced (never modified) when
+	 * a key is registered, so it can be read without locking. */
+	private static volatile HashMap<String, Integer> slotIndexes =
+		new HashMap<String, Integer>();
+	/** Keys of the slots by slot index (replaced like slotIndexes) */
+	private static volatile String[] slotKeys = new String[0];
+	/** true for the slots of integer values (replaced like slotIndexes) */
+	private static volatile boolean[] intSlots = new boolean[0];
+
 	/** The values in the blackboard (or null if none)*/
 	private HashMap<String, Object> values;
 	/** Subscribed listeners (or null if none)*/
 	private HashMap<String, List<ModuleCommunicationListener>> listeners;
+	/** Values of the slots (integers are stored as doubles, which is
+	 * exact) or null if no slot has a value */
+	private double[] slotValues;
+	/** true for the slots that have a value (or null if none) */
+	private boolean[] slotHasValue;
+	/** Subscribed listeners of the slots (or null if none) */
+	private List<ModuleCommunicationListener>[] slotListeners;
 
 	/**
 	 * Constructor.
@@ -28,6 +54,71 @@ public class ModuleCommunicationBus {
 	public ModuleCommunicationBus() {
 		this.values = null; /* use lazy creation  */
 		this.listeners = null;
+		this.slotValues = null;
+		this.slotHasValue = null;
+		this.slotListeners = null;
+	}
+
+	/**
+	 * Registers a key to a slot of double values. After this, the value of
+	 * the key must be a Double in all the buses. Keys should be registered
+	 * before any bus has a value for them, e.g., when initializing the
+	 * class that defines the key.
+	 * @param key The key to register
+	 * @return Index of the slot of the key. Registering the same key again
+	 * returns the same index.
+	 * @throws SimError if the key is already registered to an integer slot
+	 */
+	public static int registerDouble(String key) throws SimError {
+		return register(key, false);
+	}
+
+	/**
+	 * Registers a key to a slot of integer values. After this, the value of
+	 * the key must be an Integer in all the buses.
+	 * @param key The key to register
+	 * @return Index of the slot of the key
+	 * @throws SimError if the key is already registered to a double slot
+	 * @see #registerDouble(String)
+	 */
+	public static int registerInt(String key) throws SimError {
+		return register(key, true);
+	}
+
+	private static synchronized int register(String key, boolean isInt) {
+		Integer slot = slotIndexes.get(key);
+		if (slot != null) {
+			if (intSlots[slot] != isInt) {
+				throw new SimError("Key " + key + " is already registered " +
+						"to a slot of another type");
+			}
+			return slot;
+		}
+
+		int index = slotKeys.length;
+		String[] keys = Arrays.copyOf(slotKeys, index + 1);
+		keys[index] = key;
+		boolean[] ints = Arrays.copyOf(intSlots, index + 1);
+		ints[index] = isInt;
+		HashMap<String, Integer> indexes =
+			new HashMap<String, Integer>(slotIndexes);
+		indexes.put(key, index);
+
+		/* publish the arrays before the index */
+		slotKeys = keys;
+		intSlots = ints;
+		slotIndexes = indexes;
+		return index;
+	}
+
+	/**
+	 * Returns the slot index of a key
+	 * @param key The key
+	 * @return The slot index or -1 if the key is not registered to a slot
+	 */
+	public static int getSlot(String key) {
+		Integer slot = slotIndexes.get(key);
+		return slot == null ? -1 : slot;
 	}
 
 	/**
@@ -40,7 +131,7 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if there is already a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (this.values != null && this.values.containsKey(key)) {
+		if (containsProperty(key)) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("A value for the key " + key +
 					" already exists");
@@ -56,6 +147,13 @@ public class ModuleCommunicationBus {
 	 * @return The stored object or null if it isn't found
 	 */
 	public Object getProperty(String key) {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			if (!containsProperty(slot)) {
+				return null;
+			}
+			return box(slot, this.slotValues[slot]);
+		}
 		if (this.values == null) {
 			return null;
 		}
@@ -68,6 +166,10 @@ public class ModuleCommunicationBus {
 	 * @return true if the value exists, false if not
 	 */
 	public boolean containsProperty(String key) {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			return containsProperty(slot);
+		}
 		if (this.values == null) {
 			return false;
 		}
@@ -80,8 +182,20 @@ public class ModuleCommunicationBus {
 	 * checks for name space clashes.
 	 * @param key The key which is used to lookup the value
 	 * @param value The new value to store
+	 * @throws SimError if the key has a slot and the value is not of the
+	 * slot's type
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			if (intSlots[slot] ? !(value instanceof Integer) :
+					!(value instanceof Double)) {
+				throw new SimError("No " + (intSlots[slot] ? "Integer" :
+						"Double") + " value for key " + key);
+			}
+			setSlot(slot, ((Number)value).doubleValue());
+			return;
+		}
 		if (this.values == null) {
 			/* lazy creation to prevent performance overhead for classes
 			   that don't use the property feature  */
@@ -100,6 +214,10 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double updateDouble(String key, double delta) throws SimError {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			return updateDouble(slot, delta);
+		}
 		double current;
 		try {
 			current = (Double)getProperty(key);
@@ -123,6 +241,10 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double getDouble(String key, double naValue) throws SimError {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			return getDouble(slot, naValue);
+		}
 		Object value = this.getProperty(key);
 		if (value == null) {
 			return naValue;
@@ -143,6 +265,10 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not an Integer
 	 */
 	public int getInt(String key, int naValue) throws SimError {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			return getInt(slot, naValue);
+		}
 		Object value = this.getProperty(key);
 		if (value == null) {
 			return naValue;
@@ -161,6 +287,11 @@ public class ModuleCommunicationBus {
 	 * @param module The module to subscribe.
 	 */
 	public void subscribe(String key, ModuleCommunicationListener module) {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			subscribe(slot, module);
+			return;
+		}
 		if (this.listeners == null) {
 			/* first listener for the whole node */
 			this.listeners =
@@ -184,6 +315,16 @@ public class ModuleCommunicationBus {
 	 */
 	public void unsubscribe(String key, ModuleCommunicationListener module) {
 		List<ModuleCommunicationListener> list;
+		int slot = getSlot(key);
+
+		if (slot >= 0) {
+			if (this.slotListeners != null &&
+					slot < this.slotListeners.length &&
+					this.slotListeners[slot] != null) {
+				this.slotListeners[slot].remove(module);
+			}
+			return;
+		}
 
 		if (this.listeners == null) {
 			return; /* no subscriptions */
@@ -197,6 +338,184 @@ public class ModuleCommunicationBus {
 		list.remove(module);
 	}
 
+	/**
+	 * Returns true if the bus contains a value for the given slot
+	 * @param slot Index of the slot
+	 * @return true if the value exists, false if not
+	 */
+	public boolean containsProperty(int slot) {
+		return this.slotHasValue != null && slot < this.slotHasValue.length &&
+			this.slotHasValue[slot];
+	}
+
+	/**
+	 * Adds a value for a double slot
+	 * @param slot Index of the slot (see {@link #registerDouble(String)})
+	 * @param value The value to store
+	 * @throws SimError if there is already a value for the slot or the slot
+	 * is not a double slot
+	 */
+	public void addDouble(int slot, double value) throws SimError {
+		checkNoValue(slot);
+		setDouble(slot, value);
+	}
+
+	/**
+	 * Adds a value for an integer slot
+	 * @param slot Index of the slot (see {@link #registerInt(String)})
+	 * @param value The value to store
+	 * @throws SimError if there is already a value for the slot or the slot
+	 * is not an integer slot
+	 */
+	public void addInt(int slot, int value) throws SimError {
+		checkNoValue(slot);
+		setInt(slot, value);
+	}
+
+	/**
+	 * Sets the value of a double slot. The listeners of the slot are
+	 * notified if the value changes.
+	 * @param slot Index of the slot
+	 * @param value The new value
+	 * @throws SimError if the slot is not a double slot
+	 */
+	public void setDouble(int slot, double value) throws SimError {
+		checkType(slot, false);
+		setSlot(slot, value);
+	}
+
+	/**
+	 * Sets the value of an integer slot. The listeners of the slot are
+	 * notified if the value changes.
+	 * @param slot Index of the slot
+	 * @param value The new value
+	 * @throws SimError if the slot is not an integer slot
+	 */
+	public void setInt(int slot, int value) throws SimError {
+		checkType(slot, true);
+		setSlot(slot, value);
+	}
+
+	/**
+	 * Changes the value of a double slot with the value delta
+	 * @param slot Index of the slot
+	 * @param delta Value added to the old value
+	 * @return The new value
+	 * @throws SimError if the slot has no value or it is not a double slot
+	 */
+	public double updateDouble(int slot, double delta) throws SimError {
+		checkType(slot, false);
+		if (!containsProperty(slot)) {
+			throw new SimError("No value for key " + slotKeys[slot]);
+		}
+		double value = this.slotValues[slot] + delta;
+		setSlot(slot, value);
+		return value;
+	}
+
+	/**
+	 * Returns the value of a double slot
+	 * @param slot Index of the slot
+	 * @param naValue The value to return if the slot has no value
+	 * @return The value of the slot, or the naValue if it has no value
+	 * @throws SimError if the slot is not a double slot
+	 */
+	public double getDouble(int slot, double naValue) throws SimError {
+		checkType(slot, false);
+		return containsProperty(slot) ? this.slotValues[slot] : naValue;
+	}
+
+	/**
+	 * Returns the value of an integer slot
+	 * @param slot Index of the slot
+	 * @param naValue The value to return if the slot has no value
+	 * @return The value of the slot, or the naValue if it has no value
+	 * @throws SimError if the slot is not an integer slot
+	 */
+	public int getInt(int slot, int naValue) throws SimError {
+		checkType(slot, true);
+		return containsProperty(slot) ? (int)this.slotValues[slot] : naValue;
+	}
+
+	/**
+	 * Subscribes a module to changes of a slot's value
+	 * @param slot Index of the slot
+	 * @param module The module to subscribe
+	 */
+	public void subscribe(int slot, ModuleCommunicationListener module) {
+		ensureSlot(slot);
+		if (this.slotListeners[slot] == null) {
+			this.slotListeners[slot] =
+				new ArrayList<ModuleCommunicationListener>(INIT_CAPACITY);
+		}
+		this.slotListeners[slot].add(module);
+	}
+
+	private void checkType(int slot, boolean isInt) {
+		if (intSlots[slot] != isInt) {
+			throw new SimError("No " + (isInt ? "Integer" : "Double") +
+					" value for key " + slotKeys[slot]);
+		}
+	}
+
+	private void checkNoValue(int slot) {
+		if (containsProperty(slot)) {
+			throw new SimError("A value for the key " + slotKeys[slot] +
+					" already exists");
+		}
+	}
+
+	/**
+	 * Sets the value of a slot and notifies the slot's listeners if the
+	 * value changed
+	 */
+	private void setSlot(int slot, double value) {
+		ensureSlot(slot);
+		if (this.slotHasValue[slot] && Double.doubleToRawLongBits(
+				this.slotValues[slot]) == Double.doubleToRawLongBits(value)) {
+			return; /* no change */
+		}
+		this.slotValues[slot] = value;
+		this.slotHasValue[slot] = true;
+
+		List<ModuleCommunicationListener> list = this.slotListeners[slot];
+		if (list == null) {
+			return;
+		}
+		Object newValue = box(slot, value);
+		for (ModuleCommunicationListener mcl : list) {
+			mcl.moduleValueChanged(slotKeys[slot], newValue);
+		}
+	}
+
+	/**
+	 * Makes sure that the slot arrays have room for the given slot
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void ensureSlot(int slot) {
+		if (this.slotValues != null && slot < this.slotValues.length) {
+			return;
+		}
+		/* lazy creation, with room for all the registered slots */
+		int capacity = Math.max(slotKeys.length, slot + 1);
+		if (this.slotValues == null) {
+			this.slotValues = new double[capacity];
+			this.slotHasValue = new boolean[capacity];
+			this.slotListeners = new List[capacity];
+		}
+		else {
+			this.slotValues = Arrays.copyOf(this.slotValues, capacity);
+			this.slotHasValue = Arrays.copyOf(this.slotHasValue, capacity);
+			this.slotListeners = Arrays.copyOf(this.slotListeners, capacity);
+		}
+	}
+
+	private static Object box(int slot, double value) {
+		if (intSlots[slot]) {
+			return Integer.valueOf((int)value);
+		}
+		return Double.valueOf(value);
+	}
 
 	/**
 	 * Notifies all listeners that have subscribed to the given key
@@ -223,7 +542,17 @@ public class ModuleCommunicationBus {
 
 	@Override
 	public String toString() {
-		return "ComBus with mapping: " + (this.values != null ?
-				this.values.toString() : "n/a");
+		HashMap<String, Object> mapping = new HashMap<String, Object>();
+		if (this.values != null) {
+			mapping.putAll(this.values);
+		}
+		for (int i = 0; this.slotValues != null && i < this.slotValues.length;
+				i++) {
+			if (this.slotHasValue[i]) {
+				mapping.put(slotKeys[i], box(i, this.slotValues[i]));
+			}
+		}
+		return "ComBus with mapping: " + (!mapping.isEmpty() ?
+				mapping.toString() : "n/a");
 	}
 }
@@ -7,9 +7,12 @@ package core;
 import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
+import java.util.RandomAccess;
 
 import routing.util.EnergyModel;
 
@@ -45,6 +48,15 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	/** {@link ModuleCommunicationBus} identifier for the "transmission speed"
     variable. Value type: integer */
 	public static final String SPEED_ID = "Network.speed";
+	/** Bus slot of the {@link #SCAN_INTERVAL_ID} variable */
+	public static final int SCAN_INTERVAL_SLOT =
+		ModuleCommunicationBus.registerDouble(SCAN_INTERVAL_ID);
+	/** Bus slot of the {@link #RANGE_ID} variable */
+	public static final int RANGE_SLOT =
+		ModuleCommunicationBus.registerDouble(RANGE_ID);
+	/** Bus slot of the {@link #SPEED_ID} variable */
+	public static final int SPEED_SLOT =
+		ModuleCommunicationBus.registerInt(SPEED_ID);
 
 	private static final int CON_UP = 1;
 	private static final int CON_DOWN = 2;
@@ -70,6 +82,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	private int activenessJitterMax;
 	/** this interface's activeness jitter value */
 	private int activenessJitterValue;
+	/** true if some interfaces may become inactive during the simulation */
+	private static boolean inactivityPossible;
 
 	static {
 		DTNSim.registerForReset(NetworkInterface.class.getCanonicalName());
@@ -81,6 +95,17 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public static void reset() {
 		rng = new Random(0);
+		inactivityPossible = false;
+	}
+
+	/**
+	 * Tells that some interfaces may become inactive during the simulation
+	 * for other reasons than activeness settings (e.g., running out of
+	 * energy). This disables skipping the interfaces that are out of range
+	 * before the connection checks (see {@link #connectToNearInterfaces()}).
+	 */
+	public static void setInactivityPossible() {
+		inactivityPossible = true;
 	}
 
 	/**
@@ -88,7 +113,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public NetworkInterface(Settings s) {
 		this.interfacetype = s.getNameSpace();
-		this.connections = new ArrayList<Connection>();
+		this.connections = new ConnectionList();
 
 		this.transmitRange = s.getDouble(TRANSMIT_RANGE_S);
 		this.transmitSpeed = s.getInt(TRANSMIT_SPEED_S);
@@ -101,14 +126,14 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public NetworkInterface() {
 		this.interfacetype = "Default";
-		this.connections = new ArrayList<Connection>();
+		this.connections = new ConnectionList();
 	}
 
 	/**
 	 * copy constructor
 	 */
 	public NetworkInterface(NetworkInterface ni) {
-		this.connections = new ArrayList<Connection>();
+		this.connections = new ConnectionList();
 		this.host = ni.host;
 		this.cListeners = ni.cListeners;
 		this.interfacetype = ni.interfacetype;
@@ -139,27 +164,47 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @param host The host where the network interface is
 	 */
 	public void setHost(DTNHost host) {
+		setHost(host, true);
+	}
+
+	/**
+	 * Sets the host and optionally adds this interface to the connectivity
+	 * optimizer of its type
+	 * @param host The host where the network interface is
+	 * @param addToOptimizer If false, the interface is not added to the
+	 * optimizer before a call to {@link #addToOptimizer()}
+	 */
+	void setHost(DTNHost host, boolean addToOptimizer) {
 		this.host = host;
 		ModuleCommunicationBus comBus = host.getComBus();
 
-		if (!comBus.containsProperty(SCAN_INTERVAL_ID) &&
-		    !comBus.containsProperty(RANGE_ID)) {
+		if (!comBus.containsProperty(SCAN_INTERVAL_SLOT) &&
+		    !comBus.containsProperty(RANGE_SLOT)) {
 			/* add properties and subscriptions only for the 1st interface */
 			/* TODO: support for multiple interfaces */
-			comBus.addProperty(SCAN_INTERVAL_ID, this.scanInterval);
-			comBus.addProperty(RANGE_ID, this.transmitRange);
-			comBus.addProperty(SPEED_ID, this.transmitSpeed);
-			comBus.subscribe(SCAN_INTERVAL_ID, this);
-			comBus.subscribe(RANGE_ID, this);
-			comBus.subscribe(SPEED_ID, this);
+			comBus.addDouble(SCAN_INTERVAL_SLOT, this.scanInterval);
+			comBus.addDouble(RANGE_SLOT, this.transmitRange);
+			comBus.addInt(SPEED_SLOT, this.transmitSpeed);
+			comBus.subscribe(SCAN_INTERVAL_SLOT, this);
+			comBus.subscribe(RANGE_SLOT, this);
+			comBus.subscribe(SPEED_SLOT, this);
 		}
 
+		optimizer = null;
+		if (addToOptimizer) {
+			addToOptimizer();
+		}
+	}
+
+	/**
+	 * Adds this interface to the connectivity optimizer of its type, at the
+	 * current location of the host (if the interface has a radio range)
+	 */
+	void addToOptimizer() {
 		if (transmitRange > 0) {
 			optimizer = ConnectivityGrid.ConnectivityGridFactory(
 					this.interfacetype.hashCode(), transmitRange);
 			optimizer.addInterface(this);
-		} else {
-			optimizer = null;
 		}
 	}
 
@@ -170,6 +215,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	public void setGroupSettings(Settings s) {
 		s.setSubNameSpace(NET_SUB_NS);
 		ah = new ActivenessHandler(s);
+		if (!ah.isAlwaysActive()) {
+			inactivityPossible = true;
+		}
 
 		if (s.contains(SCAN_INTERVAL_S)) {
 			this.scanInterval =  s.getDouble(SCAN_INTERVAL_S);
@@ -237,8 +285,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 
 		active = ah.isActive(this.activenessJitterValue);
 
-		if (active && host.getComBus().getDouble(EnergyModel.ENERGY_VALUE_ID,
-					1) <= 0) {
+		if (active && host.getComBus().getDouble(
+				EnergyModel.ENERGY_VALUE_SLOT, 1) <= 0) {
 			/* TODO: better way to check battery level */
 			/* no battery -> inactive */
 			active = false;
@@ -247,11 +295,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		if (active == false && this.transmitRange > 0) {
 			/* not active -> make range 0 */
 			this.oldTransmitRange = this.transmitRange;
-			host.getComBus().updateProperty(RANGE_ID, 0.0);
+			host.getComBus().setDouble(RANGE_SLOT, 0.0);
 		} else if (active == true && this.transmitRange == 0.0) {
 			/* active, but range == 0 -> restore range  */
-			host.getComBus().updateProperty(RANGE_ID,
-					this.oldTransmitRange);
+			host.getComBus().setDouble(RANGE_SLOT, this.oldTransmitRange);
 		}
 		return active;
 	}
@@ -360,8 +407,44 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 			smallerRange = myRange;
 		}
 
-		return this.host.getLocation().distance(
-				anotherInterface.getHost().getLocation()) <= smallerRange;
+		Coord loc = this.host.getLocation();
+		Coord other = anotherInterface.getHost().getLocation();
+		double dx = loc.getX() - other.getX();
+		double dy = loc.getY() - other.getY();
+		double distSq = dx*dx + dy*dy;
+		double rangeSq = smallerRange * smallerRange;
+
+		/* compare squares, unless the distance is (almost) the range */
+		if (distSq < rangeSq * (1 - HostStates.RANGE_MARGIN)) {
+			return true;
+		}
+		else if (distSq > rangeSq * (1 + HostStates.RANGE_MARGIN)) {
+			return false;
+		}
+		return Math.sqrt(distSq) <= smallerRange;
+	}
+
+	/**
+	 * Tries to connect this interface to all the interfaces near it (as
+	 * given by the connectivity optimizer) using
+	 * {@link #connect(NetworkInterface)}. Unless some interfaces may become
+	 * inactive, the interfaces that are certainly out of range of this
+	 * interface are skipped in a batch range check before the connection
+	 * checks. Skipping them has no effect then, since the checks before the
+	 * range check only read the activeness of the interfaces.
+	 */
+	protected void connectToNearInterfaces() {
+		Collection<NetworkInterface> interfaces;
+		if (inactivityPossible) {
+			interfaces = optimizer.getNearInterfaces(this);
+		}
+		else {
+			interfaces = optimizer.getNearInterfaces(this, getTransmitRange());
+		}
+
+		for (NetworkInterface i : interfaces) {
+			connect(i);
+		}
 	}
 
 	/**
@@ -370,6 +453,12 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @return True if the two hosts are connected
 	 */
 	protected boolean isConnected(NetworkInterface netinterface) {
+		ConnectionList list = (ConnectionList)this.connections;
+		if (!list.sharedPeers()) {
+			Connection con = list.getTo(netinterface.getHost());
+			return con != null && con.getOtherInterface(this) == netinterface;
+		}
+
 		for (int i = 0; i < this.connections.size(); i++) {
 			if (this.connections.get(i).getOtherInterface(this) ==
 				netinterface) {
@@ -457,6 +546,15 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public void destroyConnection(NetworkInterface anotherInterface) {
 		DTNHost anotherHost = anotherInterface.getHost();
+		ConnectionList list = (ConnectionList)this.connections;
+		if (!list.sharedPeers()) {
+			Connection con = list.getTo(anotherHost);
+			if (con != null) {
+				removeConnectionByIndex(list.indexOf(con), anotherInterface);
+			}
+			return;
+		}
+
 		for (int i=0; i < this.connections.size(); i++) {
 			if (this.connections.get(i).getOtherNode(this.host) == anotherHost){
 				removeConnectionByIndex(i, anotherInterface);
@@ -505,6 +603,133 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return host.getLocation();
 	}
 
+	/**
+	 * List of the connections of the interface. Keeps a map from the
+	 * addresses of the connected hosts to the connections up to date and
+	 * tells the host when the connections change, no matter how the list is
+	 * modified (the list is accessible to subclasses and other interfaces).
+	 */
+	private class ConnectionList extends AbstractList<Connection>
+			implements RandomAccess {
+		private Connection[] items = new Connection[2];
+		private int size;
+		/** connections by the addresses of the other hosts */
+		private ConnectionMap peers = new ConnectionMap();
+		/** number of connections not in the map, because there is another
+		 * connection to the same host */
+		private int nrofShared;
+
+		@Override
+		public Connection get(int index) {
+			checkIndex(index, size);
+			return items[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void add(int index, Connection con) {
+			checkIndex(index, size + 1);
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+			}
+			System.arraycopy(items, index, items, index + 1, size - index);
+			items[index] = con;
+			size++;
+			modCount++;
+			added(con);
+		}
+
+		@Override
+		public Connection remove(int index) {
+			checkIndex(index, size);
+			Connection con = items[index];
+			System.arraycopy(items, index + 1, items, index, size - index - 1);
+			items[--size] = null;
+			modCount++;
+			removed(con);
+			return con;
+		}
+
+		@Override
+		public Connection set(int index, Connection con) {
+			Connection old = remove(index);
+			add(index, con);
+			return old;
+		}
+
+		/**
+		 * Returns true if some host has more than one connection in the list
+		 * (then the map has only one of them)
+		 * @return true if some host has more than one connection
+		 */
+		boolean sharedPeers() {
+			return nrofShared > 0;
+		}
+
+		/**
+		 * Returns the connection to a host. If there is more than one, one of
+		 * them is returned.
+		 * @param other The other host
+		 * @return A connection to the host or null if there is no connection
+		 */
+		Connection getTo(DTNHost other) {
+			return peers.get(other.getAddress());
+		}
+
+		private void added(Connection con) {
+			if (peers.put(peerAddress(con), con) != null) {
+				nrofShared++;
+			}
+			hostConnectionsChanged();
+		}
+
+		private void removed(Connection con) {
+			int address = peerAddress(con);
+			if (peers.get(address) != con) {
+				nrofShared--; /* wasn't in the map */
+			}
+			else {
+				peers.remove(address);
+				if (nrofShared > 0) {
+					/* map the host to its next connection, if any */
+					for (int i = 0; i < size; i++) {
+						if (peerAddress(items[i]) == address) {
+							peers.put(address, items[i]);
+							nrofShared--;
+							break;
+						}
+					}
+				}
+			}
+			hostConnectionsChanged();
+		}
+
+		private int peerAddress(Connection con) {
+			return con.getOtherInterface(NetworkInterface.this).getHost().
+				getAddress();
+		}
+
+		private void checkIndex(int index, int limit) {
+			if (index < 0 || index >= limit) {
+				throw new IndexOutOfBoundsException("Index: " + index +
+						", Size: " + size);
+			}
+		}
+	}
+
+	/**
+	 * Tells the host that the connections of this interface changed
+	 */
+	private void hostConnectionsChanged() {
+		if (this.host != null) {
+			this.host.connectionsChanged();
+		}
+	}
+
 	/**
 	 * Returns a string representation of the object.
 	 * @return a string representation of the object.
@@ -7,8 +7,8 @@ package core;
 import java.io.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
@@ -55,10 +55,16 @@ public class Settings {
 
 	/** run index for run-specific settings */
 	private static int runIndex = 0;
+	/** the settings compiled for the current run (null if not compiled) */
+	private static volatile CompiledSettings compiled = null;
 	private String namespace = null; // namespace to look the settings from
 	private String secondaryNamespace = null;
 	private Stack<String> oldNamespaces;
 	private Stack<String> secondaryNamespaces;
+	/** the settings visible in the current namespace(s) */
+	private Map<String, CompiledSettings.Value> scope;
+	/** the compiled settings where the scope is from */
+	private CompiledSettings scopeSource;
 
 	/**
 	 * Creates a setting object with a namespace. Namespace is the prefix
@@ -97,6 +103,41 @@ public class Settings {
 	public static void setRunIndex(int index) {
 		runIndex = index;
 		writtenSettings.clear();
+		settingsChanged();
+	}
+
+	/**
+	 * Discards the compiled settings. Must be called whenever the settings
+	 * are changed; the settings are compiled again, for the current run
+	 * index, on the next request.
+	 */
+	protected static void settingsChanged() {
+		compiled = null;
+	}
+
+	/**
+	 * Returns the settings compiled for the current run, compiling them
+	 * first if needed
+	 * @return The compiled settings
+	 */
+	private static CompiledSettings getCompiled() {
+		CompiledSettings c = compiled;
+		if (c == null || !c.isCompiledFrom(props)) {
+			c = compile();
+		}
+		return c;
+	}
+
+	private static synchronized CompiledSettings compile() {
+		if (props == null) {
+			init(null);
+		}
+		CompiledSettings c = compiled;
+		if (c == null || !c.isCompiledFrom(props)) {
+			c = new CompiledSettings(props, runIndex);
+			compiled = c;
+		}
+		return c;
 	}
 
 	/**
@@ -142,6 +183,7 @@ public class Settings {
 	public void setNameSpace(String namespace) {
 		this.oldNamespaces.push(this.namespace);
 		this.namespace = namespace;
+		this.scopeSource = null;
 	}
 
 	/**
@@ -156,6 +198,7 @@ public class Settings {
 		this.namespace = this.namespace + "." + namespace;
 		this.secondaryNamespaces.push(this.secondaryNamespace);
 		this.secondaryNamespace = this.secondaryNamespace + "." + namespace;
+		this.scopeSource = null;
 	}
 
 	/**
@@ -206,6 +249,7 @@ public class Settings {
 	public void setSecondaryNamespace(String namespace) {
 		this.secondaryNamespaces.push(this.secondaryNamespace);
 		this.secondaryNamespace = namespace;
+		this.scopeSource = null;
 	}
 
 	/**
@@ -214,6 +258,7 @@ public class Settings {
 	 */
 	public void restoreNameSpace() {
 		this.namespace = this.oldNamespaces.pop();
+		this.scopeSource = null;
 	}
 
 	/**
@@ -223,6 +268,7 @@ public class Settings {
 	 */
 	public void restoreSecondaryNamespace() {
 		this.secondaryNamespace = this.secondaryNamespaces.pop();
+		this.scopeSource = null;
 	}
 
 	/**
@@ -260,6 +306,7 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		settingsChanged();
 
 		outFile = props.getProperty(SETTING_OUTPUT_S);
 		if (outFile != null) {
@@ -294,6 +341,7 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		settingsChanged();
 
 		String outFile = props.getProperty(SETTING_OUTPUT_S);
 		if (outFile != null) {
@@ -323,13 +371,14 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		settingsChanged();
 	}
 
 	/**
 	 * Writes the given setting string to the settings output (if any)
 	 * @param setting The string to write
 	 */
-	private static void outputSetting(String setting) {
+	private static synchronized void outputSetting(String setting) {
 		if (out != null && !writtenSettings.contains(setting)) {
 			if (writtenSettings.size() == 0) {
 				out.println("# Settings for run " + (runIndex + 1));
@@ -347,16 +396,52 @@ public class Settings {
 	 * @return True if the setting exists, false if not
 	 */
 	public boolean contains(String name) {
-		try {
-			String value = getSetting(name);
-			if (value == null) {
-				return false;
-			}
+		CompiledSettings.Value v = lookup(name);
+		if (v == null) {
+			return false;
+		}
+		output(v);
+		return true;
+	}
 
-			else return value.trim().length() > 0;
+	/**
+	 * Looks up a setting from the current namespace(s)
+	 * @param name Name of the setting
+	 * @return The setting or null if it was not found (or had no value)
+	 */
+	private CompiledSettings.Value lookup(String name) {
+		CompiledSettings c = getCompiled();
+		if (this.scopeSource != c) {
+			this.scope = c.getScope(this.namespace, this.secondaryNamespace);
+			this.scopeSource = c;
+		}
+		return this.scope.get(name);
+	}
+
+	/**
+	 * Looks up a setting that must exist
+	 * @param name Name of the setting
+	 * @return The setting
+	 * @throws SettingsError if the setting is not found from either one of
+	 * the namespaces
+	 */
+	private CompiledSettings.Value find(String name) {
+		CompiledSettings.Value v = lookup(name);
+		if (v == null) {
+			throw new SettingsError("Can't find setting " +
+					getPropertyNamesString(name));
 		}
-		catch (SettingsError e) {
-			return false; // didn't find the setting
+		output(v);
+		return v;
+	}
+
+	/**
+	 * Writes a setting to the settings output (if any)
+	 * @param v The setting
+	 */
+	private static void output(CompiledSettings.Value v) {
+		if (out != null) {
+			outputSetting(v.key + " = " + v.value);
 		}
 	}
 
@@ -388,35 +473,7 @@ public class Settings {
 	 * the namespaces
 	 */
 	public String getSetting(String name) {
-		String fullPropName;
-		if (props == null) {
-			init(null);
-		}
-		fullPropName = getFullPropertyName(name, false);
-		String value = props.getProperty(fullPropName);
-
-		if (value != null) { // found value, check if run setting can be parsed
-			value = parseRunSetting(value.trim());
-		}
-
-		if ((value == null || value.length() == 0) &&
-				this.secondaryNamespace != null) {
-			// try secondary namespace if the value wasn't found from primary
-			fullPropName = getFullPropertyName(name, true);
-			value = props.getProperty(fullPropName);
-
-			if (value != null) {
-				value = parseRunSetting(value.trim());
-			}
-		}
-
-		if (value == null || value.length() == 0) {
-			throw new SettingsError("Can't find setting " +
-					getPropertyNamesString(name));
-		}
-
-		outputSetting(fullPropName + " = " + value);
-		return value;
+		return find(name).value;
 	}
 
 	/**
@@ -428,19 +485,21 @@ public class Settings {
 	 * exist
 	 */
 	public String getSetting(String name, String defaultValue) {
-		if (!contains(name)) {
+		CompiledSettings.Value v = lookup(name);
+		if (v == null) {
 			return defaultValue;
-		} else {
-			return getSetting(name);
 		}
+		output(v);
+		return v.value;
 	}
 
 	/**
 	 * Parses run-specific settings from a String value
 	 * @param value The String to parse
+	 * @param runIndex The run index
 	 * @return The runIndex % arrayLength'th value of the run array
 	 */
-	private static String parseRunSetting(String value) {
+	static String parseRunSetting(String value, int runIndex) {
 		final String RUN_ARRAY_START = "[";
 		final String RUN_ARRAY_END = "]";
 		final String RUN_ARRAY_DELIM = ";";
@@ -486,7 +545,8 @@ public class Settings {
 	 * @return Value of the setting as a double
 	 */
 	public double getDouble(String name) {
-		return parseDouble(getSetting(name), name);
+		CompiledSettings.Value v = find(name);
+		return v.isNumber ? v.number : parseDouble(v.value, name);
 	}
 
 	/**
@@ -497,7 +557,10 @@ public class Settings {
 	 * @return Value of the setting as a double (or the default value)
 	 */
 	public double getDouble(String name, double defaultValue) {
-		return parseDouble(getSetting(name, ""+defaultValue), name);
+		if (lookup(name) == null) {
+			return defaultValue;
+		}
+		return getDouble(name);
 	}
 
 	/**
@@ -510,7 +573,21 @@ public class Settings {
 	 * (or the suffix wasn't recognized)
 	 */
 	private double parseDouble(String value, String setting) {
-		double number;
+		try {
+			return parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new SettingsError("Invalid numeric setting '" + value +
+					"' for '" + setting +"'\n" + e.getMessage());
+		}
+	}
+
+	/**
+	 * Parses a double value (with an optional suffix) from a String
+	 * @param value String value to parse
+	 * @return The value as a double
+	 * @throws NumberFormatException if the value wasn't a numeric value
+	 */
+	static double parseDouble(String value) {
 		int multiplier = 1;
 
 		if (value.endsWith("k")) {
@@ -540,13 +617,7 @@ public class Settings {
 			//replaceAll removes everything which is not a digit or point
 		}
 
-		try {
-			number = Double.parseDouble(value) * multiplier;
-		} catch (NumberFormatException e) {
-			throw new SettingsError("Invalid numeric setting '" + value +
-					"' for '" + setting +"'\n" + e.getMessage());
-		}
-		return number;
+		return Double.parseDouble(value) * multiplier;
 	}
 
 	/**
@@ -557,16 +628,7 @@ public class Settings {
 	 * @throws SettingsError if something went wrong with reading
 	 */
 	public String[] getCsvSetting(String name) {
-		ArrayList<String> values = new ArrayList<String>();
-		String csv = getSetting(name);
-		Scanner s = new Scanner(csv);
-		s.useDelimiter(",");
-
-		while (s.hasNext()) {
-			values.add(s.next().trim());
-		}
-
-		return values.toArray(new String[0]);
+		return find(name).getCsv();
 	}
 
 	/**
@@ -737,23 +799,14 @@ public class Settings {
 	 *  @see #getSetting(String)
 	 */
 	public boolean getBoolean(String name) {
-		String stringValue = getSetting(name);
-		boolean value;
+		CompiledSettings.Value v = find(name);
 
-		if (stringValue.equalsIgnoreCase("true") ||
-				stringValue.equals("1")) {
-			value = true;
-		}
-		else if (stringValue.equalsIgnoreCase("false") ||
-				stringValue.equals("0")) {
-			value = false;
-		}
-		else {
-			throw new SettingsError("Not a boolean value: '"+stringValue+
+		if (v.bool < 0) {
+			throw new SettingsError("Not a boolean value: '"+v.value+
 					"' for setting " + name);
 		}
 
-		return value;
+		return v.bool == 1;
 	}
 
 	/**
@@ -765,11 +818,10 @@ public class Settings {
 	 * exist
 	 */
 	public boolean getBoolean(String name, boolean defaultValue) {
-		if (!contains(name)) {
+		if (lookup(name) == null) {
 			return defaultValue;
-		} else {
-			return getBoolean(name);
 		}
+		return getBoolean(name);
 	}
 
 	/**
@@ -896,6 +948,12 @@ public class Settings {
 		if (!input.contains(FILL_DELIMITER)) {
 			return input;	// nothing to fill
 		}
+		if (out == null) { // (the settings used must be output otherwise)
+			String filled = getCompiled().getFilled(input);
+			if (filled != null) {
+				return filled;
+			}
+		}
 
 		Settings s = new Settings(); // don't use any namespace
 		String result = "";
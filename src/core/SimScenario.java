@@ -10,6 +10,10 @@ import input.EventQueueHandler;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import movement.MapBasedMovement;
 import movement.MovementModel;
@@ -39,6 +43,16 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/**
+	 * Number of threads used for creating the hosts -setting id ({@value}).
+	 * With more than one thread, the movement model of every host gets its
+	 * own random number stream (see {@link MovementModel#createStream(int)})
+	 * and the hosts of groups whose movement model allows it are placed in
+	 * parallel. The results don't depend on the number of threads, but they
+	 * differ from the results of single threaded creation, where all the
+	 * movement models share one stream. Default = 1.
+	 */
+	public static final String HOST_THREADS_S = "hostThreads";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -106,6 +120,8 @@ public class SimScenario implements Serializable {
 	private boolean simulateConnections;
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
+	/** Number of threads used for creating the hosts */
+	private int hostThreads;
 
 	/** Global connection event listeners */
 	private List<ConnectionListener> connectionListeners;
@@ -117,6 +133,8 @@ public class SimScenario implements Serializable {
 	private List<UpdateListener> updateListeners;
 	/** Global application event listeners */
 	private List<ApplicationListener> appListeners;
+	/** Batched event bus (or null if nobody has asked for it) */
+	private EventBus eventBus;
 
 	static {
 		DTNSim.registerForReset(SimScenario.class.getCanonicalName());
@@ -124,6 +142,9 @@ public class SimScenario implements Serializable {
 	}
 
 	public static void reset() {
+		if (myinstance != null) {
+			myinstance.close();
+		}
 		myinstance = null;
 	}
 
@@ -138,10 +159,15 @@ public class SimScenario implements Serializable {
 		this.endTime = s.getDouble(END_TIME_S);
 		this.updateInterval = s.getDouble(UP_INT_S);
 		this.simulateConnections = s.getBoolean(SIM_CON_S);
+		this.hostThreads = s.getInt(HOST_THREADS_S, 1);
 
 		s.ensurePositiveValue(nrofGroups, NROF_GROUPS_S);
 		s.ensurePositiveValue(endTime, END_TIME_S);
 		s.ensurePositiveValue(updateInterval, UP_INT_S);
+		if (hostThreads < 1) {
+			throw new SettingsError("Invalid value for " +
+					s.getFullPropertyName(HOST_THREADS_S));
+		}
 
 		this.simMap = null;
 		this.maxHostRange = 1;
@@ -151,6 +177,7 @@ public class SimScenario implements Serializable {
 		this.movementListeners = new ArrayList<MovementListener>();
 		this.updateListeners = new ArrayList<UpdateListener>();
 		this.appListeners = new ArrayList<ApplicationListener>();
+		this.eventBus = null;
 		this.eqHandler = new EventQueueHandler();
 
 		/* TODO: check size from movement models */
@@ -166,6 +193,15 @@ public class SimScenario implements Serializable {
 				eqHandler.getEventQueues());
 	}
 
+	/**
+	 * Closes the external inputs of the scenario: the external events files
+	 * are closed and their background reading is stopped. Called when the
+	 * simulation is done.
+	 */
+	public void close() {
+		this.eqHandler.close();
+	}
+
 	/**
 	 * Returns the SimScenario instance and creates one if it doesn't exist yet
 	 */
@@ -252,6 +288,22 @@ public class SimScenario implements Serializable {
 		return this.simMap;
 	}
 
+	/**
+	 * Returns the batched event bus of this scenario. The bus is created
+	 * (and registered as a connection, message and update listener) when
+	 * this method is called for the first time.
+	 * @return The event bus
+	 */
+	public EventBus getEventBus() {
+		if (this.eventBus == null) {
+			this.eventBus = new EventBus();
+			addConnectionListener(eventBus);
+			addMessageListener(eventBus);
+			addUpdateListener(eventBus);
+		}
+		return this.eventBus;
+	}
+
 	/**
 	 * Adds a new connection listener for all nodes
 	 * @param cl The listener
@@ -389,6 +441,12 @@ public class SimScenario implements Serializable {
 				this.simMap = ((MapBasedMovement)mmProto).getMap();
 			}
 
+			if (hostThreads > 1) {
+				createHostsInParallel(gid, nrofHosts, interfaces, mmProto,
+						mRouterProto);
+				continue;
+			}
+
 			// creates hosts of ith group
 			for (int j=0; j<nrofHosts; j++) {
 				ModuleCommunicationBus comBus = new ModuleCommunicationBus();
@@ -403,6 +461,85 @@ public class SimScenario implements Serializable {
 		}
 	}
 
+	/**
+	 * Creates the hosts of a group using {@link #HOST_THREADS_S} threads.
+	 * The hosts get their addresses, interfaces and routers in order, but
+	 * the movement models are replicated (each with its own random number
+	 * stream) and the hosts placed in parallel, if the movement model
+	 * allows it. Finally the interfaces are added to the connectivity grids
+	 * and the movement listeners informed, again in host order.
+	 * @param gid Group ID of the hosts
+	 * @param nrofHosts Number of hosts to create
+	 * @param interfaces Prototypes of the hosts' network interfaces
+	 * @param mmProto Prototype of the hosts' movement model
+	 * @param mRouterProto Prototype of the hosts' router
+	 */
+	private void createHostsInParallel(String gid, int nrofHosts,
+			List<NetworkInterface> interfaces, final MovementModel mmProto,
+			MessageRouter mRouterProto) {
+		final DTNHost[] group = new DTNHost[nrofHosts];
+		for (int j=0; j<nrofHosts; j++) {
+			group[j] = new DTNHost(this.messageListeners,
+					this.movementListeners, gid, interfaces,
+					new ModuleCommunicationBus(), mRouterProto);
+		}
+
+		if (!mmProto.canReplicateConcurrently()) {
+			placeHosts(group, 0, nrofHosts, mmProto);
+		} else {
+			/* a few tasks per thread to even out the load */
+			int chunk = nrofHosts / (hostThreads * 4) + 1;
+			ExecutorService executor =
+				Executors.newFixedThreadPool(hostThreads);
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int j=0; j<nrofHosts; j+=chunk) {
+					final int first = j;
+					final int last = Math.min(j + chunk, nrofHosts);
+					futures.add(executor.submit(new Runnable() {
+						public void run() {
+							placeHosts(group, first, last, mmProto);
+						}
+					}));
+				}
+				for (Future<?> f : futures) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				throw new SimError("Interrupted while creating hosts", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)e.getCause();
+				}
+				throw new SimError("Creating hosts failed: " + e.getCause(),
+						e);
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		for (DTNHost host : group) {
+			host.register();
+			hosts.add(host);
+		}
+	}
+
+	/**
+	 * Sets the movement models of hosts (created without one)
+	 * @param group The hosts
+	 * @param first Index of the first host to handle
+	 * @param last Index of the host after the last host to handle
+	 * @param mmProto Prototype of the movement model
+	 */
+	private static void placeHosts(DTNHost[] group, int first, int last,
+			MovementModel mmProto) {
+		for (int j=first; j<last; j++) {
+			DTNHost host = group[j];
+			host.setMovement(MovementModel.replicate(mmProto,
+					MovementModel.createStream(host.getAddress())));
+		}
+	}
+
 	/**
 	 * Returns the list of nodes for this scenario.
 	 * @return the list of nodes for this scenario.
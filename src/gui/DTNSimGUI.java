@@ -5,33 +5,58 @@
 package gui;
 
 import gui.playfield.PlayField;
+import gui.playfield.WorldSnapshot;
 
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
 
 import movement.Path;
+import report.Recording;
 import ui.DTNSimUI;
 import core.Coord;
 import core.DTNHost;
+import core.Settings;
 import core.SimClock;
+import core.SimError;
 
 /**
  * Graphical User Interface for simulator
  */
 public class DTNSimGUI extends DTNSimUI {
+	/** Replay file -setting id ({@value}) in the GUI namespace. Defines a
+	 * recording of an earlier run (see {@link report.RecordingReport}) to
+	 * replay instead of running the simulation. The scenario settings must
+	 * define the same hosts as the recorded run. In a replay, the reports
+	 * are not created and the host info shows the host's initial state. */
+	public static final String REPLAY_FILE_S = "replayFile";
+
 	private MainWindow main;
 	private PlayField field;
 	private GUIControls guiControls;
 	private EventLogPanel eventLogPanel;
 	private InfoPanel infoPanel;
+	/** the replayed recording (null if the simulation is run) */
+	private Recording recording;
+	/** true if a view update has been scheduled but not run yet */
+	private final AtomicBoolean viewUpdatePending = new AtomicBoolean();
+	/** view update task for the EDT */
+	private final Runnable viewUpdater = new Runnable() {
+		public void run() {
+			viewUpdatePending.set(false);
+			updateView();
+		}
+	};
 
 	private void startGUI() {
 		try {
@@ -70,6 +95,9 @@ public class DTNSimGUI extends DTNSimUI {
 
 		scen.addMessageListener(eventLogPanel);
 		scen.addConnectionListener(eventLogPanel);
+		if (recording != null) {
+			guiControls.enableSeeking(recording.getEndTime());
+		}
 
 		if (scen.getMap() != null ) {
 			field.setMap(scen.getMap());
@@ -93,11 +121,22 @@ public class DTNSimGUI extends DTNSimUI {
 		this.main.setVisible(true);
 	}
 
+	@Override
+	protected boolean createsReports() {
+		return !new Settings(MainWindow.GUI_NS).contains(REPLAY_FILE_S);
+	}
+
 	@Override
 	protected void runSim() {
 		double simTime = SimClock.getTime();
 		double endTime = scen.getEndTime();
 
+		Settings s = new Settings(MainWindow.GUI_NS);
+		if (s.contains(REPLAY_FILE_S)) {
+			runReplay(s.getSetting(REPLAY_FILE_S));
+			return;
+		}
+
 		startGUI();
 
 		// Startup DTN2Manager
@@ -133,6 +172,100 @@ public class DTNSimGUI extends DTNSimUI {
 		}
 	}
 
+	/**
+	 * Replays a recording. The frames are shown like the simulation states
+	 * of a running simulation: as often as the GUI update interval
+	 * defines. The events of the skipped frames are logged, but when the
+	 * user seeks to another time, the frame of that time is shown directly.
+	 * @param fileName Name of the recording file
+	 */
+	private void runReplay(String fileName) {
+		List<DTNHost> hosts = world.getHosts();
+		try {
+			this.recording = new Recording(new File(fileName));
+		} catch (SimError e) {
+			System.err.println("Can't replay: " + e.getMessage());
+			System.exit(-1);
+		}
+		if (recording.getNrofFrames() == 0) {
+			System.err.println("Can't replay: recording " + fileName +
+					" has no frames");
+			System.exit(-1);
+		}
+		if (recording.getNrofHosts() != hosts.size()) {
+			System.err.println("Can't replay: recording " + fileName +
+					" has " + recording.getNrofHosts() + " hosts but the " +
+					"scenario has " + hosts.size());
+			System.exit(-1);
+		}
+
+		this.simDone = true; // nothing to finalize when closing
+		startGUI();
+
+		int last = recording.getNrofFrames() - 1;
+		int frame = 0;
+		showFrame(frame);
+
+		while (!simCancelled) {
+			double seekTime = guiControls.getSeekTime();
+			if (!Double.isNaN(seekTime)) {
+				frame = recording.findFrame(seekTime);
+				showFrame(frame);
+			}
+			else if (frame == last || guiControls.isPaused()) {
+				wait(10);
+			}
+			else {
+				double interval = guiControls.getUpdateInterval();
+				double until = recording.getFrameTime(frame) +
+					Math.max(interval, 0);
+				do {
+					frame++;
+					logEvents(recording.getFrame(frame), hosts);
+				} while (frame < last &&
+						recording.getFrameTime(frame + 1) <= until);
+				showFrame(frame);
+
+				if (frame == last) {
+					guiControls.setPaused(true);
+				}
+				if (interval < 0) {
+					wait(100*(int)(-interval));
+				}
+			}
+		}
+
+		System.exit(0);
+	}
+
+	/**
+	 * Shows a frame of the replayed recording
+	 * @param index Index of the frame
+	 */
+	private void showFrame(int index) {
+		Recording.Frame frame = recording.getFrame(index);
+		SimClock.getInstance().setTime(frame.getTime());
+		this.lastUpdate = frame.getTime();
+		this.field.setSnapshot(new WorldSnapshot(frame));
+		scheduleViewUpdate();
+	}
+
+	/**
+	 * Logs the events of a replayed frame to the event log
+	 * @param frame The frame
+	 * @param hosts The hosts (indexed by address)
+	 */
+	private void logEvents(Recording.Frame frame, List<DTNHost> hosts) {
+		for (int i=0, n=frame.getNrofEvents(); i<n; i++) {
+			int host2 = frame.getHost2(i);
+			int message = frame.getMessage(i);
+			eventLogPanel.replayEvent(frame.getEventTime(i),
+					frame.getAction(i), hosts.get(frame.getHost1(i)),
+					host2 >= 0 ? hosts.get(host2) : null,
+					message >= 0 ? recording.getMessageId(message) : null);
+		}
+	}
+
 	/**
 	 * Processes assertion errors by showing a warning dialog to the user
 	 * and pausing the simulation (if it's running)
@@ -182,7 +315,10 @@ public class DTNSimGUI extends DTNSimUI {
 	}
 
     /**
-     * Updates the GUI
+     * Updates the GUI. Takes a snapshot of the hosts' state for the play
+     * field and schedules the view to be updated in Swing's EDT. The
+     * simulation doesn't wait for the view update; if the EDT hasn't
+     * handled the previous update yet, it just shows the newer snapshot.
      */
     public void update(boolean forcedUpdate) {
 	double guiUpdateInterval = guiControls.getUpdateInterval();
@@ -193,18 +329,10 @@ public class DTNSimGUI extends DTNSimUI {
 			return;
 		}
 
-		try {
-			// run update in EDT, TODO: optimize threading
-			SwingUtilities.invokeAndWait(new Runnable() {
-			    public void run() {
-					updateView();
-			    }
-			});
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
-		}
+		this.lastUpdate = SimClock.getTime();
+		this.field.setSnapshot(new WorldSnapshot(world.getHosts(),
+				this.lastUpdate));
+		scheduleViewUpdate();
 
 	// wait a while if we don't want to run simulation at full speed
 	if (guiUpdateInterval < 0) {
@@ -213,13 +341,22 @@ public class DTNSimGUI extends DTNSimUI {
 
     }
 
+    /**
+     * Schedules the view to be updated in Swing's EDT (unless an update is
+     * already pending)
+     */
+    private void scheduleViewUpdate() {
+	if (viewUpdatePending.compareAndSet(false, true)) {
+		SwingUtilities.invokeLater(this.viewUpdater);
+	}
+    }
+
     /**
      * Updates playfield and sim time field
      *
      */
     private void updateView() {
-	double simTime = SimClock.getTime();
-	this.lastUpdate = simTime;
+	double simTime = this.field.getSnapshot().getTime();
 	guiControls.setSimTime(simTime); //update time to control panel
 
 	this.field.updateField();
@@ -238,7 +375,7 @@ public class DTNSimGUI extends DTNSimUI {
      * @param host The node to center
      */
     public void setFocus(DTNHost host) {
-	centerViewAt(host.getLocation());
+	centerViewAt(this.field.getHostLocation(host));
 	infoPanel.showInfo(host);
 	showPath(host.getPath()); // show path on the playfield
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui;
+
+/**
+ * Fixed size ring buffer of event log entries. The entries are stored in
+ * primitive arrays (the hosts by their addresses) and when the buffer is
+ * full, a new entry replaces the oldest one, so the memory use of the log
+ * doesn't grow with the length of the simulation. Entries are identified
+ * by their sequence numbers: the first entry ever added has number 0,
+ * the next 1, etc. Entries are added by the simulation thread and read by
+ * the GUI thread, so all the methods are synchronized.
+ */
+public class EventLogBuffer {
+	/** Value for the host address of entries that have no (such) host */
+	public static final int NO_HOST = -1;
+
+	private final double[] times;
+	private final byte[] types;
+	private final int[] hosts1;
+	private final int[] hosts2;
+	private final boolean[] highlights;
+	/** messages (or IDs of replayed messages) of the entries */
+	private final Object[] messages;
+	/** total number of entries added */
+	private long nrofAdded;
+
+	/**
+	 * Constructor.
+	 * @param capacity Maximum number of entries in the buffer
+	 */
+	public EventLogBuffer(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.times = new double[capacity];
+		this.types = new byte[capacity];
+		this.hosts1 = new int[capacity];
+		this.hosts2 = new int[capacity];
+		this.highlights = new boolean[capacity];
+		this.messages = new Object[capacity];
+		this.nrofAdded = 0;
+	}
+
+	/**
+	 * Adds an entry to the buffer, replacing the oldest entry if the buffer
+	 * is full
+	 * @param time Simulation time of the event
+	 * @param type Type of the event (0-127)
+	 * @param host1 Address of the host that caused the event or
+	 * {@link #NO_HOST}
+	 * @param host2 Address of the other host involved or {@link #NO_HOST}
+	 * @param message Message involved in the event, ID of the message for
+	 * replayed events, or null
+	 * @param highlight True if the entry should be highlighted
+	 */
+	public synchronized void add(double time, int type, int host1,
+			int host2, Object message, boolean highlight) {
+		int i = (int)(nrofAdded % times.length);
+		times[i] = time;
+		types[i] = (byte)type;
+		hosts1[i] = host1;
+		hosts2[i] = host2;
+		messages[i] = message;
+		highlights[i] = highlight;
+		nrofAdded++;
+	}
+
+	/**
+	 * Returns the maximum number of entries in the buffer
+	 * @return the capacity of the buffer
+	 */
+	public int getCapacity() {
+		return this.times.length;
+	}
+
+	/**
+	 * Returns the total number of entries added to the buffer (the sequence
+	 * number of the next entry)
+	 * @return the number of entries added
+	 */
+	public synchronized long getNrofAdded() {
+		return this.nrofAdded;
+	}
+
+	/**
+	 * Returns the sequence number of the oldest entry in the buffer
+	 * @return the sequence number of the oldest entry
+	 */
+	public synchronized long getFirst() {
+		return Math.max(0, nrofAdded - times.length);
+	}
+
+	/**
+	 * Returns true if the entry is still in the buffer
+	 * @param seq Sequence number of the entry
+	 * @return true if the entry is in the buffer
+	 */
+	public synchronized boolean isAvailable(long seq) {
+		return seq >= getFirst() && seq < nrofAdded;
+	}
+
+	/**
+	 * Returns the simulation time of an entry
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return the time of the event
+	 */
+	public synchronized double getTime(long seq) {
+		return times[slot(seq)];
+	}
+
+	/**
+	 * Returns the type of an entry
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return the type of the event
+	 */
+	public synchronized int getType(long seq) {
+		return types[slot(seq)];
+	}
+
+	/**
+	 * Returns the address of the host that caused the event
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return the address of the host or {@link #NO_HOST}
+	 */
+	public synchronized int getHost1(long seq) {
+		return hosts1[slot(seq)];
+	}
+
+	/**
+	 * Returns the address of the other host involved in the event
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return the address of the host or {@link #NO_HOST}
+	 */
+	public synchronized int getHost2(long seq) {
+		return hosts2[slot(seq)];
+	}
+
+	/**
+	 * Returns the message of an entry
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return the message (or message ID) or null if the event had no
+	 * message
+	 */
+	public synchronized Object getMessage(long seq) {
+		return messages[slot(seq)];
+	}
+
+	/**
+	 * Returns true if the entry should be highlighted
+	 * @param seq Sequence number of the entry (must be available)
+	 * @return true if the entry is highlighted
+	 */
+	public synchronized boolean isHighlighted(long seq) {
+		return highlights[slot(seq)];
+	}
+
+	private int slot(long seq) {
+		return (int)(seq % times.length);
+	}
+}
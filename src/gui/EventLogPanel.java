@@ -4,20 +4,33 @@
  */
 package gui;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.GridLayout;
-import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Vector;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.BorderFactory;
-import javax.swing.BoxLayout;
-import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import report.BinaryEventLog;
 
 import core.ConnectionListener;
 import core.DTNHost;
@@ -25,9 +38,13 @@ import core.Message;
 import core.MessageListener;
 import core.Settings;
 import core.SimClock;
+import core.SimScenario;
 
 /**
- * Event log panel where log entries are displayed.
+ * Event log panel where log entries are displayed. The entries are stored
+ * in a fixed size {@link EventLogBuffer} and shown in a table that only
+ * renders the visible rows, so the memory use and the drawing cost of the
+ * log don't depend on the length of the simulation.
  */
 public class EventLogPanel extends JPanel
 	implements ConnectionListener, MessageListener, ActionListener {
@@ -36,26 +53,55 @@ public class EventLogPanel extends JPanel
 	public static final String EL_PANEL_NS = "GUI.EventLogPanel";
 
 	/** Number of events -setting id ({@value}). Defines the number of
-	 * events to show in the panel. */
+	 * events that fit in the panel without scrolling. */
 	public static final String NROF_EVENTS_S = "nrofEvents";
 
+	/** Log size -setting id ({@value}). Defines the maximum number of
+	 * events kept in the log; when the log is full, the oldest events are
+	 * removed. Default {@link #DEFAULT_LOG_SIZE} */
+	public static final String LOG_SIZE_S = "logSize";
+
 	/** Regular expression filter -setting id ({@value}). Defines the regular
 	 * expression against which the event texts are matched; only matching
 	 * events are not shown */
 	public static final String EVENTS_RE_S = "REfilter";
 
 	private static final String PANEL_TITLE = "Event log";
-	/** format of a single log entry */
-	private static final String ENTRY_FORMAT = "% 9.1f: %s ";
+	private static final String FILTER_TEXT = "Search: ";
+	/** format of the time of a log entry */
+	private static final String TIME_FORMAT = "% 9.1f";
 	private static final int FONT_SIZE = 12;
 	private static final String FONT_TYPE = "monospaced";
-	private static final Color LOG_BUTTON_BG = Color.WHITE;
+	private static final Color LINK_COLOR = Color.BLUE;
 	private static final String HOST_DELIM = "<->";
 	private static final Color HIGHLIGHT_BG_COLOR = Color.GREEN;
 
-	// constants used for button property
-	private static final String HOST_PROP = "host";
-	private static final String MSG_PROP = "message";
+	/** Names of the table columns */
+	private static final String[] COLUMN_NAMES = {"time", "event", "host",
+		"other host", "message"};
+	/** Preferred widths of the table columns */
+	private static final int[] COLUMN_WIDTHS = {70, 160, 60, 60, 60};
+	private static final int TIME_COL = 0;
+	private static final int EVENT_COL = 1;
+	private static final int HOST1_COL = 2;
+	private static final int HOST2_COL = 3;
+	private static final int MSG_COL = 4;
+
+	/** Event type descriptions (indexed by the types) */
+	private static final String[] EVENT_NAMES = {"Connection UP",
+		"Connection DOWN", "Message removed", "Message dropped",
+		"Message delivered", "Message delivered again", "Message relayed",
+		"Message created", "Message relay aborted", "Message relay started"};
+	private static final int CON_UP = 0;
+	private static final int CON_DOWN = 1;
+	private static final int MSG_REMOVED = 2;
+	private static final int MSG_DROPPED = 3;
+	private static final int MSG_DELIVERED = 4;
+	private static final int MSG_DELIVERED_AGAIN = 5;
+	private static final int MSG_RELAYED = 6;
+	private static final int MSG_CREATED = 7;
+	private static final int MSG_ABORTED = 8;
+	private static final int MSG_STARTED = 9;
 
 	/** How often the log is updated (milliseconds) */
 	public static final int LOG_UP_INTERVAL = 500;
@@ -63,13 +109,19 @@ public class EventLogPanel extends JPanel
 	/** Regular expression to filter log entries (changed trough Settings) */
 	private String regExp = null;
 	public static final int DEFAULT_MAX_NROF_EVENTS = 30;
-	/** how many events to show in log (changed trough Settings) */
+	/** Default number of events kept in the log */
+	public static final int DEFAULT_LOG_SIZE = 10000;
+	/** how many events fit in the log view (changed trough Settings) */
 	private int maxNrofEvents;
 
 	private Font font;	// font used in log entries
 	private DTNSimGUI gui;
-	private Vector<JPanel> eventPanes;
-	private GridLayout layout;
+	private List<DTNHost> hosts;
+	private EventLogBuffer buffer;
+	private EventTableModel model;
+	private JTable table;
+	private JScrollPane tableScroll;
+	private JTextField filterField;
 
 	private EventLogControlPanel controls;
 	private EventLogControl conUpCheck;
@@ -94,29 +146,72 @@ public class EventLogPanel extends JPanel
 		this.maxNrofEvents = s.getInt(NROF_EVENTS_S,
 				DEFAULT_MAX_NROF_EVENTS);
 		this.regExp = s.getSetting(EVENTS_RE_S, null);
+		this.hosts = SimScenario.getInstance().getHosts();
+		this.buffer = new EventLogBuffer(s.getInt(LOG_SIZE_S,
+				DEFAULT_LOG_SIZE));
 
-		layout = new GridLayout(maxNrofEvents,1);
-
-		this.setLayout(layout);
+		this.setLayout(new BorderLayout());
 		if (this.regExp != null) {
 			title += " - RE-filter: " + regExp;
 		}
 		this.setBorder(BorderFactory.createTitledBorder(
 				getBorder(), title));
 
-		this.eventPanes = new Vector<JPanel>(maxNrofEvents);
 		this.font = new Font(FONT_TYPE,Font.PLAIN, FONT_SIZE);
 		this.controls = createControls();
+		createTable();
 
 		// set log view to update every LOG_UP_INTERVAL milliseconds
 		// also ensures that the update is done in Swing's EDT
-		ActionListener taskPerformer = new ActionListener() {
-			public void actionPerformed(ActionEvent evt) {
-		          updateLogView();
-		      }
-		  };
-		  Timer t = new Timer(LOG_UP_INTERVAL, taskPerformer);
-		  t.start();
+		Timer t = new Timer(LOG_UP_INTERVAL, this);
+		t.start();
+	}
+
+	/**
+	 * Creates the log table and the search field
+	 */
+	private void createTable() {
+		this.model = new EventTableModel();
+		this.table = new JTable(model);
+		table.setFont(font);
+		table.setRowHeight(table.getFontMetrics(font).getHeight() + 2);
+		table.setShowGrid(false);
+		table.setFillsViewportHeight(true);
+		table.getTableHeader().setReorderingAllowed(false);
+		table.setDefaultRenderer(Object.class, new EventRenderer());
+		for (int i=0; i < COLUMN_WIDTHS.length; i++) {
+			table.getColumnModel().getColumn(i).setPreferredWidth(
+					COLUMN_WIDTHS[i]);
+		}
+		table.setPreferredScrollableViewportSize(new Dimension(
+				table.getPreferredScrollableViewportSize().width,
+				table.getRowHeight() * maxNrofEvents));
+		table.addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent e) {
+				entryClicked(table.rowAtPoint(e.getPoint()),
+						table.columnAtPoint(e.getPoint()));
+			}
+		});
+		this.tableScroll = new JScrollPane(table);
+
+		this.filterField = new JTextField();
+		filterField.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				setFilter(filterField.getText());
+			}
+			public void removeUpdate(DocumentEvent e) {
+				setFilter(filterField.getText());
+			}
+			public void changedUpdate(DocumentEvent e) {
+				setFilter(filterField.getText());
+			}
+		});
+		JPanel filterPanel = new JPanel(new BorderLayout());
+		filterPanel.add(new JLabel(FILTER_TEXT), BorderLayout.WEST);
+		filterPanel.add(filterField, BorderLayout.CENTER);
+
+		this.add(filterPanel, BorderLayout.NORTH);
+		this.add(tableScroll, BorderLayout.CENTER);
 	}
 
 	/**
@@ -148,103 +243,137 @@ public class EventLogPanel extends JPanel
 	}
 
 	/**
-	 * Adds a new event to the event log panel
-	 * @param description Textual description of the event
-	 * @param host1 Host that caused the event or null if there was not any
-	 * @param host2 Another host that was involved in the event (or null)
-	 * @param message Message that was involved in the event (or null)
-	 * @param highlight If true, the log entry is highlighted
+	 * Sets the search filter of the shown entries
+	 * @param text Regular expression (or plain text if it isn't a valid
+	 * expression) that the shown entries must contain, or an empty string
+	 * for showing all entries
 	 */
-	private void addEvent(String description, DTNHost host1,
-			DTNHost host2, Message message, boolean highlight) {
-		JPanel eventPane = new JPanel();
-		eventPane.setLayout(new BoxLayout(eventPane,BoxLayout.LINE_AXIS));
-
-		String text = String.format(ENTRY_FORMAT,
-				SimClock.getTime(),description);
-		JLabel label = new JLabel(text);
-		label.setFont(font);
-		eventPane.add(label);
-
-		if (host1 != null) {
-			addInfoButton(eventPane,host1,HOST_PROP);
-		}
-		if (host2 != null) {
-			JLabel betweenLabel = new JLabel(HOST_DELIM);
-			betweenLabel.setFont(font);
-			eventPane.add(betweenLabel);
-			addInfoButton(eventPane,host2,HOST_PROP);
+	private void setFilter(String text) {
+		Pattern filter = null;
+		if (text.length() > 0) {
+			try {
+				filter = Pattern.compile(text, Pattern.CASE_INSENSITIVE);
+			} catch (PatternSyntaxException e) {
+				filter = Pattern.compile(Pattern.quote(text),
+						Pattern.CASE_INSENSITIVE);
+			}
 		}
-		if (message != null) {
-			addInfoButton(eventPane, message, MSG_PROP);
+		model.setFilter(filter);
+		updateLogView();
+	}
+
+	/**
+	 * Updates the log view if new entries have been logged (or the filter
+	 * has changed). If the view was scrolled to the latest entry, it's
+	 * kept scrolled to the latest entry.
+	 */
+	private void updateLogView() {
+		Rectangle visible = table.getVisibleRect();
+		boolean atEnd = visible.y + visible.height >=
+			table.getHeight() - table.getRowHeight();
+
+		if (!model.update()) {
+			return; /* nothing new to show */
 		}
 
-		if (highlight) {
-			eventPane.setBackground(HIGHLIGHT_BG_COLOR);
+		int n = model.getRowCount();
+		if (atEnd && n > 0) {
+			table.scrollRectToVisible(table.getCellRect(n - 1, 0, true));
 		}
+	}
 
-		eventPanes.add(eventPane);
+	/**
+	 * Handles a click on a log entry: clicking a host focuses on the host
+	 * and clicking a message shows information about the message
+	 * @param row Row of the entry
+	 * @param col Column that was clicked
+	 */
+	private void entryClicked(int row, int col) {
+		if (row < 0) {
+			return;
+		}
+		long seq = model.getSequence(row);
+		if (!buffer.isAvailable(seq)) {
+			return;
+		}
 
-		// if the log is full, remove oldest entries first
-		if (this.eventPanes.size() > maxNrofEvents) {
-			eventPanes.remove(0);
+		if (col == HOST1_COL || col == HOST2_COL) {
+			DTNHost host = getHost(col == HOST1_COL ?
+					buffer.getHost1(seq) : buffer.getHost2(seq));
+			if (host != null) {
+				gui.setFocus(host);
+			}
+		}
+		else if (col == MSG_COL) {
+			Object m = buffer.getMessage(seq);
+			if (m instanceof Message) { // not for replayed message IDs
+				gui.getInfoPanel().showInfo((Message)m);
+			}
 		}
 	}
 
 	/**
-	 * Updates the log view
+	 * Returns the host with the given address
+	 * @param address Address of the host or {@link EventLogBuffer#NO_HOST}
+	 * @return The host or null for {@link EventLogBuffer#NO_HOST}
 	 */
-	private void updateLogView() {
-		//TODO Optimization: Check if update is really necessary
-		this.removeAll();
-		for (int i=0; i< this.eventPanes.size(); i++) {
-			this.add(eventPanes.get(i));
+	private DTNHost getHost(int address) {
+		if (address == EventLogBuffer.NO_HOST) {
+			return null;
 		}
-		revalidate();
+		return hosts.get(address);
 	}
 
-
 	/**
-	 * Adds a new button to a log entry panel and attaches a client
-	 * property into it
-	 * @param panel Panel where to add the button
-	 * @param o Client property object to add
-	 * @param clientProp Client property key to use for the object
+	 * Returns the text description of an event
+	 * @param name Name of the event
+	 * @param host1 First host involved in the event (can be null)
+	 * @param host2 Second host involved in the event (can be null)
+	 * @param message The message (or message ID) involved in the event
+	 * (can be null)
+	 * @return Description of the event
 	 */
-	private void addInfoButton(JPanel panel, Object o, String clientProp) {
-		JButton hButton;
-		hButton = new JButton(o.toString());
-		hButton.putClientProperty(clientProp, o);
-		hButton.addActionListener(this);
-		hButton.setFont(font);
-		hButton.setMargin(new Insets(0,0,0,0));
-		hButton.setBackground(LOG_BUTTON_BG);
-		panel.add(hButton);
+	private static String getDescription(String name, DTNHost host1,
+			DTNHost host2, Object message) {
+		return name + " " +
+			(host1!=null ? host1 : "") +
+			(host2!= null ? (HOST_DELIM + host2) : "") +
+			(message!=null ? " " + message : "");
 	}
 
 	/**
 	 * Processes a log event
 	 * @param check EventLogControls used to check if this entry type should
 	 * be shown and/or paused upon
-	 * @param name Text description of the event
+	 * @param type Type of the event
 	 * @param host1 First host involved in the event (if any, can be null)
 	 * @param host2 Second host involved in the event (if any, can be null)
 	 * @param message The message involved in the event (if any, can be null)
 	 */
-	private void processEvent(EventLogControl check, final String name,
+	private void processEvent(EventLogControl check, int type,
 			final DTNHost host1, final DTNHost host2, final Message message) {
-		String descString;	// String format description of the event
+		processEvent(check, type, SimClock.getTime(), host1, host2, message);
+	}
 
+	/**
+	 * Processes a log event
+	 * @param check EventLogControls used to check if this entry type should
+	 * be shown and/or paused upon
+	 * @param type Type of the event
+	 * @param time Simulation time of the event
+	 * @param host1 First host involved in the event (if any, can be null)
+	 * @param host2 Second host involved in the event (if any, can be null)
+	 * @param message The message, or ID of the message, involved in the
+	 * event (if any, can be null)
+	 */
+	private void processEvent(EventLogControl check, int type, double time,
+			DTNHost host1, DTNHost host2, Object message) {
 		if (!check.showEvent()) {
 			return; // if event's "show" is not checked, won't pause either
 		}
 
-		descString = name + " " +
-			(host1!=null ? host1 : "") +
-			(host2!= null ? (HOST_DELIM + host2) : "") +
-			(message!=null ? " " + message : "");
-
-		if (regExp != null && !descString.matches(regExp)){
+		if (regExp != null && !getDescription(EVENT_NAMES[type], host1,
+				host2, message).matches(regExp)){
 			return;	// description doesn't match defined regular expression
 		}
 
@@ -255,78 +384,278 @@ public class EventLogPanel extends JPanel
 			}
 		}
 
-	addEvent(name, host1, host2, message, check.pauseOnEvent());
+		buffer.add(time, type,
+				host1 != null ? host1.getAddress() : EventLogBuffer.NO_HOST,
+				host2 != null ? host2.getAddress() : EventLogBuffer.NO_HOST,
+				message, check.pauseOnEvent());
 	}
 
 	// Implementations of ConnectionListener and MessageListener interfaces
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		processEvent(conUpCheck, "Connection UP", host1, host2, null);
+		processEvent(conUpCheck, CON_UP, host1, host2, null);
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		processEvent(conDownCheck, "Connection DOWN", host1, host2, null);
+		processEvent(conDownCheck, CON_DOWN, host1, host2, null);
 	}
 
 	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
 		if (!dropped) {
-			processEvent(msgRemoveCheck, "Message removed", where, null, m);
+			processEvent(msgRemoveCheck, MSG_REMOVED, where, null, m);
 		}
 		else {
-			processEvent(msgDropCheck, "Message dropped", where, null, m);
+			processEvent(msgDropCheck, MSG_DROPPED, where, null, m);
 		}
 	}
 
 	public void messageTransferred(Message m, DTNHost from, DTNHost to,
 			boolean firstDelivery) {
 		if (firstDelivery) {
-			processEvent(msgDeliveredCheck, "Message delivered", from, to, m);
+			processEvent(msgDeliveredCheck, MSG_DELIVERED, from, to, m);
 		}
 		else if (to == m.getTo()) {
-			processEvent(msgDeliveredCheck, "Message delivered again",
-					from, to, m);
+			processEvent(msgDeliveredCheck, MSG_DELIVERED_AGAIN, from, to, m);
 		}
 		else {
-			processEvent(msgRelayCheck, "Message relayed", from, to, m);
+			processEvent(msgRelayCheck, MSG_RELAYED, from, to, m);
 		}
 	}
 
 	public void newMessage(Message m) {
-		processEvent(msgCreateCheck, "Message created", m.getFrom(), null, m);
+		processEvent(msgCreateCheck, MSG_CREATED, m.getFrom(), null, m);
 	}
 
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgAbortCheck, "Message relay aborted", from, to, m);
+		processEvent(msgAbortCheck, MSG_ABORTED, from, to, m);
 	}
 
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgTransferStartCheck,"Message relay started", from,
-				to,m);
-
+		processEvent(msgTransferStartCheck, MSG_STARTED, from, to, m);
 	}
 
 	// end of message interface implementations
 
+	/**
+	 * Logs an event of a replayed recording
+	 * @param time Simulation time of the event
+	 * @param action Action code of the event (see
+	 * {@link report.BinaryEventLog})
+	 * @param host1 First host involved in the event
+	 * @param host2 Second host involved in the event (or null)
+	 * @param messageId ID of the message involved in the event (or null)
+	 */
+	public void replayEvent(double time, byte action, DTNHost host1,
+			DTNHost host2, String messageId) {
+		switch (action) {
+		case BinaryEventLog.ACTION_CONN_UP:
+			processEvent(conUpCheck, CON_UP, time, host1, host2, null);
+			break;
+		case BinaryEventLog.ACTION_CONN_DOWN:
+			processEvent(conDownCheck, CON_DOWN, time, host1, host2, null);
+			break;
+		case BinaryEventLog.ACTION_CREATE:
+			processEvent(msgCreateCheck, MSG_CREATED, time, host1, null,
+					messageId);
+			break;
+		case BinaryEventLog.ACTION_SEND:
+			processEvent(msgTransferStartCheck, MSG_STARTED, time, host1,
+					host2, messageId);
+			break;
+		case BinaryEventLog.ACTION_ABORT:
+			processEvent(msgAbortCheck, MSG_ABORTED, time, host1, host2,
+					messageId);
+			break;
+		case BinaryEventLog.ACTION_RELAYED:
+		case BinaryEventLog.ACTION_RELAY_DISCARDED:
+			processEvent(msgRelayCheck, MSG_RELAYED, time, host1, host2,
+					messageId);
+			break;
+		case BinaryEventLog.ACTION_DELIVERED:
+			processEvent(msgDeliveredCheck, MSG_DELIVERED, time, host1,
+					host2, messageId);
+			break;
+		case BinaryEventLog.ACTION_DELIVERED_AGAIN:
+			processEvent(msgDeliveredCheck, MSG_DELIVERED_AGAIN, time,
+					host1, host2, messageId);
+			break;
+		case BinaryEventLog.ACTION_DROP:
+			processEvent(msgDropCheck, MSG_DROPPED, time, host1, null,
+					messageId);
+			break;
+		default: // ACTION_REMOVE
+			processEvent(msgRemoveCheck, MSG_REMOVED, time, host1, null,
+					messageId);
+		}
+	}
+
 
 	/**
-	 * Action listener for log entry (host & message) buttons
+	 * Action listener for the log update timer
 	 */
 	public void actionPerformed(ActionEvent e) {
-		JButton source = (JButton)e.getSource();
+		updateLogView();
+	}
+
+	public String toString() {
+		long nrofEvents = buffer.getNrofAdded() - buffer.getFirst();
+		return this.getClass().getSimpleName() + " with " +
+			nrofEvents + " events";
+	}
+
+	/**
+	 * Table model that shows the entries of the log buffer. The rows are
+	 * mapped to the sequence numbers of the entries when the model is
+	 * updated; the cell values are created only when the rows are drawn.
+	 * When a search filter is set, the sequence numbers of the matching
+	 * entries are kept in a ring of the buffer's size and only the entries
+	 * added after the previous update are matched.
+	 */
+	private class EventTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+		/** sequence number of the entry at the first row */
+		private long first;
+		private int nrofRows;
+		/** sequence number of the next entry to check */
+		private long checked;
+
+		private Pattern filter;
+		/** sequence numbers of the matching entries (if filter is set) */
+		private long[] matches;
+		private int matchStart;
+
+		/**
+		 * Sets the search filter. The entries are matched again at the
+		 * next update.
+		 * @param filter The filter or null for no filtering
+		 */
+		public void setFilter(Pattern filter) {
+			this.filter = filter;
+			this.checked = -1;
+		}
+
+		/**
+		 * Updates the rows of the model to the current entries of the
+		 * log buffer
+		 * @return True if the rows changed
+		 */
+		public boolean update() {
+			long added = buffer.getNrofAdded();
+			if (added == checked) {
+				return false;
+			}
+			long oldest = buffer.getFirst();
+
+			if (filter == null) {
+				first = oldest;
+				nrofRows = (int)(added - oldest);
+			}
+			else {
+				if (matches == null) {
+					matches = new long[buffer.getCapacity()];
+				}
+				if (checked < oldest) { // new filter or missed entries
+					checked = oldest;
+					nrofRows = 0;
+				}
+				/* drop the entries that are no longer in the buffer */
+				while (nrofRows > 0 && matches[matchStart] < oldest) {
+					matchStart = (matchStart + 1) % matches.length;
+					nrofRows--;
+				}
+				for (long seq = checked; seq < added; seq++) {
+					if (buffer.isAvailable(seq) &&
+							filter.matcher(getEntryText(seq)).find()) {
+						matches[(matchStart + nrofRows) % matches.length] =
+							seq;
+						nrofRows++;
+					}
+				}
+			}
+
+			checked = added;
+			fireTableDataChanged();
+			return true;
+		}
+
+		/**
+		 * Returns the sequence number of the entry on a row
+		 * @param row The row
+		 * @return The sequence number of the entry
+		 */
+		public long getSequence(int row) {
+			if (filter == null) {
+				return first + row;
+			}
+			return matches[(matchStart + row) % matches.length];
+		}
+
+		/**
+		 * Returns the text that the search filter is matched against
+		 */
+		private String getEntryText(long seq) {
+			return getDescription(EVENT_NAMES[buffer.getType(seq)],
+					getHost(buffer.getHost1(seq)),
+					getHost(buffer.getHost2(seq)), buffer.getMessage(seq));
+		}
+
+		public int getRowCount() {
+			return nrofRows;
+		}
+
+		public int getColumnCount() {
+			return COLUMN_NAMES.length;
+		}
 
-		if (source.getClientProperty(HOST_PROP) != null) {
-			// button was a host button -> focus it on GUI
-			gui.setFocus((DTNHost)source.getClientProperty(HOST_PROP));
+		public String getColumnName(int col) {
+			return COLUMN_NAMES[col];
 		}
-		else if (source.getClientProperty(MSG_PROP) != null) {
-			// was a message button -> show information about the message
-			Message m = (Message)source.getClientProperty(MSG_PROP);
-			gui.getInfoPanel().showInfo(m);
+
+		public Object getValueAt(int row, int col) {
+			long seq = getSequence(row);
+			if (!buffer.isAvailable(seq)) {
+				return ""; // replaced after the latest update
+			}
+
+			switch (col) {
+			case TIME_COL:
+				return String.format(TIME_FORMAT, buffer.getTime(seq));
+			case EVENT_COL:
+				return EVENT_NAMES[buffer.getType(seq)];
+			case HOST1_COL:
+				return getHost(buffer.getHost1(seq));
+			case HOST2_COL:
+				return getHost(buffer.getHost2(seq));
+			default:
+				return buffer.getMessage(seq);
+			}
 		}
 	}
 
-	public String toString() {
-		return this.getClass().getSimpleName() + " with " +
-			this.eventPanes.size() + " events";
+	/**
+	 * Renderer for the log entry cells. Highlights the entries that caused
+	 * a pause and shows the clickable hosts and messages as links.
+	 */
+	private class EventRenderer extends DefaultTableCellRenderer {
+		private static final long serialVersionUID = 1L;
+
+		public Component getTableCellRendererComponent(JTable table,
+				Object value, boolean isSelected, boolean hasFocus,
+				int row, int col) {
+			super.getTableCellRendererComponent(table,
+					value == null ? "" : value, isSelected, hasFocus,
+					row, col);
+			long seq = model.getSequence(row);
+			boolean highlight = buffer.isAvailable(seq) &&
+				buffer.isHighlighted(seq);
+
+			if (!isSelected) {
+				setBackground(highlight ? HIGHLIGHT_BG_COLOR :
+					table.getBackground());
+				setForeground(col >= HOST1_COL ? LINK_COLOR :
+					table.getForeground());
+			}
+			return this;
+		}
 	}
 
 }
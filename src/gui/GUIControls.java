@@ -24,6 +24,7 @@ import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
@@ -53,6 +54,7 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 	private static final String TEXT_SIMTIME = "Simulation time - "+
 		"click to force update, right click to change format";
 	private static final String TEXT_SEPS = "simulated seconds per second";
+	private static final String TEXT_SEEK = "replay position - drag to seek";
 
 	// "simulated events per second" averaging time (milliseconds)
 	private static final int EPS_AVG_TIME = 2000;
@@ -72,6 +74,11 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 
 	private JButton screenShotButton;
 	private JComboBox guiUpdateChooser;
+	private JSlider seekSlider;
+	/** true while the seek slider is moved by the replay (not by user) */
+	private boolean movingSlider;
+	/** the time the user has seeked to (NaN if none) */
+	private volatile double seekTime = Double.NaN;
 
 	/**
 	 * GUI update speeds. Negative values -> how many 1/10 seconds to wait
@@ -208,6 +215,34 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 		} else {
 			this.simTimeField.setText(String.format("%.1f", time));
 		}
+
+		if (this.seekSlider != null && !seekSlider.getValueIsAdjusting()) {
+			this.movingSlider = true;
+			this.seekSlider.setValue((int)time);
+			this.movingSlider = false;
+		}
+	}
+
+	/**
+	 * Adds a slider for seeking to any time of a replayed recording
+	 * @param endTime End time of the recording
+	 */
+	public void enableSeeking(double endTime) {
+		this.seekSlider = new JSlider(0, (int)Math.ceil(endTime), 0);
+		this.seekSlider.setToolTipText(TEXT_SEEK);
+		this.seekSlider.addChangeListener(this);
+		this.add(seekSlider);
+		revalidate();
+	}
+
+	/**
+	 * Returns the time the user has seeked to since the previous call
+	 * @return The time or NaN if the user hasn't seeked
+	 */
+	public double getSeekTime() {
+		double time = this.seekTime;
+		this.seekTime = Double.NaN;
+		return time;
 	}
 
 	/**
@@ -326,7 +361,14 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 
 
 	public void stateChanged(ChangeEvent e) {
-		updateZoomScale(true);
+		if (e.getSource() == this.seekSlider) {
+			if (!movingSlider) {
+				this.seekTime = seekSlider.getValue();
+			}
+		}
+		else {
+			updateZoomScale(true);
+		}
 	}
 
 
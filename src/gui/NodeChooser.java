@@ -4,21 +4,27 @@
  */
 package gui;
 
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
+import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 
+import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
-import javax.swing.BoxLayout;
-import javax.swing.JButton;
-import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
 import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import gui.nodefilter.*;
 import gui.playfield.NodeGraphic;
@@ -26,27 +32,35 @@ import core.DTNHost;
 import core.Settings;
 
 /**
- * Node chooser panel
+ * Node chooser panel. The nodes are shown in a list that only renders the
+ * visible nodes, so the panel works the same way for any number of nodes.
+ * The list can be narrowed down with a search field that matches the
+ * names of the nodes.
  */
 public class NodeChooser extends JPanel implements ActionListener {
 	private DTNSimGUI gui;
-	/** the maximum number of allNodes to show in the list per page */
-	public static final int MAX_NODE_COUNT = 500;
 	private Timer refreshTimer;
 	/** how often auto refresh is performed */
 	private static final int AUTO_REFRESH_DELAY = 100;
+	/** text of the search field label */
+	private static final String SEARCH_TEXT = "Search: ";
+	/** node name used for sizing the list cells */
+	private static final String PROTOTYPE_NAME = "node12345";
 
 	/** Default message node filters -setting id ({@value}). Comma separate
 	 * list of message IDs from which the default filter set is created. */
 	public static final String NODE_MESSAGE_FILTERS_S = "nodeMessageFilters";
 
-	private static final String HOST_KEY = "host";
 	private List<DTNHost> allNodes;
 	private List<DTNHost> shownNodes;
+	/** the nodes of shownNodes that match the search text */
+	private List<DTNHost> listedNodes;
+	private String searchText = "";
 
-	private JComboBox groupChooser;
-	private JPanel nodesPanel;
-	private JPanel chooserPanel;
+	private NodeListModel listModel;
+	@SuppressWarnings("rawtypes")
+	private JList nodeList;
+	private JTextField searchField;
 	private Vector<NodeFilter> filters;
 
 
@@ -55,6 +69,7 @@ public class NodeChooser extends JPanel implements ActionListener {
 		// create a replicate to not interfere with original's ordering
 		this.allNodes = new ArrayList<DTNHost>(nodes);
 		this.shownNodes = allNodes;
+		this.listedNodes = allNodes;
 		this.gui = gui;
 		this.filters = new Vector<NodeFilter>();
 
@@ -100,11 +115,23 @@ public class NodeChooser extends JPanel implements ActionListener {
 		updateList();
 	}
 
+	/**
+	 * Updates the listed nodes from the shown nodes and the search text
+	 */
 	private void updateList() {
-		setNodes(0);
-		if (this.groupChooser != null) {
-			this.groupChooser.setSelectedIndex(0);
+		if (searchText.length() == 0) {
+			this.listedNodes = shownNodes;
+		}
+		else {
+			List<DTNHost> nodes = new ArrayList<DTNHost>();
+			for (DTNHost node : shownNodes) {
+				if (node.toString().contains(searchText)) {
+					nodes.add(node);
+				}
+			}
+			this.listedNodes = nodes;
 		}
+		listModel.listChanged();
 	}
 
 
@@ -135,78 +162,95 @@ public class NodeChooser extends JPanel implements ActionListener {
 	/**
 	 * Initializes the node chooser panels
 	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	private void init() {
-		nodesPanel = new JPanel();
-		chooserPanel = new JPanel();
-
-		this.setLayout(new GridBagLayout());
-		GridBagConstraints c = new GridBagConstraints();
-		c.anchor = GridBagConstraints.FIRST_LINE_START;
-
-		nodesPanel.setLayout(new BoxLayout(nodesPanel,BoxLayout.Y_AXIS));
-		nodesPanel.setBorder(BorderFactory.createTitledBorder(getBorder(),
+		this.setLayout(new BorderLayout());
+		this.setBorder(BorderFactory.createTitledBorder(getBorder(),
 				"Nodes"));
 
-		if (shownNodes.size() > MAX_NODE_COUNT) {
-			String[] groupNames = new String[(shownNodes.size()-1)
-			                                 / MAX_NODE_COUNT+1];
-			int last = 0;
-			for (int i=0, n=shownNodes.size();
-				i <= (n-1) / MAX_NODE_COUNT; i++) {
-				int next = MAX_NODE_COUNT * (i+1) - 1;
-				if (next > n) {
-					next = n-1;
+		listModel = new NodeListModel();
+		nodeList = new JList(listModel);
+		nodeList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		/* fixed size cells: the list doesn't need to measure all nodes */
+		nodeList.setPrototypeCellValue(PROTOTYPE_NAME);
+		nodeList.addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent e) {
+				int index = nodeList.locationToIndex(e.getPoint());
+				if (index >= 0 && nodeList.getCellBounds(index, index).
+						contains(e.getPoint())) {
+					gui.setFocus(listedNodes.get(index));
 				}
-				groupNames[i] = (last + "..." + next);
-				last = next + 1;
 			}
-			groupChooser = new JComboBox(groupNames);
-			groupChooser.addActionListener(this);
-			chooserPanel.add(groupChooser);
-		}
+		});
 
-		setNodes(0);
-		c.gridy = 0;
-		this.add(chooserPanel, c);
-		c.gridy = 1;
-		this.add(nodesPanel, c);
+		searchField = new JTextField();
+		searchField.addActionListener(this);
+		searchField.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				searchChanged();
+			}
+			public void removeUpdate(DocumentEvent e) {
+				searchChanged();
+			}
+			public void changedUpdate(DocumentEvent e) {
+				searchChanged();
+			}
+		});
+
+		JPanel searchPanel = new JPanel(new BorderLayout());
+		searchPanel.add(new JLabel(SEARCH_TEXT), BorderLayout.WEST);
+		searchPanel.add(searchField, BorderLayout.CENTER);
+
+		this.add(searchPanel, BorderLayout.NORTH);
+		this.add(new JScrollPane(nodeList), BorderLayout.CENTER);
 	}
 
 	/**
-	 * Sets the right set of allNodes to display
-	 * @param offset Index of the first node to show
+	 * Updates the list after the search text has changed
 	 */
-	private void setNodes(int offset) {
-		nodesPanel.removeAll();
-
-		for (int i=offset; i< shownNodes.size() &&
-			i < offset + MAX_NODE_COUNT; i++) {
-			DTNHost h = shownNodes.get(i);
-			JButton jb = new JButton(h.toString());
-			jb.putClientProperty(HOST_KEY, h);
-			jb.addActionListener(this);
-			nodesPanel.add(jb);
-		}
-
-		revalidate();
-		repaint();
+	private void searchChanged() {
+		this.searchText = searchField.getText();
+		updateList();
 	}
 
 	/**
-	 * Action listener method for buttons and node set chooser
+	 * Action listener method for the search field and refresh timer
 	 */
 	public void actionPerformed(ActionEvent e) {
-		if (e.getSource() instanceof JButton) {
-			JButton source = (JButton)e.getSource();
-			DTNHost host = (DTNHost)source.getClientProperty(HOST_KEY);
-			gui.setFocus(host);
-		}
-		else if (e.getSource() == this.groupChooser) {
-			setNodes(groupChooser.getSelectedIndex() * MAX_NODE_COUNT);
+		if (e.getSource() == this.searchField) {
+			// enter in the search field -> focus on the first listed node
+			if (listedNodes.size() > 0) {
+				nodeList.setSelectedIndex(0);
+				gui.setFocus(listedNodes.get(0));
+			}
 		}
 		else if (e.getSource() == this.refreshTimer) {
 			updateShownNodes();
 		}
 	}
 
+	/**
+	 * List model of the listed nodes
+	 */
+	@SuppressWarnings("rawtypes")
+	private class NodeListModel extends AbstractListModel {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Notifies the list that the listed nodes have changed
+		 */
+		public void listChanged() {
+			nodeList.clearSelection();
+			fireContentsChanged(this, 0, Math.max(getSize() - 1, 0));
+		}
+
+		public int getSize() {
+			return listedNodes.size();
+		}
+
+		public Object getElementAt(int index) {
+			return listedNodes.get(index);
+		}
+	}
+
 }
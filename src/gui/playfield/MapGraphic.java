@@ -25,7 +25,6 @@ public class MapGraphic extends PlayFieldGraphic {
 
 	}
 
-	// TODO: draw only once and store to buffer
 	@Override
 	public void draw(Graphics2D g2) {
 		Coord c,c2;
@@ -8,19 +8,24 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
 
-import core.DTNHost;
+import core.Coord;
 
 /**
- * Visualization of a message
+ * Visualization of a message transfer between two locations
  *
  */
 public class MessageGraphic extends PlayFieldGraphic {
 	private Color msgColor = Color.RED;
 
-	private DTNHost from;
-	private DTNHost to;
+	private Coord from;
+	private Coord to;
 
-	public MessageGraphic(DTNHost from, DTNHost to) {
+	/**
+	 * Constructor.
+	 * @param from Location of the sending host
+	 * @param to Location of the receiving host
+	 */
+	public MessageGraphic(Coord from, Coord to) {
 		this.to = to;
 		this.from = from;
 	}
@@ -29,10 +34,10 @@ public class MessageGraphic extends PlayFieldGraphic {
 	public void draw(Graphics2D g2) {
 		g2.setColor(msgColor);
 
-		int fromX = scale(from.getLocation().getX());
-		int fromY = scale(from.getLocation().getY());
-		int toX = scale(to.getLocation().getX());
-		int toY = scale(to.getLocation().getY());
+		int fromX = scale(from.getX());
+		int fromY = scale(from.getY());
+		int toX = scale(to.getX());
+		int toY = scale(to.getY());
 
 		// line from "from host" to "to host"
 		Polygon p = new Polygon(new int[] {fromX, toX},
@@ -6,17 +6,15 @@ package gui.playfield;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
 import java.util.List;
 
-import core.Connection;
-import core.Coord;
 import core.DTNHost;
-import core.NetworkInterface;
 
 /**
- * Visualization of a DTN Node
+ * Visualization of a DTN Node. The node is drawn from a
+ * {@link WorldSnapshot}, not from the live state of the host.
  *
  */
 public class NodeGraphic extends PlayFieldGraphic {
@@ -37,9 +35,19 @@ public class NodeGraphic extends PlayFieldGraphic {
 	private static Color highlightedNodeColor = Color.MAGENTA;
 
 	private DTNHost node;
+	private WorldSnapshot snapshot;
+	private int index;
 
-	public NodeGraphic(DTNHost node) {
+	/**
+	 * Constructor.
+	 * @param node The node (used for its name and highlighting)
+	 * @param snapshot The snapshot the node is drawn from
+	 * @param index Index of the node in the snapshot
+	 */
+	public NodeGraphic(DTNHost node, WorldSnapshot snapshot, int index) {
 		this.node = node;
+		this.snapshot = snapshot;
+		this.index = index;
 	}
 
 	@Override
@@ -54,6 +62,15 @@ public class NodeGraphic extends PlayFieldGraphic {
 	 * @return true if the node this graphic represents should be highlighted
 	 */
 	private boolean isHighlighted() {
+		return isHighlighted(node);
+	}
+
+	/**
+	 * Returns true if a node should be highlighted
+	 * @param node The node
+	 * @return true if the node should be highlighted
+	 */
+	static boolean isHighlighted(DTNHost node) {
 		if (highlightedNodes == null) {
 			return false;
 		} else {
@@ -61,24 +78,38 @@ public class NodeGraphic extends PlayFieldGraphic {
 		}
 	}
 
+	/**
+	 * Returns how far (in world units) from the node's location the node's
+	 * graphics can reach with the current settings and zoom level. Nodes
+	 * further than this from the visible area don't need to be drawn.
+	 * @param snapshot The snapshot the nodes are drawn from
+	 * @return The reach of the node graphics
+	 */
+	static double getReach(WorldSnapshot snapshot) {
+		final int NAME_WIDTH = 100; // pixels
+		final int BAR_REACH = 60; // buffer bar stacks (world units)
+		double reach = invScale(NAME_WIDTH) + BAR_REACH;
+		if (drawCoverage) {
+			reach += snapshot.getMaxRange();
+		}
+		return reach;
+	}
+
 	/**
 	 * Visualize node's location, radio ranges and connections
 	 * @param g2 The graphic context to draw to
 	 */
 	private void drawHost(Graphics2D g2) {
-		Coord loc = node.getLocation();
-
-		if (drawCoverage && node.isRadioActive()) {
-			ArrayList<NetworkInterface> interfaces =
-				new ArrayList<NetworkInterface>();
-			interfaces.addAll(node.getInterfaces());
-			for (NetworkInterface ni : interfaces) {
-				double range = ni.getTransmitRange();
+		double x = snapshot.getX(index);
+		double y = snapshot.getY(index);
+
+		if (drawCoverage && snapshot.isRadioActive(index)) {
+			for (int k=0, n=snapshot.getNrofRanges(index); k<n; k++) {
+				double range = snapshot.getRange(index, k);
 				Ellipse2D.Double coverage;
 
-				coverage = new Ellipse2D.Double(scale(loc.getX()-range),
-						scale(loc.getY()-range), scale(range * 2),
-						scale(range * 2));
+				coverage = new Ellipse2D.Double(scale(x-range),
+						scale(y-range), scale(range * 2), scale(range * 2));
 
 				// draw the "range" circle
 				g2.setColor(rangeColor);
@@ -86,41 +117,50 @@ public class NodeGraphic extends PlayFieldGraphic {
 			}
 		}
 
-		if (drawConnections) {
-			g2.setColor(conColor);
-			Coord c1 = node.getLocation();
-			ArrayList<Connection> conList = new ArrayList<Connection>();
-			// create a copy to prevent concurrent modification exceptions
-			conList.addAll(node.getConnections());
-			for (Connection c : conList) {
-				DTNHost otherNode = c.getOtherNode(node);
-				Coord c2;
-
-				if (otherNode == null) {
-					continue; /* disconnected before drawn */
-				}
-				c2 = otherNode.getLocation();
-				g2.drawLine(scale(c1.getX()), scale(c1.getY()),
-						scale(c2.getX()), scale(c2.getY()));
-			}
-		}
-
-
 		/* draw node rectangle */
 		g2.setColor(hostColor);
-		g2.drawRect(scale(loc.getX()-1),scale(loc.getY()-1),
+		g2.drawRect(scale(x-1),scale(y-1),
 		scale(2),scale(2));
 
 		if (isHighlighted()) {
 			g2.setColor(highlightedNodeColor);
-			g2.fillRect(scale(loc.getX()) - 3 ,scale(loc.getY()) - 3, 6, 6);
+			g2.fillRect(scale(x) - 3 ,scale(y) - 3, 6, 6);
 		}
 
 		if (drawNodeName) {
 			g2.setColor(hostNameColor);
 			// Draw node's address next to it
-			g2.drawString(node.toString(), scale(loc.getX()),
-					scale(loc.getY()));
+			g2.drawString(node.toString(), scale(x), scale(y));
+		}
+	}
+
+	/**
+	 * Visualizes the connections of a snapshot (if connection drawing is
+	 * enabled). Every connection is drawn once and connections outside the
+	 * visible area or shorter than a pixel are skipped.
+	 * @param g2 The graphic context to draw to
+	 * @param snapshot The snapshot whose connections are drawn
+	 * @param visible The visible area (in graphics coordinates)
+	 */
+	public static void drawConnections(Graphics2D g2, WorldSnapshot snapshot,
+			Rectangle visible) {
+		if (!drawConnections) {
+			return;
+		}
+		g2.setColor(conColor);
+		for (int k=0, n=snapshot.getNrofConnections(); k<n; k++) {
+			int i = snapshot.getConnectionHost1(k);
+			int j = snapshot.getConnectionHost2(k);
+			int x1 = scale(snapshot.getX(i));
+			int y1 = scale(snapshot.getY(i));
+			int x2 = scale(snapshot.getX(j));
+			int y2 = scale(snapshot.getY(j));
+			if ((x1 == x2 && y1 == y2) || !visible.intersects(
+					Math.min(x1, x2), Math.min(y1, y2),
+					Math.abs(x1 - x2) + 1, Math.abs(y1 - y2) + 1)) {
+				continue;
+			}
+			g2.drawLine(x1, y1, x2, y2);
 		}
 	}
 
@@ -165,21 +205,24 @@ public class NodeGraphic extends PlayFieldGraphic {
 	 * @param g2 The graphic context to draw to
 	 */
 	private void drawMessages(Graphics2D g2) {
-		int nrofMessages = node.getNrofMessages();
-		Coord loc = node.getLocation();
+		int nrofMessages = snapshot.getNrofMessages(index);
+		double x = snapshot.getX(index);
+		double y = snapshot.getY(index);
 
-		drawBar(g2,loc, nrofMessages % 10, 1);
-		drawBar(g2,loc, nrofMessages / 10, 2);
+		drawBar(g2, x, y, nrofMessages % 10, 1);
+		drawBar(g2, x, y, nrofMessages / 10, 2);
 	}
 
 	/**
 	 * Draws a bar (stack of squares) next to a location
 	 * @param g2 The graphic context to draw to
-	 * @param loc The location where to draw
+	 * @param x X coordinate of the location where to draw
+	 * @param y Y coordinate of the location where to draw
 	 * @param nrof How many squares in the stack
 	 * @param col Which column
 	 */
-	private void drawBar(Graphics2D g2, Coord loc, int nrof, int col) {
+	private void drawBar(Graphics2D g2, double x, double y, int nrof,
+			int col) {
 		final int BAR_HEIGHT = 5;
 		final int BAR_WIDTH = 5;
 		final int BAR_DISPLACEMENT = 2;
@@ -198,8 +241,8 @@ public class NodeGraphic extends PlayFieldGraphic {
 				}
 			}
 
-			g2.fillRect(scale(loc.getX()-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
-					scale(loc.getY()- BAR_DISPLACEMENT- i* BAR_HEIGHT),
+			g2.fillRect(scale(x-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
+					scale(y- BAR_DISPLACEMENT- i* BAR_HEIGHT),
 					scale(BAR_WIDTH), scale(BAR_HEIGHT));
 		}
 
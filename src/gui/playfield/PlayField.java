@@ -10,6 +10,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
@@ -32,9 +33,27 @@ import core.World;
  */
 public class PlayField extends JPanel {
 	public static final int PLAYFIELD_OFFSET = 10;
+	/** Number of hosts in the visible area above which crowded hosts
+	 * are aggregated to heat cells */
+	public static final int LOD_THRESHOLD = 1000;
+	/** Width and height of the heat cells (pixels) */
+	public static final int HEAT_CELL_SIZE = 4;
+	/** Minimum number of hosts in a heat cell */
+	public static final int HEAT_MIN_HOSTS = 4;
+	/** Colors of the heat cells from the least to the most crowded */
+	private static final Color[] HEAT_COLORS = new Color[16];
+
+	static {
+		for (int i=0; i < HEAT_COLORS.length; i++) {
+			float t = (float)i / (HEAT_COLORS.length - 1);
+			HEAT_COLORS[i] = new Color(1f, 0.85f * (1 - t), 0f);
+		}
+	}
 
 	private World w;
 	private DTNSimGUI gui;
+	/** the latest snapshot of the hosts (the one that is drawn) */
+	private volatile WorldSnapshot snapshot;
 
 	private Color bgColor = Color.WHITE;
 
@@ -45,6 +64,9 @@ public class PlayField extends JPanel {
 	private ScaleReferenceGraphic refGraphic;
 	private boolean focusOnClick;
 
+	/** cached tiles of the underlay image and map graphics */
+	private TileCache backgroundTiles;
+
 	private BufferedImage underlayImage;
 	private AffineTransform imageTransform;
 	private AffineTransform curTransform;
@@ -58,6 +80,7 @@ public class PlayField extends JPanel {
 	public PlayField (World w, DTNSimGUI gui) {
 		this.w = w;
 		this.gui = gui;
+		this.snapshot = new WorldSnapshot(w.getHosts(), 0);
 
 		this.refGraphic = new ScaleReferenceGraphic();
 		updateFieldSize();
@@ -68,6 +91,11 @@ public class PlayField extends JPanel {
         this.underlayImage = null;
         this.imageTransform = null;
         this.autoClearOverlay = true;
+        this.backgroundTiles = new TileCache(new TileCache.Painter() {
+			public void paintBackground(Graphics2D g2) {
+				drawBackground(g2);
+			}
+		}, bgColor);
 
         this.addMouseListener(new MouseAdapter() {
 			@Override
@@ -79,6 +107,37 @@ public class PlayField extends JPanel {
 		});
 	}
 
+	/**
+	 * Sets the snapshot the hosts are drawn from. Can be called from any
+	 * thread; the snapshot is shown in the next painting.
+	 * @param snapshot The new snapshot
+	 */
+	public void setSnapshot(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Returns the snapshot the hosts are drawn from
+	 * @return the latest snapshot
+	 */
+	public WorldSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Returns the location of a host in the latest snapshot
+	 * @param host The host
+	 * @return The location of the host when the snapshot was taken
+	 */
+	public Coord getHostLocation(DTNHost host) {
+		WorldSnapshot snap = this.snapshot;
+		int i = WorldSnapshot.indexOf(w.getHosts(), host);
+		if (i < 0 || i >= snap.getNrofHosts()) {
+			return host.getLocation().clone(); // not in the snapshot
+		}
+		return new Coord(snap.getX(i), snap.getY(i));
+	}
+
 	/**
 	 * Schedule the play field to be drawn
 	 */
@@ -96,6 +155,7 @@ public class PlayField extends JPanel {
 	 */
 	public void setUnderlayImage(BufferedImage image,
 			double dx, double dy, double scale, double rotation) {
+		this.backgroundTiles.clear();
 		if (image == null) {
 			this.underlayImage = null;
 			this.imageTransform = null;
@@ -122,6 +182,7 @@ public class PlayField extends JPanel {
 	public void setScale(double scale) {
 		PlayFieldGraphic.setScale(scale);
 		this.updateFieldSize();
+		this.backgroundTiles.clear();
 		if (this.imageTransform != null) {
 			this.curTransform = new AffineTransform(imageTransform);
 			curTransform.scale(scale, scale);
@@ -136,6 +197,7 @@ public class PlayField extends JPanel {
 	public void setMap(SimMap simMap) {
 		this.mapGraphic = new MapGraphic(simMap);
 		this.showMapGraphic = true;
+		this.backgroundTiles.clear();
 	}
 
 	/**
@@ -144,6 +206,7 @@ public class PlayField extends JPanel {
 	 */
 	public void setShowMapGraphic(boolean show) {
 		this.showMapGraphic = show;
+		this.backgroundTiles.clear();
 	}
 
 	/**
@@ -177,10 +240,43 @@ public class PlayField extends JPanel {
 
 		g2.translate(PLAYFIELD_OFFSET, PLAYFIELD_OFFSET);
 
-		// clear old playfield graphics
-		g2.clearRect(-PLAYFIELD_OFFSET, -PLAYFIELD_OFFSET,
-				this.getWidth() + PLAYFIELD_OFFSET,
-				this.getHeight() + PLAYFIELD_OFFSET);
+		// only the visible part of the field needs to be drawn
+		Rectangle visible = g2.getClipBounds();
+		if (visible == null) {
+			visible = new Rectangle(-PLAYFIELD_OFFSET, -PLAYFIELD_OFFSET,
+					this.getWidth() + PLAYFIELD_OFFSET,
+					this.getHeight() + PLAYFIELD_OFFSET);
+		}
+
+		// clear old playfield graphics and draw the underlay image and map
+		if (underlayImage != null || (mapGraphic != null && showMapGraphic)) {
+			this.backgroundTiles.draw(g2, visible);
+		}
+		else {
+			g2.clearRect(visible.x, visible.y, visible.width, visible.height);
+		}
+
+		// draw connections and hosts (all from the same snapshot)
+		WorldSnapshot snap = this.snapshot;
+		NodeGraphic.drawConnections(g2, snap, visible);
+		drawHosts(g2, snap, visible);
+
+		// draw overlay graphics
+		for (int i=0, n=overlayGraphics.size(); i<n; i++) {
+			overlayGraphics.get(i).draw(g2);
+		}
+
+		// draw reference scale
+		this.refGraphic.draw(g2);
+	}
+
+
+	/**
+	 * Draws the static background (underlay image and map) for the
+	 * background tiles
+	 * @param g2 The graphics context of a tile
+	 */
+	private void drawBackground(Graphics2D g2) {
 		if (underlayImage != null) {
 			g2.drawImage(underlayImage,curTransform, null);
 		}
@@ -189,21 +285,80 @@ public class PlayField extends JPanel {
 		if (mapGraphic != null && showMapGraphic) {
 			mapGraphic.draw(g2);
 		}
+	}
 
-		// draw hosts
-		for (DTNHost h : w.getHosts()) {
-			new NodeGraphic(h).draw(g2);
+	/**
+	 * Draws the hosts that are in or near the visible area. If there are
+	 * more than {@link #LOD_THRESHOLD} hosts in the area, hosts that are
+	 * crowded in the same {@link #HEAT_CELL_SIZE} pixel cell with at least
+	 * {@link #HEAT_MIN_HOSTS} hosts are drawn only as a cell whose color
+	 * tells the number of hosts in it (highlighted hosts are always drawn).
+	 * @param g2 The graphics context to draw to
+	 * @param snap The snapshot the hosts are drawn from
+	 * @param visible The visible area
+	 */
+	private void drawHosts(Graphics2D g2, WorldSnapshot snap,
+			Rectangle visible) {
+		List<DTNHost> hostList = w.getHosts();
+		double reach = NodeGraphic.getReach(snap);
+		int[] hosts = snap.getHostsIn(
+				PlayFieldGraphic.invScale(visible.x) - reach,
+				PlayFieldGraphic.invScale(visible.y) - reach,
+				PlayFieldGraphic.invScale(visible.x + visible.width) + reach,
+				PlayFieldGraphic.invScale(visible.y + visible.height) + reach);
+
+		if (hosts.length <= LOD_THRESHOLD) {
+			for (int i : hosts) {
+				new NodeGraphic(hostList.get(i), snap, i).draw(g2);
+			}
+			return;
 		}
 
-		// draw overlay graphics
-		for (int i=0, n=overlayGraphics.size(); i<n; i++) {
-			overlayGraphics.get(i).draw(g2);
+		/* count the hosts in each cell of the visible area; hosts outside
+		 * the area are not drawn at all in this mode */
+		int cols = visible.width / HEAT_CELL_SIZE + 1;
+		int rows = visible.height / HEAT_CELL_SIZE + 1;
+		int[] counts = new int[cols * rows];
+		int[] cells = new int[hosts.length];
+		for (int k=0; k < hosts.length; k++) {
+			int x = PlayFieldGraphic.scale(snap.getX(hosts[k])) - visible.x;
+			int y = PlayFieldGraphic.scale(snap.getY(hosts[k])) - visible.y;
+			if (x < 0 || y < 0 || x >= visible.width || y >= visible.height) {
+				cells[k] = -1;
+				continue;
+			}
+			cells[k] = (y / HEAT_CELL_SIZE) * cols + x / HEAT_CELL_SIZE;
+			counts[cells[k]]++;
 		}
 
-		// draw reference scale
-		this.refGraphic.draw(g2);
+		for (int c=0; c < counts.length; c++) {
+			if (counts[c] >= HEAT_MIN_HOSTS) {
+				g2.setColor(heatColor(counts[c]));
+				g2.fillRect(visible.x + (c % cols) * HEAT_CELL_SIZE,
+						visible.y + (c / cols) * HEAT_CELL_SIZE,
+						HEAT_CELL_SIZE, HEAT_CELL_SIZE);
+			}
+		}
+
+		for (int k=0; k < hosts.length; k++) {
+			DTNHost h = hostList.get(hosts[k]);
+			if (cells[k] < 0 || (counts[cells[k]] >= HEAT_MIN_HOSTS &&
+					!NodeGraphic.isHighlighted(h))) {
+				continue;
+			}
+			new NodeGraphic(h, snap, hosts[k]).draw(g2);
+		}
 	}
 
+	/**
+	 * Returns the color of a heat cell: from yellow (few hosts) to red
+	 * (at least 64 times {@link #HEAT_MIN_HOSTS} hosts) on log scale.
+	 */
+	private static Color heatColor(int count) {
+		double level = Math.log((double)count / HEAT_MIN_HOSTS) / Math.log(64);
+		int i = (int)(Math.min(level, 1) * (HEAT_COLORS.length - 1));
+		return HEAT_COLORS[i];
+	}
 
 	/**
 	 * Removes all overlay graphics stored to be drawn
@@ -219,7 +374,8 @@ public class PlayField extends JPanel {
 	 */
 	public void addMessageTransfer(DTNHost from, DTNHost to) {
 		autoClear();
-		this.overlayGraphics.add(new MessageGraphic(from,to));
+		this.overlayGraphics.add(new MessageGraphic(getHostLocation(from),
+				getHostLocation(to)));
 	}
 
 	/**
@@ -290,21 +446,22 @@ public class PlayField extends JPanel {
 	 * @param y The Y coordinate
 	 */
 	private void focusClosestNode(int x, int y) {
-		DTNHost closest = w.getHosts().get(0);
+		WorldSnapshot snap = this.snapshot;
+		int closest = 0;
 		double closestDist = Double.MAX_VALUE;
 		double dist;
 
 		Coord clickLoc = getWorldPosition(new Coord(x,y));
 
-		for (DTNHost h : w.getHosts()) {
-			dist = h.getLocation().distance(clickLoc);
+		for (int i=0, n=snap.getNrofHosts(); i<n; i++) {
+			dist = clickLoc.distance(new Coord(snap.getX(i), snap.getY(i)));
 
 			if (dist < closestDist) {
-				closest = h;
+				closest = i;
 				closestDist = dist;
 			}
 		}
 
-		gui.setFocus(closest);
+		gui.setFocus(w.getHosts().get(closest));
 	}
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of pre-rendered square tiles of the static play field background
+ * (underlay image and map). A tile is rendered when it's first needed and
+ * kept until the cache is cleared (when the zoom level or the background
+ * changes) or it's the least recently used tile of a full cache.
+ */
+public class TileCache {
+	/** Width and height of the tiles (pixels) */
+	public static final int TILE_SIZE = 256;
+	/** Maximum number of tiles in the cache */
+	public static final int MAX_TILES = 96;
+
+	/**
+	 * Paints the background to a tile
+	 */
+	public interface Painter {
+		/**
+		 * Paints the background. The graphics context is translated and
+		 * clipped to the tile.
+		 * @param g2 The graphics context of the tile
+		 */
+		public void paintBackground(Graphics2D g2);
+	}
+
+	private Painter painter;
+	private Color bgColor;
+	private Map<Long, BufferedImage> tiles;
+
+	/**
+	 * Constructor.
+	 * @param painter The painter of the background
+	 * @param bgColor Background color of the tiles
+	 */
+	public TileCache(Painter painter, Color bgColor) {
+		this.painter = painter;
+		this.bgColor = bgColor;
+		this.tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Long, BufferedImage> eldest) {
+				return size() > MAX_TILES;
+			}
+		};
+	}
+
+	/**
+	 * Removes all the tiles (they are rendered again when needed)
+	 */
+	public void clear() {
+		this.tiles.clear();
+	}
+
+	/**
+	 * Draws the tiles that cover the given area
+	 * @param g2 The graphics context to draw to
+	 * @param area The area to cover (in the context's coordinates)
+	 */
+	public void draw(Graphics2D g2, Rectangle area) {
+		int tx1 = tileIndex(area.x);
+		int ty1 = tileIndex(area.y);
+		int tx2 = tileIndex(area.x + area.width - 1);
+		int ty2 = tileIndex(area.y + area.height - 1);
+
+		for (int ty = ty1; ty <= ty2; ty++) {
+			for (int tx = tx1; tx <= tx2; tx++) {
+				g2.drawImage(getTile(tx, ty), tx * TILE_SIZE, ty * TILE_SIZE,
+						null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the tile that contains a coordinate (rounds
+	 * towards negative infinity also for negative coordinates)
+	 */
+	private static int tileIndex(int coord) {
+		int index = coord / TILE_SIZE;
+		if (coord % TILE_SIZE < 0) {
+			index--;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns a tile, rendering it if it's not in the cache
+	 */
+	private BufferedImage getTile(int tx, int ty) {
+		Long key = ((long)tx << 32) | (ty & 0xffffffffL);
+		BufferedImage tile = tiles.get(key);
+		if (tile == null) {
+			tile = new BufferedImage(TILE_SIZE, TILE_SIZE,
+					BufferedImage.TYPE_INT_RGB);
+			Graphics2D g2 = tile.createGraphics();
+			g2.setColor(bgColor);
+			g2.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+			g2.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+			g2.clipRect(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+			painter.paintBackground(g2);
+			g2.dispose();
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.Arrays;
+import java.util.List;
+
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import report.Recording;
+
+/**
+ * Immutable snapshot of the visualized state of the hosts: locations,
+ * radio ranges, connections and message buffer fill. The simulation thread
+ * takes a snapshot at every GUI update and the play field is painted only
+ * from the latest snapshot, so painting never reads the live (changing)
+ * state of the simulation and the simulation never has to wait for the
+ * painting. The state is stored in primitive arrays indexed by the
+ * position of the host in the host list. For finding the hosts of an area
+ * quickly, a grid index of the locations is built on the first query
+ * (from the EDT; snapshots are not queried from other threads).
+ */
+public class WorldSnapshot {
+	private final double time;
+	private final double[] xs;
+	private final double[] ys;
+	private final int[] nrofMessages;
+	private final boolean[] radioActive;
+	/** transmit ranges of host i are at [rangeStart[i], rangeStart[i+1]) */
+	private final double[] ranges;
+	private final int[] rangeStart;
+	/** host indexes of the connection end points (two per connection) */
+	private final int[] connections;
+	private final int nrofConnections;
+	private final double maxRange;
+
+	/* grid index of the host locations (built when needed) */
+	private double gridMinX, gridMinY, cellSize;
+	private int gridCols, gridRows;
+	/** hosts of cell c are cellHosts[cellStart[c] ... cellStart[c+1]-1] */
+	private int[] cellStart;
+	private int[] cellHosts;
+
+	/**
+	 * Takes a snapshot of the hosts' state. Must be called from the thread
+	 * that runs the simulation.
+	 * @param hosts The hosts
+	 * @param time Simulation time of the snapshot
+	 */
+	public WorldSnapshot(List<DTNHost> hosts, double time) {
+		int n = hosts.size();
+		this.time = time;
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.nrofMessages = new int[n];
+		this.radioActive = new boolean[n];
+		this.rangeStart = new int[n + 1];
+
+		int nrofRanges = 0;
+		int nrofConnections = 0;
+		for (int i=0; i<n; i++) {
+			DTNHost h = hosts.get(i);
+			nrofRanges += h.getInterfaces().size();
+			nrofConnections += h.getConnections().size();
+		}
+		double[] rangeArray = new double[nrofRanges];
+		int[] conArray = new int[nrofConnections]; // each counted twice
+
+		int r = 0;
+		int c = 0;
+		double maxR = 0;
+		for (int i=0; i<n; i++) {
+			DTNHost h = hosts.get(i);
+			Coord loc = h.getLocation();
+			xs[i] = loc.getX();
+			ys[i] = loc.getY();
+			nrofMessages[i] = h.getNrofMessages();
+			radioActive[i] = h.isRadioActive();
+
+			rangeStart[i] = r;
+			for (NetworkInterface ni : h.getInterfaces()) {
+				rangeArray[r] = ni.getTransmitRange();
+				maxR = Math.max(maxR, rangeArray[r++]);
+			}
+
+			for (Connection con : h.getConnections()) {
+				DTNHost other = con.getOtherNode(h);
+				/* store every connection once, from the lower index */
+				int j = indexOf(hosts, other);
+				if (j > i) {
+					conArray[c++] = i;
+					conArray[c++] = j;
+				}
+			}
+		}
+		rangeStart[n] = r;
+		this.ranges = rangeArray;
+		this.connections = conArray;
+		this.nrofConnections = c / 2;
+		this.maxRange = maxR;
+	}
+
+	/**
+	 * Creates a snapshot from a frame of a recorded run. The hosts are
+	 * indexed by their addresses.
+	 * @param frame The frame
+	 */
+	public WorldSnapshot(Recording.Frame frame) {
+		int n = frame.getNrofHosts();
+		this.time = frame.getTime();
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.nrofMessages = new int[n];
+		this.radioActive = new boolean[n];
+		this.rangeStart = new int[n + 1];
+		this.ranges = new double[frame.getTotalRanges()];
+
+		int r = 0;
+		double maxR = 0;
+		for (int i=0; i<n; i++) {
+			xs[i] = frame.getX(i);
+			ys[i] = frame.getY(i);
+			nrofMessages[i] = frame.getNrofMessages(i);
+			radioActive[i] = frame.isRadioActive(i);
+			rangeStart[i] = r;
+			for (int k=0, m=frame.getNrofRanges(i); k<m; k++) {
+				ranges[r] = frame.getRange(r);
+				maxR = Math.max(maxR, ranges[r++]);
+			}
+		}
+		rangeStart[n] = r;
+
+		this.nrofConnections = frame.getNrofConnections();
+		this.connections = new int[nrofConnections * 2];
+		for (int k=0; k<nrofConnections; k++) {
+			connections[2 * k] = frame.getConnectionHost1(k);
+			connections[2 * k + 1] = frame.getConnectionHost2(k);
+		}
+		this.maxRange = maxR;
+	}
+
+	/**
+	 * Returns the indexes of the hosts that are inside a rectangle
+	 * @param minX Minimum X coordinate of the rectangle
+	 * @param minY Minimum Y coordinate of the rectangle
+	 * @param maxX Maximum X coordinate of the rectangle
+	 * @param maxY Maximum Y coordinate of the rectangle
+	 * @return The indexes of the hosts in ascending order
+	 */
+	public int[] getHostsIn(double minX, double minY,
+			double maxX, double maxY) {
+		if (cellStart == null) {
+			buildGrid();
+		}
+		int c1 = clamp((int)((minX - gridMinX) / cellSize), gridCols);
+		int c2 = clamp((int)((maxX - gridMinX) / cellSize), gridCols);
+		int r1 = clamp((int)((minY - gridMinY) / cellSize), gridRows);
+		int r2 = clamp((int)((maxY - gridMinY) / cellSize), gridRows);
+
+		int[] result = new int[16];
+		int n = 0;
+		for (int row = r1; row <= r2; row++) {
+			for (int col = c1; col <= c2; col++) {
+				int cell = row * gridCols + col;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					int i = cellHosts[k];
+					if (xs[i] >= minX && xs[i] <= maxX &&
+							ys[i] >= minY && ys[i] <= maxY) {
+						if (n == result.length) {
+							result = Arrays.copyOf(result, n * 2);
+						}
+						result[n++] = i;
+					}
+				}
+			}
+		}
+		result = Arrays.copyOf(result, n);
+		Arrays.sort(result); // draw in the host list order
+		return result;
+	}
+
+	private static int clamp(int value, int size) {
+		return Math.max(0, Math.min(value, size - 1));
+	}
+
+	/**
+	 * Builds the grid index. The cell size is chosen so that there are
+	 * about as many cells as hosts.
+	 */
+	private void buildGrid() {
+		int n = xs.length;
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i=0; i<n; i++) {
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		if (n == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		double area = Math.max((maxX - minX) * (maxY - minY), 1);
+		this.cellSize = Math.max(Math.sqrt(area / Math.max(n, 1)), 1);
+		this.gridMinX = minX;
+		this.gridMinY = minY;
+		this.gridCols = (int)((maxX - minX) / cellSize) + 1;
+		this.gridRows = (int)((maxY - minY) / cellSize) + 1;
+
+		int[] cells = new int[n];
+		int[] start = new int[gridCols * gridRows + 1];
+		for (int i=0; i<n; i++) {
+			int col = clamp((int)((xs[i] - minX) / cellSize), gridCols);
+			int row = clamp((int)((ys[i] - minY) / cellSize), gridRows);
+			cells[i] = row * gridCols + col;
+			start[cells[i] + 1]++;
+		}
+		for (int c=0; c < gridCols * gridRows; c++) {
+			start[c + 1] += start[c];
+		}
+		int[] fill = Arrays.copyOf(start, start.length);
+		int[] hostsOfCells = new int[n];
+		for (int i=0; i<n; i++) {
+			hostsOfCells[fill[cells[i]]++] = i;
+		}
+		this.cellHosts = hostsOfCells;
+		this.cellStart = start;
+	}
+
+	/**
+	 * Returns the index of a host in the host list. Hosts are normally
+	 * listed in the order of their addresses, so the address is tried
+	 * first.
+	 * @param hosts The host list
+	 * @param h The host to look for
+	 * @return Index of the host or -1 if it's not in the list
+	 */
+	static int indexOf(List<DTNHost> hosts, DTNHost h) {
+		int address = h.getAddress();
+		if (address < hosts.size() && hosts.get(address) == h) {
+			return address;
+		}
+		return hosts.indexOf(h);
+	}
+
+	/**
+	 * Returns the simulation time when the snapshot was taken
+	 * @return the simulation time of the snapshot
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of hosts in the snapshot
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.xs.length;
+	}
+
+	/**
+	 * Returns the X coordinate of a host
+	 * @param i Index of the host
+	 * @return the X coordinate
+	 */
+	public double getX(int i) {
+		return this.xs[i];
+	}
+
+	/**
+	 * Returns the Y coordinate of a host
+	 * @param i Index of the host
+	 * @return the Y coordinate
+	 */
+	public double getY(int i) {
+		return this.ys[i];
+	}
+
+	/**
+	 * Returns the number of messages in a host's buffer
+	 * @param i Index of the host
+	 * @return the number of messages
+	 */
+	public int getNrofMessages(int i) {
+		return this.nrofMessages[i];
+	}
+
+	/**
+	 * Returns true if the radio of a host was active
+	 * @param i Index of the host
+	 * @return true if the radio was active
+	 */
+	public boolean isRadioActive(int i) {
+		return this.radioActive[i];
+	}
+
+	/**
+	 * Returns the number of network interfaces of a host
+	 * @param i Index of the host
+	 * @return the number of interfaces
+	 */
+	public int getNrofRanges(int i) {
+		return this.rangeStart[i + 1] - this.rangeStart[i];
+	}
+
+	/**
+	 * Returns the transmit range of a host's network interface
+	 * @param i Index of the host
+	 * @param k Index of the interface
+	 * @return the transmit range
+	 */
+	public double getRange(int i, int k) {
+		return this.ranges[this.rangeStart[i] + k];
+	}
+
+	/**
+	 * Returns the largest transmit range of all the hosts
+	 * @return the largest transmit range
+	 */
+	public double getMaxRange() {
+		return this.maxRange;
+	}
+
+	/**
+	 * Returns the number of connections
+	 * @return the number of connections
+	 */
+	public int getNrofConnections() {
+		return this.nrofConnections;
+	}
+
+	/**
+	 * Returns the index of the first host of a connection
+	 * @param k Index of the connection
+	 * @return the index of the host
+	 */
+	public int getConnectionHost1(int k) {
+		return this.connections[2 * k];
+	}
+
+	/**
+	 * Returns the index of the second host of a connection
+	 * @param k Index of the connection
+	 * @return the index of the host
+	 */
+	public int getConnectionHost2(int k) {
+		return this.connections[2 * k + 1];
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Reads external events from a compact columnar binary file through
+ * memory mapped buffers. Can also create such files from any other external
+ * events reader (e.g. from the standard text format); run the class' main
+ * method to convert files from the command line:<BR>
+ * <TT>java -cp target input.ColumnarEventsReader &lt;input&gt;
+ * &lt;output{@value #COLUMNAR_EXT}&gt;</TT>
+ * </P><P>
+ * File format (all values big-endian): a header of magic number, format
+ * version, number of events (N) and number of strings (all ints) followed
+ * by the columns: N times (doubles), N event types (bytes) and N first
+ * hosts, second hosts, message sizes, response sizes and string indexes
+ * (ints). Last comes the string table (message and interface IDs) that the
+ * string indexes refer to. Each string is stored only once.
+ * </P>
+ */
+public class ColumnarEventsReader implements ExternalEventsReader {
+	/** Extension of columnar binary external events file */
+	public static final String COLUMNAR_EXT = ".cbee";
+	/** Magic number in the beginning of the files */
+	public static final int MAGIC = 0x4f4e4543; // "ONEC"
+	/** Version of the file format */
+	public static final int VERSION = 1;
+
+	/** Event type code for message creation */
+	public static final byte TYPE_CREATE = 0;
+	/** Event type code for message transfer start */
+	public static final byte TYPE_SEND = 1;
+	/** Event type code for message delivery */
+	public static final byte TYPE_DELIVERED = 2;
+	/** Event type code for aborted message transfer */
+	public static final byte TYPE_ABORT = 3;
+	/** Event type code for message drop */
+	public static final byte TYPE_DROP = 4;
+	/** Event type code for message removal */
+	public static final byte TYPE_REMOVE = 5;
+	/** Event type code for connection up */
+	public static final byte TYPE_CONN_UP = 6;
+	/** Event type code for connection down */
+	public static final byte TYPE_CONN_DOWN = 7;
+
+	/** Size of the header (bytes) */
+	private static final int HEADER_SIZE = 16;
+	/** Widths of the columns (bytes): time, type, host1, host2, size,
+	 * response size, string index */
+	private static final int[] COLUMN_WIDTHS = {8, 1, 4, 4, 4, 4, 4};
+	/** How many events are read at a time while storing */
+	private static final int STORE_BATCH = 10000;
+
+	private ByteBuffer times;
+	private ByteBuffer types;
+	private ByteBuffer hosts1;
+	private ByteBuffer hosts2;
+	private ByteBuffer sizes;
+	private ByteBuffer respSizes;
+	private ByteBuffer stringIndexes;
+	/** the string table */
+	private String[] strings;
+
+	private int nrofEvents;
+	private int nextEvent;
+
+	/**
+	 * Constructor.
+	 * @param eventsFile The file where the events are read
+	 */
+	public ColumnarEventsReader(File eventsFile) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(eventsFile, "r");
+			FileChannel channel = raf.getChannel();
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new SimError("Invalid columnar external events file " +
+						eventsFile.getAbsolutePath());
+			}
+			this.nrofEvents = header.getInt();
+			int nrofStrings = header.getInt();
+
+			long offset = HEADER_SIZE;
+			MappedByteBuffer[] cols = new MappedByteBuffer[
+			                                   COLUMN_WIDTHS.length];
+			for (int i=0; i<cols.length; i++) {
+				long size = (long)nrofEvents * COLUMN_WIDTHS[i];
+				if (size > Integer.MAX_VALUE) {
+					throw new SimError("Too many events in " +
+							eventsFile.getAbsolutePath());
+				}
+				cols[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						offset, size);
+				offset += size;
+			}
+			times = cols[0];
+			types = cols[1];
+			hosts1 = cols[2];
+			hosts2 = cols[3];
+			sizes = cols[4];
+			respSizes = cols[5];
+			stringIndexes = cols[6];
+
+			channel.position(offset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel)));
+			this.strings = new String[nrofStrings];
+			for (int i=0; i<nrofStrings; i++) {
+				strings[i] = in.readUTF();
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't read columnar external events file " +
+					eventsFile.getAbsolutePath(), e);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close(); // mapped buffers stay valid after closing
+				} catch (IOException e) {}
+			}
+		}
+
+		this.nextEvent = 0;
+	}
+
+	/**
+	 * Read events from a columnar binary file
+	 * @param nrof Maximum number of events to read
+	 * @return Events in an ArrayList (empty list if didn't read any)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		int last = Math.min(nrofEvents, nextEvent + Math.max(nrof, 0));
+		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(
+				last - nextEvent);
+
+		for (int i = nextEvent; i < last; i++) {
+			events.add(getEvent(i));
+		}
+		nextEvent = last;
+
+		return events;
+	}
+
+	/**
+	 * Creates an event from the values in the columns
+	 * @param i Index of the event
+	 * @return The event
+	 */
+	private ExternalEvent getEvent(int i) {
+		double time = times.getDouble(i * 8);
+		byte type = types.get(i);
+		int host1 = hosts1.getInt(i * 4);
+		int host2 = hosts2.getInt(i * 4);
+		int strIndex = stringIndexes.getInt(i * 4);
+		String str = strIndex >= 0 ? strings[strIndex] : null;
+
+		switch (type) {
+		case TYPE_CREATE:
+			return new MessageCreateEvent(host1, host2, str,
+					sizes.getInt(i * 4), respSizes.getInt(i * 4), time);
+		case TYPE_SEND:
+			return new MessageRelayEvent(host1, host2, str, time,
+					MessageRelayEvent.SENDING);
+		case TYPE_DELIVERED:
+			return new MessageRelayEvent(host1, host2, str, time,
+					MessageRelayEvent.TRANSFERRED);
+		case TYPE_ABORT:
+			return new MessageRelayEvent(host1, host2, str, time,
+					MessageRelayEvent.ABORTED);
+		case TYPE_DROP:
+			return new MessageDeleteEvent(host1, str, time, true);
+		case TYPE_REMOVE:
+			return new MessageDeleteEvent(host1, str, time, false);
+		case TYPE_CONN_UP:
+			return new ConnectionEvent(host1, host2, str, true, time);
+		case TYPE_CONN_DOWN:
+			return new ConnectionEvent(host1, host2, str, false, time);
+		default:
+			throw new SimError("Unknown event type " + type +
+					" in columnar external events file");
+		}
+	}
+
+	/**
+	 * Returns the total number of events in the file
+	 * @return the total number of events in the file
+	 */
+	public int getNrofEvents() {
+		return this.nrofEvents;
+	}
+
+	public void close() {
+		// release the mappings (they are unmapped when garbage collected)
+		times = types = hosts1 = hosts2 = sizes = respSizes = null;
+		stringIndexes = null;
+		strings = null;
+		nextEvent = nrofEvents;
+	}
+
+	/**
+	 * Checks if the given file is a columnar binary external events file
+	 * @param file The file to check
+	 * @return True if the file is a columnar ee file, false if not
+	 */
+	public static boolean isColumnarEeFile(File file) {
+		if (!file.getName().endsWith(COLUMNAR_EXT)) {
+			return false;
+		}
+
+		// extension matches, check the magic number
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {}
+			}
+		}
+	}
+
+	/**
+	 * Stores all the events of an external events reader to a columnar
+	 * binary file. The events are streamed trough temporary column files so
+	 * the whole event list is never in memory at once. The source reader is
+	 * closed when all events are read.
+	 * @param fileName Path to the file where the events are stored
+	 * @param source The reader whose events are stored
+	 * @return Number of events stored
+	 * @throws IOException if something in storing went wrong
+	 */
+	public static int storeToColumnarFile(String fileName,
+			ExternalEventsReader source) throws IOException {
+		File[] colFiles = new File[COLUMN_WIDTHS.length];
+		DataOutputStream[] cols = new DataOutputStream[COLUMN_WIDTHS.length];
+		Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+		int nrofEvents = 0;
+
+		try {
+			for (int i=0; i<cols.length; i++) {
+				colFiles[i] = File.createTempFile("column" + i, ".tmp");
+				cols[i] = new DataOutputStream(new BufferedOutputStream(
+						new FileOutputStream(colFiles[i])));
+			}
+
+			List<ExternalEvent> events;
+			while ((events = source.readEvents(STORE_BATCH)).size() > 0) {
+				for (ExternalEvent ee : events) {
+					writeEvent(ee, cols, stringIndexes, strings);
+					nrofEvents++;
+				}
+			}
+			source.close();
+
+			for (DataOutputStream col : cols) {
+				col.close();
+			}
+
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(fileName)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nrofEvents);
+			out.writeInt(strings.size());
+			for (File colFile : colFiles) {
+				copy(colFile, out);
+			}
+			for (String s : strings) {
+				out.writeUTF(s);
+			}
+			out.close();
+		} finally {
+			for (int i=0; i<cols.length; i++) {
+				if (cols[i] != null) {
+					cols[i].close();
+				}
+				if (colFiles[i] != null) {
+					colFiles[i].delete();
+				}
+			}
+		}
+
+		return nrofEvents;
+	}
+
+	/**
+	 * Writes the values of an event to the column streams
+	 */
+	private static void writeEvent(ExternalEvent ee, DataOutputStream[] cols,
+			Map<String, Integer> stringIndexes, List<String> strings)
+			throws IOException {
+		byte type;
+		int host1, host2;
+		int size = 0;
+		int respSize = 0;
+		String str;
+
+		if (ee instanceof MessageCreateEvent) {
+			MessageCreateEvent mce = (MessageCreateEvent)ee;
+			type = TYPE_CREATE;
+			size = mce.getSize();
+			respSize = mce.getResponseSize();
+		}
+		else if (ee instanceof MessageRelayEvent) {
+			switch (((MessageRelayEvent)ee).getStage()) {
+			case MessageRelayEvent.SENDING:
+				type = TYPE_SEND;
+				break;
+			case MessageRelayEvent.TRANSFERRED:
+				type = TYPE_DELIVERED;
+				break;
+			default:
+				type = TYPE_ABORT;
+			}
+		}
+		else if (ee instanceof MessageDeleteEvent) {
+			type = ((MessageDeleteEvent)ee).isDrop() ? TYPE_DROP : TYPE_REMOVE;
+		}
+		else if (ee instanceof ConnectionEvent) {
+			type = ((ConnectionEvent)ee).isUp ? TYPE_CONN_UP : TYPE_CONN_DOWN;
+		}
+		else {
+			throw new IOException("Can't store event " + ee +
+					" to a columnar file");
+		}
+
+		if (ee instanceof MessageEvent) {
+			MessageEvent me = (MessageEvent)ee;
+			host1 = me.fromAddr;
+			host2 = me.toAddr;
+			str = me.id;
+		}
+		else {
+			ConnectionEvent ce = (ConnectionEvent)ee;
+			host1 = ce.fromAddr;
+			host2 = ce.toAddr;
+			str = ce.interfaceId;
+		}
+
+		int strIndex = -1;
+		if (str != null) {
+			Integer index = stringIndexes.get(str);
+			if (index == null) {
+				index = strings.size();
+				strings.add(str);
+				stringIndexes.put(str, index);
+			}
+			strIndex = index;
+		}
+
+		cols[0].writeDouble(ee.getTime());
+		cols[1].writeByte(type);
+		cols[2].writeInt(host1);
+		cols[3].writeInt(host2);
+		cols[4].writeInt(size);
+		cols[5].writeInt(respSize);
+		cols[6].writeInt(strIndex);
+	}
+
+	/**
+	 * Copies the contents of a file to an output stream
+	 */
+	private static void copy(File file, OutputStream out) throws IOException {
+		InputStream in = new FileInputStream(file);
+		byte[] buffer = new byte[64 * 1024];
+		int len;
+		try {
+			while ((len = in.read(buffer)) > 0) {
+				out.write(buffer, 0, len);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Converts an external events file (standard text format or the old
+	 * binary format) to the columnar binary format.
+	 * @param args input file and output file names
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ColumnarEventsReader <input file> " +
+					"<output file>");
+			System.exit(-1);
+		}
+
+		File inFile = new File(args[0]);
+		ExternalEventsReader source;
+		if (BinaryEventsReader.isBinaryEeFile(inFile)) {
+			source = new BinaryEventsReader(inFile);
+		}
+		else {
+			source = new StandardEventsReader(inFile);
+		}
+
+		String outFile = args[1];
+		if (!outFile.endsWith(COLUMNAR_EXT)) {
+			outFile += COLUMNAR_EXT;
+		}
+
+		int nrof = storeToColumnarFile(outFile, source);
+		System.out.println("Stored " + nrof + " events to " + outFile);
+	}
+}
@@ -192,17 +192,21 @@ public class DTN2Events implements EventQueue {
 	//                              EventQueue Implementation                              //
 	//************************************************************************//
 	public ExternalEvent nextEvent() {
-		if (!this.events.isEmpty()) {
-			return this.events.remove();
-		} else
-			return new ExternalEvent(Double.MAX_VALUE);
+		synchronized (this.events) {
+			if (!this.events.isEmpty()) {
+				return this.events.remove();
+			} else
+				return new ExternalEvent(Double.MAX_VALUE);
+		}
 	}
 
 	public double nextEventsTime() {
-		if (!this.events.isEmpty())
-			return SimClock.getTime();
-		else
-			return Double.MAX_VALUE;
+		synchronized (this.events) {
+			if (!this.events.isEmpty())
+				return SimClock.getTime();
+			else
+				return Double.MAX_VALUE;
+		}
 	}
 	//************************************************************************//
 
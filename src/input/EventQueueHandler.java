@@ -30,7 +30,9 @@ import core.Settings;
  * External event files are used when the variable <code>PATH_SETTING</code>
  * is used to define the path to the event file and event generator class
  * is loaded when the name of the class is defined with
- * <code>CLASS_SETTING</code>.
+ * <code>CLASS_SETTING</code>. External event files can be read ahead in a
+ * background thread with the {@link ExternalEventsQueue#PREFETCH_SETTING}
+ * setting.
  */
 public class EventQueueHandler  {
 	/** Event queue settings main namespace ({@value})*/
@@ -71,7 +73,9 @@ public class EventQueueHandler  {
 				}
 				path = s.getSetting(PATH_SETTING);
 
-				queues.add(new ExternalEventsQueue(path, preload));
+				queues.add(new ExternalEventsQueue(path, preload,
+						s.getBoolean(ExternalEventsQueue.PREFETCH_SETTING,
+								false)));
 			}
 			else if (s.contains(CLASS_SETTING)) { // event generator class
 				String className = CLASS_PACKAGE + "." +
@@ -91,4 +95,15 @@ public class EventQueueHandler  {
 		return this.queues;
 	}
 
+	/**
+	 * Closes the external events queues and stops their background reading
+	 */
+	public void close() {
+		for (EventQueue eq : this.queues) {
+			if (eq instanceof ExternalEventsQueue) {
+				((ExternalEventsQueue)eq).close();
+			}
+		}
+	}
+
 }
@@ -21,6 +21,11 @@ public class ExternalEventsQueue implements EventQueue {
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** read events ahead in a background thread -setting id ({@value}).
+	 * Boolean. If true, the next {@link Prefetcher#DEF_NROF_BUFFERED}
+	 * batches of events are read and parsed while the simulation runs.
+	 * Default is false. */
+	public static final String PREFETCH_SETTING = "prefetch";
 
 	/** default number of preloaded events */
 	public static final int DEFAULT_NROF_PRELOAD = 500;
@@ -31,13 +36,18 @@ public class ExternalEventsQueue implements EventQueue {
 	private int nrofPreload;
 	private List<ExternalEvent> queue;
 	private boolean allEventsRead = false;
+	private boolean prefetch = false;
 
 	/**
 	 * Creates a new Queue from a file
 	 * @param filePath Path to the file where the events are read from. If
-	 * file ends with extension defined in {@link BinaryEventsReader#BINARY_EXT}
-	 * the file is assumed to be a binary file.
+	 * file ends with extension defined in
+	 * {@link ColumnarEventsReader#COLUMNAR_EXT} or
+	 * {@link BinaryEventsReader#BINARY_EXT} the file is assumed to be a
+	 * columnar or serialized binary file, respectively.
 	 * @param nrofPreload How many events to preload
+	 * @see ColumnarEventsReader#storeToColumnarFile(String,
+	 * ExternalEventsReader)
 	 * @see BinaryEventsReader#BINARY_EXT
 	 * @see BinaryEventsReader#storeToBinaryFile(String, List)
 	 */
@@ -47,8 +57,24 @@ public class ExternalEventsQueue implements EventQueue {
 	}
 
 	/**
-	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING}
-	 * and {@link #PATH_SETTING}. The path setting supports value filling.
+	 * Creates a new Queue from a file and optionally reads the events
+	 * ahead of time in a background thread.
+	 * @param filePath Path to the file where the events are read from.
+	 * @param nrofPreload How many events to preload
+	 * @param prefetch If true, events are read in a background thread
+	 * @see #ExternalEventsQueue(String, int)
+	 */
+	public ExternalEventsQueue(String filePath, int nrofPreload,
+			boolean prefetch) {
+		setNrofPreload(nrofPreload);
+		this.prefetch = prefetch;
+		init(filePath);
+	}
+
+	/**
+	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING},
+	 * {@link #PATH_SETTING} and {@link #PREFETCH_SETTING}. The path setting
+	 * supports value filling.
 	 * @param s The settings
 	 */
 	public ExternalEventsQueue(Settings s) {
@@ -58,6 +84,7 @@ public class ExternalEventsQueue implements EventQueue {
 		else {
 			setNrofPreload(DEFAULT_NROF_PRELOAD);
 		}
+		this.prefetch = s.getBoolean(PREFETCH_SETTING, false);
         String eeFilePath = s.valueFillString(s.getSetting(PATH_SETTING));
         init(eeFilePath);
     }
@@ -77,13 +104,21 @@ public class ExternalEventsQueue implements EventQueue {
 	private void init(String eeFilePath) {
 		this.eventsFile = new File(eeFilePath);
 
-		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
+		if (ColumnarEventsReader.isColumnarEeFile(eventsFile)) {
+			this.reader = new ColumnarEventsReader(eventsFile);
+		}
+		else if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
 			this.reader = new BinaryEventsReader(eventsFile);
 		}
 		else {
 			this.reader = new StandardEventsReader(eventsFile);
 		}
 
+		if (prefetch) {
+			this.reader = new PrefetchingEventsReader(this.reader,
+					nrofPreload, Prefetcher.DEF_NROF_BUFFERED);
+		}
+
 		this.queue = readEvents(nrofPreload);
 		this.nextEventIndex = 0;
 	}
@@ -139,6 +174,19 @@ public class ExternalEventsQueue implements EventQueue {
 	}
 
 
+	/**
+	 * Closes the events file and stops any background reading. After
+	 * this call the queue doesn't return any new events.
+	 */
+	public void close() {
+		if (!allEventsRead) {
+			reader.close();
+			allEventsRead = true;
+		}
+		queue = new ArrayList<ExternalEvent>(0);
+		nextEventIndex = 0;
+	}
+
 	/**
 	 * Read some events from the external events reader
 	 * @param nrof Maximum number of events to read
@@ -4,8 +4,10 @@
  */
 package input;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -35,12 +37,27 @@ import core.SettingsError;
  * All lines must be sorted by time. Sampling interval (time difference between
  * two time instances) must be same for the whole file.
  * </P>
+ * <P>
+ * The file is read as a stream, so only the current time instance is kept in
+ * memory. Files can be gzip or zip compressed (see {@link TraceFileOpener}).
+ * </P>
  */
 public class ExternalMovementReader {
 	/* Prefix for comment lines (lines starting with this are ignored) */
 	public static final String COMMENT_PREFIX = "#";
-	private Scanner scanner;
+	/** reader of the input file */
+	private BufferedReader reader;
+	/** the next unread line of the file or null at the end of the file */
+	private String nextLine;
+	/** tokens of the latest parsed line */
+	private final String[] tokens = new String[4];
 	private double lastTimeStamp = -1;
+	/** time stamp of the latest moves read from the file */
+	private double readTimeStamp = -1;
+	/** should the moves be read ahead in a background thread */
+	private boolean prefetch;
+	/** the background reader or null if not (yet) prefetching */
+	private Prefetcher<Tuple<Double, List<Tuple<String, Coord>>>> prefetcher;
 	private String lastLine;
 	private double minTime;
 	private double maxTime;
@@ -59,15 +76,19 @@ public class ExternalMovementReader {
 	public ExternalMovementReader(String inFilePath) {
 		this.normalize = true;
 		File inFile = new File(inFilePath);
+		String offsets;
 		try {
-			scanner = new Scanner(inFile);
+			reader = TraceFileOpener.openReader(inFile);
+			nextLine = reader.readLine();
+			offsets = readLine();
 		} catch (FileNotFoundException e) {
 			throw new SettingsError("Couldn't find external movement input " +
 					"file " + inFile);
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read external movement input " +
+					"file " + inFile + ": " + e.getMessage());
 		}
 
-		String offsets = scanner.nextLine();
-
 		try {
 			Scanner lineScan = new Scanner(offsets);
 			minTime = lineScan.nextDouble();
@@ -80,7 +101,59 @@ public class ExternalMovementReader {
 			throw new SettingsError("Invalid offset line '" + offsets + "'");
 		}
 
-		lastLine = scanner.nextLine();
+		lastLine = readLine();
+	}
+
+	/**
+	 * Returns true if the file has more lines to read
+	 * @return true if the file has more lines to read
+	 */
+	private boolean hasNextLine() {
+		return nextLine != null;
+	}
+
+	/**
+	 * Reads the next line of the file
+	 * @return The next line
+	 * @throws SettingsError if there are no more lines or reading fails
+	 */
+	private String readLine() {
+		String line = nextLine;
+		if (line == null) {
+			throw new SettingsError("Unexpected end of external movement " +
+					"input file");
+		}
+		try {
+			nextLine = reader.readLine();
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read external movement input: "
+					+ e.getMessage());
+		}
+		return line;
+	}
+
+	/**
+	 * Splits a line to (at most four) white space separated tokens into
+	 * {@link #tokens}
+	 * @param line The line to split
+	 * @throws SettingsError if the line had less than four tokens
+	 */
+	private void tokenize(String line) {
+		int len = line.length();
+		int pos = 0;
+		for (int i=0; i < tokens.length; i++) {
+			while (pos < len && Character.isWhitespace(line.charAt(pos))) {
+				pos++;
+			}
+			int start = pos;
+			while (pos < len && !Character.isWhitespace(line.charAt(pos))) {
+				pos++;
+			}
+			if (start == pos) {
+				throw new SettingsError("Invalid line '" + line + "'");
+			}
+			tokens[i] = line.substring(start, pos);
+		}
 	}
 
 	/**
@@ -93,24 +166,72 @@ public class ExternalMovementReader {
 		this.normalize = normalize;
 	}
 
+	/**
+	 * Sets reading ahead in a background thread on/off. If on, the moves of
+	 * the next {@link Prefetcher#DEF_NROF_BUFFERED} time instances are read
+	 * while the simulation runs. Must be set before the first call of
+	 * {@link #readNextMovements()}. Default is off.
+	 * @param prefetch If true, moves are read in a background thread
+	 */
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
 	/**
 	 * Reads all new id-coordinate tuples that belong to the same time instance
 	 * @return A list of tuples or empty list if there were no more moves
 	 * @throws SettingError if an invalid line was read
 	 */
 	public List<Tuple<String, Coord>> readNextMovements() {
+		if (!prefetch) {
+			List<Tuple<String, Coord>> moves = readMovements();
+			lastTimeStamp = readTimeStamp;
+			return moves;
+		}
+
+		if (prefetcher == null) {
+			prefetcher = new Prefetcher<Tuple<Double,
+					List<Tuple<String, Coord>>>>("ExternalMovementPrefetcher",
+							Prefetcher.DEF_NROF_BUFFERED) {
+				protected Tuple<Double, List<Tuple<String, Coord>>>
+						readBatch() {
+					List<Tuple<String, Coord>> moves = readMovements();
+					if (moves.size() == 0) {
+						return null;
+					}
+					return new Tuple<Double, List<Tuple<String, Coord>>>(
+							readTimeStamp, moves);
+				}
+			};
+		}
+
+		Tuple<Double, List<Tuple<String, Coord>>> next = prefetcher.next();
+		if (next == null) {
+			return new ArrayList<Tuple<String, Coord>>();
+		}
+		lastTimeStamp = next.getKey();
+		return next.getValue();
+	}
+
+	/**
+	 * Reads from the file all id-coordinate tuples that belong to the next
+	 * time instance and sets {@link #readTimeStamp} to its time stamp
+	 * @return A list of tuples or empty list if there were no more moves
+	 * @throws SettingError if an invalid line was read
+	 */
+	private List<Tuple<String, Coord>> readMovements() {
 		ArrayList<Tuple<String, Coord>> moves =
 			new ArrayList<Tuple<String, Coord>>();
 
-		if (!scanner.hasNextLine()) {
+		if (!hasNextLine()) {
 			return moves;
 		}
 
-		Scanner lineScan = new Scanner(lastLine);
-		double time = lineScan.nextDouble();
-		String id = lineScan.next();
-		double x = lineScan.nextDouble();
-		double y = lineScan.nextDouble();
+		tokenize(lastLine);
+		double time = Double.parseDouble(tokens[0]);
+		String id = tokens[1];
+		double x = Double.parseDouble(tokens[2]);
+		double y = Double.parseDouble(tokens[3]);
 
 		if (normalize) {
 			time -= minTime;
@@ -118,10 +239,10 @@ public class ExternalMovementReader {
 			y -= minY;
 		}
 
-		lastTimeStamp = time;
+		readTimeStamp = time;
 
-		while (scanner.hasNextLine() && lastTimeStamp == time) {
-			lastLine = scanner.nextLine();
+		while (hasNextLine() && readTimeStamp == time) {
+			lastLine = readLine();
 
 			if (lastLine.trim().length() == 0 ||
 					lastLine.startsWith(COMMENT_PREFIX)) {
@@ -131,13 +252,12 @@ public class ExternalMovementReader {
 			// add previous line's tuple
 			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
 
-			lineScan = new Scanner(lastLine);
-
 			try {
-				time = lineScan.nextDouble();
-				id = lineScan.next();
-				x = lineScan.nextDouble();
-				y = lineScan.nextDouble();
+				tokenize(lastLine);
+				time = Double.parseDouble(tokens[0]);
+				id = tokens[1];
+				x = Double.parseDouble(tokens[2]);
+				y = Double.parseDouble(tokens[3]);
 			} catch (Exception e) {
 				throw new SettingsError("Invalid line '" + lastLine + "'");
 			}
@@ -149,13 +269,25 @@ public class ExternalMovementReader {
 			}
 		}
 
-		if (!scanner.hasNextLine()) {	// add the last tuple of the file
+		if (!hasNextLine()) {	// add the last tuple of the file
 			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
 		}
 
 		return moves;
 	}
 
+	/**
+	 * Stops any background reading and closes the input file
+	 */
+	public void close() {
+		if (prefetcher != null) {
+			prefetcher.close();
+		}
+		try {
+			reader.close();
+		} catch (IOException e) {}
+	}
+
 	/**
 	 * Returns the time stamp where the last moves read with
 	 * {@link #readNextMovements()} belong to.
@@ -8,19 +8,30 @@ package input;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import core.DTNSim;
 import core.SettingsError;
+import core.SimError;
 
 
 /**
@@ -45,18 +56,46 @@ import core.SettingsError;
  * times must match the ONE simulation time.
  * </p>
  *
- * <p>Trace and activity files ending in .zip are assumed to be
- * compressed and will be automatically uncompressed during reading. The whole
- * trace is loaded into memory at once.</p>
+ * <p>Trace and activity files ending in .zip or .gz are assumed to be
+ * compressed and will be automatically uncompressed during reading (see
+ * {@link TraceFileOpener}). By default the whole trace is loaded into memory
+ * at once. For large traces, a binary index file (see
+ * {@link #buildIndex(String, String)}) can be used instead: the paths of
+ * every node are then read from the file one path at a time with
+ * {@link PathCursor}s, so the memory use doesn't depend on the length of the
+ * trace. Trace file paths ending with {@value #INDEX_EXT} are read as
+ * index files. With prefetching (see {@link #setPrefetch(boolean)}), the
+ * path after the next one of every cursor is read in a background thread,
+ * so the simulation doesn't wait for the index file.</p>
  *
  * @author teemuk
  *
  */
 public class ExternalPathMovementReader {
-	 // Singletons are evil, but I'm lazy
+	/** Extension of indexed binary trace files */
+	public static final String INDEX_EXT = ".epmi";
+	/** Magic number in the beginning of index files */
+	private static final int INDEX_MAGIC = 0x4f4e4550; // "ONEP"
+	/** Version of the index file format */
+	private static final int INDEX_VERSION = 1;
+	/** Size of the index file header (bytes) */
+	private static final int INDEX_HEADER_SIZE = 4 + 4 + 4 + 6*8 + 8;
+	/** Size of a path record's header (next offset, start time, nrof
+	 * points) in bytes */
+	private static final int RECORD_HEADER_SIZE = 8 + 8 + 4;
+	/** Size of a path point (time, x, y) in bytes */
+	private static final int POINT_SIZE = 3 * 8;
+
+	 // Singletons are evil, but I'm lazy. Accessed only while holding the
+	 // class' lock (movement models may be initialized in parallel).
 	private static Map<String, ExternalPathMovementReader> singletons =
 		new HashMap<String, ExternalPathMovementReader>();
 
+	static {
+		DTNSim.registerForReset(ExternalPathMovementReader.class.
+				getCanonicalName());
+	}
+
 	/**
 	 * Represents a point on the path.
 	 */
@@ -74,8 +113,14 @@ public class ExternalPathMovementReader {
 		public double end;
 	}
 
-	// Path cache
+	// Path cache (null if paths are read from an index file)
 	private List<List<List<Entry>>> paths = null;
+	// Index file channel (null if the paths are in the path cache)
+	private FileChannel indexChannel = null;
+	// Offsets of the nodes' first paths in the index file
+	private long[] firstPathOffsets = null;
+	// Reads paths from the index in the background (null if not prefetching)
+	private ExecutorService prefetcher = null;
 	// Activity cache
 	private List<List<ActiveTime>> activeTimes = null;
 
@@ -91,53 +136,46 @@ public class ExternalPathMovementReader {
 
 	/**
 	 * Creates a new reader by parsing the given files and building the internal
-	 * caches.
+	 * caches. If the trace file is an index file, only the index is read.
 	 *
 	 * @param traceFilePath		path to the trace file
 	 * @param activityFilePath	path to the activity file
 	 */
 	private ExternalPathMovementReader(String traceFilePath,
 			String activityFilePath) throws IOException {
-		// Open the trace file for reading
-		File inFile = new File(traceFilePath);
-		long traceSize = inFile.length();
-		long totalRead = 0;
-		long readSize = 0;
-		long printSize = 5*1024*1024;
-
-		BufferedReader reader = null;
-		try {
-			if (traceFilePath.endsWith(".zip")) {
-				// Grab the first entry from the zip file
-				// TODO: try to find the correct entry based on file name
-				ZipFile zf = new ZipFile(traceFilePath);
-				ZipEntry ze = zf.entries().nextElement();
-				reader = new BufferedReader(
-						new InputStreamReader(zf.getInputStream(ze)));
-				traceSize = ze.getSize();
-			} else {
-				reader = new BufferedReader(
-					new FileReader(traceFilePath));
-			}
-		} catch (FileNotFoundException e1) {
-			throw new SettingsError("Couldn't find external movement input " +
-					"file " + inFile);
+		if (traceFilePath.endsWith(INDEX_EXT)) {
+			openIndex(traceFilePath);
+		}
+		else {
+			readTrace(traceFilePath);
 		}
+		readActivity(activityFilePath);
+	}
 
-		/*Scanner scanner = null;
+	/**
+	 * Opens a trace file for reading
+	 * @param filePath Path to the file
+	 * @param type Type of the file for error messages
+	 * @return A reader for the file
+	 */
+	private static BufferedReader openFile(String filePath, String type)
+			throws IOException {
 		try {
-			scanner = new Scanner(inFile);
+			return TraceFileOpener.openReader(new File(filePath));
 		} catch (FileNotFoundException e) {
-			throw new SettingsError("Couldn't find external movement input " +
-					"file " + inFile);
-		}*/
+			throw new SettingsError("Couldn't find external " + type +
+					" input file " + filePath);
+		}
+	}
 
-		// Parse header
-		String offsets = reader.readLine();
+	/**
+	 * Parses the offset header line of a trace file
+	 * @param offsets The header line
+	 */
+	private void parseHeader(String offsets) {
 		if (offsets == null) {
 			throw new SettingsError("No offset line found.");
 		}
-		readSize += offsets.length() + 1;
 		try {
 			Scanner lineScan = new Scanner(offsets);
 			this.maxID = lineScan.nextInt();
@@ -150,6 +188,54 @@ public class ExternalPathMovementReader {
 		} catch (Exception e) {
 			throw new SettingsError("Invalid offset line '" + offsets + "'");
 		}
+	}
+
+	/**
+	 * Parses one path line of the trace file
+	 * @param line The line
+	 * @param points List where the points (time, x, y) of the path are put
+	 * @return ID of the node whose path the line was
+	 */
+	private int parsePath(String line, List<double[]> points) {
+		Scanner traceScan = new Scanner(line);
+		int id = traceScan.nextInt();
+		while (traceScan.hasNext()) {
+			String dataPoint = traceScan.next();
+			int d1 = dataPoint.indexOf(',');
+			int d2 = dataPoint.indexOf(',', d1+1);
+
+			double[] p = new double[3];
+			p[0] = Double.parseDouble(dataPoint.substring(0, d1));
+			p[1] = Double.parseDouble(dataPoint.substring(d1+1, d2));
+			p[2] = Double.parseDouble(dataPoint.substring(d2+1));
+
+			if (this.normalize) {
+				p[0] -= this.minTime;
+				p[1] -= this.minX;
+				p[2] -= this.minY;
+			}
+			points.add(p);
+		}
+		return id;
+	}
+
+	/**
+	 * Reads the whole trace file into the path cache
+	 * @param traceFilePath path to the trace file
+	 */
+	private void readTrace(String traceFilePath) throws IOException {
+		File inFile = new File(traceFilePath);
+		long traceSize = inFile.length();
+		long totalRead = 0;
+		long readSize = 0;
+		long printSize = 5*1024*1024;
+
+		BufferedReader reader = openFile(traceFilePath, "movement");
+
+		// Parse header
+		String offsets = reader.readLine();
+		parseHeader(offsets);
+		readSize += offsets.length() + 1;
 
 		// Initialize path cache
 		this.paths = new ArrayList<List<List<Entry>>>(this.maxID + 1);
@@ -158,6 +244,7 @@ public class ExternalPathMovementReader {
 		}
 
 		// Parse traces
+		List<double[]> points = new ArrayList<double[]>();
 		String line = reader.readLine();
 		while (line != null) {
 
@@ -174,52 +261,26 @@ public class ExternalPathMovementReader {
 				line = reader.readLine();
 				continue; // Skip empty lines
 			}
-			Scanner traceScan = new Scanner(line);
-			int id = traceScan.nextInt();
-			List<List<Entry>> paths = this.paths.get(id);
-			List<Entry> path = new LinkedList<Entry>();
-			while (traceScan.hasNext()) {
-				String dataPoint = traceScan.next();
-				int d1 = dataPoint.indexOf(',');
-				int d2 = dataPoint.indexOf(',', d1+1);
-
-				Entry e = new Entry();
-				e.time = Double.parseDouble(dataPoint.substring(0, d1));
-				e.x = Double.parseDouble(dataPoint.substring(d1+1, d2));
-				e.y = Double.parseDouble(dataPoint.substring(d2+1));
-
-				if (this.normalize) {
-					e.time -= this.minTime;
-					e.x -= this.minX;
-					e.y -= this.minY;
-				}
 
-				path.add(e);
+			points.clear();
+			int id = parsePath(line, points);
+			List<Entry> path = new LinkedList<Entry>();
+			for (double[] p : points) {
+				path.add(newEntry(p[0], p[1], p[2]));
 			}
-			paths.add(path);
+			this.paths.get(id).add(path);
 
 			line = reader.readLine();
 		}
+		reader.close();
+	}
 
-		// Parse activity times
-		inFile = new File(activityFilePath);
-		reader = null;
-		try {
-			if (activityFilePath.endsWith(".zip")) {
-				// Grab the first entry from the zip file
-				// TODO: try to find the correct entry based on file name
-				ZipFile zf = new ZipFile(activityFilePath);
-				ZipEntry ze = zf.entries().nextElement();
-				reader = new BufferedReader(
-						new InputStreamReader(zf.getInputStream(ze)));
-			} else {
-				reader = new BufferedReader(
-					new FileReader(activityFilePath));
-			}
-		} catch (FileNotFoundException e) {
-			throw new SettingsError("Couldn't find external activity input " +
-					"file " + inFile);
-		}
+	/**
+	 * Reads the activity file
+	 * @param activityFilePath path to the activity file
+	 */
+	private void readActivity(String activityFilePath) throws IOException {
+		BufferedReader reader = openFile(activityFilePath, "activity");
 
 		// Init activity cache
 		this.activeTimes = new ArrayList<List<ActiveTime>>(this.maxID + 1);
@@ -228,7 +289,7 @@ public class ExternalPathMovementReader {
 		}
 
 		// Parse the file
-		line = reader.readLine();
+		String line = reader.readLine();
 		while (line != null) {
 			Scanner traceScan = new Scanner(line);
 			int id = traceScan.nextInt();
@@ -246,16 +307,455 @@ public class ExternalPathMovementReader {
 
 			line = reader.readLine();
 		}
+		reader.close();
+	}
+
+	/**
+	 * Opens an index file and reads its header and node index
+	 * @param indexFilePath path to the index file
+	 */
+	private void openIndex(String indexFilePath) throws IOException {
+		File indexFile = new File(indexFilePath);
+		if (!indexFile.exists()) {
+			throw new SettingsError("Couldn't find external movement index " +
+					"file " + indexFilePath);
+		}
+		this.indexChannel = new RandomAccessFile(indexFile, "r").getChannel();
+
+		ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+		readFully(header, 0);
+		if (header.getInt() != INDEX_MAGIC ||
+				header.getInt() != INDEX_VERSION) {
+			this.indexChannel.close();
+			throw new SettingsError("Invalid external movement index file " +
+					indexFilePath);
+		}
+		this.maxID = header.getInt();
+		this.minTime = header.getDouble();
+		this.maxTime = header.getDouble();
+		this.minX = header.getDouble();
+		this.maxX = header.getDouble();
+		this.minY = header.getDouble();
+		this.maxY = header.getDouble();
+		long indexOffset = header.getLong();
+
+		ByteBuffer index = ByteBuffer.allocate((this.maxID + 1) * 8);
+		readFully(index, indexOffset);
+		this.firstPathOffsets = new long[this.maxID + 1];
+		for (int i=0; i<=this.maxID; i++) {
+			this.firstPathOffsets[i] = index.getLong();
+		}
+	}
+
+	/**
+	 * Fills a buffer from the index file starting from the given position
+	 * and flips the buffer for reading
+	 * @param buf The buffer to fill
+	 * @param position Position in the file
+	 */
+	private void readFully(ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			int n = indexChannel.read(buf, position);
+			if (n < 0) {
+				throw new IOException("Unexpected end of index file");
+			}
+			position += n;
+		}
+		buf.flip();
+	}
+
+	/**
+	 * Creates a new path entry
+	 */
+	private Entry newEntry(double time, double x, double y) {
+		Entry e = new Entry();
+		e.time = time;
+		e.x = x;
+		e.y = y;
+		return e;
+	}
+
+	/**
+	 * Builds a binary index file from a (possibly compressed) text trace
+	 * file. The trace is streamed through, so the memory use depends only on
+	 * the number of nodes. The paths of each node are chained together in
+	 * the file so that they can be read in order without reading other
+	 * nodes' paths.
+	 * @param traceFilePath Path to the text trace file
+	 * @param indexFilePath Path to the index file to create
+	 * @throws IOException if reading the trace or writing the index failed
+	 * (a partially written index file is deleted)
+	 */
+	public static void buildIndex(String traceFilePath, String indexFilePath)
+			throws IOException {
+		BufferedReader reader = openFile(traceFilePath, "movement");
+		RandomAccessFile raf = null;
+		boolean complete = false;
+		try {
+			raf = new RandomAccessFile(indexFilePath, "rw");
+			raf.setLength(0);
+			writeIndex(reader, raf.getChannel());
+			complete = true;
+		} finally {
+			try {
+				reader.close();
+			} finally {
+				try {
+					if (raf != null) {
+						raf.close();
+					}
+				} finally {
+					if (!complete) {
+						new File(indexFilePath).delete();
+					}
+				}
+			}
+		}
 	}
 
 	/**
-	 * Returns the path for the node with the given ID.
+	 * Writes the index of a text trace (see
+	 * {@link #buildIndex(String, String)})
+	 * @param reader Reader of the text trace
+	 * @param out Channel of the (empty) index file
+	 * @throws IOException if reading the trace or writing the index failed
+	 */
+	private static void writeIndex(BufferedReader reader, FileChannel out)
+			throws IOException {
+		ExternalPathMovementReader r = new ExternalPathMovementReader();
+		r.parseHeader(reader.readLine());
+
+		long[] firstOffsets = new long[r.maxID + 1];
+		long[] lastOffsets = new long[r.maxID + 1];
+		Arrays.fill(firstOffsets, -1);
+		Arrays.fill(lastOffsets, -1);
+
+		ByteBuffer buf = ByteBuffer.allocate(1024 * 1024);
+		ByteBuffer patch = ByteBuffer.allocate(8);
+		long flushed = INDEX_HEADER_SIZE; // file position of buf's start
+		List<double[]> points = new ArrayList<double[]>();
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.equals("")) {
+				continue; // Skip empty lines
+			}
+			points.clear();
+			int id = r.parsePath(line, points);
+			if (points.size() == 0) {
+				continue;
+			}
+
+			int size = RECORD_HEADER_SIZE + points.size() * POINT_SIZE;
+			if (buf.remaining() < size) {
+				buf.flip();
+				flushed += writeFully(out, buf, flushed);
+				if (buf.capacity() < size) {
+					buf = ByteBuffer.allocate(size);
+				}
+			}
+			long offset = flushed + buf.position();
+
+			// link the node's previous path to this one
+			long prev = lastOffsets[id];
+			if (prev == -1) {
+				firstOffsets[id] = offset;
+			}
+			else if (prev >= flushed) { // previous record still in buffer
+				buf.putLong((int)(prev - flushed), offset);
+			}
+			else {
+				patch.clear();
+				patch.putLong(offset);
+				patch.flip();
+				writeFully(out, patch, prev);
+			}
+			lastOffsets[id] = offset;
+
+			buf.putLong(-1); // next path of the node (not known yet)
+			buf.putDouble(points.get(0)[0]);
+			buf.putInt(points.size());
+			for (double[] p : points) {
+				buf.putDouble(p[0]);
+				buf.putDouble(p[1]);
+				buf.putDouble(p[2]);
+			}
+		}
+		buf.flip();
+		long indexOffset = flushed + writeFully(out, buf, flushed);
+
+		ByteBuffer index = ByteBuffer.allocate(firstOffsets.length * 8);
+		for (long o : firstOffsets) {
+			index.putLong(o);
+		}
+		index.flip();
+		writeFully(out, index, indexOffset);
+
+		ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+		header.putInt(INDEX_MAGIC);
+		header.putInt(INDEX_VERSION);
+		header.putInt(r.maxID);
+		header.putDouble(r.minTime);
+		header.putDouble(r.maxTime);
+		header.putDouble(r.minX);
+		header.putDouble(r.maxX);
+		header.putDouble(r.minY);
+		header.putDouble(r.maxY);
+		header.putLong(indexOffset);
+		header.flip();
+		writeFully(out, header, 0);
+	}
+
+	/**
+	 * Writes the contents of a buffer to a file position
+	 * @return Number of bytes written
+	 */
+	private static int writeFully(FileChannel out, ByteBuffer buf,
+			long position) throws IOException {
+		int written = 0;
+		while (buf.hasRemaining()) {
+			written += out.write(buf, position + written);
+		}
+		buf.clear();
+		return written;
+	}
+
+	/**
+	 * Creates an empty reader (for building indexes)
+	 */
+	private ExternalPathMovementReader() { }
+
+	/**
+	 * Sets prefetching on or off. If on, and the paths are read from an
+	 * index file, the cursors created after this call read their paths
+	 * one path ahead in a background thread. Has no effect on readers that
+	 * have the whole trace in memory.
+	 * @param prefetch If true, paths are read in a background thread
+	 */
+	public synchronized void setPrefetch(boolean prefetch) {
+		if (prefetch && this.prefetcher == null && this.paths == null) {
+			this.prefetcher = Executors.newSingleThreadExecutor(
+					new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "ExternalPathPrefetcher");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		else if (!prefetch && this.prefetcher != null) {
+			stopPrefetching();
+		}
+	}
+
+	/**
+	 * Stops the background reading. Reads that have already been started
+	 * are finished (at most one per cursor), but no new reads are started.
+	 */
+	private void stopPrefetching() {
+		this.prefetcher.shutdown();
+		try {
+			this.prefetcher.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.prefetcher = null;
+	}
+
+	/**
+	 * Stops any background reading and closes the index file (if any).
+	 * After this call, the cursors don't return any paths that they haven't
+	 * started reading yet.
+	 */
+	public synchronized void close() {
+		if (this.prefetcher != null) {
+			stopPrefetching();
+		}
+		if (this.indexChannel != null) {
+			try {
+				this.indexChannel.close();
+			} catch (IOException e) {
+				throw new SimError("Couldn't close external movement index: " +
+						e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Closes all the readers and forgets them, so that the traces are read
+	 * again by the next run
+	 */
+	public static synchronized void reset() {
+		for (ExternalPathMovementReader r : singletons.values()) {
+			r.close();
+		}
+		singletons.clear();
+	}
+
+	/**
+	 * Returns a cursor for reading the paths of a node in order. If the
+	 * reader uses an index file, the paths are read from the file one at a
+	 * time when needed.
+	 * @param ID ID of the node
+	 * @return A cursor for the node's paths
+	 */
+	public PathCursor getPathCursor(int ID) {
+		if (this.paths != null) {
+			return new PathCursor(this.paths.get(ID).iterator());
+		}
+		return new PathCursor(this.firstPathOffsets[ID], this.prefetcher);
+	}
+
+	/**
+	 * Reads a path record from the index file
+	 * @param offset Offset of the record
+	 * @param cursor The cursor whose next record offset is updated
+	 * @return The path
+	 */
+	private List<Entry> readPath(long offset, PathCursor cursor) {
+		try {
+			ByteBuffer recHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+			readFully(recHeader, offset);
+			cursor.nextOffset = recHeader.getLong();
+			recHeader.getDouble(); // start time
+			int nrofPoints = recHeader.getInt();
+
+			ByteBuffer data = ByteBuffer.allocate(nrofPoints * POINT_SIZE);
+			readFully(data, offset + RECORD_HEADER_SIZE);
+			List<Entry> path = new ArrayList<Entry>(nrofPoints);
+			for (int i=0; i<nrofPoints; i++) {
+				path.add(newEntry(data.getDouble(), data.getDouble(),
+						data.getDouble()));
+			}
+			return path;
+		} catch (IOException e) {
+			throw new SimError("Couldn't read external movement index: " +
+					e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Iterates over the paths of a node. Only the next path is kept in
+	 * memory when the paths are read from an index file (and, when
+	 * prefetching, the one after it that is being read).
+	 */
+	public class PathCursor {
+		/** iterator of the cached paths (null if using index) */
+		private Iterator<List<Entry>> iterator;
+		/** offset of the path after the next path (-1 if none) */
+		private long nextOffset;
+		/** the next path or null if there are no more paths */
+		private List<Entry> next;
+		/** background reader of the paths (null if not prefetching) */
+		private ExecutorService prefetcher;
+		/** the next path being read in the background (or null) */
+		private Future<List<Entry>> pending;
+
+		private PathCursor(Iterator<List<Entry>> iterator) {
+			this.iterator = iterator;
+			advance();
+		}
+
+		private PathCursor(long firstOffset, ExecutorService prefetcher) {
+			this.nextOffset = firstOffset;
+			this.prefetcher = prefetcher;
+			advance();
+		}
+
+		/**
+		 * Reads the next path (or starts reading it in the background)
+		 */
+		private void advance() {
+			if (iterator != null) {
+				next = iterator.hasNext() ? iterator.next() : null;
+			}
+			else if (nextOffset >= 0 && prefetcher != null) {
+				final long offset = nextOffset;
+				next = null;
+				try {
+					pending = prefetcher.submit(new Callable<List<Entry>>() {
+						public List<Entry> call() {
+							return readPath(offset, PathCursor.this);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					pending = null; // reader closed
+				}
+			}
+			else if (nextOffset >= 0 && indexChannel.isOpen()) {
+				next = readPath(nextOffset, this);
+			}
+			else {
+				next = null;
+			}
+		}
+
+		/**
+		 * Waits for the path that is being read in the background (if any)
+		 */
+		private void waitPending() {
+			if (pending == null) {
+				return;
+			}
+			try {
+				next = pending.get();
+			} catch (InterruptedException e) {
+				throw new SimError("Interrupted while waiting for a path", e);
+			} catch (ExecutionException e) {
+				throw new SimError("Reading a path in background failed: " +
+						e.getCause().getMessage(), e);
+			}
+			pending = null;
+		}
+
+		/**
+		 * Returns true if the node has more paths
+		 * @return true if the node has more paths
+		 */
+		public boolean hasNext() {
+			waitPending();
+			return next != null;
+		}
+
+		/**
+		 * Returns the next path without moving past it
+		 * @return the next path or null if there are no more paths
+		 */
+		public List<Entry> peek() {
+			waitPending();
+			return next;
+		}
+
+		/**
+		 * Returns the next path and moves to the one after it
+		 * @return the next path or null if there are no more paths
+		 */
+		public List<Entry> next() {
+			waitPending();
+			List<Entry> path = next;
+			advance();
+			return path;
+		}
+	}
+
+	/**
+	 * Returns the path for the node with the given ID. If the reader uses an
+	 * index file, all the paths are read into memory; use
+	 * {@link #getPathCursor(int)} to avoid that.
 	 *
 	 * @param ID	ID of the node
 	 * @return		full path for the node.
 	 */
 	public List<List<ExternalPathMovementReader.Entry>> getPaths(int ID) {
-		return this.paths.get(ID);
+		if (this.paths != null) {
+			return this.paths.get(ID);
+		}
+		List<List<Entry>> nodePaths = new LinkedList<List<Entry>>();
+		PathCursor c = getPathCursor(ID);
+		while (c.hasNext()) {
+			nodePaths.add(c.next());
+		}
+		return nodePaths;
 	}
 
 	/**
@@ -337,8 +837,8 @@ public class ExternalPathMovementReader {
 	 * @return instance of the reader that has loaded all the paths from the
 	 * 			given trace file.
 	 */
-	public static ExternalPathMovementReader getInstance(String traceFilePath,
-			String activeFilePath) {
+	public static synchronized ExternalPathMovementReader getInstance(
+			String traceFilePath, String activeFilePath) {
 		if (!ExternalPathMovementReader.singletons.containsKey(traceFilePath)) {
 			try {
 				ExternalPathMovementReader.singletons.put(traceFilePath,
@@ -350,4 +850,47 @@ public class ExternalPathMovementReader {
 		}
 		return ExternalPathMovementReader.singletons.get(traceFilePath);
 	}
+
+	/**
+	 * Get an instance of the reader that reads the paths from an index
+	 * file built from the given text trace file. The index file
+	 * (trace file path + {@value #INDEX_EXT}) is (re)built if it doesn't
+	 * exist or is older than the trace file.
+	 *
+	 * @param traceFilePath path to the text trace file
+	 * @param activeFilePath path to the activity file
+	 * @return instance of the reader
+	 */
+	public static synchronized ExternalPathMovementReader getIndexedInstance(
+			String traceFilePath, String activeFilePath) {
+		if (traceFilePath.endsWith(INDEX_EXT)) {
+			return getInstance(traceFilePath, activeFilePath);
+		}
+
+		File traceFile = new File(traceFilePath);
+		File indexFile = new File(traceFilePath + INDEX_EXT);
+		if (!indexFile.exists() ||
+				indexFile.lastModified() < traceFile.lastModified()) {
+			try {
+				buildIndex(traceFilePath, indexFile.getPath());
+			} catch (IOException e) {
+				throw new SimError("Couldn't build index " + indexFile +
+						": " + e.getMessage(), e);
+			}
+		}
+		return getInstance(indexFile.getPath(), activeFilePath);
+	}
+
+	/**
+	 * Builds an index file from a text trace file.
+	 * @param args trace file path and index file path
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ExternalPathMovementReader " +
+					"<trace file> <index file>");
+			System.exit(-1);
+		}
+		buildIndex(args[0], args[1]);
+	}
 }
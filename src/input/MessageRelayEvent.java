@@ -61,6 +61,14 @@ public class MessageRelayEvent extends MessageEvent {
 		}
 	}
 
+	/**
+	 * Returns the stage of this relay event
+	 * @return {@link #SENDING}, {@link #TRANSFERRED}, or {@link #ABORTED}
+	 */
+	public int getStage() {
+		return this.stage;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + " [" + fromAddr + "->" + toAddr + "] " +
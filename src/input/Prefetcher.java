@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.SimError;
+
+/**
+ * Reads batches of input data ahead of time in a background thread so that
+ * the simulation thread doesn't have to wait for file I/O and parsing. The
+ * batches are buffered in a bounded queue: when the queue is full, the
+ * reading thread waits until the simulation has consumed a batch.
+ * Subclasses define how a batch is read with {@link #readBatch()}.
+ * @param <T> Type of the batches
+ */
+public abstract class Prefetcher<T> {
+	/** Default number of batches buffered ahead (double buffering) */
+	public static final int DEF_NROF_BUFFERED = 2;
+
+	/** marker for the end of input in the queue */
+	private static final Object END = new Object();
+
+	private final BlockingQueue<Object> queue;
+	private final Thread thread;
+	/** is the prefetcher closed (no more reading) */
+	private volatile boolean closed;
+	/** has the end of input been taken from the queue */
+	private boolean endReached;
+	/** exception thrown by the reading thread (if any) */
+	private volatile RuntimeException error;
+
+	/**
+	 * Constructor. Starts reading batches in the background.
+	 * @param name Name of the reading thread
+	 * @param nrofBuffered Maximum number of batches to buffer ahead
+	 */
+	public Prefetcher(String name, int nrofBuffered) {
+		this.queue = new ArrayBlockingQueue<Object>(Math.max(nrofBuffered,1));
+		this.closed = false;
+		this.endReached = false;
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				readAll();
+			}
+		}, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Reads the next batch from the input. Called from the background
+	 * thread only.
+	 * @return The next batch or null if there's no more input
+	 */
+	protected abstract T readBatch();
+
+	/**
+	 * Reads batches into the queue until input ends or prefetcher is closed
+	 */
+	private void readAll() {
+		try {
+			while (!closed) {
+				T batch = readBatch();
+				if (batch == null) {
+					break;
+				}
+				queue.put(batch);
+			}
+		} catch (InterruptedException e) {
+			return; // closed while waiting for space
+		} catch (RuntimeException e) {
+			error = e;
+		}
+
+		try {
+			queue.put(END);
+		} catch (InterruptedException e) {
+			// closed while waiting for space -> nobody needs the marker
+		}
+	}
+
+	/**
+	 * Returns the next batch. Waits for the background thread if the batch
+	 * hasn't been read yet.
+	 * @return The next batch or null if there's no more input
+	 * @throws SimError if reading the input failed
+	 */
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (endReached || closed) {
+			return null;
+		}
+
+		Object o;
+		try {
+			o = queue.take();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for input", e);
+		}
+
+		if (o == END) {
+			endReached = true;
+			if (error != null) {
+				throw new SimError("Reading input in background failed: " +
+						error.getMessage(), error);
+			}
+			return null;
+		}
+
+		return (T)o;
+	}
+
+	/**
+	 * Stops the background reading and waits for the reading thread to
+	 * finish. After this call the input can be safely closed.
+	 */
+	public void close() {
+		closed = true;
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		queue.clear();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * External events reader that reads the events of another reader ahead of
+ * time in a background thread. Works with any {@link ExternalEventsReader}
+ * implementation.
+ */
+public class PrefetchingEventsReader implements ExternalEventsReader {
+	private ExternalEventsReader reader;
+	private Prefetcher<List<ExternalEvent>> prefetcher;
+	/** events of the current batch that haven't been returned yet */
+	private List<ExternalEvent> batch;
+	private int batchIndex;
+
+	/**
+	 * Constructor. Starts reading events in the background.
+	 * @param reader The reader whose events are read ahead
+	 * @param batchSize How many events are read at a time
+	 * @param nrofBuffered Maximum number of batches to buffer ahead
+	 */
+	public PrefetchingEventsReader(final ExternalEventsReader reader,
+			final int batchSize, int nrofBuffered) {
+		this.reader = reader;
+		this.batch = new ArrayList<ExternalEvent>(0);
+		this.batchIndex = 0;
+		this.prefetcher = new Prefetcher<List<ExternalEvent>>(
+				"ExternalEventsPrefetcher", nrofBuffered) {
+			protected List<ExternalEvent> readBatch() {
+				List<ExternalEvent> events = reader.readEvents(batchSize);
+				return events.size() > 0 ? events : null;
+			}
+		};
+	}
+
+	/**
+	 * Returns events that have been read ahead. Waits for the background
+	 * reading if there are no events buffered.
+	 * @param nrof Maximum number of events to return
+	 * @return Events in a List (empty list if there are no more events)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		if (batchIndex >= batch.size()) {
+			List<ExternalEvent> next = prefetcher.next();
+			if (next == null) {
+				return new ArrayList<ExternalEvent>(0);
+			}
+			batch = next;
+			batchIndex = 0;
+		}
+
+		if (batchIndex == 0 && nrof >= batch.size()) {
+			batchIndex = batch.size();
+			return batch; // return the whole batch without copying
+		}
+
+		int last = Math.min(batch.size(), batchIndex + nrof);
+		List<ExternalEvent> events = new ArrayList<ExternalEvent>(
+				batch.subList(batchIndex, last));
+		batchIndex = last;
+		return events;
+	}
+
+	/**
+	 * Stops the background reading and closes the underlying reader
+	 */
+	public void close() {
+		prefetcher.close();
+		reader.close();
+	}
+}
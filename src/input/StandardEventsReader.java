@@ -66,6 +66,10 @@ public class StandardEventsReader implements ExternalEventsReader {
 	/** Message identifier to use to refer to all messages ({@value}) */
 	public static final String ALL_MESSAGES_ID = "*";
 
+	/** Pattern of empty and comment lines that are skipped */
+	private static final Pattern SKIP_PATTERN =
+		Pattern.compile("(#.*)|(^\\s*$)");
+
 	//private Scanner scanner;
 	private BufferedReader reader;
 
@@ -82,8 +86,6 @@ public class StandardEventsReader implements ExternalEventsReader {
 	public List<ExternalEvent> readEvents(int nrof) {
 		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
 		int eventsRead = 0;
-		// skip empty and comment lines
-		Pattern skipPattern = Pattern.compile("(#.*)|(^\\s*$)");
 
 		String line;
 		try {
@@ -93,7 +95,7 @@ public class StandardEventsReader implements ExternalEventsReader {
 		}
 		while (eventsRead < nrof && line != null) {
 			Scanner lineScan = new Scanner(line);
-			if (skipPattern.matcher(line).matches()) {
+			if (SKIP_PATTERN.matcher(line).matches()) {
 				// skip empty and comment lines
 				try {
 					line = this.reader.readLine();
@@ -227,19 +229,24 @@ public class StandardEventsReader implements ExternalEventsReader {
 	 * @throws SimError if no address could be parsed from the id
 	 */
 	private int getHostAddress(String hostId) {
-		String addressPart = "";
-		if (hostId.matches("^\\d+$")) {
-			addressPart = hostId; // host id is only the address
-		}
-		else if (hostId.matches("^\\D+\\d+$")) {
-			String [] parts = hostId.split("\\D");
-			addressPart = parts[parts.length-1]; // last occurence is the addr
+		int len = hostId.length();
+		int addrStart = len;
+
+		// find the start of the numeric suffix
+		while (addrStart > 0 && Character.isDigit(hostId.charAt(addrStart-1))) {
+			addrStart--;
 		}
-		else {
+
+		if (addrStart == len) {
 			throw new SimError("Invalid host ID '" + hostId + "'");
 		}
+		for (int i=0; i < addrStart; i++) { // prefix must be non-numeric
+			if (Character.isDigit(hostId.charAt(i))) {
+				throw new SimError("Invalid host ID '" + hostId + "'");
+			}
+		}
 
-		return Integer.parseInt(addressPart);
+		return Integer.parseInt(hostId.substring(addrStart));
 	}
 
 	public void close() {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Opens (possibly compressed) trace files for reading. Files ending with
+ * {@value #GZIP_EXT} are uncompressed with gzip and files ending with
+ * {@value #ZIP_EXT} are assumed to be zip archives whose first entry is
+ * read. Other files are read as such.
+ */
+public class TraceFileOpener {
+	/** Extension of gzip compressed files */
+	public static final String GZIP_EXT = ".gz";
+	/** Extension of zip compressed files */
+	public static final String ZIP_EXT = ".zip";
+	/** Size of the read buffer (bytes) */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * Opens a trace file as an input stream
+	 * @param file The file to open
+	 * @return A buffered stream of the (uncompressed) file contents. Closing
+	 * the stream closes the file (or zip archive).
+	 * @throws IOException if the file couldn't be opened
+	 */
+	public static InputStream openStream(File file) throws IOException {
+		String name = file.getName();
+
+		if (name.endsWith(GZIP_EXT)) {
+			return new BufferedInputStream(new GZIPInputStream(
+					new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE);
+		}
+		else if (name.endsWith(ZIP_EXT)) {
+			// TODO: try to find the correct entry based on file name
+			final ZipFile zf = new ZipFile(file);
+			ZipEntry ze = zf.entries().nextElement();
+			InputStream in = new FilterInputStream(zf.getInputStream(ze)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						zf.close(); // entry streams don't close the archive
+					}
+				}
+			};
+			return new BufferedInputStream(in, BUFFER_SIZE);
+		}
+		else {
+			return new BufferedInputStream(new FileInputStream(file),
+					BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Opens a trace file as a line reader
+	 * @param file The file to open
+	 * @return A reader of the (uncompressed) file contents
+	 * @throws IOException if the file couldn't be opened
+	 */
+	public static BufferedReader openReader(File file) throws IOException {
+		return new BufferedReader(new InputStreamReader(openStream(file)),
+				BUFFER_SIZE);
+	}
+}
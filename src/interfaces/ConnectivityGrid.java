@@ -5,13 +5,16 @@
 package interfaces;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 
 import movement.MovementModel;
 
 import core.Coord;
+import core.DTNHost;
 import core.DTNSim;
+import core.HostStates;
 import core.NetworkInterface;
 import core.Settings;
 import core.SettingsError;
@@ -59,6 +62,15 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	private int cellSize;
 	private int rows;
 	private int cols;
+	/** the store of the locations of the hosts in this grid */
+	private HostStates states;
+	/** true if some hosts of the grid are not in {@link #states} */
+	private boolean foreignHosts;
+	/** work arrays of range queries: candidates, their hosts' addresses
+	 * and the indexes of the selected candidates */
+	private NetworkInterface[] candidates;
+	private int[] candidateAddresses;
+	private int[] selected;
 	private static int worldSizeX;
 	private static int worldSizeY;
 	private static int cellSizeMultiplier;
@@ -110,6 +122,10 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 			}
 		}
 		ginterfaces = new HashMap<NetworkInterface,GridCell>();
+		this.states = DTNHost.getStates();
+		this.candidates = new NetworkInterface[0];
+		this.candidateAddresses = new int[0];
+		this.selected = new int[0];
 	}
 
 	/**
@@ -140,6 +156,9 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		GridCell c = cellFromCoord(ni.getLocation());
 		c.addInterface(ni);
 		ginterfaces.put(ni,c);
+		if (DTNHost.getStates() != this.states) {
+			this.foreignHosts = true; /* hosts were reset but the grid not */
+		}
 	}
 
 	/**
@@ -251,6 +270,56 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 
+	/**
+	 * Returns the interfaces in neighboring grid cells that may be within
+	 * the range from the given interface. The candidates of all the cells
+	 * are checked in one batch from the location arrays of the hosts (see
+	 * {@link HostStates#selectWithinRange(int[], int, double, double,
+	 * double, int[])}).
+	 * @param ni The interface whose neighboring interfaces are returned
+	 * @param range The range
+	 * @return List of near interfaces that may be within the range
+	 */
+	@Override
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni, double range) {
+		if (foreignHosts) {
+			return getNearInterfaces(ni);
+		}
+
+		ArrayList<NetworkInterface> niList = new ArrayList<NetworkInterface>();
+		GridCell loc = ginterfaces.get(ni);
+		if (loc == null) {
+			return niList;
+		}
+
+		Coord c = ni.getLocation();
+		GridCell[] neighbors = getNeighborCellsByCoord(c);
+		int count = 0;
+		for (int i=0; i < neighbors.length; i++) {
+			count += neighbors[i].interfaces.size();
+		}
+		if (candidates.length < count) {
+			int capacity = Math.max(candidates.length * 2, count);
+			candidates = new NetworkInterface[capacity];
+			candidateAddresses = new int[capacity];
+			selected = new int[capacity];
+		}
+
+		count = 0;
+		for (int i=0; i < neighbors.length; i++) {
+			count = neighbors[i].copyTo(candidates, candidateAddresses, count);
+		}
+
+		int n = states.selectWithinRange(candidateAddresses, count,
+				c.getX(), c.getY(), range, selected);
+		niList.ensureCapacity(n);
+		for (int i=0; i < n; i++) {
+			niList.add(candidates[selected[i]]);
+		}
+		return niList;
+	}
+
 	/**
 	 * Returns a string representation of the ConnectivityCells object
 	 * @return a string representation of the ConnectivityCells object
@@ -268,10 +337,13 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		// how large array is initially chosen
 		private static final int EXPECTED_INTERFACE_COUNT = 5;
 		private ArrayList<NetworkInterface> interfaces;
+		/** addresses of the hosts of the interfaces (in the same order) */
+		private int[] addresses;
 
 		private GridCell() {
 			this.interfaces = new ArrayList<NetworkInterface>(
 					EXPECTED_INTERFACE_COUNT);
+			this.addresses = new int[EXPECTED_INTERFACE_COUNT];
 		}
 
 		/**
@@ -287,6 +359,11 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		 * @param ni The interface to add
 		 */
 		public void addInterface(NetworkInterface ni) {
+			int size = this.interfaces.size();
+			if (size == this.addresses.length) {
+				this.addresses = Arrays.copyOf(this.addresses, size * 2);
+			}
+			this.addresses[size] = ni.getHost().getAddress();
 			this.interfaces.add(ni);
 		}
 
@@ -295,7 +372,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		 * @param ni The interface to remove
 		 */
 		public void removeInterface(NetworkInterface ni) {
-			this.interfaces.remove(ni);
+			remove(ni);
 		}
 
 		/**
@@ -305,11 +382,44 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		 */
 		public void moveInterface(NetworkInterface ni, GridCell to) {
 			to.addInterface(ni);
-			boolean removeOk = this.interfaces.remove(ni);
+			boolean removeOk = remove(ni);
 			assert removeOk : "interface " + ni +
 				" not found from cell with " + interfaces.toString();
 		}
 
+		/**
+		 * Removes an interface and its host's address from this cell
+		 * @param ni The interface to remove
+		 * @return true if the interface was in this cell
+		 */
+		private boolean remove(NetworkInterface ni) {
+			int index = this.interfaces.indexOf(ni);
+			if (index < 0) {
+				return false;
+			}
+			this.interfaces.remove(index);
+			System.arraycopy(this.addresses, index + 1, this.addresses, index,
+					this.interfaces.size() - index);
+			return true;
+		}
+
+		/**
+		 * Copies the interfaces of this cell and the addresses of their
+		 * hosts to arrays
+		 * @param nis The array for the interfaces
+		 * @param addrs The array for the addresses
+		 * @param offset Where to start in the arrays
+		 * @return The offset after the copied values
+		 */
+		private int copyTo(NetworkInterface[] nis, int[] addrs, int offset) {
+			int size = this.interfaces.size();
+			for (int i = 0; i < size; i++) {
+				nis[offset + i] = this.interfaces.get(i);
+			}
+			System.arraycopy(this.addresses, 0, addrs, offset, size);
+			return offset + size;
+		}
+
 		/**
 		 * Returns a string representation of the cell
 		 * @return a string representation of the cell
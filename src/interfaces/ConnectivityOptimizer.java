@@ -40,6 +40,22 @@ abstract public class ConnectivityOptimizer {
 	abstract public Collection<NetworkInterface> getNearInterfaces(
 			NetworkInterface ni);
 
+	/**
+	 * Finds the network interfaces that might be located within the given
+	 * range from the network interface. The result is the same as with
+	 * {@link #getNearInterfaces(NetworkInterface)}, in the same order, except
+	 * that interfaces that certainly are further away may be left out. This
+	 * implementation leaves out nothing.
+	 *
+	 * @param ni network interface that needs to be connected
+	 * @param range The range
+	 * @return A collection of network interfaces within proximity
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni, double range) {
+		return getNearInterfaces(ni);
+	}
+
 	/**
 	 * Finds all other interfaces that are registered to the
 	 * ConnectivityOptimizer
@@ -9,6 +9,7 @@ import java.util.Random;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -133,12 +134,9 @@ public class BusTravellerMovement extends MapBasedMovement implements
 			}
 			MapNode thisNode = map.getNodeByCoord(location);
 			MapNode destinationNode = map.getNodeByCoord(latestBusStop);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
-			Path path = new Path(generateSpeed());
-			for (MapNode node : nodes) {
-				path.addWaypoint(node.getLocation());
-			}
+			double[] coords = PathCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
+			Path path = new Path(coords, generateSpeed());
 			location = latestBusStop.clone();
 			return path;
 		}
@@ -167,6 +165,11 @@ public class BusTravellerMovement extends MapBasedMovement implements
 		return new BusTravellerMovement(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return false; // replicas get consecutive IDs
+	}
+
 	public int getState() {
 		return state;
 	}
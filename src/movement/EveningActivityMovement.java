@@ -12,6 +12,7 @@ import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -179,12 +180,9 @@ public class EveningActivityMovement extends MapBasedMovement
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(startAtLocation);
 
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
-			Path path = new Path(generateSpeed());
-			for (MapNode node : nodes) {
-				path.addWaypoint(node.getLocation());
-			}
+			double[] coords = PathCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
+			Path path = new Path(coords, generateSpeed());
 			lastWaypoint = startAtLocation.clone();
 			mode = EVENING_ACTIVITY_MODE;
 			return path;
@@ -227,6 +225,11 @@ public class EveningActivityMovement extends MapBasedMovement
 		return new EveningActivityMovement(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return false; // replicas get consecutive IDs
+	}
+
 	/**
 	 * @see SwitchableMovement
 	 */
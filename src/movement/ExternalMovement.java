@@ -29,6 +29,9 @@ public class ExternalMovement extends MovementModel {
 	public static final String MOVEMENT_FILE_S = "file";
 	/** number of preloaded intervals per preload run -setting id ({@value})*/
 	public static final String NROF_PRELOAD_S = "nrofPreload";
+	/** read locations ahead in a background thread -setting id ({@value}).
+	 * Boolean. Default is false. */
+	public static final String PREFETCH_S = "prefetch";
 
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
@@ -83,6 +86,7 @@ public class ExternalMovement extends MovementModel {
 			idMapping = new HashMap<String, ExternalMovement>();
 			inputFileName = s.getSetting(MOVEMENT_FILE_S);
 			reader = new ExternalMovementReader(inputFileName);
+			reader.setPrefetch(s.getBoolean(PREFETCH_S, false));
 
 			initLocations = reader.readNextMovements();
 			initTime = reader.getLastTimeStamp();
@@ -271,6 +275,10 @@ public class ExternalMovement extends MovementModel {
 	 * Reset state so that next instance will have a fresh state
 	 */
 	public static void reset() {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
 		idMapping = null;
 	}
 
@@ -15,7 +15,9 @@ import core.SimClock;
 
 /**
  * External movement trace reader for traces that are in path format.
- * See <code>ExternalPathMovementReader</code> for details.
+ * See <code>ExternalPathMovementReader</code> for details. The node's paths
+ * are consumed one at a time with a path cursor, so with an indexed trace
+ * (see {@link #USE_INDEX_S}) only the next path of each node is in memory.
  *
  * @author teemuk
  *
@@ -25,19 +27,32 @@ public class ExternalPathMovement extends MovementModel {
 	public static final String MOVEMENT_FILE_S = "traceFile";
 	/** activity file's path -setting id ({@value})*/
 	public static final String ACTIVITY_FILE_S = "activeFile";
+	/** use an index file for the trace -setting id ({@value}). Boolean
+	 * valued. If true, a binary index file is built next to the trace file
+	 * (unless an up-to-date one exists) and the paths are read from it when
+	 * needed. Default = false */
+	public static final String USE_INDEX_S = "useIndex";
+	/** read the paths ahead in a background thread -setting id ({@value}).
+	 * Boolean valued. Only used with an index file (see
+	 * {@link #USE_INDEX_S}). If true, the path after the next one of every
+	 * node is read while the simulation runs. Default = false */
+	public static final String PREFETCH_S = "prefetch";
 
 	// Settings
 	private String traceFile;
 	private String activeFile;
+	private boolean useIndex;
+	private boolean prefetch;
 
 	// Node's paths
-	private List<List<ExternalPathMovementReader.Entry>> paths;
-	private int curPath=0;
+	private ExternalPathMovementReader.PathCursor paths;
 	private List<ExternalPathMovementReader.ActiveTime> active;
 
 	public ExternalPathMovement(Settings settings) {
 		this.traceFile = settings.getSetting(MOVEMENT_FILE_S);
 		this.activeFile = settings.getSetting(ACTIVITY_FILE_S);
+		this.useIndex = settings.getBoolean(USE_INDEX_S, false);
+		this.prefetch = settings.getBoolean(PREFETCH_S, false);
 	}
 
 	/**
@@ -48,6 +63,8 @@ public class ExternalPathMovement extends MovementModel {
 	public ExternalPathMovement(ExternalPathMovement mm) {
 		this.traceFile = mm.traceFile;
 		this.activeFile = mm.activeFile;
+		this.useIndex = mm.useIndex;
+		this.prefetch = mm.prefetch;
 	}
 
 	/**
@@ -56,10 +73,19 @@ public class ExternalPathMovement extends MovementModel {
 	 */
 	private void init() {
 		// Get paths for this node
-		ExternalPathMovementReader reader =
-			ExternalPathMovementReader.getInstance(this.traceFile,
+		ExternalPathMovementReader reader;
+		if (this.useIndex) {
+			reader = ExternalPathMovementReader.getIndexedInstance(
+					this.traceFile, this.activeFile);
+			if (this.prefetch) {
+				reader.setPrefetch(true);
+			}
+		}
+		else {
+			reader = ExternalPathMovementReader.getInstance(this.traceFile,
 					this.activeFile);
-		this.paths = reader.getPaths(getHost().getAddress());
+		}
+		this.paths = reader.getPathCursor(getHost().getAddress());
 		this.active = reader.getActive(getHost().getAddress());
 	}
 
@@ -90,14 +116,12 @@ public class ExternalPathMovement extends MovementModel {
 
 		// Check whether we're moving or waiting for the next path to start
 		double t = SimClock.getTime();
-		if (t < this.paths.get(this.curPath).get(0).time) {
+		if (!this.paths.hasNext() || t < this.paths.peek().get(0).time) {
 			return null;
 		}
 
 		// Get the path
-		List<ExternalPathMovementReader.Entry> path =
-			this.paths.get(this.curPath);
-		this.curPath++;
+		List<ExternalPathMovementReader.Entry> path = this.paths.next();
 
 		// Drop the node to the the beginning of the new path in case the
 		// previous path ended somewhere else.
@@ -137,9 +161,8 @@ public class ExternalPathMovement extends MovementModel {
 	@Override
 	public Coord getInitialLocation() {
 		// Return the first point of the first path
-		if (this.paths.size() > 0 &&
-				this.paths.get(0).size() > 0) {
-			ExternalPathMovementReader.Entry e = this.paths.get(0).get(0);
+		if (this.paths.hasNext() && this.paths.peek().size() > 0) {
+			ExternalPathMovementReader.Entry e = this.paths.peek().get(0);
 			Coord c = new Coord(e.x, e.y);
 			return c;
 		}
@@ -154,8 +177,8 @@ public class ExternalPathMovement extends MovementModel {
 
 	@Override
 	public double nextPathAvailable() {
-		if (this.curPath < this.paths.size())
-			return this.paths.get(this.curPath).get(0).time;
+		if (this.paths.hasNext())
+			return this.paths.peek().get(0).time;
 		else
 			return Double.MAX_VALUE;
 	}
@@ -12,6 +12,7 @@ import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -167,12 +168,9 @@ public class HomeActivityMovement extends MapBasedMovement
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(homeLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
-			Path path = new Path(generateSpeed());
-			for (MapNode node : nodes) {
-				path.addWaypoint(node.getLocation());
-			}
+			double[] coords = PathCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
+			Path path = new Path(coords, generateSpeed());
 			lastWaypoint = homeLocation.clone();
 			mode = AT_HOME_MODE;
 
@@ -195,7 +193,7 @@ public class HomeActivityMovement extends MapBasedMovement
 			return path;
 		} else {
 			Path path =  new Path(1);
-			path.addWaypoint(lastWaypoint.clone());
+			path.addWaypoint(lastWaypoint);
 			mode = READY_MODE;
 			return path;
 		}
@@ -15,7 +15,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
-import java.util.Vector;
 
 import movement.map.MapNode;
 import movement.map.SimMap;
@@ -180,11 +179,10 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	@Override
 	public Path getPath() {
 		Path p = new Path(generateSpeed());
+		MapNode[][] okNeighbors = map.getOkNeighbors(okMapNodeTypes);
 		MapNode curNode = lastMapNode;
 		MapNode prevNode = lastMapNode;
 		MapNode nextNode = null;
-		List<MapNode> neighbors;
-		Coord nextCoord;
 
 		assert lastMapNode != null: "Tried to get a path before placement";
 
@@ -195,36 +193,12 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 			minPathLength;
 
 		for (int i=0; i<pathLength; i++) {
-			neighbors = curNode.getNeighbors();
-			Vector<MapNode> n2 = new Vector<MapNode>(neighbors);
-			if (!this.backAllowed) {
-				n2.remove(prevNode); // to prevent going back
-			}
-
-			if (okMapNodeTypes != null) { //remove neighbor nodes that aren't ok
-				for (int j=0; j < n2.size(); ){
-					if (!n2.get(j).isType(okMapNodeTypes)) {
-						n2.remove(j);
-					}
-					else {
-						j++;
-					}
-				}
-			}
-
-			if (n2.size() == 0) { // only option is to go back
-				nextNode = prevNode;
-			}
-			else { // choose a random node from remaining neighbors
-				nextNode = n2.get(rng.nextInt(n2.size()));
-			}
-
+			nextNode = selectNextNode(okNeighbors[curNode.getIndex()],
+					prevNode);
 			prevNode = curNode;
-
-			nextCoord = nextNode.getLocation();
 			curNode = nextNode;
 
-			p.addWaypoint(nextCoord);
+			p.addWaypoint(curNode.getLocation());
 		}
 
 		lastMapNode = curNode;
@@ -232,6 +206,42 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		return p;
 	}
 
+	/**
+	 * Selects randomly the next node of a random walk among the (OK)
+	 * neighbors of the current node. If going back is not allowed, the
+	 * previous node is skipped unless it is the only option. Consumes the
+	 * random numbers exactly like choosing from a filtered copy of the
+	 * neighbor list would, but doesn't create any objects.
+	 * @param neighbors The OK neighbors of the current node
+	 * @param prevNode The node where the walk came from
+	 * @return The next node
+	 */
+	private MapNode selectNextNode(MapNode[] neighbors, MapNode prevNode) {
+		int nrofOptions = neighbors.length;
+		int prevIndex = -1;
+
+		if (!this.backAllowed) { // to prevent going back
+			for (int j=0; j < neighbors.length; j++) {
+				if (neighbors[j] == prevNode) {
+					prevIndex = j;
+					nrofOptions--;
+					break;
+				}
+			}
+		}
+
+		if (nrofOptions == 0) { // only option is to go back
+			return prevNode;
+		}
+
+		// choose a random node from remaining neighbors
+		int choice = rng.nextInt(nrofOptions);
+		if (prevIndex != -1 && choice >= prevIndex) {
+			choice++; // skip the previous node
+		}
+		return neighbors[choice];
+	}
+
 	/**
 	 * Selects and returns a random node that is OK from a list of nodes.
 	 * Whether node is OK, is determined by the okMapNodeTypes list.
@@ -401,6 +411,11 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		return new MapBasedMovement(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return true;
+	}
+
 	public Coord getLastLocation() {
 		if (lastMapNode != null) {
 			return lastMapNode.getLocation();
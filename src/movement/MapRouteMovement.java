@@ -149,6 +149,11 @@ public class MapRouteMovement extends MapBasedMovement implements
 		return new MapRouteMovement(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return false; // replicas take the routes from the prototype in turns
+	}
+
 	/**
 	 * Returns the list of stops on the route
 	 * @return The list of stops
@@ -46,7 +46,21 @@ public abstract class MovementModel {
 	public static final String RNG_SEED = "rngSeed";
 
 	/** common rng for all movement models in the simulation */
-	protected static Random rng;
+	private static Random sharedRng;
+	/** seed of the common rng */
+	private static long seed;
+	/** random number stream for the replicas created by the current thread
+	 * (null if the replicas use the stream of their prototype) */
+	private static final ThreadLocal<Random> replicaRng =
+		new ThreadLocal<Random>();
+
+	/** random number generator of this movement model. All the models
+	 * share the same generator, unless the models are replicated with
+	 * their own streams (see {@link #replicate(MovementModel, Random)}).
+	 * Note: this field used to be static. Subclasses that refer to it as
+	 * <CODE>MovementModel.rng</CODE> or use it in a static method must be
+	 * changed to use the field of a model instance. */
+	protected Random rng;
 
 	/** DTNHost to which this movement model is attached */
 	protected DTNHost host;
@@ -93,6 +107,7 @@ public abstract class MovementModel {
 	 */
 	public MovementModel() {
 		super();
+		this.rng = sharedRng;
 	}
 
 	/**
@@ -103,6 +118,7 @@ public abstract class MovementModel {
 		double[] speeds;
 		double[] times;
 
+		this.rng = sharedRng;
 		ah = new ActivenessHandler(settings);
 
 		if (settings.contains(SPEED)) {
@@ -149,6 +165,9 @@ public abstract class MovementModel {
 		this.maxY = mm.maxY;
 		this.ah = mm.ah;
 		this.comBus = null;
+
+		Random stream = replicaRng.get();
+		this.rng = (stream != null ? stream : mm.rng);
 	}
 
 	/**
@@ -271,18 +290,66 @@ public abstract class MovementModel {
 	 */
 	public abstract MovementModel replicate();
 
+	/**
+	 * Returns true if replicas of this model can be created (with their
+	 * own random number streams), placed ({@link #getInitialLocation()})
+	 * and scheduled ({@link #nextPathAvailable()}) by several threads at
+	 * the same time. That is the case if doing so doesn't change any state
+	 * that is shared by the replicas and the prototype. Models that e.g.
+	 * give the replicas consecutive IDs or positions must return false.
+	 * This implementation returns false.
+	 * @return true if the replicas can be created concurrently
+	 */
+	public boolean canReplicateConcurrently() {
+		return false;
+	}
+
+	/**
+	 * Creates a replicate of a movement model that uses its own random
+	 * number stream, instead of the stream of the prototype, already while
+	 * the replicate is being created
+	 * @param proto The prototype
+	 * @param rng The random number stream for the replicate
+	 * @return A new movement model with the same settings as the prototype
+	 * @see #createStream(int)
+	 */
+	public static MovementModel replicate(MovementModel proto, Random rng) {
+		replicaRng.set(rng);
+		try {
+			return proto.replicate();
+		} finally {
+			replicaRng.remove();
+		}
+	}
+
+	/**
+	 * Creates a random number stream for the movement model of a host. The
+	 * stream depends only on the random seed setting and the given index
+	 * (e.g., the address of the host), so the hosts move the same way
+	 * regardless of the order (or threads) they are created in.
+	 * @param index Index of the stream
+	 * @return A new random number generator
+	 */
+	public static Random createStream(int index) {
+		/* mix the bits (SplitMix64) so nearby indexes give unrelated seeds */
+		long z = seed + (index + 1) * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return new Random(z ^ (z >>> 31));
+	}
+
 	/**
 	 * Resets all static fields to default values
 	 */
 	public static void reset() {
 		Settings s = new Settings(MOVEMENT_MODEL_NS);
 		if (s.contains(RNG_SEED)) {
-			int seed = s.getInt(RNG_SEED);
-			rng = new Random(seed);
+			seed = s.getInt(RNG_SEED);
 		}
 		else {
-			rng = new Random(0);
+			seed = 0;
 		}
+		sharedRng = new Random(seed);
 	}
 
 }
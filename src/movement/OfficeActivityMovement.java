@@ -14,6 +14,7 @@ import util.ParetoRNG;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -201,12 +202,9 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(officeLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
-			Path path = new Path(generateSpeed());
-			for (MapNode node : nodes) {
-				path.addWaypoint(node.getLocation());
-			}
+			double[] coords = PathCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
+			Path path = new Path(coords, generateSpeed());
 			lastWaypoint = officeLocation.clone();
 			mode = AT_OFFICE_MODE;
 			return path;
@@ -217,7 +215,7 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 		}
 		if (SimClock.getIntTime() - startedWorkingTime >= workDayLength) {
 			Path path =  new Path(1);
-			path.addWaypoint(lastWaypoint.clone());
+			path.addWaypoint(lastWaypoint);
 			ready = true;
 			return path;
 		}
@@ -4,19 +4,32 @@
  */
 package movement;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 import core.Coord;
 
 /**
- * A Path between multiple Coordinates.
+ * A Path between multiple Coordinates. The waypoints and speeds are stored
+ * in primitive arrays; the coordinate array can also be shared with other
+ * paths (e.g. routes from {@link movement.map.PathCache}) in which case it
+ * is copied only if the path is modified. Hosts can consume the path without
+ * allocating new objects using {@link #getNextWaypoint(Coord)}.
  */
 public class Path  {
-	/** coordinates of the path */
-	private List<Coord> coords;
+	/** initial capacity of the waypoint array (in waypoints) */
+	private static final int INIT_CAPACITY = 4;
+	/** coordinates of the path as (x,y) pairs */
+	private double[] coords;
+	/** number of waypoints in the path */
+	private int nrofCoords;
+	/** is the coordinate array shared with someone else (copy on write) */
+	private boolean sharedCoords;
 	/** speeds in the path legs */
-	private List<Double> speeds;
+	private double[] speeds;
+	/** number of speeds set */
+	private int nrofSpeeds;
 	private int nextWpIndex;
 
 	/**
@@ -24,19 +37,26 @@ public class Path  {
 	 */
 	public Path() {
 		this.nextWpIndex = 0;
-		this.coords = new ArrayList<Coord>();
-		this.speeds = new ArrayList<Double>(1);
+		this.coords = new double[INIT_CAPACITY * 2];
+		this.nrofCoords = 0;
+		this.sharedCoords = false;
+		this.speeds = new double[1];
+		this.nrofSpeeds = 0;
 	}
 
 	/**
-	 * Copy constructor. Creates a copy of this path with a shallow copy of
-	 * the coordinates and speeds.
+	 * Copy constructor. Creates a copy of this path that shares the
+	 * coordinates with the original path until either one is modified.
 	 * @param path The path to create the copy from
 	 */
 	public Path(Path path) {
 		this.nextWpIndex = path.nextWpIndex;
-		this.coords = new ArrayList<Coord>((ArrayList<Coord>)path.coords);
-		this.speeds = new ArrayList<Double>((ArrayList<Double>)path.speeds);
+		this.coords = path.coords;
+		this.nrofCoords = path.nrofCoords;
+		this.sharedCoords = true;
+		path.sharedCoords = true;
+		this.speeds = Arrays.copyOf(path.speeds, Math.max(path.nrofSpeeds,1));
+		this.nrofSpeeds = path.nrofSpeeds;
 	}
 
 	/**
@@ -48,21 +68,76 @@ public class Path  {
 		setSpeed(speed);
 	}
 
+	/**
+	 * Creates a path with constant speed that uses the given coordinate
+	 * array as its waypoints without copying it. The array is never
+	 * modified; if more waypoints are added, the coordinates are copied first.
+	 * @param coords Coordinates of the waypoints as (x,y) pairs
+	 * @param speed The speed on the path
+	 * @see movement.map.PathCache
+	 */
+	public Path(double[] coords, double speed) {
+		this(speed);
+		this.coords = coords;
+		this.nrofCoords = coords.length / 2;
+		this.sharedCoords = true;
+	}
+
 	/**
 	 * Sets a constant speed for the whole path. Any previously set speed(s)
 	 * is discarded.
 	 */
 	public void setSpeed(double speed) {
-		this.speeds = new ArrayList<Double>(1);
-		speeds.add(speed);
+		this.speeds = new double[1];
+		this.speeds[0] = speed;
+		this.nrofSpeeds = 1;
 	}
 
 	/**
-	 * Returns a reference to the coordinates of this path
+	 * Returns a read-only list view of the coordinates of this path. The
+	 * coordinates are created on request, so prefer {@link #getX(int)} and
+	 * {@link #getY(int)} in performance critical code.
 	 * @return coordinates of the path
 	 */
 	public List<Coord> getCoords() {
-		return this.coords;
+		return new AbstractList<Coord>() {
+			public Coord get(int index) {
+				checkIndex(index);
+				return new Coord(coords[index * 2], coords[index * 2 + 1]);
+			}
+
+			public int size() {
+				return nrofCoords;
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of waypoints in this path
+	 * @return the number of waypoints in this path
+	 */
+	public int getNrofWaypoints() {
+		return this.nrofCoords;
+	}
+
+	/**
+	 * Returns the x coordinate of a waypoint
+	 * @param index Index of the waypoint
+	 * @return the x coordinate of the waypoint
+	 */
+	public double getX(int index) {
+		checkIndex(index);
+		return this.coords[index * 2];
+	}
+
+	/**
+	 * Returns the y coordinate of a waypoint
+	 * @param index Index of the waypoint
+	 * @return the y coordinate of the waypoint
+	 */
+	public double getY(int index) {
+		checkIndex(index);
+		return this.coords[index * 2 + 1];
 	}
 
 	/**
@@ -70,9 +145,9 @@ public class Path  {
 	 * @param wp The waypoint to add
 	 */
 	public void addWaypoint(Coord wp) {
-		assert this.speeds.size() <= 1 : "This method should be used only for" +
+		assert this.nrofSpeeds <= 1 : "This method should be used only for" +
 			" paths with constant speed";
-		this.coords.add(wp);
+		addCoord(wp.getX(), wp.getY());
 	}
 
 	/**
@@ -81,8 +156,11 @@ public class Path  {
 	 * @param speed The speed towards that waypoint
 	 */
 	public void addWaypoint(Coord wp, double speed) {
-		this.coords.add(wp);
-		this.speeds.add(speed);
+		addCoord(wp.getX(), wp.getY());
+		if (this.nrofSpeeds == this.speeds.length) {
+			this.speeds = Arrays.copyOf(this.speeds, this.speeds.length * 2);
+		}
+		this.speeds[this.nrofSpeeds++] = speed;
 	}
 
 	/**
@@ -91,7 +169,23 @@ public class Path  {
 	 */
 	public Coord getNextWaypoint() {
 		assert hasNext() : "Path didn't have " + (nextWpIndex+1) + ". waypoint";
-		return coords.get(nextWpIndex++);
+		Coord c = new Coord(coords[nextWpIndex * 2],
+				coords[nextWpIndex * 2 + 1]);
+		nextWpIndex++;
+		return c;
+	}
+
+	/**
+	 * Sets the given coordinate to the next waypoint on this path.
+	 * Works like {@link #getNextWaypoint()} but doesn't create new objects.
+	 * @param wp The coordinate to set
+	 * @return the given coordinate
+	 */
+	public Coord getNextWaypoint(Coord wp) {
+		assert hasNext() : "Path didn't have " + (nextWpIndex+1) + ". waypoint";
+		wp.setLocation(coords[nextWpIndex * 2], coords[nextWpIndex * 2 + 1]);
+		nextWpIndex++;
+		return wp;
 	}
 
 	/**
@@ -99,7 +193,7 @@ public class Path  {
 	 * @return true if the path has more waypoints, false if not
 	 */
 	public boolean hasNext() {
-		return nextWpIndex < this.coords.size();
+		return nextWpIndex < this.nrofCoords;
 	}
 
 	/**
@@ -108,14 +202,14 @@ public class Path  {
 	 * @return the speed towards the next waypoint
 	 */
 	public double getSpeed() {
-		assert speeds.size() != 0 : "No speed set";
+		assert nrofSpeeds != 0 : "No speed set";
 		assert nextWpIndex != 0 : "No waypoint asked";
 
-		if (speeds.size() == 1) {
-			return speeds.get(0);
+		if (nrofSpeeds == 1) {
+			return speeds[0];
 		}
 		else {
-			return speeds.get(nextWpIndex-1);
+			return speeds[nextWpIndex-1];
 		}
 	}
 
@@ -124,18 +218,65 @@ public class Path  {
 	 * @return Path as a string
 	 */
 	public String toString() {
-		String s ="";
-		for (int i=0, n=coords.size(); i<n; i++) {
-			Coord c = coords.get(i);
-			s+= "->" + c;
-			if (speeds.size() > 1) {
-				s += String.format("@%.2f ",speeds.get(i));
+		StringBuilder s = new StringBuilder();
+		for (int i=0; i<nrofCoords; i++) {
+			s.append("->").append(new Coord(coords[i*2], coords[i*2 + 1]));
+			if (nrofSpeeds > 1) {
+				s.append(String.format("@%.2f ",speeds[i]));
 			}
 		}
-		return s;
+		return s.toString();
 	}
 
+	/**
+	 * Returns a read-only list view of the speeds of this path
+	 * @return the speeds of the path
+	 */
 	public List<Double> getSpeeds() {
-		return this.speeds;
+		return new AbstractList<Double>() {
+			public Double get(int index) {
+				if (index < 0 || index >= nrofSpeeds) {
+					throw new IndexOutOfBoundsException("Index: " + index);
+				}
+				return speeds[index];
+			}
+
+			public int size() {
+				return nrofSpeeds;
+			}
+		};
+	}
+
+	/**
+	 * Appends a coordinate pair to the end of the coordinate array, copying
+	 * or growing the array first if needed
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 */
+	private void addCoord(double x, double y) {
+		int needed = (nrofCoords + 1) * 2;
+		if (sharedCoords || needed > coords.length) {
+			int capacity = Math.max(needed, coords.length);
+			if (needed > coords.length) {
+				capacity = Math.max(needed, coords.length * 2);
+			}
+			this.coords = Arrays.copyOf(this.coords, capacity);
+			this.sharedCoords = false;
+		}
+		this.coords[nrofCoords * 2] = x;
+		this.coords[nrofCoords * 2 + 1] = y;
+		this.nrofCoords++;
+	}
+
+	/**
+	 * Checks that a waypoint index is valid
+	 * @param index The index to check
+	 * @throws IndexOutOfBoundsException if the index is not valid
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= nrofCoords) {
+			throw new IndexOutOfBoundsException("Index: " + index +
+					", Size: " + nrofCoords);
+		}
 	}
 }
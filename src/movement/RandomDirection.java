@@ -38,7 +38,7 @@ extends MovementModel {
     public Path getPath() {
         Path p;
         p = new Path( super.generateSpeed() );
-        p.addWaypoint( this.lastWaypoint.clone() );
+        p.addWaypoint( this.lastWaypoint );
         Coord next = this.getRandomWaypoint( this.lastWaypoint.getX(),
                                              this.lastWaypoint.getY() );
         p.addWaypoint( next );
@@ -51,8 +51,8 @@ extends MovementModel {
     @Override
     public Coord getInitialLocation() {
         Coord c
-            = new Coord( MovementModel.rng.nextDouble() * super.getMaxX(),
-                         MovementModel.rng.nextDouble() * super.getMaxY() );
+            = new Coord( rng.nextDouble() * super.getMaxX(),
+                         rng.nextDouble() * super.getMaxY() );
         this.lastWaypoint = c;
 
         return c;
@@ -62,6 +62,11 @@ extends MovementModel {
     public MovementModel replicate() {
         return new RandomDirection( this );
     }
+
+    @Override
+    public boolean canReplicateConcurrently() {
+        return true;
+    }
     //========================================================================//
 
 
@@ -108,7 +113,7 @@ extends MovementModel {
         do {
             done = true;
 
-            angle = MovementModel.rng.nextDouble() * 2 * Math.PI - Math.PI;
+            angle = rng.nextDouble() * 2 * Math.PI - Math.PI;
 
             double[] bottomParams
                     = this.getBottomParams( x0, y0, angle );
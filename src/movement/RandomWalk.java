@@ -49,7 +49,7 @@ public class RandomWalk extends MovementModel implements SwitchableMovement {
 	public Path getPath() {
 		Path p;
 		p = new Path(generateSpeed());
-		p.addWaypoint(lastWaypoint.clone());
+		p.addWaypoint(lastWaypoint);
 		double maxX = getMaxX();
 		double maxY = getMaxY();
 
@@ -81,6 +81,11 @@ public class RandomWalk extends MovementModel implements SwitchableMovement {
 		return new RandomWalk(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return true;
+	}
+
 	public Coord getLastLocation() {
 		return lastWaypoint;
 	}
@@ -41,7 +41,7 @@ public class RandomWaypoint extends MovementModel {
 	public Path getPath() {
 		Path p;
 		p = new Path(generateSpeed());
-		p.addWaypoint(lastWaypoint.clone());
+		p.addWaypoint(lastWaypoint);
 		Coord c = lastWaypoint;
 
 		for (int i=0; i<PATH_LENGTH; i++) {
@@ -58,6 +58,11 @@ public class RandomWaypoint extends MovementModel {
 		return new RandomWaypoint(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return true;
+	}
+
 	protected Coord randomCoord() {
 		return new Coord(rng.nextDouble() * getMaxX(),
 				rng.nextDouble() * getMaxY());
@@ -67,4 +67,9 @@ public class StationaryMovement extends MovementModel {
 		return new StationaryMovement(this);
 	}
 
+	@Override
+	public boolean canReplicateConcurrently() {
+		return true;
+	}
+
 }
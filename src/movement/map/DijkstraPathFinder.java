@@ -44,6 +44,14 @@ public class DijkstraPathFinder {
 		this.okMapNodes = okMapNodes;
 	}
 
+	/**
+	 * Returns the map node types that are OK for paths
+	 * @return The OK map node types or null if all nodes are OK
+	 */
+	public int[] getOkMapNodes() {
+		return this.okMapNodes;
+	}
+
 	/**
 	 * Initializes a new search with a source node
 	 * @param node The path's source node
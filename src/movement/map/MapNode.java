@@ -6,6 +6,7 @@ package movement.map;
 
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import core.Coord;
 import core.SettingsError;
@@ -19,12 +20,18 @@ public class MapNode implements Comparable<MapNode> {
 	public static final int MIN_TYPE = 1;
 	/** Biggest valid type of a node: {@value} */
 	public static final int MAX_TYPE = 31;
-
+	/** number of type or neighbor changes made to any map node (used for
+	 * invalidating data derived from the map's topology). Atomic because
+	 * the maps may be read while movement models are replicated in
+	 * parallel. */
+	private static final AtomicInteger modCount = new AtomicInteger();
 
 	private Coord location;
 	private Vector<MapNode> neighbors;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
+	// index of the node in its SimMap's node list or -1 if not in a map
+	private int index;
 
 	/**
 	 * Constructor. Creates a map node to a location.
@@ -34,6 +41,7 @@ public class MapNode implements Comparable<MapNode> {
 		this.location = location;
 		this.neighbors = new Vector<MapNode>();
 		type = 0;
+		index = -1;
 	}
 
 	/**
@@ -42,6 +50,7 @@ public class MapNode implements Comparable<MapNode> {
 	 */
 	public void addType(int type) {
 		this.type |= typeToBitMask(type);
+		modCount.incrementAndGet();
 	}
 
 	/**
@@ -77,6 +86,25 @@ public class MapNode implements Comparable<MapNode> {
 		return false;
 	}
 
+	/**
+	 * Converts a set of types to a bit mask that can be used as a key for
+	 * data that depends on the OK map node types
+	 * @param types The types (array of values in range
+	 * [{@value MIN_TYPE}, {@value MAX_TYPE}]) or null for all types
+	 * @return A bit mask of the types or -1 if all types are OK
+	 */
+	public static int typesToBitMask(int[] types) {
+		if (types == null) {
+			return -1;
+		}
+
+		int mask = 0;
+		for (int type : types) {
+			mask |= 1 << type;
+		}
+		return mask;
+	}
+
 	/**
 	 * Converts type integer to a bit mask for setting & checking type
 	 * @param type The type to convert
@@ -108,6 +136,7 @@ public class MapNode implements Comparable<MapNode> {
 	private void addToList(MapNode node) {
 		if (!this.neighbors.contains(node) && node != this) {
 			this.neighbors.add(node);
+			modCount.incrementAndGet();
 		}
 	}
 
@@ -127,6 +156,33 @@ public class MapNode implements Comparable<MapNode> {
 		return neighbors;
 	}
 
+	/**
+	 * Returns the number of type or neighbor changes made to any map node.
+	 * If the value changes, data derived from node types or neighbors
+	 * should be re-created.
+	 * @return the modification count
+	 */
+	static int getModCount() {
+		return modCount.get();
+	}
+
+	/**
+	 * Returns the index of this node in the node list of its SimMap
+	 * @return the index of this node or -1 if the node is not in a map
+	 * @see SimMap#getNodes()
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Sets the index of this node in the node list of its SimMap
+	 * @param index The index
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	/**
 	 * Returns a String representation of the map node
 	 * @return a String representation of the map node
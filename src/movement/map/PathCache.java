@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Coord;
+import core.DTNSim;
+import core.Settings;
+
+/**
+ * Simulation wide cache of shortest paths between map nodes. Movement models
+ * whose hosts repeatedly travel between the same locations (homes, offices,
+ * meeting spots, bus stops...) can share the routes here instead of running
+ * Dijkstra's algorithm again for every trip. The cache is bounded and evicts
+ * the least recently used path when it is full. Paths are stored as
+ * immutable coordinate arrays (x0, y0, x1, y1, ...) that
+ * {@link movement.Path} can wrap without copying.
+ * All methods are thread safe.
+ */
+public class PathCache {
+	/** Path cache settings namespace ({@value}) */
+	public static final String PATH_CACHE_NS = "PathCache";
+	/**
+	 * Maximum number of cached paths -setting id ({@value}). Value 0
+	 * disables caching. Default is {@value #DEF_CACHE_SIZE}.
+	 */
+	public static final String CACHE_SIZE_S = "cacheSize";
+	/** Default maximum number of cached paths */
+	public static final int DEF_CACHE_SIZE = 10000;
+
+	/** the simulation wide cache instance */
+	private static PathCache instance;
+
+	/** maximum number of paths in the cache */
+	private int maxSize;
+	/** the cached paths in least recently used order */
+	private Map<Key, double[]> paths;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	static {
+		DTNSim.registerForReset(PathCache.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Creates a new cache
+	 * @param maxSize Maximum number of paths in the cache
+	 */
+	private PathCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.paths = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Key, double[]> e) {
+				if (size() > PathCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the simulation wide path cache. The cache is created on the
+	 * first call using the size from settings.
+	 * @return The path cache
+	 */
+	public static synchronized PathCache getInstance() {
+		if (instance == null) {
+			Settings s = new Settings(PATH_CACHE_NS);
+			int size = DEF_CACHE_SIZE;
+			if (s.contains(CACHE_SIZE_S)) {
+				size = s.getInt(CACHE_SIZE_S);
+			}
+			instance = new PathCache(size);
+		}
+		return instance;
+	}
+
+	/**
+	 * Discards the cached paths and statistics
+	 */
+	public static synchronized void reset() {
+		instance = null;
+	}
+
+	/**
+	 * Returns the shortest path between two map nodes either from the cache
+	 * or by asking it from the path finder (and storing it to the cache).
+	 * The returned array must not be modified.
+	 * @param finder The path finder to use if the path is not cached
+	 * @param from The source node of the path
+	 * @param to The destination node of the path
+	 * @return Coordinates of the path's nodes as an array of (x,y) pairs or
+	 * an empty array if no path is available
+	 */
+	public double[] getShortestPath(DijkstraPathFinder finder, MapNode from,
+			MapNode to) {
+		Key key = new Key(from, to, finder.getOkMapNodes());
+		double[] path;
+
+		synchronized (this) {
+			path = paths.get(key);
+			if (path != null) {
+				hits++;
+				return path;
+			}
+			misses++;
+		}
+
+		/* path finders are shared between hosts, so only one search at
+		 * a time per finder */
+		List<MapNode> nodes;
+		synchronized (finder) {
+			nodes = finder.getShortestPath(from, to);
+		}
+		path = new double[nodes.size() * 2];
+		int i = 0;
+		for (MapNode n : nodes) {
+			Coord c = n.getLocation();
+			path[i++] = c.getX();
+			path[i++] = c.getY();
+		}
+
+		synchronized (this) {
+			if (maxSize > 0) {
+				paths.put(key, path);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the number of path requests answered from the cache
+	 * @return the number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of path requests that required a path search
+	 * @return the number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of paths removed from the cache to make room for
+	 * new paths
+	 * @return the number of evicted paths
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of paths currently in the cache
+	 * @return the number of cached paths
+	 */
+	public synchronized int getSize() {
+		return paths.size();
+	}
+
+	/**
+	 * Returns the maximum number of paths in the cache
+	 * @return the maximum number of paths in the cache
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Key of a cached path: source and destination nodes and the mask of
+	 * map node types the path may traverse.
+	 */
+	private static class Key {
+		private final MapNode from;
+		private final MapNode to;
+		private final int okMask;
+
+		public Key(MapNode from, MapNode to, int[] okMapNodes) {
+			this.from = from;
+			this.to = to;
+			this.okMask = MapNode.typesToBitMask(okMapNodes);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = System.identityHashCode(from);
+			h = 31 * h + System.identityHashCode(to);
+			return 31 * h + okMask;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key)o;
+			return from == k.from && to == k.to && okMask == k.okMask;
+		}
+	}
+}
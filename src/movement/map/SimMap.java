@@ -6,6 +6,7 @@ package movement.map;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,12 +29,19 @@ public class SimMap implements Serializable {
 
 	/** is re-hash needed before using hash mode (some coordinates changed) */
 	private boolean needsRehash = false;
+	/** neighbor tables filtered by OK node types (key: type bit mask) */
+	private transient Map<Integer, MapNode[][]> okNeighbors;
+	/** map node modification count when the neighbor tables were created */
+	private transient int okNeighborsModCount;
 
 	public SimMap(Map<Coord, MapNode> nodes) {
 		this.offset = new Coord(0,0);
 		this.nodes = new ArrayList<MapNode>(nodes.values());
 		this.nodesMap = nodes;
 		this.isMirrored = false;
+		for (int i=0, n=this.nodes.size(); i<n; i++) {
+			this.nodes.get(i).setIndex(i);
+		}
 		setBounds();
 	}
 
@@ -62,6 +70,45 @@ public class SimMap implements Serializable {
 		return nodesMap.get(c);
 	}
 
+	/**
+	 * Returns a table of every map node's neighbors that are of the given
+	 * OK types. The table is indexed by {@link MapNode#getIndex()} and the
+	 * neighbors of each node are in the same order as in
+	 * {@link MapNode#getNeighbors()}. The tables are created on the first
+	 * request and shared by all callers, so they must not be modified.
+	 * @param okTypes The OK map node types or null if all nodes are OK
+	 * @return The neighbor table
+	 */
+	public synchronized MapNode[][] getOkNeighbors(int[] okTypes) {
+		int mask = MapNode.typesToBitMask(okTypes);
+		if (okNeighbors == null ||
+				okNeighborsModCount != MapNode.getModCount()) {
+			// no tables yet or node types/neighbors have changed
+			okNeighbors = new HashMap<Integer, MapNode[][]>();
+			okNeighborsModCount = MapNode.getModCount();
+		}
+
+		MapNode[][] table = okNeighbors.get(mask);
+		if (table != null) {
+			return table;
+		}
+
+		table = new MapNode[nodes.size()][];
+		List<MapNode> filtered = new ArrayList<MapNode>();
+		for (MapNode node : nodes) {
+			filtered.clear();
+			for (MapNode n : node.getNeighbors()) {
+				if (okTypes == null || n.isType(okTypes)) {
+					filtered.add(n);
+				}
+			}
+			table[node.getIndex()] = filtered.toArray(new MapNode[0]);
+		}
+
+		okNeighbors.put(mask, table);
+		return table;
+	}
+
 	/**
 	 * Returns the upper left corner coordinate of the map
 	 * @return the upper left corner coordinate of the map
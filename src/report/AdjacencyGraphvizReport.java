@@ -4,8 +4,8 @@
  */
 package report;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 
 import core.ConnectionListener;
 import core.DTNHost;
@@ -13,47 +13,67 @@ import core.DTNHost;
 /**
  * Generates Graphviz compatible graph from connections.
  * Connections that happen during the warm up period are ignored.
+ * The connections of a host pair are counted separately for both
+ * directions (by the host that initiated the connection) and the edges are
+ * written in the order of the host pair keys (see {@link HostPairIndex}).
  */
-public class AdjacencyGraphvizReport extends Report implements ConnectionListener {
+public class AdjacencyGraphvizReport extends Report implements
+		ConnectionListener, ContactReport {
 	/** Name of the graphviz report ({@value})*/
 	public static final String GRAPH_NAME = "adjgraph";
 
-	private String HOST_DELIM = "<->"; // used in toString()
-	private HashMap<String, ConnectionInfo> cons;
+	private ContactTracker contacts;
+	private boolean ownTracker;
+	/** connection counts; two per contact entry, the one initiated by the
+	 * host with the smaller address first */
+	private int[] nrofConnections;
 	private Collection<DTNHost> allHosts;
 
 	/**
 	 * Constructor.
 	 */
 	public AdjacencyGraphvizReport() {
+		this.contacts = new ContactTracker();
+		this.ownTracker = true;
 		this.allHosts = null;
 		init();
 	}
 
 	protected void init() {
 		super.init();
-		this.cons = new HashMap<String, ConnectionInfo>();
+		this.nrofConnections = new int[128];
 	}
 
+	public void setContactTracker(ContactTracker tracker) {
+		this.contacts = tracker;
+		this.ownTracker = false;
+	}
 
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		if (ownTracker) {
+			contacts.hostsConnected(host1, host2);
+		}
 		if (isWarmup()) {
 			return;
 		}
 
 		newEvent();
-		ConnectionInfo ci = cons.get(host1+HOST_DELIM+host2);
-
-		if (ci == null) {
-			cons.put(host1+HOST_DELIM+host2, new ConnectionInfo(host1,host2));
+		int i = contacts.getContact(host1, host2) * 2;
+		if (host1.getAddress() > host2.getAddress()) {
+			i++;
 		}
-		else {
-			ci.nrofConnections++;
+		if (i >= nrofConnections.length) {
+			nrofConnections = Arrays.copyOf(nrofConnections,
+					Math.max(nrofConnections.length * 2, i + 2));
 		}
+		nrofConnections[i]++;
 	}
 
-	// 	Nothing to do here..
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		if (ownTracker) {
+			contacts.hostsDisconnected(host1, host2);
+		}
+	}
 
 	/**
 	 * Sets all hosts that should be in the graph at least once
@@ -67,9 +87,23 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 		write("graph " + GRAPH_NAME + " {");
 		setPrefix("\t"); // indent following lines by one tab
 
-		for (ConnectionInfo ci : cons.values()) {
-			int weight = ci.nrofConnections;
-			write(ci.h1 + "--" + ci.h2 + " [weight=" + weight + "];");
+		/* keys of the pairs that have connected (after the warm up) */
+		int n = Math.min(contacts.getNrofPairs(), nrofConnections.length / 2);
+		long[] keys = new long[n];
+		int nrofKeys = 0;
+		for (int c=0; c<n; c++) {
+			if (nrofConnections[c*2] > 0 || nrofConnections[c*2 + 1] > 0) {
+				keys[nrofKeys++] = contacts.getKey(c);
+			}
+		}
+		Arrays.sort(keys, 0, nrofKeys);
+
+		for (int i=0; i<nrofKeys; i++) {
+			DTNHost h1 = contacts.getHost(HostPairIndex.getFirst(keys[i]));
+			DTNHost h2 = contacts.getHost(HostPairIndex.getSecond(keys[i]));
+			int c = contacts.getContact(h1, h2);
+			writeEdge(h1, h2, nrofConnections[c*2]);
+			writeEdge(h2, h1, nrofConnections[c*2 + 1]);
 		}
 
 		// mention all hosts in the graph at least once
@@ -85,36 +119,9 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 		super.done();
 	}
 
-	/**
-	 * Private class stores information of the connected hosts
-	 * and nrof times they have connected.
-	 */
-	private class ConnectionInfo {
-		private DTNHost h1;
-		private DTNHost h2;
-		private int nrofConnections;
-
-		public ConnectionInfo(DTNHost h1, DTNHost h2) {
-			this.h1 = h1;
-			this.h2 = h2;
-			this.nrofConnections = 1;
-		}
-
-		public boolean equals(Object o) {
-			if (o == null) return false;
-			return o.toString().equals(this.toString());
-		}
-
-		public int hashCode() {
-			return toString().hashCode();
-		}
-
-		public String toString() {
-			return h1+HOST_DELIM+h2;
-		}
-
-		public int compareTo(Object o) {
-			return nrofConnections - ((ConnectionInfo)o).nrofConnections;
+	private void writeEdge(DTNHost from, DTNHost to, int weight) {
+		if (weight > 0) {
+			write(from + "--" + to + " [weight=" + weight + "];");
 		}
 	}
 
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.SimError;
+
+/**
+ * Writer that collects the written characters into batches and hands them
+ * over to a background thread that does the actual (possibly compressed)
+ * file output. The batches are passed in a bounded queue: if the
+ * background thread falls behind, the writing thread waits until a batch
+ * has been written. Written batches are recycled, so the batch buffers
+ * form a ring that is reused for the whole output. This way the simulation
+ * thread doesn't have to wait for file I/O.
+ */
+public class AsyncReportWriter extends Writer {
+	/** Default size of a batch (characters) */
+	public static final int DEF_BATCH_SIZE = 64 * 1024;
+	/** Default number of batches that can wait for writing */
+	public static final int DEF_NROF_BATCHES = 16;
+
+	/** marker for the end of output in the queue */
+	private static final char[] END = new char[0];
+
+	private final Writer target;
+	private final BlockingQueue<char[]> queue;
+	/** written batches that can be reused */
+	private final BlockingQueue<char[]> free;
+	private final Thread thread;
+	private final int batchSize;
+	/** the batch that is being filled */
+	private char[] batch;
+	/** number of characters in the current batch */
+	private int batchLen;
+	private boolean closed;
+	/** exception thrown by the writing thread (if any) */
+	private volatile IOException error;
+
+	/**
+	 * Creates a writer with default batch size and number of batches
+	 * @param target The writer that does the actual output
+	 * @param name Name of the writing thread
+	 */
+	public AsyncReportWriter(Writer target, String name) {
+		this(target, name, DEF_BATCH_SIZE, DEF_NROF_BATCHES);
+	}
+
+	/**
+	 * Constructor. Starts the writing thread.
+	 * @param target The writer that does the actual output
+	 * @param name Name of the writing thread
+	 * @param batchSize Size of a batch (characters)
+	 * @param nrofBatches Maximum number of batches waiting for writing
+	 */
+	public AsyncReportWriter(Writer target, String name, int batchSize,
+			int nrofBatches) {
+		this.target = target;
+		this.batchSize = Math.max(batchSize, 1);
+		this.queue = new ArrayBlockingQueue<char[]>(Math.max(nrofBatches, 1));
+		this.free = new ArrayBlockingQueue<char[]>(Math.max(nrofBatches, 1));
+		this.batch = new char[this.batchSize];
+		this.batchLen = 0;
+		this.closed = false;
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				writeAll();
+			}
+		}, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Writes batches from the queue until the end marker is found
+	 */
+	private void writeAll() {
+		try {
+			while (true) {
+				char[] b = queue.take();
+				if (b == END) {
+					break;
+				}
+				target.write(b);
+				if (b.length == batchSize) {
+					free.offer(b); // full size batch -> reuse
+				}
+			}
+			target.flush();
+		} catch (IOException e) {
+			error = e;
+			drain();
+		} catch (InterruptedException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Consumes the queue after an error so that the writing thread doesn't
+	 * block
+	 */
+	private void drain() {
+		try {
+			while (queue.take() != END) {
+				// discard
+			}
+		} catch (InterruptedException e) {
+			return;
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		checkOpen();
+		while (len > 0) {
+			int n = Math.min(len, batchSize - batchLen);
+			System.arraycopy(cbuf, off, batch, batchLen, n);
+			batchLen += n;
+			off += n;
+			len -= n;
+			if (batchLen == batchSize) {
+				submitBatch();
+			}
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		checkOpen();
+		while (len > 0) {
+			int n = Math.min(len, batchSize - batchLen);
+			str.getChars(off, off + n, batch, batchLen);
+			batchLen += n;
+			off += n;
+			len -= n;
+			if (batchLen == batchSize) {
+				submitBatch();
+			}
+		}
+	}
+
+	/**
+	 * Hands the current (partial) batch to the writing thread. Doesn't wait
+	 * for the data to be written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		submitPartial();
+	}
+
+	/**
+	 * Passes the filled part of the current batch to the writing thread
+	 */
+	private void submitPartial() {
+		if (batchLen > 0) {
+			char[] b = new char[batchLen];
+			System.arraycopy(batch, 0, b, 0, batchLen);
+			batchLen = 0;
+			put(b);
+		}
+	}
+
+	/**
+	 * Writes all the remaining data, waits for the writing thread to finish
+	 * and closes the target writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		submitPartial();
+		closed = true;
+		put(END);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		target.close();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Passes the full batch to the writing thread and starts a new one
+	 */
+	private void submitBatch() {
+		put(batch);
+		batch = free.poll();
+		if (batch == null) {
+			batch = new char[batchSize];
+		}
+		batchLen = 0;
+	}
+
+	/**
+	 * Puts a batch to the queue, waiting for space if needed
+	 */
+	private void put(char[] b) {
+		try {
+			queue.put(b);
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for report output");
+		}
+	}
+
+	/**
+	 * Checks that the writer is open and no errors have occurred
+	 */
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Binary columnar event log created by {@link BinaryEventLogReport} and
+ * read by {@link EventLogAnalyzer}. The events are stored in blocks of at
+ * most {@value #BLOCK_SIZE} events and every block is memory mapped
+ * separately, so the blocks can be scanned in parallel and the log size is
+ * not limited by the maximum size of a single mapping.
+ * </P><P>
+ * File format (all values big-endian): magic number and format version
+ * (ints) followed by the blocks. A block starts with the number of events
+ * in the block (N, int) and then has the columns: N times (doubles), N
+ * actions (bytes, see the <code>ACTION_</code> constants), N first host
+ * addresses, second host addresses (-1 if none), message indexes (-1 if
+ * none) and message hop counts (ints) and N message receive times
+ * (doubles). After the last block comes the table section: -1 (int),
+ * end time of the simulation (double), number of hosts and host names
+ * indexed by address, number of messages and, for each message index,
+ * message ID, message flags (byte, see <code>FLAG_</code> constants) and
+ * index of the request message (int, -1 if none). Finally, the offset
+ * of the table section (long).
+ * </P>
+ */
+public class BinaryEventLog {
+	/** Extension of binary event log files */
+	public static final String EXT = ".bel";
+	/** Magic number in the beginning of the files */
+	public static final int MAGIC = 0x4f4e454c; // "ONEL"
+	/** Version of the file format */
+	public static final int VERSION = 1;
+	/** Maximum number of events in a block */
+	public static final int BLOCK_SIZE = 64 * 1024;
+	/** Size of the file header (bytes) */
+	public static final int HEADER_SIZE = 8;
+	/** Size of one event in a block (bytes) */
+	public static final int EVENT_SIZE = 8 + 1 + 4 + 4 + 4 + 4 + 8;
+
+	/** Action code for connection up */
+	public static final byte ACTION_CONN_UP = 0;
+	/** Action code for connection down */
+	public static final byte ACTION_CONN_DOWN = 1;
+	/** Action code for message creation */
+	public static final byte ACTION_CREATE = 2;
+	/** Action code for message transfer start */
+	public static final byte ACTION_SEND = 3;
+	/** Action code for aborted message transfer */
+	public static final byte ACTION_ABORT = 4;
+	/** Action code for message relayed to a non-destination host */
+	public static final byte ACTION_RELAYED = 5;
+	/** Action code for first delivery of a message to its destination */
+	public static final byte ACTION_DELIVERED = 6;
+	/** Action code for a message delivered to its destination again */
+	public static final byte ACTION_DELIVERED_AGAIN = 7;
+	/** Action code for message drop */
+	public static final byte ACTION_DROP = 8;
+	/** Action code for message removal */
+	public static final byte ACTION_REMOVE = 9;
+	/** Action code for message relayed to a non-destination host whose
+	 * application dropped it (the host doesn't buffer the message) */
+	public static final byte ACTION_RELAY_DISCARDED = 10;
+
+	/** Message flag for messages that request a response */
+	public static final byte FLAG_RESPONSE_REQUESTED = 1;
+	/** Message flag for response messages */
+	public static final byte FLAG_RESPONSE = 2;
+
+	private List<Block> blocks;
+	private long nrofEvents;
+	private double endTime;
+	private String[] hostNames;
+	private String[] messageIds;
+	private byte[] messageFlags;
+	private int[] requestIndexes;
+
+	/**
+	 * Opens a binary event log file and maps its blocks to memory
+	 * @param file The log file
+	 */
+	public BinaryEventLog(File file) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, HEADER_SIZE);
+			if (size < HEADER_SIZE + 12 || header.getInt() != MAGIC ||
+					header.getInt() != VERSION) {
+				throw new SimError("Invalid binary event log file " +
+						file.getAbsolutePath());
+			}
+			long tableOffset = channel.map(FileChannel.MapMode.READ_ONLY,
+					size - 8, 8).getLong();
+
+			this.blocks = new ArrayList<Block>();
+			this.nrofEvents = 0;
+			long offset = HEADER_SIZE;
+			while (offset < tableOffset) {
+				int n = channel.map(FileChannel.MapMode.READ_ONLY,
+						offset, 4).getInt();
+				MappedByteBuffer data = channel.map(
+						FileChannel.MapMode.READ_ONLY, offset + 4,
+						(long)n * EVENT_SIZE);
+				blocks.add(new Block(data, n, nrofEvents));
+				nrofEvents += n;
+				offset += 4 + (long)n * EVENT_SIZE;
+			}
+
+			channel.position(tableOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel)));
+			if (in.readInt() != -1) {
+				throw new SimError("Invalid table section in binary event " +
+						"log file " + file.getAbsolutePath());
+			}
+			this.endTime = in.readDouble();
+			this.hostNames = new String[in.readInt()];
+			for (int i=0; i<hostNames.length; i++) {
+				hostNames[i] = in.readUTF();
+			}
+			int nrofMessages = in.readInt();
+			this.messageIds = new String[nrofMessages];
+			this.messageFlags = new byte[nrofMessages];
+			this.requestIndexes = new int[nrofMessages];
+			for (int i=0; i<nrofMessages; i++) {
+				messageIds[i] = in.readUTF();
+				messageFlags[i] = in.readByte();
+				requestIndexes[i] = in.readInt();
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't read binary event log file " +
+					file.getAbsolutePath(), e);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close(); // mapped buffers stay valid after closing
+				} catch (IOException e) {}
+			}
+		}
+	}
+
+	/**
+	 * Returns the blocks of the log in order
+	 * @return the blocks of the log
+	 */
+	public List<Block> getBlocks() {
+		return this.blocks;
+	}
+
+	/**
+	 * Returns the total number of events in the log
+	 * @return the total number of events in the log
+	 */
+	public long getNrofEvents() {
+		return this.nrofEvents;
+	}
+
+	/**
+	 * Returns the simulation time when the log was finished
+	 * @return the simulation time when the log was finished
+	 */
+	public double getEndTime() {
+		return this.endTime;
+	}
+
+	/**
+	 * Returns the number of hosts in the host name table
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.hostNames.length;
+	}
+
+	/**
+	 * Returns the name of a host
+	 * @param address Address of the host
+	 * @return the name of the host
+	 */
+	public String getHostName(int address) {
+		return this.hostNames[address];
+	}
+
+	/**
+	 * Returns the number of messages in the message table
+	 * @return the number of messages
+	 */
+	public int getNrofMessages() {
+		return this.messageIds.length;
+	}
+
+	/**
+	 * Returns the ID of a message
+	 * @param index Index of the message
+	 * @return the ID of the message
+	 */
+	public String getMessageId(int index) {
+		return this.messageIds[index];
+	}
+
+	/**
+	 * Returns the flags of a message
+	 * @param index Index of the message
+	 * @return the flags of the message (<code>FLAG_</code> constants ORed)
+	 */
+	public byte getMessageFlags(int index) {
+		return this.messageFlags[index];
+	}
+
+	/**
+	 * Returns the index of the request message of a response message
+	 * @param index Index of the response message
+	 * @return Index of the request message or -1 if the message is not
+	 * a response
+	 */
+	public int getRequestIndex(int index) {
+		return this.requestIndexes[index];
+	}
+
+	/**
+	 * A block of events. Values are read directly from the mapped column
+	 * data. Blocks can be read concurrently by different threads.
+	 */
+	public static class Block {
+		private final ByteBuffer data;
+		private final int size;
+		private final long firstEvent;
+		private final int actionsOffset;
+		private final int hosts1Offset;
+		private final int hosts2Offset;
+		private final int messagesOffset;
+		private final int hopsOffset;
+		private final int recvTimesOffset;
+
+		private Block(ByteBuffer data, int size, long firstEvent) {
+			this.data = data;
+			this.size = size;
+			this.firstEvent = firstEvent;
+			this.actionsOffset = size * 8;
+			this.hosts1Offset = actionsOffset + size;
+			this.hosts2Offset = hosts1Offset + size * 4;
+			this.messagesOffset = hosts2Offset + size * 4;
+			this.hopsOffset = messagesOffset + size * 4;
+			this.recvTimesOffset = hopsOffset + size * 4;
+		}
+
+		/**
+		 * Returns the number of events in this block
+		 * @return the number of events in this block
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Returns the index of the first event of this block in the log
+		 * @return the index of the first event of this block in the log
+		 */
+		public long getFirstEvent() {
+			return this.firstEvent;
+		}
+
+		/** Returns the time of the i:th event of the block */
+		public double getTime(int i) {
+			return data.getDouble(i * 8);
+		}
+
+		/** Returns the action code of the i:th event of the block */
+		public byte getAction(int i) {
+			return data.get(actionsOffset + i);
+		}
+
+		/** Returns the first host's address of the i:th event */
+		public int getHost1(int i) {
+			return data.getInt(hosts1Offset + i * 4);
+		}
+
+		/** Returns the second host's address (or -1) of the i:th event */
+		public int getHost2(int i) {
+			return data.getInt(hosts2Offset + i * 4);
+		}
+
+		/** Returns the message index (or -1) of the i:th event */
+		public int getMessage(int i) {
+			return data.getInt(messagesOffset + i * 4);
+		}
+
+		/** Returns the message hop count of the i:th event */
+		public int getHopCount(int i) {
+			return data.getInt(hopsOffset + i * 4);
+		}
+
+		/** Returns the message receive time of the i:th event */
+		public double getReceiveTime(int i) {
+			return data.getDouble(recvTimesOffset + i * 8);
+		}
+	}
+}
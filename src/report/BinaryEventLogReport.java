@@ -0,0 +1,274 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.DTNHost;
+import core.EventBatch;
+import core.EventBatchListener;
+import core.Message;
+import core.SimError;
+
+/**
+ * Report that logs the same events as {@link EventLogReport} but in a
+ * binary columnar format (see {@link BinaryEventLog}) that can be analyzed
+ * quickly with {@link EventLogAnalyzer}. If no output file is defined, the
+ * default output file name ends with {@value BinaryEventLog#EXT}. Doesn't
+ * support intervalled reports or compressed output. The events are received
+ * in batches from the {@link core.EventBus}, so the log can be written in
+ * the report's own thread (see {@link Report#EVENT_THREAD_S}).
+ */
+public class BinaryEventLogReport extends Report
+	implements EventBatchListener {
+
+	private DataOutputStream binOut;
+	private String binFileName;
+	/** number of bytes written to the file */
+	private long written;
+
+	/* columns of the current block */
+	private double[] times;
+	private byte[] actions;
+	private int[] hosts1;
+	private int[] hosts2;
+	private int[] messages;
+	private int[] hopCounts;
+	private double[] recvTimes;
+	private int blockSize;
+
+	/* the message table */
+	private Map<String, Integer> messageIndexes;
+	private List<String> messageIds;
+	private List<Byte> messageFlags;
+	private List<Integer> requestIndexes;
+	private List<String> hostNames;
+
+	/**
+	 * Constructor.
+	 */
+	public BinaryEventLogReport() {
+		String name = getOutputFileName();
+		if (name.endsWith(OUT_SUFFIX)) {
+			name = name.substring(0, name.length() - OUT_SUFFIX.length()) +
+				BinaryEventLog.EXT;
+		}
+		this.binFileName = name;
+
+		int n = BinaryEventLog.BLOCK_SIZE;
+		this.times = new double[n];
+		this.actions = new byte[n];
+		this.hosts1 = new int[n];
+		this.hosts2 = new int[n];
+		this.messages = new int[n];
+		this.hopCounts = new int[n];
+		this.recvTimes = new double[n];
+		this.blockSize = 0;
+
+		this.messageIndexes = new HashMap<String, Integer>();
+		this.messageIds = new ArrayList<String>();
+		this.messageFlags = new ArrayList<Byte>();
+		this.requestIndexes = new ArrayList<Integer>();
+		this.hostNames = new ArrayList<String>();
+
+		try {
+			this.binOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(binFileName), OUTPUT_BUFFER_SIZE));
+			binOut.writeInt(BinaryEventLog.MAGIC);
+			binOut.writeInt(BinaryEventLog.VERSION);
+			this.written = BinaryEventLog.HEADER_SIZE;
+		} catch (IOException e) {
+			throw new SimError("Couldn't open file '" + binFileName +
+					"' for report output\n" + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Adds an event of a batch to the current block and writes the block
+	 * if it's full
+	 * @param action Action code of the event
+	 * @param events The batch
+	 * @param e Index of the event in the batch
+	 */
+	private void addEvent(byte action, EventBatch events, int e) {
+		int i = blockSize;
+		Message m = events.getMessage(e);
+		times[i] = events.getTime(e);
+		actions[i] = action;
+		hosts1[i] = hostAddress(events.getHost1(e));
+		hosts2[i] = hostAddress(events.getHost2(e));
+		if (m != null) {
+			messages[i] = messageIndex(m);
+			hopCounts[i] = events.getHopCount(e);
+			recvTimes[i] = events.getReceiveTime(e);
+		}
+		else {
+			messages[i] = -1;
+			hopCounts[i] = 0;
+			recvTimes[i] = 0;
+		}
+
+		if (++blockSize == times.length) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Returns the address of a host and stores its name to the host table
+	 * @param host The host (or null)
+	 * @return Address of the host or -1 for null
+	 */
+	private int hostAddress(DTNHost host) {
+		if (host == null) {
+			return -1;
+		}
+		int address = host.getAddress();
+		while (hostNames.size() <= address) {
+			hostNames.add("");
+		}
+		if (hostNames.get(address).length() == 0) {
+			hostNames.set(address, host.toString());
+		}
+		return address;
+	}
+
+	/**
+	 * Returns the index of a message, adding it to the message table if it
+	 * wasn't there yet
+	 * @param m The message
+	 * @return Index of the message
+	 */
+	private int messageIndex(Message m) {
+		Integer index = messageIndexes.get(m.getId());
+		if (index == null) {
+			int request = -1;
+			if (m.getRequest() != null) {
+				request = messageIndex(m.getRequest());
+			}
+			byte flags = 0;
+			if (m.getResponseSize() > 0) {
+				flags |= BinaryEventLog.FLAG_RESPONSE_REQUESTED;
+			}
+			if (m.isResponse()) {
+				flags |= BinaryEventLog.FLAG_RESPONSE;
+			}
+
+			index = messageIds.size();
+			messageIndexes.put(m.getId(), index);
+			messageIds.add(m.getId());
+			messageFlags.add(flags);
+			requestIndexes.add(request);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the events of the current block to the file
+	 */
+	private void writeBlock() {
+		int n = blockSize;
+		if (n == 0) {
+			return;
+		}
+
+		try {
+			binOut.writeInt(n);
+			for (int i=0; i<n; i++) {
+				binOut.writeDouble(times[i]);
+			}
+			binOut.write(actions, 0, n);
+			writeInts(hosts1, n);
+			writeInts(hosts2, n);
+			writeInts(messages, n);
+			writeInts(hopCounts, n);
+			for (int i=0; i<n; i++) {
+				binOut.writeDouble(recvTimes[i]);
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't write to '" + binFileName + "'", e);
+		}
+
+		written += 4 + (long)n * BinaryEventLog.EVENT_SIZE;
+		blockSize = 0;
+	}
+
+	private void writeInts(int[] values, int n) throws IOException {
+		for (int i=0; i<n; i++) {
+			binOut.writeInt(values[i]);
+		}
+	}
+
+	public void eventsDispatched(EventBatch events) {
+		for (int i=0, n=events.size(); i<n; i++) {
+			byte action;
+			switch (events.getType(i)) {
+			case EventBatch.CONN_UP:
+				action = BinaryEventLog.ACTION_CONN_UP;
+				break;
+			case EventBatch.CONN_DOWN:
+				action = BinaryEventLog.ACTION_CONN_DOWN;
+				break;
+			case EventBatch.MSG_CREATED:
+				action = BinaryEventLog.ACTION_CREATE;
+				break;
+			case EventBatch.MSG_STARTED:
+				action = BinaryEventLog.ACTION_SEND;
+				break;
+			case EventBatch.MSG_ABORTED:
+				action = BinaryEventLog.ACTION_ABORT;
+				break;
+			case EventBatch.MSG_TRANSFERRED:
+				if (events.isFirstDelivery(i)) {
+					action = BinaryEventLog.ACTION_DELIVERED;
+				}
+				else if (events.getHost2(i) == events.getMessage(i).getTo()) {
+					action = BinaryEventLog.ACTION_DELIVERED_AGAIN;
+				}
+				else if (events.isBuffered(i)) {
+					action = BinaryEventLog.ACTION_RELAYED;
+				}
+				else { // an application of the receiver dropped it
+					action = BinaryEventLog.ACTION_RELAY_DISCARDED;
+				}
+				break;
+			default: // MSG_DELETED
+				action = events.isDropped(i) ? BinaryEventLog.ACTION_DROP :
+					BinaryEventLog.ACTION_REMOVE;
+			}
+			addEvent(action, events, i);
+		}
+	}
+
+	@Override
+	public void done() {
+		writeBlock();
+		try {
+			binOut.writeInt(-1);
+			binOut.writeDouble(getSimTime());
+			binOut.writeInt(hostNames.size());
+			for (String name : hostNames) {
+				binOut.writeUTF(name);
+			}
+			binOut.writeInt(messageIds.size());
+			for (int i=0, n=messageIds.size(); i<n; i++) {
+				binOut.writeUTF(messageIds.get(i));
+				binOut.writeByte(messageFlags.get(i));
+				binOut.writeInt(requestIndexes.get(i));
+			}
+			binOut.writeLong(written);
+			binOut.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't write to '" + binFileName + "'", e);
+		}
+		super.done();
+	}
+}
@@ -49,7 +49,7 @@ public class ConnectivityDtnsim2Report extends Report
 	 * @return time stamp of the current simulation time
 	 */
 	private String createTimeStamp() {
-		return String.format("@%.2f", getSimTime());
+		return "@" + NumberFormatter.format(getSimTime(), 2);
 	}
 
 	/**
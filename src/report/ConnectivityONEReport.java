@@ -47,7 +47,7 @@ public class ConnectivityONEReport extends Report
 	 * @return time stamp of the current simulation time
 	 */
 	private String createTimeStamp() {
-		return String.format("%.2f", getSimTime());
+		return NumberFormatter.format(getSimTime(), 2);
 	}
 
 	/**
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+/**
+ * Interface for reports that read the contact state from a
+ * {@link ContactTracker}. The user interface gives all these reports the
+ * same tracker and registers it as a connection listener before the
+ * reports. A report that isn't given a tracker keeps its own one and
+ * forwards its connection events to it.
+ */
+public interface ContactReport {
+
+	/**
+	 * Sets the shared tracker the report reads the contact state from.
+	 * The report doesn't forward its connection events to this tracker.
+	 * @param tracker The tracker
+	 */
+	public void setContactTracker(ContactTracker tracker);
+
+}
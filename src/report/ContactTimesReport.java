@@ -4,7 +4,6 @@
  */
 package report;
 
-import java.util.HashMap;
 import java.util.Vector;
 
 import core.ConnectionListener;
@@ -15,11 +14,20 @@ import core.Settings;
  * Reports the node contact time (i.e., how long they were in the range
  * of each other) distribution. Report file contains the count of connections
  * that lasted for certain amount of time. Syntax:<br>
- * <code>time nrofContacts</code>
+ * <code>time nrofContacts</code>. A contact lasts from the moment the first
+ * connection between two hosts goes up until the last connection between
+ * them goes down (see {@link ContactTracker}). Contacts that started during
+ * the warm up period are ignored.
  */
-public class ContactTimesReport extends Report implements ConnectionListener {
-	protected HashMap<ConnectionInfo, ConnectionInfo> connections;
+public class ContactTimesReport extends Report implements ConnectionListener,
+		ContactReport {
+	/** The contact state */
+	protected ContactTracker contacts;
+	/** Is the tracker this report's own (and not the shared one) */
+	private boolean ownTracker;
 	private Vector<Integer> nrofContacts;
+	/** Contacts started (or ended) before this time are ignored */
+	protected double countFrom;
 
 	/** Granularity -setting id ({@value}). Defines how many simulated seconds
 	 * are grouped in one reported interval. */
@@ -39,48 +47,75 @@ public class ContactTimesReport extends Report implements ConnectionListener {
 			this.granularity = 1.0;
 		}
 
+		this.contacts = new ContactTracker();
+		this.ownTracker = true;
 		init();
 	}
 
+	public void setContactTracker(ContactTracker tracker) {
+		this.contacts = tracker;
+		this.ownTracker = false;
+	}
+
 	@Override
 	protected void init() {
 		super.init();
-		this.connections = new HashMap<ConnectionInfo,ConnectionInfo>();
+		this.countFrom = Math.max(getSimTime(), this.warmupTime);
 		this.nrofContacts = new Vector<Integer>();
 	}
 
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		if (isWarmup()) {
-			return;
-		}
-		addConnection(host1, host2);
+		trackConnected(host1, host2);
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		trackDisconnected(host1, host2);
 		newEvent();
-		ConnectionInfo ci = removeConnection(host1, host2);
-
-		if (ci == null) {
-			return; /* the connection was started during the warm up period */
+		double time = getEndedContactTime(host1, host2);
+		if (time >= 0) {
+			increaseTimeCount(time);
 		}
-
-		ci.connectionEnd();
-		increaseTimeCount(ci.getConnectionTime());
 	}
 
-	protected void addConnection(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = new ConnectionInfo(host1, host2);
-
-		assert !connections.containsKey(ci) : "Already contained "+
-			" a connection of " + host1 + " and " + host2;
+	/**
+	 * Forwards a connection up event to the report's own tracker. The
+	 * shared tracker has already handled the event.
+	 * @param host1 Host that initiated the connection
+	 * @param host2 Host that was connected to
+	 */
+	protected void trackConnected(DTNHost host1, DTNHost host2) {
+		if (ownTracker) {
+			contacts.hostsConnected(host1, host2);
+		}
+	}
 
-		connections.put(ci,ci);
+	/**
+	 * Forwards a connection down event to the report's own tracker. The
+	 * shared tracker has already handled the event.
+	 * @param host1 Host that initiated the disconnection
+	 * @param host2 Host at the other end of the connection
+	 */
+	protected void trackDisconnected(DTNHost host1, DTNHost host2) {
+		if (ownTracker) {
+			contacts.hostsDisconnected(host1, host2);
+		}
 	}
 
-	protected ConnectionInfo removeConnection(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = new ConnectionInfo(host1, host2);
-		ci = connections.remove(ci);
-		return ci;
+	/**
+	 * Returns the duration of a contact that has just ended
+	 * @param host1 The first host of the contact
+	 * @param host2 The second host of the contact
+	 * @return The duration of the contact or -1 if the contact hasn't ended
+	 * (some connection is still up) or it started before the contact
+	 * counting started (e.g. during the warm up period)
+	 */
+	protected double getEndedContactTime(DTNHost host1, DTNHost host2) {
+		int c = contacts.getContact(host1, host2);
+		if (c < 0 || contacts.isInContact(c) ||
+				contacts.getStartTime(c) < this.countFrom) {
+			return -1;
+		}
+		return contacts.getEndTime(c) - contacts.getStartTime(c);
 	}
 
 	/**
@@ -119,95 +154,4 @@ public class ContactTimesReport extends Report implements ConnectionListener {
 
 		super.done();
 	}
-
-
-	/**
-	 * Objects of this class store time information about contacts.
-	 */
-	protected class ConnectionInfo {
-		private double startTime;
-		private double endTime;
-		private DTNHost h1;
-		private DTNHost h2;
-
-		public ConnectionInfo (DTNHost h1, DTNHost h2){
-			this.h1 = h1;
-			this.h2 = h2;
-			this.startTime = getSimTime();
-			this.endTime = -1;
-		}
-
-		/**
-		 * Should be called when the connection ended to record the time.
-		 * Otherwise {@link #getConnectionTime()} will use end time as
-		 * the time of the request.
-		 */
-		public void connectionEnd() {
-			this.endTime = getSimTime();
-		}
-
-		/**
-		 * Returns the time that passed between creation of this info
-		 * and call to {@link #connectionEnd()}. Unless connectionEnd() is
-		 * called, the difference between start time and current sim time
-		 * is returned.
-		 * @return The amount of simulated seconds passed between creation of
-		 * this info and calling connectionEnd()
-		 */
-		public double getConnectionTime() {
-			if (this.endTime == -1) {
-				return getSimTime() - this.startTime;
-			}
-			else {
-				return this.endTime - this.startTime;
-			}
-		}
-
-		/**
-		 * Returns true if the other connection info contains the same hosts.
-		 */
-		public boolean equals(Object other) {
-			if (!(other instanceof ConnectionInfo)) {
-				return false;
-			}
-
-			ConnectionInfo ci = (ConnectionInfo)other;
-
-			if ((h1 == ci.h1 && h2 == ci.h2)) {
-				return true;
-			}
-			else if ((h1 == ci.h2 && h2 == ci.h1)) {
-				// bidirectional connection the other way
-				return true;
-			}
-			return false;
-		}
-
-		/**
-		 * Returns the same hash for ConnectionInfos that have the
-		 * same two hosts.
-		 * @return Hash code
-		 */
-		public int hashCode() {
-			String hostString;
-
-			if (this.h1.compareTo(this.h2) < 0) {
-				hostString = h1.toString() + "-" + h2.toString();
-			}
-			else {
-				hostString = h2.toString() + "-" + h1.toString();
-			}
-
-			return hostString.hashCode();
-		}
-
-		/**
-		 * Returns a string representation of the info object
-		 * @return a string representation of the info object
-		 */
-		public String toString() {
-			return this.h1 + "<->" + this.h2 + " [" + this.startTime
-				+"-"+ (this.endTime >0 ? this.endTime : "n/a") + "]";
-		}
-	}
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+import core.ConnectionListener;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * <P>
+ * Contact state of the reports that are interested in contacts
+ * (see {@link ContactReport}). A contact between two hosts
+ * starts when the first connection between them goes up and ends when the
+ * last connection between them goes down. The tracker keeps, for every host
+ * pair that has been in contact, the start time of the current (or latest)
+ * contact, the end time of the latest finished contact and the number of
+ * contacts. Pairs are indexed with {@link HostPairIndex} so only the pairs
+ * that have met take memory.
+ * </P><P>
+ * The user interface creates one tracker for all contact reports and
+ * registers it as a connection listener before the reports, so a report
+ * sees the state after the event when it gets the event.
+ * </P>
+ */
+public class ContactTracker implements ConnectionListener {
+	/** Value of end time when the pair has no finished contacts */
+	public static final double NO_END = -1;
+
+	private HostPairIndex pairs;
+	private double[] startTimes;
+	private double[] endTimes;
+	private int[] nrofLinks;
+	private int[] nrofContacts;
+
+	/** entries of the pairs that are currently in contact */
+	private int[] current;
+	/** positions of the entries in the current array (or -1) */
+	private int[] currentPos;
+	private int nrofCurrent;
+
+	/** hosts indexed by address */
+	private DTNHost[] hosts;
+
+	/**
+	 * Constructor.
+	 */
+	public ContactTracker() {
+		int n = 64;
+		this.pairs = new HostPairIndex();
+		this.startTimes = new double[n];
+		this.endTimes = new double[n];
+		this.nrofLinks = new int[n];
+		this.nrofContacts = new int[n];
+		this.currentPos = new int[n];
+		this.current = new int[n];
+		this.nrofCurrent = 0;
+		this.hosts = new DTNHost[n];
+	}
+
+	/**
+	 * Starts a contact if this is the first connection between the hosts
+	 * @param host1 Host that initiated the connection
+	 * @param host2 Host that was connected to
+	 */
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		int c = pairs.add(host1, host2);
+		if (c == startTimes.length) {
+			growPairs();
+		}
+		addHost(host1);
+		addHost(host2);
+
+		if (nrofLinks[c]++ > 0) {
+			return; // another connection is already up
+		}
+		if (nrofContacts[c] == 0) {
+			endTimes[c] = NO_END;
+		}
+		nrofContacts[c]++;
+		startTimes[c] = SimClock.getTime();
+		currentPos[c] = nrofCurrent;
+		current[nrofCurrent++] = c;
+	}
+
+	/**
+	 * Ends the contact if this was the last connection between the hosts
+	 * @param host1 Host that initiated the disconnection
+	 * @param host2 Host at the other end of the connection
+	 */
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		int c = pairs.get(host1, host2);
+		if (c < 0 || nrofLinks[c] == 0 || --nrofLinks[c] > 0) {
+			return; // not in contact or some connection is still up
+		}
+		endTimes[c] = SimClock.getTime();
+
+		/* move the last current contact to the removed one's place */
+		int pos = currentPos[c];
+		int last = current[--nrofCurrent];
+		current[pos] = last;
+		currentPos[last] = pos;
+	}
+
+	private void growPairs() {
+		int n = startTimes.length * 2;
+		startTimes = Arrays.copyOf(startTimes, n);
+		endTimes = Arrays.copyOf(endTimes, n);
+		nrofLinks = Arrays.copyOf(nrofLinks, n);
+		nrofContacts = Arrays.copyOf(nrofContacts, n);
+		currentPos = Arrays.copyOf(currentPos, n);
+		current = Arrays.copyOf(current, n);
+	}
+
+	private void addHost(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= hosts.length) {
+			int n = Math.max(hosts.length * 2, address + 1);
+			hosts = Arrays.copyOf(hosts, n);
+		}
+		hosts[address] = host;
+	}
+
+	/**
+	 * Returns the contact entry of a host pair
+	 * @param h1 The first host
+	 * @param h2 The second host
+	 * @return The entry or -1 if the hosts haven't been in contact
+	 */
+	public int getContact(DTNHost h1, DTNHost h2) {
+		return pairs.get(h1, h2);
+	}
+
+	/**
+	 * Returns the number of host pairs that have been in contact. The
+	 * contact entries are numbered from 0 to this value - 1.
+	 * @return The number of host pairs that have been in contact
+	 */
+	public int getNrofPairs() {
+		return pairs.size();
+	}
+
+	/**
+	 * Returns the pair key (see {@link HostPairIndex#key(int, int)}) of a
+	 * contact entry
+	 * @param c The contact entry
+	 * @return The pair key
+	 */
+	public long getKey(int c) {
+		return pairs.getKey(c);
+	}
+
+	/**
+	 * Returns true if the hosts of a contact entry are currently in contact
+	 * @param c The contact entry
+	 * @return true if the hosts are in contact
+	 */
+	public boolean isInContact(int c) {
+		return nrofLinks[c] > 0;
+	}
+
+	/**
+	 * Returns the number of connections that are currently up between the
+	 * hosts of a contact entry. After a connection up event, a value of 1
+	 * means that the event started a new contact.
+	 * @param c The contact entry
+	 * @return The number of connections
+	 */
+	public int getNrofConnections(int c) {
+		return nrofLinks[c];
+	}
+
+	/**
+	 * Returns the start time of the current or latest contact of an entry
+	 * @param c The contact entry
+	 * @return The start time
+	 */
+	public double getStartTime(int c) {
+		return startTimes[c];
+	}
+
+	/**
+	 * Returns the end time of the latest finished contact of an entry.
+	 * While a contact is up, this is the end time of the previous contact.
+	 * @param c The contact entry
+	 * @return The end time or {@link #NO_END} if no contact has finished
+	 */
+	public double getEndTime(int c) {
+		return endTimes[c];
+	}
+
+	/**
+	 * Returns the number of contacts of an entry
+	 * @param c The contact entry
+	 * @return The number of contacts
+	 */
+	public int getNrofContacts(int c) {
+		return nrofContacts[c];
+	}
+
+	/**
+	 * Returns the number of host pairs that are currently in contact
+	 * @return The number of current contacts
+	 */
+	public int getNrofCurrentContacts() {
+		return nrofCurrent;
+	}
+
+	/**
+	 * Returns the entry of a current contact
+	 * @param i Index of the current contact (0 &lt;= i &lt;
+	 * {@link #getNrofCurrentContacts()})
+	 * @return The contact entry
+	 */
+	public int getCurrentContact(int i) {
+		return current[i];
+	}
+
+	/**
+	 * Returns a host that has been in contact with some other host
+	 * @param address Address of the host
+	 * @return The host or null if the host hasn't been in any contact
+	 */
+	public DTNHost getHost(int address) {
+		return address < hosts.length ? hosts[address] : null;
+	}
+}
@@ -16,7 +16,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class EncountersVSUniqueEncountersReport extends Report
-	implements ConnectionListener, UpdateListener {
+	implements ConnectionListener, UpdateListener, ContactReport {
 
 	private TotalEncountersReport totalEncountersReport;
 	private UniqueEncountersReport uniqueEncountersReport;
@@ -26,6 +26,10 @@ public class EncountersVSUniqueEncountersReport extends Report
 		uniqueEncountersReport = new UniqueEncountersReport();
 	}
 
+	public void setContactTracker(ContactTracker tracker) {
+		uniqueEncountersReport.setContactTracker(tracker);
+	}
+
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		totalEncountersReport.hostsConnected(host1, host2);
 		uniqueEncountersReport.hostsConnected(host1, host2);
@@ -44,20 +48,13 @@ public class EncountersVSUniqueEncountersReport extends Report
 	@Override
 	public void done() {
 		int[] totalEncounters = totalEncountersReport.getEncounters();
-		int[][] nodeRelationships = uniqueEncountersReport.getNodeRelationships();
+		int[] uniqueEncounters = uniqueEncountersReport.getUniqueEncounters();
 
 		for (int i=0; i<totalEncounters.length; i++) {
 			String row = "";
 			row += i + "\t";
 			row += totalEncounters[i] + "\t";
-
-			int count = 0;
-			for (int j=0; j<nodeRelationships.length; j++) {
-				if (nodeRelationships[i][j] > 0) {
-					count++;
-				}
-			}
-			row += count;
+			row += uniqueEncounters[i];
 			write(row);
 		}
 
@@ -0,0 +1,654 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Command line analysis tool for binary event logs created by
+ * {@link BinaryEventLogReport}. Replaces the text processing toolkit
+ * scripts for the most common statistics:
+ * </P>
+ * <UL>
+ * <LI><TT>stats</TT> computes the same statistics as
+ * {@link MessageStatsReport} (like <TT>getStats.pl</TT> does from the
+ * report files). The blocks of the log are scanned in parallel.</LI>
+ * <LI><TT>copies</TT> computes the number of messages and the median and
+ * percentiles of their copy counts at regular intervals (like
+ * <TT>messageCopyCountAnalyzer.pl</TT> does from
+ * {@link MessageCopyCountReport} output).</LI>
+ * <LI><TT>ccdf</TT> computes the (complementary) cumulative distribution
+ * of delivery latencies (the data <TT>ccdfPlotter.pl</TT> creates for
+ * gnuplot; plotting is left to gnuplot).</LI>
+ * </UL>
+ * <P>
+ * <TT>getAverages.pl</TT> averages any time stamped report files, not
+ * event logs, so it has no counterpart here.
+ * </P>
+ * <P>
+ * Usage:<BR>
+ * <TT>java -cp target report.EventLogAnalyzer stats [-stat &lt;name&gt;]
+ * [-warmup &lt;seconds&gt;] [-precision &lt;decimals&gt;]
+ * [-threads &lt;count&gt;] logFiles...</TT><BR>
+ * <TT>java -cp target report.EventLogAnalyzer copies
+ * [-interval &lt;seconds&gt;] [-perc &lt;percentile&gt;]
+ * [-warmup &lt;seconds&gt;] logFile</TT><BR>
+ * <TT>java -cp target report.EventLogAnalyzer ccdf [-comp]
+ * [-warmup &lt;seconds&gt;] [-precision &lt;decimals&gt;] logFile</TT>
+ * </P>
+ */
+public class EventLogAnalyzer {
+	/** Default interval of copy count samples (seconds) */
+	public static final double DEF_INTERVAL = 100;
+	/** Default percentile shown for copy counts */
+	public static final int DEF_PERCENTILE = 10;
+
+	private int nrofThreads;
+	private double warmup;
+	private int precision;
+
+	/**
+	 * Constructor.
+	 * @param nrofThreads Number of threads used for scanning
+	 * @param warmup Messages created before this time are not included in
+	 * the statistics
+	 * @param precision Number of decimals in the formatted values
+	 */
+	public EventLogAnalyzer(int nrofThreads, double warmup, int precision) {
+		this.nrofThreads = Math.max(nrofThreads, 1);
+		this.warmup = warmup;
+		this.precision = precision;
+	}
+
+	/**
+	 * Statistics collected from a set of events. Corresponds to the values
+	 * collected by {@link MessageStatsReport}.
+	 */
+	public static class MessageStats {
+		private int nrofDropped;
+		private int nrofRemoved;
+		private int nrofStarted;
+		private int nrofAborted;
+		private int nrofRelayed;
+		private int nrofCreated;
+		private int nrofResponseReqCreated;
+		private int nrofResponseDelivered;
+		private int nrofDelivered;
+		private DoubleList latencies = new DoubleList();
+		private DoubleList hopCounts = new DoubleList();
+		private DoubleList bufferTimes = new DoubleList();
+		private DoubleList rtt = new DoubleList();
+		private double endTime;
+
+		/**
+		 * Adds the values of other statistics to these statistics. The
+		 * value lists of the other statistics are appended to the lists of
+		 * these statistics.
+		 * @param s The statistics to add
+		 */
+		public void add(MessageStats s) {
+			nrofDropped += s.nrofDropped;
+			nrofRemoved += s.nrofRemoved;
+			nrofStarted += s.nrofStarted;
+			nrofAborted += s.nrofAborted;
+			nrofRelayed += s.nrofRelayed;
+			nrofCreated += s.nrofCreated;
+			nrofResponseReqCreated += s.nrofResponseReqCreated;
+			nrofResponseDelivered += s.nrofResponseDelivered;
+			nrofDelivered += s.nrofDelivered;
+			latencies.addAll(s.latencies);
+			hopCounts.addAll(s.hopCounts);
+			bufferTimes.addAll(s.bufferTimes);
+			rtt.addAll(s.rtt);
+		}
+
+		public int getNrofDropped() {
+			return nrofDropped;
+		}
+
+		public int getNrofRemoved() {
+			return nrofRemoved;
+		}
+
+		public int getNrofStarted() {
+			return nrofStarted;
+		}
+
+		public int getNrofAborted() {
+			return nrofAborted;
+		}
+
+		public int getNrofRelayed() {
+			return nrofRelayed;
+		}
+
+		public int getNrofCreated() {
+			return nrofCreated;
+		}
+
+		public int getNrofResponseReqCreated() {
+			return nrofResponseReqCreated;
+		}
+
+		public int getNrofResponseDelivered() {
+			return nrofResponseDelivered;
+		}
+
+		public int getNrofDelivered() {
+			return nrofDelivered;
+		}
+
+		/** Returns the latencies of delivered messages */
+		public DoubleList getLatencies() {
+			return latencies;
+		}
+
+		/** Returns the hop counts of delivered messages */
+		public DoubleList getHopCounts() {
+			return hopCounts;
+		}
+
+		/** Returns the buffer times of dropped and removed messages */
+		public DoubleList getBufferTimes() {
+			return bufferTimes;
+		}
+
+		/** Returns the round trip times of delivered responses */
+		public DoubleList getRtt() {
+			return rtt;
+		}
+
+		/** Returns the simulation time at the end of the log */
+		public double getEndTime() {
+			return endTime;
+		}
+	}
+
+	/**
+	 * Growable list of primitive double values
+	 */
+	public static class DoubleList {
+		private double[] values = new double[16];
+		private int size = 0;
+
+		public void add(double value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		public void addAll(DoubleList other) {
+			if (size + other.size > values.length) {
+				values = Arrays.copyOf(values,
+						Math.max(size + other.size, values.length * 2));
+			}
+			System.arraycopy(other.values, 0, values, size, other.size);
+			size += other.size;
+		}
+
+		public double get(int index) {
+			return values[index];
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/** Sorts the values in ascending order */
+		public void sort() {
+			Arrays.sort(values, 0, size);
+		}
+	}
+
+	/**
+	 * Computes message statistics from a log. Creation times of the messages
+	 * are collected first and then the actual statistics; both passes scan
+	 * the blocks of the log in parallel.
+	 * @param log The log
+	 * @return The statistics
+	 */
+	public MessageStats getMessageStats(final BinaryEventLog log) {
+		final double[] creationTimes = new double[log.getNrofMessages()];
+		Arrays.fill(creationTimes, Double.NaN);
+
+		forEachBlock(log, new BlockTask<Object>() {
+			public Object process(BinaryEventLog.Block b) {
+				for (int i=0, n=b.size(); i<n; i++) {
+					if (b.getAction(i) == BinaryEventLog.ACTION_CREATE) {
+						creationTimes[b.getMessage(i)] = b.getTime(i);
+					}
+				}
+				return null;
+			}
+		});
+
+		List<MessageStats> parts = forEachBlock(log,
+				new BlockTask<MessageStats>() {
+			public MessageStats process(BinaryEventLog.Block b) {
+				return getMessageStats(log, b, creationTimes);
+			}
+		});
+
+		MessageStats stats = new MessageStats();
+		for (MessageStats s : parts) {
+			stats.add(s);
+		}
+		stats.endTime = log.getEndTime();
+		return stats;
+	}
+
+	/**
+	 * Computes message statistics from the events of one block
+	 */
+	private MessageStats getMessageStats(BinaryEventLog log,
+			BinaryEventLog.Block b, double[] creationTimes) {
+		MessageStats s = new MessageStats();
+
+		for (int i=0, n=b.size(); i<n; i++) {
+			int m = b.getMessage(i);
+			if (m < 0 || isWarmup(creationTimes[m])) {
+				continue; // not a message event or a warm up message
+			}
+			double time = b.getTime(i);
+
+			switch (b.getAction(i)) {
+			case BinaryEventLog.ACTION_CREATE:
+				s.nrofCreated++;
+				if ((log.getMessageFlags(m) &
+						BinaryEventLog.FLAG_RESPONSE_REQUESTED) != 0) {
+					s.nrofResponseReqCreated++;
+				}
+				break;
+			case BinaryEventLog.ACTION_SEND:
+				s.nrofStarted++;
+				break;
+			case BinaryEventLog.ACTION_ABORT:
+				s.nrofAborted++;
+				break;
+			case BinaryEventLog.ACTION_DROP:
+				s.nrofDropped++;
+				s.bufferTimes.add(time - b.getReceiveTime(i));
+				break;
+			case BinaryEventLog.ACTION_REMOVE:
+				s.nrofRemoved++;
+				s.bufferTimes.add(time - b.getReceiveTime(i));
+				break;
+			case BinaryEventLog.ACTION_DELIVERED:
+				s.latencies.add(time - creationTimes[m]);
+				s.nrofDelivered++;
+				s.hopCounts.add(b.getHopCount(i));
+				if ((log.getMessageFlags(m) &
+						BinaryEventLog.FLAG_RESPONSE) != 0) {
+					s.rtt.add(time - creationTimes[log.getRequestIndex(m)]);
+					s.nrofResponseDelivered++;
+				}
+				s.nrofRelayed++;
+				break;
+			case BinaryEventLog.ACTION_RELAYED:
+			case BinaryEventLog.ACTION_RELAY_DISCARDED:
+			case BinaryEventLog.ACTION_DELIVERED_AGAIN:
+				s.nrofRelayed++;
+				break;
+			}
+		}
+
+		return s;
+	}
+
+	/**
+	 * Returns true if a message with the given creation time is a warm up
+	 * message
+	 */
+	private boolean isWarmup(double creationTime) {
+		return this.warmup > creationTime;
+	}
+
+	/**
+	 * Formats message statistics the same way as {@link MessageStatsReport}
+	 * (without the header line)
+	 * @param s The statistics
+	 * @return The statistics as "name: value" lines
+	 */
+	public String formatMessageStats(MessageStats s) {
+		double deliveryProb = 0;
+		double responseProb = 0;
+		double overHead = Double.NaN;
+
+		if (s.nrofCreated > 0) {
+			deliveryProb = (1.0 * s.nrofDelivered) / s.nrofCreated;
+		}
+		if (s.nrofDelivered > 0) {
+			overHead = (1.0 * (s.nrofRelayed - s.nrofDelivered)) /
+				s.nrofDelivered;
+		}
+		if (s.nrofResponseReqCreated > 0) {
+			responseProb = (1.0 * s.nrofResponseDelivered) /
+				s.nrofResponseReqCreated;
+		}
+
+		return "sim_time: " + format(s.endTime) +
+			"\ncreated: " + s.nrofCreated +
+			"\nstarted: " + s.nrofStarted +
+			"\nrelayed: " + s.nrofRelayed +
+			"\naborted: " + s.nrofAborted +
+			"\ndropped: " + s.nrofDropped +
+			"\nremoved: " + s.nrofRemoved +
+			"\ndelivered: " + s.nrofDelivered +
+			"\ndelivery_prob: " + format(deliveryProb) +
+			"\nresponse_prob: " + format(responseProb) +
+			"\noverhead_ratio: " + format(overHead) +
+			"\nlatency_avg: " + getAverage(s.latencies) +
+			"\nlatency_med: " + getMedian(s.latencies) +
+			"\nhopcount_avg: " + getAverage(s.hopCounts) +
+			"\nhopcount_med: " + (s.hopCounts.size() == 0 ? 0 :
+				(int)median(s.hopCounts)) +
+			"\nbuffertime_avg: " + getAverage(s.bufferTimes) +
+			"\nbuffertime_med: " + getMedian(s.bufferTimes) +
+			"\nrtt_avg: " + getAverage(s.rtt) +
+			"\nrtt_med: " + getMedian(s.rtt);
+	}
+
+	/**
+	 * Prints the (complementary) cumulative distribution of the delivery
+	 * latencies. Every line has a latency and the fraction of delivered
+	 * messages whose latency is at most that (or, for the complementary
+	 * distribution, more than that) like the data files of
+	 * <TT>ccdfPlotter.pl</TT>.
+	 * @param s The statistics whose latencies are used
+	 * @param complementary If true, the complementary distribution is
+	 * printed
+	 * @param out Where the lines are printed
+	 */
+	public void printLatencyDistribution(MessageStats s,
+			boolean complementary, PrintStream out) {
+		DoubleList values = s.latencies;
+		int total = values.size();
+		values.sort();
+		for (int i=0; i<total; i++) {
+			double cumulative = (i + 1.0) / total;
+			out.println(format(values.get(i)) + " " +
+					(complementary ? 1 - cumulative : cumulative));
+		}
+	}
+
+	/**
+	 * Computes copy counts of messages at regular intervals. Every line of
+	 * the result has the sample time, number of messages with copies in the
+	 * system, and the median, low percentile, high percentile and sum of
+	 * the messages' copy counts.
+	 * @param log The log
+	 * @param interval Interval of the samples
+	 * @param percentile Percentile for the low and high values
+	 * @param out Where the lines are printed
+	 */
+	public void printCopyCounts(BinaryEventLog log, double interval,
+			int percentile, PrintStream out) {
+		int[] copies = new int[log.getNrofMessages()];
+		boolean[] tracked = new boolean[log.getNrofMessages()];
+		double nextSample = interval;
+
+		for (BinaryEventLog.Block b : log.getBlocks()) {
+			for (int i=0, n=b.size(); i<n; i++) {
+				double time = b.getTime(i);
+				while (time > nextSample) {
+					printCopyCountSample(nextSample, copies, percentile, out);
+					nextSample += interval;
+				}
+
+				int m = b.getMessage(i);
+				switch (b.getAction(i)) {
+				case BinaryEventLog.ACTION_CREATE:
+					tracked[m] = !isWarmup(time);
+					if (tracked[m]) {
+						copies[m]++;
+					}
+					break;
+				case BinaryEventLog.ACTION_RELAYED:
+					// (ACTION_RELAY_DISCARDED relays aren't buffered)
+					if (tracked[m]) {
+						copies[m]++;
+					}
+					break;
+				case BinaryEventLog.ACTION_DROP:
+				case BinaryEventLog.ACTION_REMOVE:
+					if (tracked[m]) {
+						copies[m]--;
+					}
+					break;
+				}
+			}
+		}
+
+		while (nextSample <= log.getEndTime()) {
+			printCopyCountSample(nextSample, copies, percentile, out);
+			nextSample += interval;
+		}
+	}
+
+	/**
+	 * Prints one copy count sample line
+	 */
+	private void printCopyCountSample(double time, int[] copies,
+			int percentile, PrintStream out) {
+		int nrof = 0;
+		long sum = 0;
+		for (int c : copies) {
+			if (c > 0) {
+				nrof++;
+			}
+		}
+		int[] counts = new int[nrof];
+		nrof = 0;
+		for (int c : copies) {
+			if (c > 0) {
+				counts[nrof++] = c;
+				sum += c;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append((int)time).append(' ').append(nrof);
+		if (nrof > 0) {
+			Arrays.sort(counts);
+			int low = (int)(nrof * (percentile / 100.0));
+			int high = nrof - low - 1;
+			sb.append(' ').append(counts[nrof / 2]);
+			sb.append(' ').append(counts[low]);
+			sb.append(' ').append(counts[high]);
+		}
+		sb.append(' ').append(sum);
+		out.println(sb);
+	}
+
+	/**
+	 * Task that is run for every block of a log
+	 */
+	private interface BlockTask<T> {
+		public T process(BinaryEventLog.Block b);
+	}
+
+	/**
+	 * Runs a task for every block of a log in parallel
+	 * @param log The log
+	 * @param task The task
+	 * @return The results of the task in block order
+	 */
+	private <T> List<T> forEachBlock(BinaryEventLog log,
+			final BlockTask<T> task) {
+		List<BinaryEventLog.Block> blocks = log.getBlocks();
+		List<T> results = new ArrayList<T>(blocks.size());
+		if (nrofThreads == 1 || blocks.size() <= 1) {
+			for (BinaryEventLog.Block b : blocks) {
+				results.add(task.process(b));
+			}
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(nrofThreads);
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(blocks.size());
+			for (final BinaryEventLog.Block b : blocks) {
+				futures.add(executor.submit(new Callable<T>() {
+					public T call() {
+						return task.process(b);
+					}
+				}));
+			}
+			for (Future<T> f : futures) {
+				results.add(f.get());
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while analyzing the log", e);
+		} catch (ExecutionException e) {
+			throw new SimError("Analyzing the log failed: " +
+					e.getCause().getMessage(), e);
+		} finally {
+			executor.shutdown();
+		}
+		return results;
+	}
+
+	private String format(double value) {
+		return NumberFormatter.format(value, precision);
+	}
+
+	private String getAverage(DoubleList values) {
+		if (values.size() == 0) {
+			return Report.NAN;
+		}
+		double sum = 0;
+		for (int i=0, n=values.size(); i<n; i++) {
+			sum += values.get(i);
+		}
+		return format(sum / values.size());
+	}
+
+	private String getMedian(DoubleList values) {
+		if (values.size() == 0) {
+			return Report.NAN;
+		}
+		return format(median(values));
+	}
+
+	private double median(DoubleList values) {
+		values.sort();
+		return values.get(values.size() / 2);
+	}
+
+	/**
+	 * Runs the analyzer from the command line
+	 * @param args Command and its options (see class documentation)
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			printUsage();
+			return;
+		}
+
+		String command = args[0];
+		String stat = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		double warmup = 0;
+		int precision = Report.DEF_PRECISION;
+		double interval = DEF_INTERVAL;
+		int percentile = DEF_PERCENTILE;
+		boolean complementary = false;
+		List<String> files = new ArrayList<String>();
+
+		for (int i=1; i<args.length; i++) {
+			String a = args[i];
+			if (a.equals("-comp")) {
+				complementary = true;
+			}
+			else if (a.startsWith("-") && i + 1 < args.length) {
+				String value = args[++i];
+				if (a.equals("-stat")) {
+					stat = value;
+				} else if (a.equals("-threads")) {
+					threads = Integer.parseInt(value);
+				} else if (a.equals("-warmup")) {
+					warmup = Double.parseDouble(value);
+				} else if (a.equals("-precision")) {
+					precision = Integer.parseInt(value);
+				} else if (a.equals("-interval")) {
+					interval = Double.parseDouble(value);
+				} else if (a.equals("-perc")) {
+					percentile = Integer.parseInt(value);
+				} else {
+					System.err.println("Unknown option " + a);
+					printUsage();
+					return;
+				}
+			}
+			else {
+				files.add(a);
+			}
+		}
+
+		EventLogAnalyzer analyzer = new EventLogAnalyzer(threads, warmup,
+				precision);
+
+		if (command.equals("stats")) {
+			for (String f : files) {
+				BinaryEventLog log = new BinaryEventLog(new File(f));
+				String stats = analyzer.formatMessageStats(
+						analyzer.getMessageStats(log));
+				if (stat == null) {
+					System.out.println("Message stats for " + f);
+					System.out.println(stats);
+					continue;
+				}
+				for (String line : stats.split("\n")) {
+					if (line.startsWith(stat + ": ")) {
+						System.out.println(f + " " +
+								line.substring(stat.length() + 2));
+					}
+				}
+			}
+		}
+		else if (command.equals("copies")) {
+			for (String f : files) {
+				analyzer.printCopyCounts(new BinaryEventLog(new File(f)),
+						interval, percentile, System.out);
+			}
+		}
+		else if (command.equals("ccdf")) {
+			for (String f : files) {
+				BinaryEventLog log = new BinaryEventLog(new File(f));
+				analyzer.printLatencyDistribution(
+						analyzer.getMessageStats(log), complementary,
+						System.out);
+			}
+		}
+		else {
+			System.err.println("Unknown command " + command);
+			printUsage();
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Usage: EventLogAnalyzer stats [-stat <name>] " +
+				"[-warmup <seconds>] [-precision <decimals>] " +
+				"[-threads <count>] <log files...>");
+		System.out.println("       EventLogAnalyzer copies " +
+				"[-interval <seconds>] [-perc <percentile>] " +
+				"[-warmup <seconds>] <log file>");
+		System.out.println("       EventLogAnalyzer ccdf [-comp] " +
+				"[-warmup <seconds>] [-precision <decimals>] <log file>");
+	}
+}
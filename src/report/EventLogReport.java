@@ -4,10 +4,10 @@
  */
 package report;
 
-import core.ConnectionListener;
 import core.DTNHost;
+import core.EventBatch;
+import core.EventBatchListener;
 import core.Message;
-import core.MessageListener;
 import input.StandardEventsReader;
 
 /**
@@ -15,10 +15,11 @@ import input.StandardEventsReader;
  * like {@link input.StandardEventsReader} input. Message relying event has
  * extra one-letter identifier to tell whether that message was delivered to
  * final destination, delivered there again, or just normally relayed
- * (see the public constants).
+ * (see the public constants). The events are received in batches from the
+ * {@link core.EventBus}, so the report can write the log in its own thread
+ * (see {@link Report#EVENT_THREAD_S}).
  */
-public class EventLogReport extends Report
-	implements ConnectionListener, MessageListener {
+public class EventLogReport extends Report implements EventBatchListener {
 
 	/** Extra info for message relayed event ("relayed"): {@value} */
 	public static final String MESSAGE_TRANS_RELAYED = "R";
@@ -29,60 +30,70 @@ public class EventLogReport extends Report
 
 	/**
 	 * Processes a log event by writing a line to the report file
+	 * @param time Simulation time of the event
 	 * @param action The action as a string
 	 * @param host1 First host involved in the event (if any, or null)
 	 * @param host2 Second host involved in the event (if any, or null)
 	 * @param message The message involved in the event (if any, or null)
 	 * @param extra Extra info to append in the end of line (if any, or null)
 	 */
-	private void processEvent(final String action, final DTNHost host1,
-			final DTNHost host2, final Message message, final String extra) {
-		write(getSimTime() + " " + action + " " + (host1 != null ? host1 : "")
+	private void processEvent(final double time, final String action,
+			final DTNHost host1, final DTNHost host2, final Message message,
+			final String extra) {
+		write(time + " " + action + " " + (host1 != null ? host1 : "")
 				+ (host2 != null ? (" " + host2) : "")
 				+ (message != null ? " " + message : "")
 				+ (extra != null ? " " + extra : ""));
 	}
 
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		processEvent(StandardEventsReader.CONNECTION, host1, host2, null,
-				StandardEventsReader.CONNECTION_UP);
-	}
-
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		processEvent(StandardEventsReader.CONNECTION, host1, host2, null,
-				StandardEventsReader.CONNECTION_DOWN);
-	}
+	public void eventsDispatched(EventBatch events) {
+		for (int i=0, n=events.size(); i<n; i++) {
+			double time = events.getTime(i);
+			DTNHost host1 = events.getHost1(i);
+			DTNHost host2 = events.getHost2(i);
+			Message m = events.getMessage(i);
 
-	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
-		processEvent((dropped ? StandardEventsReader.DROP :
-			StandardEventsReader.REMOVE), where, null, m, null);
-	}
-
-	public void messageTransferred(Message m, DTNHost from, DTNHost to,
-			boolean firstDelivery) {
-		String extra;
-		if (firstDelivery) {
-			extra = MESSAGE_TRANS_DELIVERED;
-		}
-		else if (to == m.getTo()) {
-			extra = MESSAGE_TRANS_DELIVERED_AGAIN;
-		}
-		else {
-			extra = MESSAGE_TRANS_RELAYED;
+			switch (events.getType(i)) {
+			case EventBatch.CONN_UP:
+				processEvent(time, StandardEventsReader.CONNECTION, host1,
+						host2, null, StandardEventsReader.CONNECTION_UP);
+				break;
+			case EventBatch.CONN_DOWN:
+				processEvent(time, StandardEventsReader.CONNECTION, host1,
+						host2, null, StandardEventsReader.CONNECTION_DOWN);
+				break;
+			case EventBatch.MSG_DELETED:
+				processEvent(time, (events.isDropped(i) ?
+						StandardEventsReader.DROP :
+						StandardEventsReader.REMOVE), host1, null, m, null);
+				break;
+			case EventBatch.MSG_TRANSFERRED:
+				String extra;
+				if (events.isFirstDelivery(i)) {
+					extra = MESSAGE_TRANS_DELIVERED;
+				}
+				else if (host2 == m.getTo()) {
+					extra = MESSAGE_TRANS_DELIVERED_AGAIN;
+				}
+				else {
+					extra = MESSAGE_TRANS_RELAYED;
+				}
+				processEvent(time, StandardEventsReader.DELIVERED, host1,
+						host2, m, extra);
+				break;
+			case EventBatch.MSG_CREATED:
+				processEvent(time, StandardEventsReader.CREATE, host1, null,
+						m, null);
+				break;
+			case EventBatch.MSG_ABORTED:
+				processEvent(time, StandardEventsReader.ABORT, host1, host2,
+						m, null);
+				break;
+			case EventBatch.MSG_STARTED:
+				processEvent(time, StandardEventsReader.SEND, host1, host2,
+						m, null);
+				break;
+			}
 		}
-
-		processEvent(StandardEventsReader.DELIVERED, from, to, m, extra);
-	}
-
-	public void newMessage(Message m) {
-		processEvent(StandardEventsReader.CREATE, m.getFrom(), null, m, null);
-	}
-
-	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
-		processEvent(StandardEventsReader.ABORT, from, to, m, null);
-	}
-
-	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
-		processEvent(StandardEventsReader.SEND, from, to, m, null);
 	}
 }
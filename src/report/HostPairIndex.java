@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+import core.DTNHost;
+
+/**
+ * Index of unordered host pairs. Every pair is identified with a key that
+ * packs the addresses of the two hosts into a long and the keys are stored
+ * in a primitive open addressing hash table. Each added pair gets a
+ * running entry number (0, 1, 2, ...) that users of the index can use as
+ * an index to their own (primitive) arrays of per-pair values, so only
+ * the pairs that have been added take any memory. Pairs can't be removed.
+ */
+public class HostPairIndex {
+	/** Initial capacity of the hash table */
+	private static final int INITIAL_CAPACITY = 64;
+	/** Key used for empty hash table slots (no valid pair has it) */
+	private static final long EMPTY = -1;
+
+	/** hash table of pair keys */
+	private long[] slots;
+	/** entry numbers of the keys in the hash table */
+	private int[] slotEntries;
+	/** keys in the order of their entry numbers */
+	private long[] keys;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	public HostPairIndex() {
+		this.slots = new long[INITIAL_CAPACITY];
+		Arrays.fill(slots, EMPTY);
+		this.slotEntries = new int[INITIAL_CAPACITY];
+		this.keys = new long[INITIAL_CAPACITY / 2];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the key of an unordered host pair. The key is the same for
+	 * both orders of the hosts.
+	 * @param a Address of the first host
+	 * @param b Address of the second host
+	 * @return The key of the pair
+	 */
+	public static long key(int a, int b) {
+		if (a > b) {
+			int tmp = a;
+			a = b;
+			b = tmp;
+		}
+		return ((long)a << 32) | (b & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the smaller address of a pair key
+	 * @param key The pair key
+	 * @return The smaller address
+	 */
+	public static int getFirst(long key) {
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * Returns the larger address of a pair key
+	 * @param key The pair key
+	 * @return The larger address
+	 */
+	public static int getSecond(long key) {
+		return (int)key;
+	}
+
+	/**
+	 * Returns the entry number of a host pair
+	 * @param h1 The first host
+	 * @param h2 The second host
+	 * @return The entry number or -1 if the pair hasn't been added
+	 */
+	public int get(DTNHost h1, DTNHost h2) {
+		return get(key(h1.getAddress(), h2.getAddress()));
+	}
+
+	/**
+	 * Returns the entry number of a pair key
+	 * @param key The pair key
+	 * @return The entry number or -1 if the pair hasn't been added
+	 */
+	public int get(long key) {
+		int mask = slots.length - 1;
+		for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			if (slots[i] == key) {
+				return slotEntries[i];
+			}
+			if (slots[i] == EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the entry number of a host pair, adding the pair if it
+	 * hasn't been added yet
+	 * @param h1 The first host
+	 * @param h2 The second host
+	 * @return The entry number of the pair
+	 */
+	public int add(DTNHost h1, DTNHost h2) {
+		return add(key(h1.getAddress(), h2.getAddress()));
+	}
+
+	/**
+	 * Returns the entry number of a pair key, adding the key if it
+	 * hasn't been added yet. New keys get the entry number
+	 * {@link #size()} (before adding).
+	 * @param key The pair key
+	 * @return The entry number of the key
+	 */
+	public int add(long key) {
+		int mask = slots.length - 1;
+		int i = hash(key) & mask;
+		for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+			if (slots[i] == key) {
+				return slotEntries[i];
+			}
+		}
+
+		int entry = size++;
+		slots[i] = key;
+		slotEntries[i] = entry;
+		if (entry == keys.length) {
+			keys = Arrays.copyOf(keys, keys.length * 2);
+		}
+		keys[entry] = key;
+
+		if (size * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the key of an entry
+	 * @param entry The entry number
+	 * @return The pair key of the entry
+	 */
+	public long getKey(int entry) {
+		return keys[entry];
+	}
+
+	/**
+	 * Returns the number of pairs in the index
+	 * @return the number of pairs in the index
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldSlots = slots;
+		int[] oldEntries = slotEntries;
+		slots = new long[capacity];
+		Arrays.fill(slots, EMPTY);
+		slotEntries = new int[capacity];
+
+		int mask = capacity - 1;
+		for (int j=0; j < oldSlots.length; j++) {
+			if (oldSlots[j] != EMPTY) {
+				int i = hash(oldSlots[j]) & mask;
+				while (slots[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				slots[i] = oldSlots[j];
+				slotEntries[i] = oldEntries[j];
+			}
+		}
+	}
+
+	/**
+	 * Mixes the bits of a key (finalizer of the MurmurHash3 64 bit hash)
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+}
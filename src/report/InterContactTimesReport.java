@@ -10,26 +10,31 @@ import core.DTNHost;
  * Reports the inter-contact time (i.e., the time between the end of previous
  * contact and the beginning of a new contact between two hosts) distribution.
  * The syntax of the report file is the same as in {@link ContactTimesReport}.
+ * Inter-contact times that started during the warm up period are ignored.
  */
 public class InterContactTimesReport extends ContactTimesReport {
 
 	@Override
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = this.removeConnection(host1, host2);
+		trackConnected(host1, host2);
 
-		if (ci != null) { // connected again
-			newEvent();
-			ci.connectionEnd();
-			increaseTimeCount(ci.getConnectionTime());
+		int c = contacts.getContact(host1, host2);
+		if (c < 0 || contacts.getNrofConnections(c) != 1) {
+			return; // not a new contact
 		}
+		double previousEnd = contacts.getEndTime(c);
+		if (previousEnd == ContactTracker.NO_END ||
+				previousEnd < this.countFrom) {
+			return; // first contact or previous ended during warm up
+		}
+
+		newEvent();
+		increaseTimeCount(getSimTime() - previousEnd);
 	}
 
 	@Override
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		if (isWarmup()) {
-			return;
-		}
-		// start counting time to next connection
-		this.addConnection(host1, host2);
+		// start counting time to next connection (done by the tracker)
+		trackDisconnected(host1, host2);
 	}
 }
@@ -11,7 +11,6 @@ import java.util.Set;
 
 import core.Connection;
 import core.DTNHost;
-import core.Message;
 import core.Settings;
 import core.SettingsError;
 
@@ -80,7 +79,6 @@ public class MessageAvailabilityReport extends MessageLocationReport {
 
 		for (DTNHost host : hosts) {
 			Set<String> msgIds = null;
-			String idString = "";
 
 			if (! this.trackedHosts.contains(host)) {
 				continue;
@@ -89,28 +87,18 @@ public class MessageAvailabilityReport extends MessageLocationReport {
 			msgIds = new HashSet<String>();
 
 			/* add own messages */
-			for (Message m : host.getMessageCollection()) {
-				if (!isTracked(m)) {
-					continue;
-				}
-				msgIds.add(m.getId());
-			}
+			msgIds.addAll(replicas.getMessages(host));
 			/* add all peer messages */
 			for (Connection c : host.getConnections()) {
-				DTNHost peer = c.getOtherNode(host);
-				for (Message m : peer.getMessageCollection()) {
-					if (!isTracked(m)) {
-						continue;
-					}
-					msgIds.add(m.getId());
-				}
+				msgIds.addAll(replicas.getMessages(c.getOtherNode(host)));
 			}
 
+			StringBuilder line = new StringBuilder(host.toString());
 			for (String id : msgIds) {
-				idString += " " + id;
+				line.append(' ').append(id);
 			}
 
-			write(host + idString);
+			write(line.toString());
 		}
 	}
 }
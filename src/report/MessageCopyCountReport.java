@@ -4,14 +4,9 @@
  */
 package report;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import core.DTNHost;
-import core.Message;
 
 /**
  * Reports the amount of messages in the system at each time interval. Uses the
@@ -25,28 +20,11 @@ public class MessageCopyCountReport extends MessageLocationReport {
 	 */
 	@Override
 	protected void createSnapshot(List<DTNHost> hosts) {
-		Map<String, Integer> counts = new HashMap<String, Integer>();
 		write("[" + (int) getSimTime() + "]"); /* write sim time stamp */
-		ArrayList<String> keys;
 
-		for (DTNHost host : hosts) {
-			for (Message m : host.getMessageCollection()) {
-				Integer oldCount;
-				if (!isTracked(m)) {
-					continue;
-				}
-				oldCount = counts.get(m.getId());
-				counts.put(m.getId(), (oldCount == null ? 1 : oldCount + 1));
-			}
+		for (String id : replicas.getMessageIds()) {
+			write(id + " " + replicas.getNrofReplicas(id));
 		}
-
-		keys = new ArrayList<String>(counts.keySet());
-		Collections.sort(keys);
-
-		for (String key : keys) {
-			write(key + " " + counts.get(key));
-		}
-
 	}
 
 }
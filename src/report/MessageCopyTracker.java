@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Keeps per message information for reports only as long as the message
+ * exists somewhere in the simulation. Counts the copies of every tracked
+ * message in the message buffers and in transfer, and releases the
+ * information when the last copy is gone. Reports call the methods of this
+ * class from the respective {@link core.MessageListener} methods and can
+ * release the information earlier (e.g. when the message is delivered)
+ * with {@link #release(String)}.
+ * @param <T> Type of the information stored for the messages
+ */
+public class MessageCopyTracker<T> {
+	private Map<String, Entry<T>> entries;
+
+	/**
+	 * Constructor.
+	 */
+	public MessageCopyTracker() {
+		this.entries = new HashMap<String, Entry<T>>();
+	}
+
+	/**
+	 * Starts tracking a new message
+	 * @param m The message
+	 * @param info Information stored for the message
+	 */
+	public void newMessage(Message m, T info) {
+		this.entries.put(m.getId(), new Entry<T>(info));
+	}
+
+	/**
+	 * Counts a copy in transfer
+	 * @param m The message whose transfer was started
+	 */
+	public void transferStarted(Message m) {
+		Entry<T> e = this.entries.get(m.getId());
+		if (e != null) {
+			e.copies++;
+		}
+	}
+
+	/**
+	 * Removes a copy in transfer
+	 * @param m The message whose transfer was aborted
+	 * @return The information of the message if this was the last copy
+	 * (the information is released), null otherwise
+	 */
+	public T transferAborted(Message m) {
+		return removeCopy(m.getId());
+	}
+
+	/**
+	 * Updates copy count of a transferred message. The copy in transfer
+	 * is either stored to the receiving host's buffer, or, if the receiver
+	 * was the final recipient or an application of the receiver dropped
+	 * the message, discarded.
+	 * @param m The transferred message
+	 * @param to The host the message was transferred to
+	 * @return The information of the message if this was the last copy
+	 * (the information is released), null otherwise
+	 */
+	public T transferred(Message m, DTNHost to) {
+		if (!to.getRouter().hasMessage(m.getId())) {
+			return removeCopy(m.getId());
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a deleted copy
+	 * @param m The deleted message
+	 * @return The information of the message if this was the last copy
+	 * (the information is released), null otherwise
+	 */
+	public T deleted(Message m) {
+		return removeCopy(m.getId());
+	}
+
+	/**
+	 * Returns the information of a message
+	 * @param id ID of the message
+	 * @return The information or null if the message is not tracked
+	 */
+	public T get(String id) {
+		Entry<T> e = this.entries.get(id);
+		return e != null ? e.info : null;
+	}
+
+	/**
+	 * Stops tracking a message and releases its information
+	 * @param id ID of the message
+	 * @return The information or null if the message was not tracked
+	 */
+	public T release(String id) {
+		Entry<T> e = this.entries.remove(id);
+		return e != null ? e.info : null;
+	}
+
+	/**
+	 * Returns the number of tracked messages
+	 * @return the number of tracked messages
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the IDs of the tracked messages
+	 * @return the IDs of the tracked messages
+	 */
+	public Collection<String> getIds() {
+		return this.entries.keySet();
+	}
+
+	private T removeCopy(String id) {
+		Entry<T> e = this.entries.get(id);
+		if (e == null) {
+			return null;
+		}
+		e.copies--;
+		if (e.copies <= 0) {
+			this.entries.remove(id);
+			return e.info;
+		}
+		return null;
+	}
+
+	private static class Entry<T> {
+		private T info;
+		private int copies;
+
+		private Entry(T info) {
+			this.info = info;
+			this.copies = 1;
+		}
+	}
+}
@@ -4,9 +4,6 @@
  */
 package report;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
@@ -15,12 +12,15 @@ import core.MessageListener;
  * Reports delivered messages' delays (one line per delivered message)
  * and cumulative delivery probability sorted by message delays.
  * Ignores the messages that were created during the warm up period.
+ * If more messages are delivered than the report's quantile sketch stores
+ * exactly (see {@link Report#SKETCH_EXACT_LIMIT_S}), the lines are created
+ * from the sketch's retained delays and approximate the distribution.
  */
 public class MessageDelayReport extends Report implements MessageListener {
 	public static final String HEADER =
 	    "# messageDelay  cumulativeProbability";
 	/** all message delays */
-	private List<Double> delays;
+	private QuantileSketch delays;
 	private int nrofCreated;
 
 	/**
@@ -34,7 +34,7 @@ public class MessageDelayReport extends Report implements MessageListener {
 	public void init() {
 		super.init();
 		write(HEADER);
-		this.delays = new ArrayList<Double>();
+		this.delays = createSketch();
 		this.nrofCreated = 0;
 	}
 
@@ -57,18 +57,18 @@ public class MessageDelayReport extends Report implements MessageListener {
 
 	@Override
 	public void done() {
-		if (delays.size() == 0) {
+		if (delays.getCount() == 0) {
 			write("# no messages delivered in sim time "+format(getSimTime()));
 			super.done();
 			return;
 		}
 		double cumProb = 0; // cumulative probability
 
-		java.util.Collections.sort(delays);
+		QuantileSketch.Sorted sorted = delays.getSorted();
 
-		for (int i=0; i < delays.size(); i++) {
-			cumProb += 1.0/nrofCreated;
-			write(format(delays.get(i)) + " " + format(cumProb));
+		for (int i=0; i < sorted.size; i++) {
+			cumProb += sorted.weights[i] * (1.0/nrofCreated);
+			write(format(sorted.values[i]) + " " + format(cumProb));
 		}
 		super.done();
 	}
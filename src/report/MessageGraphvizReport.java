@@ -61,10 +61,11 @@ public class MessageGraphvizReport extends Report implements MessageListener {
 
 		for (Message m : deliveredMessages) {
 			List<DTNHost> path = m.getHops();
-			String pathString = path.remove(0).toString(); // start node
+			StringBuilder pathString = new StringBuilder(
+					path.get(0).toString()); // start node
 
-			for (DTNHost next : path) {
-				pathString += "->" + next.toString();
+			for (int i=1, n=path.size(); i<n; i++) {
+				pathString.append("->").append(path.get(i));
 			}
 
 			write (pathString + ";");
@@ -6,9 +6,11 @@ package report;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import core.DTNHost;
 import core.Message;
+import core.MessageListener;
 import core.Settings;
 import core.UpdateListener;
 
@@ -16,8 +18,12 @@ import core.UpdateListener;
 /**
  * Message location report. Reports the location (coordinates) of messages.
  * The messages that are reported and the reporting interval can be configured.
+ * The contents of the message buffers are tracked incrementally from the
+ * message events with a {@link MessageReplicaTracker}, so the snapshots
+ * don't need to go through all the buffers.
  */
-public class MessageLocationReport extends Report implements UpdateListener {
+public class MessageLocationReport extends Report
+	implements UpdateListener, MessageListener {
 	/** Reporting granularity -setting id ({@value}).
 	 * Defines the interval how often (seconds) a new snapshot of message
 	 * locations is created */
@@ -32,6 +38,8 @@ public class MessageLocationReport extends Report implements UpdateListener {
 	protected double lastUpdate;
 	/** Identifiers of the message which are reported */
 	protected HashSet<String> reportedMessages;
+	/** Locations of the tracked messages */
+	protected MessageReplicaTracker replicas;
 
 	/**
 	 * Constructor. Reads the settings and initializes the report module.
@@ -49,6 +57,7 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		} else {
 			this.reportedMessages = null; /* all messages */
 		}
+		this.replicas = new MessageReplicaTracker();
 
 		init();
 	}
@@ -82,27 +91,46 @@ public class MessageLocationReport extends Report implements UpdateListener {
 	 * @param hosts The list of hosts in the world
 	 */
 	protected void createSnapshot(List<DTNHost> hosts) {
-		boolean isFirstMessage;
-		String reportLine;
-
 		write ("[" + (int)getSimTime() + "]"); /* write sim time stamp */
 
 		for (DTNHost host : hosts) {
-			isFirstMessage = true;
-			reportLine = "";
-			for (Message m : host.getMessageCollection()) {
-				if (isTracked(m)) {
-					if (isFirstMessage) {
-						reportLine = host.getLocation().toString();
-						isFirstMessage = false;
-					}
-					reportLine += " " + m.getId();
-				}
+			Set<String> messages = replicas.getMessages(host);
+			if (messages.isEmpty()) {
+				continue;
 			}
-			if (reportLine.length() > 0) {
-				write(reportLine); /* write coordinate and message IDs */
+
+			StringBuilder reportLine = new StringBuilder(
+					host.getLocation().toString());
+			for (String id : messages) {
+				reportLine.append(' ').append(id);
 			}
+			write(reportLine.toString()); /* write coordinate and message IDs */
 		}
 	}
 
+	public void newMessage(Message m) {
+		if (isTracked(m)) {
+			replicas.added(m, m.getFrom());
+		}
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		if (isTracked(m) && to.getRouter().hasMessage(m.getId())) {
+			// final recipients and dropping applications don't buffer it
+			replicas.added(m, to);
+		}
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		if (isTracked(m)) {
+			replicas.removed(m, where);
+		}
+	}
+
+	// nothing to do for transfer starts and aborts
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
+
 }
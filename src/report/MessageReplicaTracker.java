@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Keeps track of which messages are in which hosts' message buffers and
+ * how many replicas of each message there are. The state is updated
+ * incrementally from message events (see {@link MessageLocationReport}),
+ * so it can be read at any time without going through the message buffers.
+ */
+public class MessageReplicaTracker {
+	private static final Set<String> NO_MESSAGES = Collections.emptySet();
+
+	/** IDs of the messages in the buffers, indexed by host address */
+	private List<Set<String>> hostMessages;
+	/** number of replicas of the messages, sorted by message ID */
+	private SortedMap<String, int[]> replicaCounts;
+
+	/**
+	 * Constructor.
+	 */
+	public MessageReplicaTracker() {
+		this.hostMessages = new ArrayList<Set<String>>();
+		this.replicaCounts = new TreeMap<String, int[]>();
+	}
+
+	/**
+	 * Records that a message was put to a host's buffer
+	 * @param m The message
+	 * @param host The host
+	 */
+	public void added(Message m, DTNHost host) {
+		int address = host.getAddress();
+		while (hostMessages.size() <= address) {
+			hostMessages.add(null);
+		}
+		Set<String> messages = hostMessages.get(address);
+		if (messages == null) {
+			messages = new HashSet<String>();
+			hostMessages.set(address, messages);
+		}
+
+		if (messages.add(m.getId())) {
+			int[] count = replicaCounts.get(m.getId());
+			if (count == null) {
+				replicaCounts.put(m.getId(), new int[] {1});
+			}
+			else {
+				count[0]++;
+			}
+		}
+	}
+
+	/**
+	 * Records that a message was removed from a host's buffer
+	 * @param m The message
+	 * @param host The host
+	 */
+	public void removed(Message m, DTNHost host) {
+		int address = host.getAddress();
+		if (address >= hostMessages.size() || hostMessages.get(address) == null
+				|| !hostMessages.get(address).remove(m.getId())) {
+			return; // wasn't tracked
+		}
+
+		int[] count = replicaCounts.get(m.getId());
+		if (--count[0] == 0) {
+			replicaCounts.remove(m.getId());
+		}
+	}
+
+	/**
+	 * Returns the IDs of the (tracked) messages in a host's buffer
+	 * @param host The host
+	 * @return The message IDs (the set must not be modified)
+	 */
+	public Set<String> getMessages(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= hostMessages.size() ||
+				hostMessages.get(address) == null) {
+			return NO_MESSAGES;
+		}
+		return hostMessages.get(address);
+	}
+
+	/**
+	 * Returns the IDs of the messages that have at least one replica in
+	 * some buffer, in ascending order
+	 * @return The message IDs
+	 */
+	public Set<String> getMessageIds() {
+		return replicaCounts.keySet();
+	}
+
+	/**
+	 * Returns the number of replicas of a message in the buffers
+	 * @param id ID of the message
+	 * @return The number of replicas
+	 */
+	public int getNrofReplicas(String id) {
+		int[] count = replicaCounts.get(id);
+		return count == null ? 0 : count[0];
+	}
+}
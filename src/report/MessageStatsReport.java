@@ -4,11 +4,6 @@
  */
 package report;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
@@ -16,17 +11,20 @@ import core.MessageListener;
 /**
  * Report for generating different kind of total statistics about message
  * relaying performance. Messages that were created during the warm up period
- * are ignored.
+ * are ignored. Medians are computed with {@link QuantileSketch}es, so the
+ * memory use is bounded (see {@link Report#SKETCH_EXACT_LIMIT_S}) and
+ * creation times are kept only until the message is delivered or no copies
+ * of it remain.
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
  * double values and zero for integer median(s).
  */
 public class MessageStatsReport extends Report implements MessageListener {
-	private Map<String, Double> creationTimes;
-	private List<Double> latencies;
-	private List<Integer> hopCounts;
-	private List<Double> msgBufferTime;
-	private List<Double> rtt; // round trip times
+	private MessageCopyTracker<Double> creationTimes;
+	private QuantileSketch latencies;
+	private QuantileSketch hopCounts;
+	private QuantileSketch msgBufferTime;
+	private QuantileSketch rtt; // round trip times
 
 	private int nrofDropped;
 	private int nrofRemoved;
@@ -48,11 +46,11 @@ public class MessageStatsReport extends Report implements MessageListener {
 	@Override
 	protected void init() {
 		super.init();
-		this.creationTimes = new HashMap<String, Double>();
-		this.latencies = new ArrayList<Double>();
-		this.msgBufferTime = new ArrayList<Double>();
-		this.hopCounts = new ArrayList<Integer>();
-		this.rtt = new ArrayList<Double>();
+		this.creationTimes = new MessageCopyTracker<Double>();
+		this.latencies = createSketch();
+		this.msgBufferTime = createSketch();
+		this.hopCounts = createSketch();
+		this.rtt = createSketch();
 
 		this.nrofDropped = 0;
 		this.nrofRemoved = 0;
@@ -71,6 +69,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			return;
 		}
 
+		this.creationTimes.deleted(m);
 		if (dropped) {
 			this.nrofDropped++;
 		}
@@ -87,6 +86,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			return;
 		}
 
+		this.creationTimes.transferAborted(m);
 		this.nrofAborted++;
 	}
 
@@ -99,8 +99,11 @@ public class MessageStatsReport extends Report implements MessageListener {
 
 		this.nrofRelayed++;
 		if (finalTarget) {
-			this.latencies.add(getSimTime() -
-				this.creationTimes.get(m.getId()) );
+			Double creationTime = this.creationTimes.release(m.getId());
+			if (creationTime == null) { // copies weren't tracked correctly
+				creationTime = m.getCreationTime();
+			}
+			this.latencies.add(getSimTime() - creationTime);
 			this.nrofDelivered++;
 			this.hopCounts.add(m.getHops().size() - 1);
 
@@ -109,6 +112,9 @@ public class MessageStatsReport extends Report implements MessageListener {
 				this.nrofResponseDelivered++;
 			}
 		}
+		else {
+			this.creationTimes.transferred(m, to);
+		}
 	}
 
 
@@ -118,7 +124,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			return;
 		}
 
-		this.creationTimes.put(m.getId(), getSimTime());
+		this.creationTimes.newMessage(m, getSimTime());
 		this.nrofCreated++;
 		if (m.getResponseSize() > 0) {
 			this.nrofResponseReqCreated++;
@@ -131,6 +137,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			return;
 		}
 
+		this.creationTimes.transferStarted(m);
 		this.nrofStarted++;
 	}
 
@@ -167,7 +174,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			"\noverhead_ratio: " + format(overHead) +
 			"\nlatency_avg: " + getAverage(this.latencies) +
 			"\nlatency_med: " + getMedian(this.latencies) +
-			"\nhopcount_avg: " + getIntAverage(this.hopCounts) +
+			"\nhopcount_avg: " + getAverage(this.hopCounts) +
 			"\nhopcount_med: " + getIntMedian(this.hopCounts) +
 			"\nbuffertime_avg: " + getAverage(this.msgBufferTime) +
 			"\nbuffertime_med: " + getMedian(this.msgBufferTime) +
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import core.DTNSim;
+
+/**
+ * Formats double values with a fixed number of decimals. Gives the same
+ * result as <code>String.format("%.nf", value)</code> but without parsing
+ * a format string and creating a Formatter for every value. Values that
+ * can't be formatted exactly with long arithmetic (very large values,
+ * values that are (almost) halfway between two results, non-numbers) are
+ * formatted with String.format. The formatting symbols of the default
+ * locale are read when the class is initialized and when it is reset
+ * between batch runs.
+ */
+public class NumberFormatter {
+	/** Maximum number of decimals that are formatted without String.format */
+	public static final int MAX_DECIMALS = 9;
+	/** Scaled values larger than this are formatted with String.format */
+	private static final double MAX_SCALED = 1e13;
+	/** Powers of ten up to {@link #MAX_DECIMALS} */
+	private static final long[] POW10 = new long[MAX_DECIMALS + 1];
+
+	/** decimal separator of the default locale */
+	private static volatile char decimalSeparator;
+	/** does the default locale use ASCII digits (if not, the values are
+	 * formatted with String.format) */
+	private static volatile boolean asciiDigits;
+
+	static {
+		POW10[0] = 1;
+		for (int i=1; i < POW10.length; i++) {
+			POW10[i] = POW10[i-1] * 10;
+		}
+		DTNSim.registerForReset(NumberFormatter.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Reads the formatting symbols of the current default locale
+	 */
+	public static void reset() {
+		DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(
+				Locale.getDefault());
+		decimalSeparator = dfs.getDecimalSeparator();
+		asciiDigits = dfs.getZeroDigit() == '0';
+	}
+
+	/**
+	 * Formats a double value with the given number of decimals.
+	 * @param value The value to format
+	 * @param decimals Number of decimals
+	 * @return The formatted value
+	 */
+	public static String format(double value, int decimals) {
+		StringBuilder sb = new StringBuilder(24);
+		append(sb, value, decimals);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a double value with the given number of decimals to a
+	 * string builder.
+	 * @param sb The string builder to append to
+	 * @param value The value to format
+	 * @param decimals Number of decimals
+	 * @return The string builder
+	 */
+	public static StringBuilder append(StringBuilder sb, double value,
+			int decimals) {
+		if (decimals < 0 || decimals > MAX_DECIMALS || Double.isNaN(value) ||
+				Double.isInfinite(value) || !asciiDigits) {
+			return appendSlow(sb, value, decimals);
+		}
+
+		double scaled = Math.abs(value) * POW10[decimals];
+		if (scaled >= MAX_SCALED) {
+			return appendSlow(sb, value, decimals);
+		}
+
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		/* String.format rounds the shortest decimal presentation of the
+		 * value half-up; near ties the scaled value may be off by a few ulps
+		 * so let String.format decide those */
+		if (Math.abs(fraction - 0.5) <= 1e-6 + scaled * 1e-14) {
+			return appendSlow(sb, value, decimals);
+		}
+
+		long units = (long)floor + (fraction > 0.5 ? 1 : 0);
+		if (Double.doubleToRawLongBits(value) < 0) {
+			sb.append('-'); // also for -0.0 and values rounding to zero
+		}
+		sb.append(units / POW10[decimals]);
+		if (decimals > 0) {
+			sb.append(decimalSeparator);
+			long decimalPart = units % POW10[decimals];
+			for (int i = decimals - 1; i > 0 && decimalPart < POW10[i]; i--) {
+				sb.append('0');
+			}
+			sb.append(decimalPart);
+		}
+
+		return sb;
+	}
+
+	/**
+	 * Appends the value using String.format
+	 */
+	private static StringBuilder appendSlow(StringBuilder sb, double value,
+			int decimals) {
+		return sb.append(String.format("%." + decimals + "f", value));
+	}
+}
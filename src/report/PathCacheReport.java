@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import movement.map.PathCache;
+
+/**
+ * Reports the statistics of the shared shortest path cache
+ * ({@link movement.map.PathCache}) at the end of the simulation.
+ */
+public class PathCacheReport extends Report {
+
+	/**
+	 * Constructor.
+	 */
+	public PathCacheReport() {
+		init();
+	}
+
+	@Override
+	public void done() {
+		PathCache cache = PathCache.getInstance();
+		long hits = cache.getHits();
+		long misses = cache.getMisses();
+		long requests = hits + misses;
+		String hitRatio = NAN;
+
+		if (requests > 0) {
+			hitRatio = format((double)hits / requests);
+		}
+
+		write("Path cache stats for scenario " + getScenarioName());
+		write("requests: " + requests);
+		write("hits: " + hits);
+		write("misses: " + misses);
+		write("hit_ratio: " + hitRatio);
+		write("evictions: " + cache.getEvictions());
+		write("size: " + cache.getSize());
+		write("max_size: " + cache.getMaxSize());
+
+		super.done();
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <P>
+ * Streaming summary of double values that gives the count, sum, average
+ * and (approximate) quantiles of the values in bounded memory. Until
+ * the number of values exceeds the exact limit, all values are stored
+ * (as primitives) and the quantiles are exact. After that the values are
+ * summarized with a KLL sketch (Karnin, Lang &amp; Liberty: Optimal
+ * Quantile Approximation in Streams, 2016) whose accuracy is controlled
+ * with parameter k: the rank error is roughly 1.7/k (k=200 gives about
+ * 1% error) and the memory use is O(k) values.
+ * </P><P>
+ * Quantiles follow the convention of {@link Report#getMedian(java.util.List)}:
+ * the q-quantile of n sorted values is the value at index (int)(q*n).
+ * Compactions are deterministic, so the results are reproducible.
+ * </P>
+ */
+public class QuantileSketch {
+	/** Default accuracy parameter */
+	public static final int DEF_K = 200;
+	/** Default maximum number of values stored exactly */
+	public static final int DEF_EXACT_LIMIT = 1000000;
+	/** Capacity decrease factor of lower levels */
+	private static final double LEVEL_FACTOR = 2.0 / 3;
+
+	private final int k;
+	private final int exactLimit;
+	private long count;
+	private double sum;
+
+	/** values in exact mode (null in sketch mode) */
+	private double[] exact;
+	private int exactSize;
+	private boolean exactSorted;
+
+	/** compactor levels; items of level h have weight 2^h */
+	private double[][] levels;
+	private int[] levelSizes;
+	/** which items (even/odd) are promoted in the next compaction */
+	private boolean[] oddOffsets;
+	private int nrofLevels;
+	private int nrofRetained;
+	/** capacities of the levels and their sum */
+	private int[] capacities;
+	private int totalCapacity;
+
+	/**
+	 * Creates a sketch with default accuracy and exact limit
+	 */
+	public QuantileSketch() {
+		this(DEF_K, DEF_EXACT_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 * @param k Accuracy parameter (at least 8)
+	 * @param exactLimit Maximum number of values stored exactly before
+	 * switching to the sketch mode
+	 */
+	public QuantileSketch(int k, int exactLimit) {
+		this.k = Math.max(k, 8);
+		this.exactLimit = Math.max(exactLimit, 0);
+		this.count = 0;
+		this.sum = 0;
+		this.exact = new double[16];
+		this.exactSize = 0;
+		this.exactSorted = true;
+	}
+
+	/**
+	 * Adds a value to the summary
+	 * @param value The value to add
+	 */
+	public void add(double value) {
+		count++;
+		sum += value;
+
+		if (exact != null) {
+			if (exactSize == exact.length) {
+				exact = Arrays.copyOf(exact, exactSize * 2);
+			}
+			exact[exactSize++] = value;
+			exactSorted = false;
+			if (exactSize > exactLimit) {
+				toSketch();
+			}
+			return;
+		}
+
+		addToLevel(0, value);
+		compress();
+	}
+
+	/**
+	 * Returns the number of values added
+	 * @return the number of values added
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the sum of the values added
+	 * @return the sum of the values added
+	 */
+	public double getSum() {
+		return this.sum;
+	}
+
+	/**
+	 * Returns the average of the values or NaN if there are no values
+	 * @return the average of the values
+	 */
+	public double getAverage() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * Returns true if the quantiles are exact
+	 * @return true if all the values are stored
+	 */
+	public boolean isExact() {
+		return this.exact != null;
+	}
+
+	/**
+	 * Returns the median of the values or NaN if there are no values
+	 * @return the median of the values
+	 */
+	public double getMedian() {
+		return getQuantile(0.5);
+	}
+
+	/**
+	 * Returns the q-quantile of the values, i.e., the value whose rank is
+	 * (int)(q * count) in sorted order.
+	 * @param q The quantile (0 &lt;= q &lt;= 1)
+	 * @return the quantile or NaN if there are no values
+	 */
+	public double getQuantile(double q) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		long rank = Math.min(Math.max((long)(q * count), 0), count - 1);
+
+		Sorted s = getSorted();
+		long cumWeight = 0;
+		for (int i=0; i < s.size; i++) {
+			cumWeight += s.weights[i];
+			if (cumWeight > rank) {
+				return s.values[i];
+			}
+		}
+		return s.values[s.size - 1];
+	}
+
+	/**
+	 * Returns the retained values in ascending order with their weights
+	 * (number of original values each retained value represents). In exact
+	 * mode all the values are returned with weight 1.
+	 * @return the retained values and weights
+	 */
+	public Sorted getSorted() {
+		if (exact != null) {
+			if (!exactSorted) {
+				Arrays.sort(exact, 0, exactSize);
+				exactSorted = true;
+			}
+			long[] weights = new long[exactSize];
+			Arrays.fill(weights, 1);
+			return new Sorted(exact, weights, exactSize);
+		}
+
+		final double[] values = new double[nrofRetained];
+		final long[] weights = new long[nrofRetained];
+		int n = 0;
+		for (int h=0; h < nrofLevels; h++) {
+			System.arraycopy(levels[h], 0, values, n, levelSizes[h]);
+			Arrays.fill(weights, n, n + levelSizes[h], 1L << h);
+			n += levelSizes[h];
+		}
+
+		// sort values and weights together
+		Integer[] order = new Integer[n];
+		for (int i=0; i<n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(values[a], values[b]);
+			}
+		});
+		double[] sortedValues = new double[n];
+		long[] sortedWeights = new long[n];
+		for (int i=0; i<n; i++) {
+			sortedValues[i] = values[order[i]];
+			sortedWeights[i] = weights[order[i]];
+		}
+		return new Sorted(sortedValues, sortedWeights, n);
+	}
+
+	/**
+	 * Switches from exact mode to sketch mode
+	 */
+	private void toSketch() {
+		this.levels = new double[1][];
+		this.levelSizes = new int[1];
+		this.oddOffsets = new boolean[1];
+		this.nrofLevels = 1;
+		this.levels[0] = Arrays.copyOf(exact, exactSize);
+		this.levelSizes[0] = exactSize;
+		this.nrofRetained = exactSize;
+		this.exact = null;
+		updateCapacities();
+		compress();
+	}
+
+	/**
+	 * Adds a value to a level, growing the level array if needed
+	 */
+	private void addToLevel(int h, double value) {
+		if (h == nrofLevels) {
+			addLevel();
+		}
+		double[] level = levels[h];
+		if (levelSizes[h] == level.length) {
+			levels[h] = level = Arrays.copyOf(level, level.length * 2);
+		}
+		level[levelSizes[h]++] = value;
+		nrofRetained++;
+	}
+
+	/**
+	 * Adds a new (empty) top level
+	 */
+	private void addLevel() {
+		if (nrofLevels == levels.length) {
+			levels = Arrays.copyOf(levels, nrofLevels * 2);
+			levelSizes = Arrays.copyOf(levelSizes, nrofLevels * 2);
+			oddOffsets = Arrays.copyOf(oddOffsets, nrofLevels * 2);
+		}
+		levels[nrofLevels] = new double[k + 1];
+		levelSizes[nrofLevels] = 0;
+		oddOffsets[nrofLevels] = false;
+		nrofLevels++;
+		updateCapacities();
+	}
+
+	/**
+	 * Computes the level capacities for the current number of levels. The
+	 * top level has capacity k and lower levels get smaller capacities.
+	 */
+	private void updateCapacities() {
+		capacities = new int[nrofLevels];
+		totalCapacity = 0;
+		for (int h=0; h < nrofLevels; h++) {
+			int depth = nrofLevels - 1 - h;
+			capacities[h] = Math.max(2,
+					(int)Math.ceil(k * Math.pow(LEVEL_FACTOR, depth)));
+			totalCapacity += capacities[h];
+		}
+	}
+
+	/**
+	 * Returns the capacity of a level with the current number of levels
+	 */
+	private int capacity(int h) {
+		return capacities[h];
+	}
+
+	/**
+	 * Compacts levels until the sketch fits in its total capacity
+	 */
+	private void compress() {
+		while (true) {
+			if (nrofRetained <= totalCapacity) {
+				return;
+			}
+			for (int h=0; h < nrofLevels; h++) {
+				if (levelSizes[h] >= capacity(h)) {
+					compact(h);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compacts a level: sorts the values and promotes every other value to
+	 * the next level (with double weight). If the level has an odd number
+	 * of values, the largest one stays on the level.
+	 */
+	private void compact(int h) {
+		double[] level = levels[h];
+		int size = levelSizes[h];
+		Arrays.sort(level, 0, size);
+
+		int pairs = size / 2;
+		int offset = oddOffsets[h] ? 1 : 0;
+		oddOffsets[h] = !oddOffsets[h];
+
+		for (int i=0; i < pairs; i++) {
+			addToLevel(h + 1, level[2 * i + offset]);
+		}
+		level = levels[h]; // levels array may have been reallocated
+		if (level.length > 4 * (capacity(h) + 1)) {
+			levels[h] = new double[capacity(h) + 1]; // release the memory
+		}
+		if (size % 2 == 1) {
+			levels[h][0] = level[size - 1];
+			levelSizes[h] = 1;
+		}
+		else {
+			levelSizes[h] = 0;
+		}
+		nrofRetained -= 2 * pairs;
+	}
+
+	/**
+	 * Retained values in ascending order with their weights
+	 */
+	public static class Sorted {
+		/** the values (only the first size values are valid) */
+		public final double[] values;
+		/** the weights of the values */
+		public final long[] weights;
+		/** number of values */
+		public final int size;
+
+		private Sorted(double[] values, long[] weights, int size) {
+			this.values = values;
+			this.weights = weights;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Recording of a simulation run created by {@link RecordingReport} and
+ * replayed by the GUI. The recording consists of frames that have the
+ * state of all hosts at a sample time and the message and connection
+ * events since the previous frame. The frame index in the end of the file
+ * makes it possible to seek to any time without reading the preceding
+ * frames. The frames are read directly from memory mapped segments of at
+ * most {@value #SEGMENT_SIZE} bytes (a frame is never split between
+ * segments), so the recording size is not limited by the maximum size of
+ * a single mapping.
+ * </P><P>
+ * File format (all values big-endian): magic number and format version
+ * (ints) followed by the frames. A frame has the time of the frame
+ * (double) and the number of hosts (N, int) and then the columns: N X and
+ * N Y coordinates (floats), N buffered message counts (ints), N radio
+ * states (bytes, 1 for active) and N network interface counts (bytes).
+ * Those are followed by the total number of interfaces (R, int) and R
+ * transmit ranges (floats), the number of connections (C, int) and C
+ * pairs of host addresses (ints, lower address first), and the number of
+ * events (E, int) and the event columns: E times (doubles), E actions
+ * (bytes, see the <code>ACTION_</code> constants of
+ * {@link BinaryEventLog}), E first host and E second host addresses (-1
+ * if none) and E message indexes (-1 if none) (ints). After the last frame
+ * comes the table section: -1 (int), end time of the recording (double),
+ * number of hosts and host names indexed by address, number of messages
+ * and the message IDs indexed by message index, number of frames and the
+ * time (double) and file offset (long) of each frame. Finally, the offset
+ * of the table section (long).
+ * </P>
+ */
+public class Recording {
+	/** Extension of recording files */
+	public static final String EXT = ".rec";
+	/** Magic number in the beginning of the files */
+	public static final int MAGIC = 0x4f4e4552; // "ONER"
+	/** Version of the file format */
+	public static final int VERSION = 1;
+	/** Size of the file header (bytes) */
+	public static final int HEADER_SIZE = 8;
+	/** Maximum size of a mapped segment (bytes) */
+	public static final int SEGMENT_SIZE = 256 * 1024 * 1024;
+
+	private double endTime;
+	private String[] hostNames;
+	private String[] messageIds;
+	private double[] frameTimes;
+	private long[] frameOffsets;
+	/** mapped segments and the index of the segment of each frame */
+	private List<ByteBuffer> segments;
+	private long[] segmentOffsets;
+	private int[] frameSegments;
+
+	/**
+	 * Opens a recording file and maps it to memory
+	 * @param file The recording file
+	 */
+	public Recording(File file) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, HEADER_SIZE);
+			if (size < HEADER_SIZE + 12 || header.getInt() != MAGIC ||
+					header.getInt() != VERSION) {
+				throw new SimError("Invalid recording file " +
+						file.getAbsolutePath());
+			}
+			long tableOffset = channel.map(FileChannel.MapMode.READ_ONLY,
+					size - 8, 8).getLong();
+
+			channel.position(tableOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel)));
+			if (in.readInt() != -1) {
+				throw new SimError("Invalid table section in recording " +
+						"file " + file.getAbsolutePath());
+			}
+			this.endTime = in.readDouble();
+			this.hostNames = new String[in.readInt()];
+			for (int i=0; i<hostNames.length; i++) {
+				hostNames[i] = in.readUTF();
+			}
+			this.messageIds = new String[in.readInt()];
+			for (int i=0; i<messageIds.length; i++) {
+				messageIds[i] = in.readUTF();
+			}
+			int nrofFrames = in.readInt();
+			this.frameTimes = new double[nrofFrames];
+			this.frameOffsets = new long[nrofFrames + 1];
+			for (int i=0; i<nrofFrames; i++) {
+				frameTimes[i] = in.readDouble();
+				frameOffsets[i] = in.readLong();
+			}
+			frameOffsets[nrofFrames] = tableOffset;
+
+			mapSegments(channel);
+		} catch (IOException e) {
+			throw new SimError("Can't read recording file " +
+					file.getAbsolutePath(), e);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close(); // mapped buffers stay valid after closing
+				} catch (IOException e) {}
+			}
+		}
+	}
+
+	/**
+	 * Maps the frames to memory in segments. A new segment is started when
+	 * the next frame doesn't fit in the current one.
+	 */
+	private void mapSegments(FileChannel channel) throws IOException {
+		int nrofFrames = frameTimes.length;
+		List<Long> starts = new ArrayList<Long>();
+		this.segments = new ArrayList<ByteBuffer>();
+		this.frameSegments = new int[nrofFrames];
+
+		int first = 0;
+		while (first < nrofFrames) {
+			long start = frameOffsets[first];
+			int last = first;
+			while (last + 1 < nrofFrames &&
+					frameOffsets[last + 2] - start <= SEGMENT_SIZE) {
+				last++;
+			}
+			long length = frameOffsets[last + 1] - start;
+			if (length > Integer.MAX_VALUE) {
+				throw new SimError("Too large frame in the recording");
+			}
+			Arrays.fill(frameSegments, first, last + 1, segments.size());
+			starts.add(start);
+			segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start,
+					length));
+			first = last + 1;
+		}
+
+		this.segmentOffsets = new long[starts.size()];
+		for (int i=0; i<segmentOffsets.length; i++) {
+			segmentOffsets[i] = starts.get(i);
+		}
+	}
+
+	/**
+	 * Returns the number of frames in the recording
+	 * @return the number of frames
+	 */
+	public int getNrofFrames() {
+		return this.frameTimes.length;
+	}
+
+	/**
+	 * Returns the time of a frame
+	 * @param index Index of the frame
+	 * @return the time of the frame
+	 */
+	public double getFrameTime(int index) {
+		return this.frameTimes[index];
+	}
+
+	/**
+	 * Returns the index of the last frame whose time is not after the
+	 * given time
+	 * @param time The time
+	 * @return Index of the frame (0 if all frames are after the time)
+	 */
+	public int findFrame(double time) {
+		int i = Arrays.binarySearch(frameTimes, time);
+		if (i < 0) {
+			i = -i - 2; // insertion point - 1
+		}
+		else {
+			while (i + 1 < frameTimes.length && frameTimes[i + 1] == time) {
+				i++;
+			}
+		}
+		return Math.max(i, 0);
+	}
+
+	/**
+	 * Returns a frame of the recording
+	 * @param index Index of the frame
+	 * @return The frame
+	 */
+	public Frame getFrame(int index) {
+		int s = frameSegments[index];
+		int position = (int)(frameOffsets[index] - segmentOffsets[s]);
+		return new Frame(segments.get(s), position);
+	}
+
+	/**
+	 * Returns the simulation time when the recording was finished
+	 * @return the simulation time when the recording was finished
+	 */
+	public double getEndTime() {
+		return this.endTime;
+	}
+
+	/**
+	 * Returns the number of hosts in the host name table
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.hostNames.length;
+	}
+
+	/**
+	 * Returns the name of a host
+	 * @param address Address of the host
+	 * @return the name of the host
+	 */
+	public String getHostName(int address) {
+		return this.hostNames[address];
+	}
+
+	/**
+	 * Returns the number of messages in the message table
+	 * @return the number of messages
+	 */
+	public int getNrofMessages() {
+		return this.messageIds.length;
+	}
+
+	/**
+	 * Returns the ID of a message
+	 * @param index Index of the message
+	 * @return the ID of the message
+	 */
+	public String getMessageId(int index) {
+		return this.messageIds[index];
+	}
+
+	/**
+	 * A frame of the recording. Values are read directly from the mapped
+	 * data. Frames can be read concurrently by different threads.
+	 */
+	public static class Frame {
+		private final ByteBuffer data;
+		private final double time;
+		private final int nrofHosts;
+		private final int xsOffset;
+		private final int ysOffset;
+		private final int messagesOffset;
+		private final int radiosOffset;
+		private final int nrofRangesOffset;
+		private final int totalRanges;
+		private final int rangesOffset;
+		private final int nrofConnections;
+		private final int connectionsOffset;
+		private final int nrofEvents;
+		private final int eventTimesOffset;
+		private final int actionsOffset;
+		private final int hosts1Offset;
+		private final int hosts2Offset;
+		private final int eventMessagesOffset;
+
+		private Frame(ByteBuffer data, int position) {
+			this.data = data;
+			this.time = data.getDouble(position);
+			int n = data.getInt(position + 8);
+			this.nrofHosts = n;
+			this.xsOffset = position + 12;
+			this.ysOffset = xsOffset + n * 4;
+			this.messagesOffset = ysOffset + n * 4;
+			this.radiosOffset = messagesOffset + n * 4;
+			this.nrofRangesOffset = radiosOffset + n;
+
+			int p = nrofRangesOffset + n;
+			this.totalRanges = data.getInt(p);
+			this.rangesOffset = p + 4;
+			p = rangesOffset + totalRanges * 4;
+			this.nrofConnections = data.getInt(p);
+			this.connectionsOffset = p + 4;
+			p = connectionsOffset + nrofConnections * 8;
+
+			int e = data.getInt(p);
+			this.nrofEvents = e;
+			this.eventTimesOffset = p + 4;
+			this.actionsOffset = eventTimesOffset + e * 8;
+			this.hosts1Offset = actionsOffset + e;
+			this.hosts2Offset = hosts1Offset + e * 4;
+			this.eventMessagesOffset = hosts2Offset + e * 4;
+		}
+
+		/** Returns the time of the frame */
+		public double getTime() {
+			return this.time;
+		}
+
+		/** Returns the number of hosts in the frame */
+		public int getNrofHosts() {
+			return this.nrofHosts;
+		}
+
+		/** Returns the X coordinate of the host with address i */
+		public double getX(int i) {
+			return data.getFloat(xsOffset + i * 4);
+		}
+
+		/** Returns the Y coordinate of the host with address i */
+		public double getY(int i) {
+			return data.getFloat(ysOffset + i * 4);
+		}
+
+		/** Returns the number of buffered messages of the host i */
+		public int getNrofMessages(int i) {
+			return data.getInt(messagesOffset + i * 4);
+		}
+
+		/** Returns true if the radio of the host i was active */
+		public boolean isRadioActive(int i) {
+			return data.get(radiosOffset + i) != 0;
+		}
+
+		/** Returns the number of network interfaces of the host i */
+		public int getNrofRanges(int i) {
+			return data.get(nrofRangesOffset + i) & 0xff;
+		}
+
+		/** Returns the total number of network interfaces in the frame */
+		public int getTotalRanges() {
+			return this.totalRanges;
+		}
+
+		/**
+		 * Returns the k:th transmit range of the frame (the ranges of the
+		 * hosts are in address order)
+		 */
+		public double getRange(int k) {
+			return data.getFloat(rangesOffset + k * 4);
+		}
+
+		/** Returns the number of connections in the frame */
+		public int getNrofConnections() {
+			return this.nrofConnections;
+		}
+
+		/** Returns the lower host address of the k:th connection */
+		public int getConnectionHost1(int k) {
+			return data.getInt(connectionsOffset + k * 8);
+		}
+
+		/** Returns the higher host address of the k:th connection */
+		public int getConnectionHost2(int k) {
+			return data.getInt(connectionsOffset + k * 8 + 4);
+		}
+
+		/** Returns the number of events since the previous frame */
+		public int getNrofEvents() {
+			return this.nrofEvents;
+		}
+
+		/** Returns the time of the i:th event */
+		public double getEventTime(int i) {
+			return data.getDouble(eventTimesOffset + i * 8);
+		}
+
+		/** Returns the action code of the i:th event */
+		public byte getAction(int i) {
+			return data.get(actionsOffset + i);
+		}
+
+		/** Returns the first host's address of the i:th event */
+		public int getHost1(int i) {
+			return data.getInt(hosts1Offset + i * 4);
+		}
+
+		/** Returns the second host's address (or -1) of the i:th event */
+		public int getHost2(int i) {
+			return data.getInt(hosts2Offset + i * 4);
+		}
+
+		/** Returns the message index (or -1) of the i:th event */
+		public int getMessage(int i) {
+			return data.getInt(eventMessagesOffset + i * 4);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import core.Connection;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.NetworkInterface;
+import core.SimError;
+
+/**
+ * Report that records the run for replaying it in the GUI (see
+ * {@link Recording} for the format and {@link gui.DTNSimGUI#REPLAY_FILE_S}
+ * for replaying). The state of the hosts is recorded every
+ * {@link SamplingReport#SAMPLE_INTERVAL_SETTING} seconds of simulation
+ * time; the interval should be about the GUI update interval that the
+ * replay is watched with. If no output file is defined, the default output
+ * file name ends with {@value Recording#EXT}. Doesn't support intervalled
+ * reports or compressed output.
+ */
+public class RecordingReport extends SamplingReport
+	implements MessageListener, ConnectionListener {
+	/** Initial size of the event columns */
+	private static final int INITIAL_EVENTS = 1024;
+
+	private DataOutputStream binOut;
+	private String binFileName;
+	/** number of bytes written to the file */
+	private long written;
+	/** the hosts of the latest sample */
+	private List<DTNHost> hosts;
+
+	/* the frame index */
+	private double[] frameTimes;
+	private long[] frameOffsets;
+	private int nrofFrames;
+
+	/* columns of the events since the previous frame */
+	private double[] times;
+	private byte[] actions;
+	private int[] hosts1;
+	private int[] hosts2;
+	private int[] messages;
+	private int nrofEvents;
+
+	/* the message table; recording's indexes by message ID indexes */
+	private int[] messageIndexes;
+	private List<String> messageIds;
+
+	/**
+	 * Constructor.
+	 */
+	public RecordingReport() {
+		String name = getOutputFileName();
+		if (name.endsWith(OUT_SUFFIX)) {
+			name = name.substring(0, name.length() - OUT_SUFFIX.length()) +
+				Recording.EXT;
+		}
+		this.binFileName = name;
+
+		this.frameTimes = new double[INITIAL_EVENTS];
+		this.frameOffsets = new long[INITIAL_EVENTS];
+		this.nrofFrames = 0;
+
+		this.times = new double[INITIAL_EVENTS];
+		this.actions = new byte[INITIAL_EVENTS];
+		this.hosts1 = new int[INITIAL_EVENTS];
+		this.hosts2 = new int[INITIAL_EVENTS];
+		this.messages = new int[INITIAL_EVENTS];
+		this.nrofEvents = 0;
+
+		this.messageIndexes = new int[INITIAL_EVENTS];
+		Arrays.fill(messageIndexes, -1);
+		this.messageIds = new ArrayList<String>();
+
+		try {
+			this.binOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(binFileName), OUTPUT_BUFFER_SIZE));
+			binOut.writeInt(Recording.MAGIC);
+			binOut.writeInt(Recording.VERSION);
+			this.written = Recording.HEADER_SIZE;
+		} catch (IOException e) {
+			throw new SimError("Couldn't open file '" + binFileName +
+					"' for report output\n" + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	protected void sample(List<DTNHost> hosts) {
+		this.hosts = hosts;
+		writeFrame();
+	}
+
+	/**
+	 * Writes a frame with the current state of the hosts and the events
+	 * since the previous frame
+	 */
+	private void writeFrame() {
+		int n = hosts.size();
+		int nrofRanges = 0;
+		int nrofConnections = 0;
+		for (DTNHost h : hosts) {
+			nrofRanges += h.getInterfaces().size();
+			for (Connection con : h.getConnections()) {
+				if (con.getOtherNode(h).getAddress() > h.getAddress()) {
+					nrofConnections++;
+				}
+			}
+		}
+
+		if (nrofFrames == frameTimes.length) {
+			frameTimes = Arrays.copyOf(frameTimes, nrofFrames * 2);
+			frameOffsets = Arrays.copyOf(frameOffsets, nrofFrames * 2);
+		}
+		frameTimes[nrofFrames] = getSimTime();
+		frameOffsets[nrofFrames] = written;
+		nrofFrames++;
+
+		try {
+			binOut.writeDouble(getSimTime());
+			binOut.writeInt(n);
+			for (DTNHost h : hosts) {
+				binOut.writeFloat((float)h.getLocation().getX());
+			}
+			for (DTNHost h : hosts) {
+				binOut.writeFloat((float)h.getLocation().getY());
+			}
+			for (DTNHost h : hosts) {
+				binOut.writeInt(h.getNrofMessages());
+			}
+			for (DTNHost h : hosts) {
+				binOut.writeByte(h.isRadioActive() ? 1 : 0);
+			}
+			for (DTNHost h : hosts) {
+				binOut.writeByte(h.getInterfaces().size());
+			}
+
+			binOut.writeInt(nrofRanges);
+			for (DTNHost h : hosts) {
+				for (NetworkInterface ni : h.getInterfaces()) {
+					binOut.writeFloat((float)ni.getTransmitRange());
+				}
+			}
+
+			binOut.writeInt(nrofConnections);
+			for (DTNHost h : hosts) {
+				for (Connection con : h.getConnections()) {
+					int other = con.getOtherNode(h).getAddress();
+					if (other > h.getAddress()) {
+						binOut.writeInt(h.getAddress());
+						binOut.writeInt(other);
+					}
+				}
+			}
+
+			int e = nrofEvents;
+			binOut.writeInt(e);
+			for (int i=0; i<e; i++) {
+				binOut.writeDouble(times[i]);
+			}
+			binOut.write(actions, 0, e);
+			writeInts(hosts1, e);
+			writeInts(hosts2, e);
+			writeInts(messages, e);
+		} catch (IOException ex) {
+			throw new SimError("Couldn't write to '" + binFileName + "'", ex);
+		}
+
+		written += 8 + 4 + n * (4 + 4 + 4 + 1 + 1) + 4 + nrofRanges * 4 +
+			4 + nrofConnections * 8 + 4 + nrofEvents * (8 + 1 + 4 + 4 + 4);
+		nrofEvents = 0;
+	}
+
+	private void writeInts(int[] values, int n) throws IOException {
+		for (int i=0; i<n; i++) {
+			binOut.writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * Adds an event to the events of the next frame
+	 * @param action Action code of the event (see {@link BinaryEventLog})
+	 * @param host1 The host that caused the event
+	 * @param host2 Another host involved in the event (or null)
+	 * @param m The message involved in the event (or null)
+	 */
+	private void addEvent(byte action, DTNHost host1, DTNHost host2,
+			Message m) {
+		if (nrofEvents == times.length) {
+			int size = nrofEvents * 2;
+			times = Arrays.copyOf(times, size);
+			actions = Arrays.copyOf(actions, size);
+			hosts1 = Arrays.copyOf(hosts1, size);
+			hosts2 = Arrays.copyOf(hosts2, size);
+			messages = Arrays.copyOf(messages, size);
+		}
+
+		int i = nrofEvents++;
+		times[i] = getSimTime();
+		actions[i] = action;
+		hosts1[i] = host1 != null ? host1.getAddress() : -1;
+		hosts2[i] = host2 != null ? host2.getAddress() : -1;
+		messages[i] = m != null ? messageIndex(m) : -1;
+	}
+
+	/**
+	 * Returns the index of a message in the recording, adding it to the
+	 * message table if it wasn't there yet
+	 * @param m The message
+	 * @return Index of the message
+	 */
+	private int messageIndex(Message m) {
+		int idIndex = m.getIdIndex();
+		if (idIndex >= messageIndexes.length) {
+			int oldSize = messageIndexes.length;
+			messageIndexes = Arrays.copyOf(messageIndexes,
+					Math.max(oldSize * 2, idIndex + 1));
+			Arrays.fill(messageIndexes, oldSize, messageIndexes.length, -1);
+		}
+		if (messageIndexes[idIndex] == -1) {
+			messageIndexes[idIndex] = messageIds.size();
+			messageIds.add(m.getId());
+		}
+		return messageIndexes[idIndex];
+	}
+
+	// Implementations of ConnectionListener and MessageListener interfaces
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		addEvent(BinaryEventLog.ACTION_CONN_UP, host1, host2, null);
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		addEvent(BinaryEventLog.ACTION_CONN_DOWN, host1, host2, null);
+	}
+
+	public void newMessage(Message m) {
+		addEvent(BinaryEventLog.ACTION_CREATE, m.getFrom(), null, m);
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		addEvent(BinaryEventLog.ACTION_SEND, from, to, m);
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		addEvent(BinaryEventLog.ACTION_ABORT, from, to, m);
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		byte action;
+		if (firstDelivery) {
+			action = BinaryEventLog.ACTION_DELIVERED;
+		}
+		else if (to == m.getTo()) {
+			action = BinaryEventLog.ACTION_DELIVERED_AGAIN;
+		}
+		else {
+			action = BinaryEventLog.ACTION_RELAYED;
+		}
+		addEvent(action, from, to, m);
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		addEvent(dropped ? BinaryEventLog.ACTION_DROP :
+			BinaryEventLog.ACTION_REMOVE, where, null, m);
+	}
+
+	@Override
+	public void done() {
+		if (hosts != null && (nrofEvents > 0 ||
+				frameTimes[nrofFrames - 1] < getSimTime())) {
+			writeFrame(); // the state in the end of the run
+		}
+		try {
+			binOut.writeInt(-1);
+			binOut.writeDouble(getSimTime());
+			int nrofHosts = hosts != null ? hosts.size() : 0;
+			binOut.writeInt(nrofHosts);
+			for (int i=0; i<nrofHosts; i++) {
+				binOut.writeUTF(hosts.get(i).toString());
+			}
+			binOut.writeInt(messageIds.size());
+			for (String id : messageIds) {
+				binOut.writeUTF(id);
+			}
+			binOut.writeInt(nrofFrames);
+			for (int i=0; i<nrofFrames; i++) {
+				binOut.writeDouble(frameTimes[i]);
+				binOut.writeLong(frameOffsets[i]);
+			}
+			binOut.writeLong(written);
+			binOut.close();
+		} catch (IOException e) {
+			throw new SimError("Couldn't write to '" + binFileName + "'", e);
+		}
+		super.done();
+	}
+}
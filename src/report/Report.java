@@ -4,16 +4,22 @@
  */
 package report;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
+import core.EventFilter;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
@@ -49,8 +55,35 @@ public abstract class Report {
 	 *  respective report classes for details. Default is 0. Must be a positive
 	 *  integer or 0. */
 	public static final String WARMUP_S = "warmup";
+	/** Asynchronous output -setting id ({@value}). Boolean valued. If true,
+	 * the report output is written to the file in a background thread
+	 * (see {@link AsyncReportWriter}). Default is false. */
+	public static final String ASYNC_OUTPUT_S = "asyncOutput";
+	/** Compressed output -setting id ({@value}). Boolean valued. If true,
+	 * the report output is gzip compressed and {@value #GZIP_SUFFIX} is
+	 * appended to the output file names. Default is false. */
+	public static final String COMPRESS_OUTPUT_S = "compressOutput";
+	/** Accuracy of the quantile sketches -setting id ({@value}). Reports
+	 * that compute medians and other quantiles in bounded memory use
+	 * {@link QuantileSketch}es with this accuracy parameter after the number
+	 * of values exceeds {@link #SKETCH_EXACT_LIMIT_S}. Default is
+	 * {@value QuantileSketch#DEF_K}. */
+	public static final String SKETCH_K_S = "sketchK";
+	/** Maximum number of values stored exactly in the quantile sketches
+	 * -setting id ({@value}). Until this many values, the quantiles are
+	 * exact. Default is {@value QuantileSketch#DEF_EXACT_LIMIT}. */
+	public static final String SKETCH_EXACT_LIMIT_S = "sketchExactLimit";
+	/** Event thread -setting id ({@value}). Boolean valued. If true,
+	 * reports that get their events from the {@link core.EventBus} (i.e.,
+	 * implement {@link core.EventBatchListener}) process the events in their
+	 * own thread. Default is false. */
+	public static final String EVENT_THREAD_S = "eventThread";
 	/** Suffix of report files without explicit output */
 	public static final String OUT_SUFFIX = ".txt";
+	/** Suffix appended to compressed report files */
+	public static final String GZIP_SUFFIX = ".gz";
+	/** Size of the output buffer (bytes/characters) */
+	public static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
 	/** Suffix for reports that are created on n second intervals */
 	public static final String INTERVALLED_FORMAT ="%04d" + OUT_SUFFIX;
 	/** The print writer used to write output. See {@link #write(String)} */
@@ -59,6 +92,11 @@ public abstract class Report {
 	public static final String NAN = "NaN";
 	private String prefix = "";
 	private int precision;
+	private boolean asyncOutput;
+	private boolean compressOutput;
+	private int sketchK;
+	private int sketchExactLimit;
+	private boolean eventThread;
 	protected int warmupTime;
 	protected Set<String> warmupIDs;
 
@@ -107,6 +145,15 @@ public abstract class Report {
 			precision = DEF_PRECISION;
 		}
 
+		this.asyncOutput = settings.getBoolean(ASYNC_OUTPUT_S, false);
+		this.compressOutput = settings.getBoolean(COMPRESS_OUTPUT_S, false);
+		this.sketchK = settings.contains(SKETCH_K_S) ?
+				settings.getInt(SKETCH_K_S) : QuantileSketch.DEF_K;
+		this.sketchExactLimit = settings.contains(SKETCH_EXACT_LIMIT_S) ?
+				settings.getInt(SKETCH_EXACT_LIMIT_S) :
+					QuantileSketch.DEF_EXACT_LIMIT;
+		this.eventThread = settings.getBoolean(EVENT_THREAD_S, false);
+
 		if (settings.contains(OUTPUT_SETTING)) {
 			outFileName = settings.getSetting(OUTPUT_SETTING);
 			// fill value place holders in the name
@@ -187,12 +234,27 @@ public abstract class Report {
 	}
 
 	/**
-	 * Creates a new output file
+	 * Creates a new output file. Depending on the settings, the output is
+	 * compressed and/or written in a background thread.
 	 * @param outFileName Name (&path) of the file to create
 	 */
 	private void createOutput(String outFileName) {
 		try {
-			this.out = new PrintWriter(new FileWriter(outFileName));
+			Writer w;
+			if (compressOutput) {
+				outFileName += GZIP_SUFFIX;
+				w = new OutputStreamWriter(new GZIPOutputStream(
+						new FileOutputStream(outFileName), OUTPUT_BUFFER_SIZE));
+			}
+			else {
+				w = new FileWriter(outFileName);
+			}
+			w = new BufferedWriter(w, OUTPUT_BUFFER_SIZE);
+			if (asyncOutput) {
+				w = new AsyncReportWriter(w,
+						this.getClass().getSimpleName() + " writer");
+			}
+			this.out = new PrintWriter(w);
 		} catch (IOException e) {
 			throw new SimError("Couldn't open file '" + outFileName +
 					"' for report output\n" + e.getMessage(), e);
@@ -235,7 +297,10 @@ public abstract class Report {
 		if (out == null) {
 			init();
 		}
-		out.println(prefix + txt);
+		if (prefix.length() > 0) {
+			out.print(prefix);
+		}
+		out.println(txt);
 	}
 
 	/**
@@ -243,9 +308,10 @@ public abstract class Report {
 	 * {@link #PRECISION_SETTING}) and returns it in a string.
 	 * @param value The value to format
 	 * @return Formatted value in a string
+	 * @see NumberFormatter
 	 */
 	protected String format(double value) {
-		return String.format("%." + precision + "f", value);
+		return NumberFormatter.format(value, precision);
 	}
 
 	/**
@@ -264,6 +330,15 @@ public abstract class Report {
 		return this.scenarioName;
 	}
 
+	/**
+	 * Returns the output file name of the report (without interval suffix
+	 * or compression suffix)
+	 * @return the output file name of the report
+	 */
+	protected String getOutputFileName() {
+		return this.outFileName;
+	}
+
 	/**
 	 * Returns the current simulation time from the SimClock
 	 * @return the current simulation time from the SimClock
@@ -272,6 +347,26 @@ public abstract class Report {
 		return SimClock.getTime();
 	}
 
+	/**
+	 * Returns true if the report should get its {@link core.EventBus}
+	 * events in its own thread (see {@link #EVENT_THREAD_S})
+	 * @return true if the events should be processed in a separate thread
+	 */
+	public boolean isEventThread() {
+		return this.eventThread;
+	}
+
+	/**
+	 * Returns the filter for the events this report gets from the
+	 * {@link core.EventBus} (if it implements {@link core.EventBatchListener}).
+	 * By default all events are accepted. Reports can override this to,
+	 * e.g., skip the warm up period.
+	 * @return The event filter
+	 */
+	public EventFilter getEventFilter() {
+		return new EventFilter();
+	}
+
 	/**
 	 * Returns true if the warm up period is still ongoing (simTime < warmup)
 	 * @return true if the warm up period is still ongoing, false if not
@@ -398,6 +493,54 @@ public abstract class Report {
 		return values.get(values.size()/2);
 	}
 
+	/**
+	 * Creates a new quantile sketch using the sketch settings of this report
+	 * (see {@link #SKETCH_K_S} and {@link #SKETCH_EXACT_LIMIT_S})
+	 * @return a new quantile sketch
+	 */
+	protected QuantileSketch createSketch() {
+		return new QuantileSketch(this.sketchK, this.sketchExactLimit);
+	}
+
+	/**
+	 * Returns the average of the values in a quantile sketch or "NaN" if
+	 * the sketch is empty.
+	 * @param values The sketch
+	 * @return average of the values in a formatted String
+	 */
+	public String getAverage(QuantileSketch values) {
+		if (values.getCount() == 0) {
+			return NAN;
+		}
+		return format(values.getAverage());
+	}
+
+	/**
+	 * Returns the median of the values in a quantile sketch or "NaN" if
+	 * the sketch is empty. The median is approximate if the sketch has more
+	 * values than it stores exactly.
+	 * @param values The sketch
+	 * @return median of the values in a formatted String
+	 */
+	public String getMedian(QuantileSketch values) {
+		if (values.getCount() == 0) {
+			return NAN;
+		}
+		return format(values.getMedian());
+	}
+
+	/**
+	 * Returns the median of integer values in a quantile sketch
+	 * @param values The sketch
+	 * @return median of the values as an integer or 0 if the sketch is empty
+	 */
+	public int getIntMedian(QuantileSketch values) {
+		if (values.getCount() == 0) {
+			return 0;
+		}
+		return (int)values.getMedian();
+	}
+
 	/**
 	 * Returns the variance of the values in the List.
 	 *
@@ -39,14 +39,15 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 
 	@Override
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		trackDisconnected(host1, host2);
 		newEvent();
-		ConnectionInfo ci = removeConnection(host1, host2);
+		double time = getEndedContactTime(host1, host2);
 
-		if (ci == null) {
-			return; // connection started during the warm up period
+		if (time < 0) {
+			return; // contact started during the warm up period (or goes on)
 		}
 
-		oldContactTimes += ci.getConnectionTime();
+		oldContactTimes += time;
 	}
 
 	/**
@@ -63,8 +64,11 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 
 		// count also the times for connections that are still up
 		double othersTime = 0;
-		for (ConnectionInfo oth : this.connections.values()) {
-			othersTime += oth.getConnectionTime();
+		for (int i=0, n=contacts.getNrofCurrentContacts(); i<n; i++) {
+			double start = contacts.getStartTime(contacts.getCurrentContact(i));
+			if (start >= this.countFrom) {
+				othersTime += simTime - start;
+			}
 		}
 
 		double totalTime = oldContactTimes + othersTime;
@@ -12,48 +12,59 @@ import core.UpdateListener;
 
 /**
  * UniqueEncountersReport class creates a report of the distribution of how
- * many promilles of the other nodes a node has encountered.
+ * many promilles of the other nodes a node has encountered. The encounters
+ * are read from a {@link ContactTracker}, which stores only the host pairs
+ * that have met. Pairs whose latest contact started before the first update
+ * are not counted.
  *
  * @author Frans Ekman
  */
 public class UniqueEncountersReport extends Report implements
-	ConnectionListener, UpdateListener {
+	ConnectionListener, UpdateListener, ContactReport {
 
-	private int[][] nodeRelationships;
+	private ContactTracker contacts;
+	private boolean ownTracker;
+	private int nrofHosts;
+	/** sim time of the first update */
+	private double firstUpdate;
 
 	public UniqueEncountersReport() {
+		this.contacts = new ContactTracker();
+		this.ownTracker = true;
+		this.nrofHosts = -1;
+	}
 
+	public void setContactTracker(ContactTracker tracker) {
+		this.contacts = tracker;
+		this.ownTracker = false;
 	}
 
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		if (nodeRelationships == null) {
-			return;
+		if (ownTracker) {
+			contacts.hostsConnected(host1, host2);
 		}
-		nodeRelationships[host1.getAddress()][host2.getAddress()]++;
-		nodeRelationships[host2.getAddress()][host1.getAddress()]++;
 	}
 
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		if (ownTracker) {
+			contacts.hostsDisconnected(host1, host2);
+		}
+	}
 
 	public void updated(List<DTNHost> hosts) {
-		if (nodeRelationships == null) {
-			nodeRelationships = new int[hosts.size()][hosts.size()];
+		if (nrofHosts < 0) {
+			nrofHosts = hosts.size();
+			firstUpdate = getSimTime();
 		}
 	}
 
 	@Override
 	public void done() {
 		int[] distribution = new int[1000];
+		int[] uniqueEncounters = getUniqueEncounters();
 
-		for (int i=0; i<nodeRelationships.length; i++) {
-			int count = 0;
-			for (int j=0; j<nodeRelationships.length; j++) {
-				if (nodeRelationships[i][j] > 0) {
-					count++;
-				}
-			}
-
-			int promille = (count * 1000)/nodeRelationships.length;
+		for (int i=0; i<uniqueEncounters.length; i++) {
+			int promille = (uniqueEncounters[i] * 1000) / nrofHosts;
 			distribution[promille]++;
 		}
 
@@ -65,12 +76,27 @@ public class UniqueEncountersReport extends Report implements
 		super.done();
 	}
 
-	public int[][] getNodeRelationships() {
-		return nodeRelationships;
-	}
+	/**
+	 * Returns the number of different hosts every host has encountered
+	 * @return The number of unique encounters indexed by host address
+	 */
+	public int[] getUniqueEncounters() {
+		int[] uniqueEncounters = new int[Math.max(nrofHosts, 0)];
+		if (nrofHosts < 0) {
+			return uniqueEncounters;
+		}
 
-	public void setNodeRelationships(int[][] nodeRelationships) {
-		this.nodeRelationships = nodeRelationships;
+		for (int c=0, n=contacts.getNrofPairs(); c<n; c++) {
+			/* connections made before (or at) the first update are ignored;
+			   if a contact started after it, the pair met after it */
+			if (contacts.getStartTime(c) <= firstUpdate) {
+				continue;
+			}
+			long key = contacts.getKey(c);
+			uniqueEncounters[HostPairIndex.getFirst(key)]++;
+			uniqueEncounters[HostPairIndex.getSecond(key)]++;
+		}
+		return uniqueEncounters;
 	}
 
 }
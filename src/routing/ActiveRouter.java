@@ -232,8 +232,8 @@ public abstract class ActiveRouter extends MessageRouter {
 			return TRY_LATER_BUSY; // only one connection at a time
 		}
 
-		if ( hasMessage(m.getId()) || isDeliveredMessage(m) ||
-				super.isBlacklistedMessage(m.getId())) {
+		if ( hasMessage(m.getIdIndex()) || isDeliveredMessage(m) ||
+				super.isBlacklistedMessage(m.getIdIndex())) {
 			return DENIED_OLD; // already seen this message -> reject it
 		}
 
@@ -327,7 +327,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		Message oldest = null;
 		for (Message m : messages) {
 
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdIndex())) {
 				continue; // skip the message(s) that router is sending
 			}
 
@@ -551,11 +551,22 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * @return True if the message is being sent false if not
 	 */
 	public boolean isSending(String msgId) {
+		return isSending(Message.getIdIndex(msgId));
+	}
+
+	/**
+	 * Returns true if this router is currently sending a message with
+	 * the given ID index.
+	 * @param idIndex Interned index of the message's identifier
+	 * (see {@link Message#getIdIndex()})
+	 * @return True if the message is being sent false if not
+	 */
+	public boolean isSending(int idIndex) {
 		for (Connection con : this.sendingConnections) {
 			if (con.getMessage() == null) {
 				continue; // transmission is finalized
 			}
-			if (con.getMessage().getId().equals(msgId)) {
+			if (con.getMessage().getIdIndex() == idIndex) {
 				return true;
 			}
 		}
@@ -4,6 +4,12 @@
  */
 package routing;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import routing.util.SummaryVector;
+import core.Connection;
+import core.Message;
 import core.Settings;
 
 /**
@@ -43,8 +49,48 @@ public class EpidemicRouter extends ActiveRouter {
 			return; // started a transfer, don't try others (yet)
 		}
 
-		// then try any/all message to any/all connection
-		this.tryAllMessagesToAllConnections();
+		// then try the messages that the connected hosts are missing
+		this.tryMissingMessagesToConnections();
+	}
+
+	/**
+	 * Tries to send messages to the connected hosts that, according to
+	 * their summary vectors, don't have all the messages of this host.
+	 * Only the messages that a host is missing are offered to it, in the
+	 * send queue order. Hosts whose summary covers this host's summary are
+	 * skipped without looking at the messages.
+	 * @return The connection that started a transfer or null if no
+	 * connection accepted a message
+	 * @see MessageRouter#getSummaryVector()
+	 */
+	protected Connection tryMissingMessagesToConnections() {
+		SummaryVector summary = getSummaryVector();
+		List<Message> messages = null;
+
+		for (Connection con : getConnections()) {
+			SummaryVector peer =
+				con.getOtherNode(getHost()).getRouter().getSummaryVector();
+			if (!summary.hasMissing(peer)) {
+				continue; // the other host has all our messages
+			}
+
+			if (messages == null) { // sort only if something is missing
+				messages = new ArrayList<Message>(getMessageCollection());
+				this.sortByQueueMode(messages);
+			}
+			List<Message> missing = new ArrayList<Message>();
+			for (Message m : messages) {
+				if (!peer.mightContain(m.getIdIndex())) {
+					missing.add(m);
+				}
+			}
+
+			if (tryAllMessages(con, missing) != null) {
+				return con;
+			}
+		}
+
+		return null;
 	}
 
 
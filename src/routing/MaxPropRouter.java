@@ -16,7 +16,9 @@ import java.util.Set;
 
 import routing.maxprop.MaxPropDijkstra;
 import routing.maxprop.MeetingProbabilitySet;
+import routing.util.MessageIdSet;
 import routing.util.RoutingInfo;
+import routing.util.SummaryVector;
 import util.Tuple;
 import core.Connection;
 import core.DTNHost;
@@ -54,7 +56,7 @@ public class MaxPropRouter extends ActiveRouter {
 	/** the cost-to-node calculator */
 	private MaxPropDijkstra dijkstra;
 	/** IDs of the messages that are known to have reached the final dst */
-	private Set<String> ackedMessageIds;
+	private MessageIdSet ackedMessageIds;
 	/** mapping of the current costs for all messages. This should be set to
 	 * null always when the costs should be updated (a host is met or a new
 	 * message is received) */
@@ -63,7 +65,7 @@ public class MaxPropRouter extends ActiveRouter {
 	private DTNHost lastCostFrom;
 
 	/** Map of which messages have been sent to which hosts from this host */
-	private Map<DTNHost, Set<String>> sentMessages;
+	private Map<DTNHost, MessageIdSet> sentMessages;
 
 	/** Over how many samples the "average number of bytes transferred per
 	 * transfer opportunity" is taken */
@@ -115,9 +117,9 @@ public class MaxPropRouter extends ActiveRouter {
 		this.probs = new MeetingProbabilitySet(probSetMaxSize, this.alpha);
 		this.allProbs = new HashMap<Integer, MeetingProbabilitySet>();
 		this.dijkstra = new MaxPropDijkstra(this.allProbs);
-		this.ackedMessageIds = new HashSet<String>();
+		this.ackedMessageIds = new MessageIdSet();
 		this.avgSamples = new int[BYTES_TRANSFERRED_AVG_SAMPLES];
-		this.sentMessages = new HashMap<DTNHost, Set<String>>();
+		this.sentMessages = new HashMap<DTNHost, MessageIdSet>();
 	}
 
 	@Override
@@ -183,9 +185,19 @@ public class MaxPropRouter extends ActiveRouter {
 	 * Deletes the messages from the message buffer that are known to be ACKed
 	 */
 	private void deleteAckedMessages() {
-		for (String id : this.ackedMessageIds) {
-			if (this.hasMessage(id) && !isSending(id)) {
-				this.deleteMessage(id, false);
+		List<Message> acked = null;
+		for (Message m : getMessageCollection()) {
+			if (this.ackedMessageIds.contains(m.getIdIndex()) &&
+					!isSending(m.getIdIndex())) {
+				if (acked == null) {
+					acked = new ArrayList<Message>();
+				}
+				acked.add(m);
+			}
+		}
+		if (acked != null) {
+			for (Message m : acked) {
+				this.deleteMessage(m.getId(), false);
 			}
 		}
 	}
@@ -196,7 +208,7 @@ public class MaxPropRouter extends ActiveRouter {
 		Message m = super.messageTransferred(id, from);
 		/* was this node the final recipient of the message? */
 		if (isDeliveredMessage(m)) {
-			this.ackedMessageIds.add(id);
+			this.ackedMessageIds.add(m.getIdIndex());
 		}
 		return m;
 	}
@@ -210,22 +222,21 @@ public class MaxPropRouter extends ActiveRouter {
 	@Override
 	protected void transferDone(Connection con) {
 		Message m = con.getMessage();
-		String id = m.getId();
 		DTNHost recipient = con.getOtherNode(getHost());
-		Set<String> sentMsgIds = this.sentMessages.get(recipient);
+		MessageIdSet sentMsgIds = this.sentMessages.get(recipient);
 
 		/* was the message delivered to the final recipient? */
 		if (m.getTo() == recipient) {
-			this.ackedMessageIds.add(m.getId()); // yes, add to ACKed messages
+			this.ackedMessageIds.add(m.getIdIndex()); // yes, add to ACKed msgs
 			this.deleteMessage(m.getId(), false); // delete from buffer
 		}
 
 		/* update the map of where each message is already sent */
 		if (sentMsgIds == null) {
-			sentMsgIds = new HashSet<String>();
+			sentMsgIds = new MessageIdSet();
 			this.sentMessages.put(recipient, sentMsgIds);
 		}
-		sentMsgIds.add(id);
+		sentMsgIds.add(m.getIdIndex());
 	}
 
 	/**
@@ -273,7 +284,7 @@ public class MaxPropRouter extends ActiveRouter {
 		List<Message> validMessages = new ArrayList<Message>();
 
 		for (Message m : messages) {
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdIndex())) {
 				continue; // skip the message(s) that router is sending
 			}
 			validMessages.add(m);
@@ -347,28 +358,33 @@ public class MaxPropRouter extends ActiveRouter {
 			new ArrayList<Tuple<Message, Connection>>();
 
 		Collection<Message> msgCollection = getMessageCollection();
+		SummaryVector summary = getSummaryVector();
 
 		/* for all connected hosts that are not transferring at the moment,
 		 * collect all the messages that could be sent */
 		for (Connection con : getConnections()) {
 			DTNHost other = con.getOtherNode(getHost());
 			MaxPropRouter othRouter = (MaxPropRouter)other.getRouter();
-			Set<String> sentMsgIds = this.sentMessages.get(other);
+			MessageIdSet sentMsgIds = this.sentMessages.get(other);
 
 			if (othRouter.isTransferring()) {
 				continue; // skip hosts that are transferring
 			}
+			SummaryVector othSummary = othRouter.getSummaryVector();
+			if (!summary.hasMissing(othSummary)) {
+				continue; // the other host has all our messages
+			}
 
 			for (Message m : msgCollection) {
 				/* skip messages that the other host has or that have
 				 * passed the other host */
-				if (othRouter.hasMessage(m.getId()) ||
+				if (othSummary.mightContain(m.getIdIndex()) ||
 						m.getHops().contains(other)) {
 					continue;
 				}
 				/* skip message if this host has already sent it to the other
 				   host (regardless of if the other host still has it) */
-				if (sentMsgIds != null && sentMsgIds.contains(m.getId())) {
+				if (sentMsgIds != null && sentMsgIds.contains(m.getIdIndex())) {
 					continue;
 				}
 				/* message was a good candidate for sending */
@@ -4,6 +4,7 @@
  */
 package routing;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -20,7 +21,9 @@ import core.Settings;
 import core.SettingsError;
 import core.SimClock;
 import core.SimError;
+import routing.util.MessageIdSet;
 import routing.util.RoutingInfo;
+import routing.util.SummaryVector;
 import util.Tuple;
 
 /**
@@ -57,6 +60,22 @@ public abstract class MessageRouter {
 	/** Setting string for FIFO queue mode */
 	public static final String STR_Q_MODE_FIFO = "FIFO";
 
+	/**
+	 * Summary vector false positive rate -setting id ({@value}). If set,
+	 * the summary vectors (see {@link #getSummaryVector()}) are advertised
+	 * to the peers as Bloom filters with this false positive rate (a double
+	 * in range (0, 1)). If not set (default), exact summaries are used.
+	 */
+	public static final String SUMMARY_FP_RATE_S = "summaryVectorFpRate";
+	/**
+	 * Summary vector capacity -setting id ({@value}). The number of messages
+	 * the Bloom filter summary vectors are dimensioned for. Default value is
+	 * {@link #DEF_SUMMARY_CAPACITY}.
+	 */
+	public static final String SUMMARY_CAPACITY_S = "summaryVectorCapacity";
+	/** Default value for the summary vector capacity */
+	public static final int DEF_SUMMARY_CAPACITY = 1000;
+
 	/* Return values when asking to start a transmission:
 	 * RCV_OK (0) means that the host accepts the message and transfer started,
 	 * values < 0 mean that the  receiving host will not accept this
@@ -83,14 +102,23 @@ public abstract class MessageRouter {
 	public static final int DENIED_UNSPECIFIED = -99;
 
 	private List<MessageListener> mListeners;
-	/** The messages being transferred with msgID_hostName keys */
-	private HashMap<String, Message> incomingMessages;
+	/** The messages being transferred (there are only few at a time) */
+	private List<Message> incomingMessages;
+	/** The hosts the incoming messages are from */
+	private List<DTNHost> incomingFrom;
 	/** The messages this router is carrying */
 	private HashMap<String, Message> messages;
+	/** Total size of the messages this router is carrying */
+	private int occupancy;
+	/** ID indexes of the messages this router is carrying */
+	private MessageIdSet messageIds;
 	/** The messages this router has received as the final recipient */
-	private HashMap<String, Message> deliveredMessages;
-	/** The messages that Applications on this router have blacklisted */
-	private HashMap<String, Object> blacklistedMessages;
+	private List<Message> deliveredMessages;
+	/** ID indexes of the delivered messages */
+	private MessageIdSet deliveredIds;
+	/** ID indexes of the messages that Applications on this router have
+	 * blacklisted */
+	private MessageIdSet blacklistedIds;
 	/** Host where this router belongs to */
 	private DTNHost host;
 	/** size of the buffer */
@@ -99,6 +127,12 @@ public abstract class MessageRouter {
 	protected int msgTtl;
 	/** Queue mode for sending messages */
 	private int sendQueueMode;
+	/** False positive rate of Bloom filter summaries (0 for exact ones) */
+	private double summaryFpRate;
+	/** Capacity of Bloom filter summaries */
+	private int summaryCapacity;
+	/** Summary vector of the buffered messages (created when needed) */
+	private SummaryVector summary;
 
 	/** applications attached to the host */
 	private HashMap<String, Collection<Application>> applications = null;
@@ -141,6 +175,19 @@ public abstract class MessageRouter {
 		else {
 			sendQueueMode = Q_MODE_RANDOM;
 		}
+
+		this.summaryFpRate = 0;
+		this.summaryCapacity = DEF_SUMMARY_CAPACITY;
+		if (s.contains(SUMMARY_FP_RATE_S)) {
+			this.summaryFpRate = s.getDouble(SUMMARY_FP_RATE_S);
+			if (summaryFpRate <= 0 || summaryFpRate >= 1) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(SUMMARY_FP_RATE_S));
+			}
+		}
+		if (s.contains(SUMMARY_CAPACITY_S)) {
+			this.summaryCapacity = s.getInt(SUMMARY_CAPACITY_S);
+		}
 	}
 
 	/**
@@ -151,10 +198,14 @@ public abstract class MessageRouter {
 	 * @param mListeners The message listeners
 	 */
 	public void init(DTNHost host, List<MessageListener> mListeners) {
-		this.incomingMessages = new HashMap<String, Message>();
+		this.incomingMessages = new ArrayList<Message>();
+		this.incomingFrom = new ArrayList<DTNHost>();
 		this.messages = new HashMap<String, Message>();
-		this.deliveredMessages = new HashMap<String, Message>();
-		this.blacklistedMessages = new HashMap<String, Object>();
+		this.occupancy = 0;
+		this.messageIds = new MessageIdSet();
+		this.deliveredMessages = new ArrayList<Message>();
+		this.deliveredIds = new MessageIdSet();
+		this.blacklistedIds = new MessageIdSet();
 		this.mListeners = mListeners;
 		this.host = host;
 	}
@@ -167,6 +218,8 @@ public abstract class MessageRouter {
 		this.bufferSize = r.bufferSize;
 		this.msgTtl = r.msgTtl;
 		this.sendQueueMode = r.sendQueueMode;
+		this.summaryFpRate = r.summaryFpRate;
+		this.summaryCapacity = r.summaryCapacity;
 
 		this.applications = new HashMap<String, Collection<Application>>();
 		for (Collection<Application> apps : r.applications.values()) {
@@ -213,6 +266,40 @@ public abstract class MessageRouter {
 		return this.messages.containsKey(id);
 	}
 
+	/**
+	 * Checks if this router has a message with certain id buffered.
+	 * @param idIndex Interned index of the message's identifier
+	 * (see {@link Message#getIdIndex()})
+	 * @return True if the router has message with this id, false if not
+	 */
+	public boolean hasMessage(int idIndex) {
+		return this.messageIds.contains(idIndex);
+	}
+
+	/**
+	 * Returns the summary vector of the messages this router is carrying.
+	 * The summary is created on the first call and kept up to date after
+	 * that, so routers that don't use summaries don't pay for them.
+	 * Depending on the {@link #SUMMARY_FP_RATE_S} setting, the summary is
+	 * either exact or a Bloom filter.
+	 * @return The summary vector of the buffered messages
+	 */
+	public SummaryVector getSummaryVector() {
+		if (this.summary == null) {
+			if (this.summaryFpRate > 0) {
+				this.summary = new SummaryVector(this.summaryCapacity,
+						this.summaryFpRate);
+			}
+			else {
+				this.summary = new SummaryVector();
+			}
+			for (Message m : this.messages.values()) {
+				this.summary.add(m.getIdIndex());
+			}
+		}
+		return this.summary;
+	}
+
 	/**
 	 * Returns true if a full message with same ID as the given message has been
 	 * received by this host as the <strong>final</strong> recipient
@@ -222,7 +309,7 @@ public abstract class MessageRouter {
 	 * this host as the final recipient.
 	 */
 	protected boolean isDeliveredMessage(Message m) {
-		return (this.deliveredMessages.containsKey(m.getId()));
+		return this.deliveredIds.contains(m.getIdIndex());
 	}
 
 	/**
@@ -235,7 +322,17 @@ public abstract class MessageRouter {
 	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
 	 */
 	protected boolean isBlacklistedMessage(String id) {
-		return this.blacklistedMessages.containsKey(id);
+		return isBlacklistedMessage(Message.getIdIndex(id));
+	}
+
+	/**
+	 * Returns <code>true</code> if the message has been blacklisted.
+	 * @param idIndex Interned index of the message's identifier
+	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
+	 * @see #isBlacklistedMessage(String)
+	 */
+	protected boolean isBlacklistedMessage(int idIndex) {
+		return this.blacklistedIds.contains(idIndex);
 	}
 
 	/**
@@ -274,17 +371,11 @@ public abstract class MessageRouter {
 	 * size isn't defined)
 	 */
 	public int getFreeBufferSize() {
-		int occupancy = 0;
-
 		if (this.getBufferSize() == Integer.MAX_VALUE) {
 			return Integer.MAX_VALUE;
 		}
 
-		for (Message m : getMessageCollection()) {
-			occupancy += m.getSize();
-		}
-
-		return this.getBufferSize() - occupancy;
+		return this.getBufferSize() - this.occupancy;
 	}
 
 	/**
@@ -383,11 +474,12 @@ public abstract class MessageRouter {
 			// -> put to buffer
 			addToMessages(aMessage, false);
 		} else if (isFirstDelivery) {
-			this.deliveredMessages.put(id, aMessage);
+			this.deliveredMessages.add(aMessage);
+			this.deliveredIds.add(aMessage.getIdIndex());
 		} else if (outgoing == null) {
 			// Blacklist messages that an app wants to drop.
 			// Otherwise the peer will just try to send it back again.
-			this.blacklistedMessages.put(id, null);
+			this.blacklistedIds.add(aMessage.getIdIndex());
 		}
 
 		for (MessageListener ml : this.mListeners) {
@@ -405,7 +497,8 @@ public abstract class MessageRouter {
 	 * @param from Who the message was from (previous hop).
 	 */
 	protected void putToIncomingBuffer(Message m, DTNHost from) {
-		this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+		this.incomingMessages.add(m);
+		this.incomingFrom.add(from);
 	}
 
 	/**
@@ -416,7 +509,14 @@ public abstract class MessageRouter {
 	 * @return The found message or null if such message wasn't found
 	 */
 	protected Message removeFromIncomingBuffer(String id, DTNHost from) {
-		return this.incomingMessages.remove(id + "_" + from.toString());
+		for (int i=0, n=this.incomingMessages.size(); i<n; i++) {
+			if (this.incomingFrom.get(i) == from &&
+					this.incomingMessages.get(i).getId().equals(id)) {
+				this.incomingFrom.remove(i);
+				return this.incomingMessages.remove(i);
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -426,7 +526,12 @@ public abstract class MessageRouter {
 	 * @return True if such message is incoming right now
 	 */
 	protected boolean isIncomingMessage(String id) {
-		return this.incomingMessages.containsKey(id);
+		for (Message m : this.incomingMessages) {
+			if (m.getId().equals(id)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -437,7 +542,12 @@ public abstract class MessageRouter {
 	 * message, if false, nothing is informed.
 	 */
 	protected void addToMessages(Message m, boolean newMessage) {
-		this.messages.put(m.getId(), m);
+		Message old = this.messages.put(m.getId(), m);
+		this.occupancy += m.getSize() - (old != null ? old.getSize() : 0);
+		this.messageIds.add(m.getIdIndex());
+		if (this.summary != null) {
+			this.summary.add(m.getIdIndex());
+		}
 
 		if (newMessage) {
 			for (MessageListener ml : this.mListeners) {
@@ -453,6 +563,13 @@ public abstract class MessageRouter {
 	 */
 	protected Message removeFromMessages(String id) {
 		Message m = this.messages.remove(id);
+		if (m != null) {
+			this.occupancy -= m.getSize();
+			this.messageIds.remove(m.getIdIndex());
+			if (this.summary != null) {
+				this.summary.remove(m.getIdIndex());
+			}
+		}
 		return m;
 	}
 
@@ -599,11 +716,11 @@ public abstract class MessageRouter {
 		ri.addMoreInfo(delivered);
 		ri.addMoreInfo(cons);
 
-		for (Message m : this.incomingMessages.values()) {
+		for (Message m : this.incomingMessages) {
 			incoming.addMoreInfo(new RoutingInfo(m));
 		}
 
-		for (Message m : this.deliveredMessages.values()) {
+		for (Message m : this.deliveredMessages) {
 			delivered.addMoreInfo(new RoutingInfo(m + " path:" + m.getHops()));
 		}
 
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 
 import routing.util.RoutingInfo;
+import routing.util.SummaryVector;
 
 import util.Tuple;
 
@@ -216,6 +217,7 @@ public class ProphetRouter extends ActiveRouter {
 			new ArrayList<Tuple<Message, Connection>>();
 
 		Collection<Message> msgCollection = getMessageCollection();
+		SummaryVector summary = getSummaryVector();
 
 		/* for all connected hosts collect all messages that have a higher
 		   probability of delivery by the other host */
@@ -226,9 +228,13 @@ public class ProphetRouter extends ActiveRouter {
 			if (othRouter.isTransferring()) {
 				continue; // skip hosts that are transferring
 			}
+			SummaryVector othSummary = othRouter.getSummaryVector();
+			if (!summary.hasMissing(othSummary)) {
+				continue; // the other host has all our messages
+			}
 
 			for (Message m : msgCollection) {
-				if (othRouter.hasMessage(m.getId())) {
+				if (othSummary.mightContain(m.getIdIndex())) {
 					continue; // skip messages that the other one has
 				}
 				if (othRouter.getPredFor(m.getTo()) > getPredFor(m.getTo())) {
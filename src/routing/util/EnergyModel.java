@@ -14,7 +14,7 @@ import core.*;
  * often than 1/s, constant scanning is assumed (and power consumption does not
  * increase from {@link #scanEnergy} value).
  */
-public class EnergyModel implements ModuleCommunicationListener {
+public class EnergyModel {
 	/** Initial units of energy -setting id ({@value}). Can be either a
 	 * single value, or a range of two values. In the latter case, the used
 	 * value is a uniformly distributed random value between the two values. */
@@ -44,11 +44,15 @@ public class EnergyModel implements ModuleCommunicationListener {
 	/** {@link ModuleCommunicationBus} identifier for the "current amount of
 	 * energy left" variable. Value type: double */
 	public static final String ENERGY_VALUE_ID = "Energy.value";
+	/** Bus slot of the {@link #ENERGY_VALUE_ID} variable */
+	public static final int ENERGY_VALUE_SLOT =
+		ModuleCommunicationBus.registerDouble(ENERGY_VALUE_ID);
 
 	/** Initial energy levels from the settings */
 	private final double[] initEnergy;
 	private double warmupTime;
-	/** current energy level */
+	/** energy level before the model is initialized (after that the level
+	 * is in the bus) */
 	private double currentEnergy;
 	/** energy usage per scan */
 	private double scanEnergy;
@@ -88,6 +92,9 @@ public class EnergyModel implements ModuleCommunicationListener {
 		else {
 			this.warmupTime = 0;
 		}
+
+		/* interfaces become inactive when they run out of energy */
+		NetworkInterface.setInactivityPossible();
 	}
 
 	/**
@@ -133,7 +140,10 @@ public class EnergyModel implements ModuleCommunicationListener {
 	 * @return the current energy level
 	 */
 	public double getEnergy() {
-		return this.currentEnergy;
+		if (comBus == null) {
+			return this.currentEnergy;
+		}
+		return comBus.getDouble(ENERGY_VALUE_SLOT, 0);
 	}
 
 	/**
@@ -151,10 +161,10 @@ public class EnergyModel implements ModuleCommunicationListener {
 			return; /* model not initialized (via update) yet */
 		}
 
-		if (amount >= this.currentEnergy) {
-			comBus.updateProperty(ENERGY_VALUE_ID, 0.0);
+		if (amount >= getEnergy()) {
+			comBus.setDouble(ENERGY_VALUE_SLOT, 0.0);
 		} else {
-			comBus.updateDouble(ENERGY_VALUE_ID, -amount);
+			comBus.updateDouble(ENERGY_VALUE_SLOT, -amount);
 		}
 
 	}
@@ -177,8 +187,7 @@ public class EnergyModel implements ModuleCommunicationListener {
 
 		if (this.comBus == null) {
 			this.comBus = comBus;
-			this.comBus.addProperty(ENERGY_VALUE_ID, this.currentEnergy);
-			this.comBus.subscribe(ENERGY_VALUE_ID, this);
+			this.comBus.addDouble(ENERGY_VALUE_SLOT, this.currentEnergy);
 		}
 
 		if (simTime > this.lastUpdate && iface.isTransferring()) {
@@ -198,14 +207,4 @@ public class EnergyModel implements ModuleCommunicationListener {
 			}
 		}
 	}
-
-	/**
-	 * Called by the combus if the energy value is changed
-	 * @param key The energy ID
-	 * @param newValue The new energy value
-	 */
-	public void moduleValueChanged(String key, Object newValue) {
-		this.currentEnergy = (Double)newValue;
-	}
-
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of interned message IDs (see {@link core.Message#getIdIndex()}).
+ * The indexes are stored in a primitive open addressing hash table, so
+ * membership checks don't need to hash or compare ID strings and the
+ * memory use is proportional to the number of indexes in the set (not to
+ * the number of messages in the whole simulation). The table is allocated
+ * only when the first index is added, since most hosts' sets stay empty
+ * for a long time (or for the whole simulation).
+ */
+public class MessageIdSet {
+	/** Initial capacity of the hash table */
+	private static final int INITIAL_CAPACITY = 8;
+	/** Value used for empty hash table slots (not a valid index) */
+	private static final int EMPTY = -1;
+	/** Shared (never modified) table of the sets that have no table yet */
+	private static final int[] NO_SLOTS = {EMPTY};
+
+	private int[] slots;
+	private int size;
+
+	/**
+	 * Constructor. Creates an empty set.
+	 */
+	public MessageIdSet() {
+		this.slots = NO_SLOTS;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns true if the set contains the given index
+	 * @param index The message ID index
+	 * @return true if the index is in the set (always false for negative
+	 * values, e.g. the index of an unknown ID)
+	 */
+	public boolean contains(int index) {
+		if (index < 0) {
+			return false;
+		}
+		int mask = slots.length - 1;
+		for (int i = hash(index) & mask; ; i = (i + 1) & mask) {
+			if (slots[i] == index) {
+				return true;
+			}
+			if (slots[i] == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds an index to the set
+	 * @param index The message ID index (non-negative)
+	 * @return true if the index was added, false if it was already in the set
+	 */
+	public boolean add(int index) {
+		if (slots == NO_SLOTS) {
+			rehash(INITIAL_CAPACITY);
+		}
+		int mask = slots.length - 1;
+		int i = hash(index) & mask;
+		for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+			if (slots[i] == index) {
+				return false;
+			}
+		}
+
+		slots[i] = index;
+		size++;
+		if (size * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds all the indexes of another set to this set
+	 * @param other The other set
+	 */
+	public void addAll(MessageIdSet other) {
+		for (int index : other.slots) {
+			if (index != EMPTY) {
+				add(index);
+			}
+		}
+	}
+
+	/**
+	 * Removes an index from the set
+	 * @param index The message ID index
+	 * @return true if the index was removed, false if it wasn't in the set
+	 * (always false for negative values)
+	 */
+	public boolean remove(int index) {
+		if (index < 0) {
+			return false;
+		}
+		int mask = slots.length - 1;
+		int i = hash(index) & mask;
+		for (; slots[i] != index; i = (i + 1) & mask) {
+			if (slots[i] == EMPTY) {
+				return false;
+			}
+		}
+
+		/* shift back the following entries of the probe sequence so that
+		 * no entry becomes unreachable (no tombstones needed) */
+		for (int j = (i + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+			int home = hash(slots[j]) & mask;
+			/* entry at j can move to i if its home isn't in (i, j] */
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				slots[i] = slots[j];
+				i = j;
+			}
+		}
+		slots[i] = EMPTY;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the number of indexes in the set
+	 * @return the number of indexes in the set
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldSlots = slots;
+		slots = new int[capacity];
+		Arrays.fill(slots, EMPTY);
+
+		int mask = capacity - 1;
+		for (int index : oldSlots) {
+			if (index != EMPTY) {
+				int i = hash(index) & mask;
+				while (slots[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				slots[i] = index;
+			}
+		}
+	}
+
+	/**
+	 * Mixes the bits of an index (finalizer of the MurmurHash3 32 bit hash)
+	 * so that runs of consecutive indexes don't form long probe sequences
+	 */
+	private static int hash(int index) {
+		index ^= index >>> 16;
+		index *= 0x85ebca6b;
+		index ^= index >>> 13;
+		index *= 0xc2b2ae35;
+		index ^= index >>> 16;
+		return index;
+	}
+}
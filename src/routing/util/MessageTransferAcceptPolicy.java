@@ -111,6 +111,10 @@ public class MessageTransferAcceptPolicy {
 
 	private ArrayList<Tuple<String,ArithmeticCondition>> recvConditions = null;
 	private ArrayList<Tuple<String,ArithmeticCondition>> sendConditions = null;
+	/** Bus slots of the condition keys (-1 for keys without a slot), or
+	 * null if not resolved yet */
+	private int[] recvSlots = null;
+	private int[] sendSlots = null;
 
 	private Range[] toSendPolicy = null;
 	private Range[] fromSendPolicy = null;
@@ -207,11 +211,36 @@ public class MessageTransferAcceptPolicy {
 			return true;
 		}
 
-		for (Tuple<String,ArithmeticCondition> t : list) {
-			if (!mcb.containsProperty(t.getKey())) {
-				continue; /* no value in the bus; can't fail condition */
+		int[] slots = (receiving ? this.recvSlots : this.sendSlots);
+		if (slots == null) {
+			/* resolved at the first check, when the modules that use the
+			   keys have registered their slots */
+			slots = new int[list.size()];
+			for (int i=0; i<slots.length; i++) {
+				slots[i] = ModuleCommunicationBus.getSlot(list.get(i).getKey());
 			}
-			if (t.getValue().isTrueFor(mcb.getDouble(t.getKey(), 0))){
+			if (receiving) {
+				this.recvSlots = slots;
+			} else {
+				this.sendSlots = slots;
+			}
+		}
+
+		for (int i=0; i<slots.length; i++) {
+			Tuple<String,ArithmeticCondition> t = list.get(i);
+			double value;
+			if (slots[i] >= 0) {
+				if (!mcb.containsProperty(slots[i])) {
+					continue; /* no value in the bus; can't fail condition */
+				}
+				value = mcb.getDouble(slots[i], 0);
+			} else {
+				if (!mcb.containsProperty(t.getKey())) {
+					continue;
+				}
+				value = mcb.getDouble(t.getKey(), 0);
+			}
+			if (t.getValue().isTrueFor(value)){
 				return false;
 			}
 		}
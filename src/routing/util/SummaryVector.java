@@ -0,0 +1,266 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+/**
+ * <P>
+ * Summary vector of the messages a router is carrying, for anti-entropy
+ * style message exchange. The messages are identified by their interned
+ * ID indexes (see {@link core.Message#getIdIndex()}) and stored in a bit
+ * vector that only covers the range of indexes currently in the summary,
+ * so the memory use follows the age span of the buffered messages instead
+ * of the total number of messages. Two exact summaries are compared one
+ * 64 bit word at a time.
+ * </P><P>
+ * Optionally the summary is advertised to the peers as a (counting) Bloom
+ * filter: peers see the messages through {@link #mightContain(int)} which
+ * may give false positives with the configured probability. The exact bit
+ * vector is still kept for the owner's own use.
+ * </P>
+ */
+public class SummaryVector {
+	/** Initial number of words in the bit vector */
+	private static final int INITIAL_WORDS = 4;
+	/** Maximum value of a Bloom filter counter (counters stick to it) */
+	private static final int MAX_COUNT = 0xff;
+
+	/** bit vector; bit i of words[j] is index (base + j) * 64 + i */
+	private long[] words;
+	private int base;
+	/** range [lo, hi) of words array that may have bits set */
+	private int lo;
+	private int hi;
+	private int size;
+
+	/** Bloom filter counters (null for exact summaries) */
+	private byte[] counters;
+	private int nrofHashes;
+
+	/**
+	 * Creates an exact summary vector.
+	 */
+	public SummaryVector() {
+		this.words = new long[INITIAL_WORDS];
+		this.base = 0;
+		this.lo = 0;
+		this.hi = 0;
+		this.size = 0;
+		this.counters = null;
+	}
+
+	/**
+	 * Creates a summary vector that is advertised as a Bloom filter
+	 * @param capacity Number of messages the filter is dimensioned for
+	 * @param fpRate False positive probability of the filter when it has
+	 * <CODE>capacity</CODE> messages (0 &lt; fpRate &lt; 1)
+	 */
+	public SummaryVector(int capacity, double fpRate) {
+		this();
+		capacity = Math.max(capacity, 1);
+		double ln2 = Math.log(2);
+		int m = (int)Math.ceil(-capacity * Math.log(fpRate) / (ln2 * ln2));
+		m = Math.max(m, 64);
+		this.counters = new byte[m];
+		this.nrofHashes = Math.max(1,
+				(int)Math.round((double)m / capacity * ln2));
+	}
+
+	/**
+	 * Returns true if the summary is advertised as a Bloom filter
+	 * @return true for a Bloom filter summary, false for an exact one
+	 */
+	public boolean isBloomFilter() {
+		return this.counters != null;
+	}
+
+	/**
+	 * Adds a message to the summary
+	 * @param index ID index of the message (non-negative)
+	 */
+	public void add(int index) {
+		int j = wordIndex(index >>> 6);
+		long bit = 1L << index;
+		if ((words[j] & bit) != 0) {
+			return;
+		}
+		words[j] |= bit;
+		lo = Math.min(lo, j);
+		hi = Math.max(hi, j + 1);
+		size++;
+
+		if (counters != null) {
+			int h1 = hash(index);
+			int h2 = hash(~index) | 1;
+			for (int i=0; i < nrofHashes; i++) {
+				int c = slot(h1, h2, i);
+				if ((counters[c] & 0xff) < MAX_COUNT) {
+					counters[c]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a message from the summary
+	 * @param index ID index of the message
+	 */
+	public void remove(int index) {
+		if (!contains(index)) {
+			return;
+		}
+		int j = (index >>> 6) - base;
+		words[j] &= ~(1L << index);
+		size--;
+		while (lo < hi && words[lo] == 0) {
+			lo++;
+		}
+		while (hi > lo && words[hi - 1] == 0) {
+			hi--;
+		}
+
+		if (counters != null) {
+			int h1 = hash(index);
+			int h2 = hash(~index) | 1;
+			for (int i=0; i < nrofHashes; i++) {
+				int c = slot(h1, h2, i);
+				if ((counters[c] & 0xff) < MAX_COUNT) {
+					counters[c]--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the message is in the summary (exact answer)
+	 * @param index ID index of the message
+	 * @return true if the message is in the summary
+	 */
+	public boolean contains(int index) {
+		int j = (index >>> 6) - base;
+		if (j < lo || j >= hi) {
+			return false;
+		}
+		return (words[j] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns true if the message is in the summary as advertised to the
+	 * peers: for Bloom filter summaries the answer may be a false positive.
+	 * @param index ID index of the message
+	 * @return true if the message is (or might be) in the summary
+	 */
+	public boolean mightContain(int index) {
+		if (counters == null) {
+			return contains(index);
+		}
+		int h1 = hash(index);
+		int h2 = hash(~index) | 1;
+		for (int i=0; i < nrofHashes; i++) {
+			if (counters[slot(h1, h2, i)] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if this summary has messages that the peer's summary
+	 * (as advertised) doesn't have. Exact summaries are compared a word at
+	 * a time.
+	 * @param peer The summary of the peer
+	 * @return true if the peer is missing some message of this summary
+	 */
+	public boolean hasMissing(SummaryVector peer) {
+		for (int j=lo; j < hi; j++) {
+			long missing = words[j];
+			if (missing == 0) {
+				continue;
+			}
+			if (peer.counters == null) {
+				missing &= ~peer.getWord(base + j);
+				if (missing != 0) {
+					return true;
+				}
+				continue;
+			}
+			int first = (base + j) << 6;
+			while (missing != 0) {
+				int bit = Long.numberOfTrailingZeros(missing);
+				if (!peer.mightContain(first + bit)) {
+					return true;
+				}
+				missing &= missing - 1;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of messages in the summary
+	 * @return the number of messages in the summary
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a word of the bit vector
+	 * @param w Number of the word (index / 64)
+	 * @return The word (0 for words out of the covered range)
+	 */
+	private long getWord(int w) {
+		int j = w - base;
+		return (j >= lo && j < hi) ? words[j] : 0;
+	}
+
+	/**
+	 * Returns the position of a word in the words array, reallocating the
+	 * array if the word isn't in the covered range
+	 * @param w Number of the word (index / 64)
+	 * @return Position of the word in the array
+	 */
+	private int wordIndex(int w) {
+		if (lo == hi) { // empty: all words are zero, start from this word
+			base = w;
+			lo = hi = 0;
+			return 0;
+		}
+		int j = w - base;
+		if (j >= 0 && j < words.length) {
+			return j;
+		}
+
+		int first = Math.min(base + lo, w);
+		int last = Math.max(base + hi - 1, w);
+		long[] newWords = new long[Math.max(INITIAL_WORDS,
+				2 * (last - first + 1))];
+		System.arraycopy(words, lo, newWords, base + lo - first, hi - lo);
+		hi = base + hi - first;
+		lo = base + lo - first;
+		words = newWords;
+		base = first;
+		return w - base;
+	}
+
+	/**
+	 * Returns the Bloom filter counter for the i:th hash function
+	 * (double hashing)
+	 */
+	private int slot(int h1, int h2, int i) {
+		return ((h1 + i * h2) & 0x7fffffff) % counters.length;
+	}
+
+	/**
+	 * Mixes the bits of an index (finalizer of the MurmurHash3 32 bit hash)
+	 */
+	private static int hash(int index) {
+		index ^= index >>> 16;
+		index *= 0x85ebca6b;
+		index ^= index >>> 13;
+		index *= 0xc2b2ae35;
+		index ^= index >>> 16;
+		return index;
+	}
+}
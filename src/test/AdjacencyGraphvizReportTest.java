@@ -9,7 +9,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 
@@ -93,9 +92,7 @@ public class AdjacencyGraphvizReportTest extends TestCase {
 		// check end out output
 		assertEquals("}",reader.readLine());
 
-		// sort the result lines because their ordering is not deterministic
-		Collections.sort(lines);
-
+		// edges are ordered by the host addresses
 		assertEquals("\th1--h2 [weight=1];",lines.get(0));
 		assertEquals("\th1--h4 [weight=2];",lines.get(1));
 		assertEquals("\th2--h3 [weight=2];",lines.get(2));
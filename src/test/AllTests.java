@@ -26,6 +26,7 @@ public class AllTests {
 		suite.addTestSuite(WorldTest.class);
 		suite.addTestSuite(ConnectionTest.class);
 		suite.addTestSuite(ExternalMovementReaderTest.class);
+		suite.addTestSuite(ExternalPathMovementReaderTest.class);
 		suite.addTestSuite(ExternalMovementTest.class);
 		suite.addTestSuite(WKTReaderTest.class);
 		suite.addTestSuite(WKTPointReaderTest.class);
@@ -38,18 +39,31 @@ public class AllTests {
 		suite.addTestSuite(ExternalEventsQueueTest.class);
 		suite.addTestSuite(ContactTimesReportTest.class);
 		suite.addTestSuite(TotalContactTimeReportTest.class);
+		suite.addTestSuite(ReportOutputTest.class);
+		suite.addTestSuite(QuantileSketchTest.class);
+		suite.addTestSuite(MessageCopyTrackerTest.class);
+		suite.addTestSuite(ContactTrackerTest.class);
+		suite.addTestSuite(EventBusTest.class);
+		suite.addTestSuite(MessageCopyCountReportTest.class);
+		suite.addTestSuite(BinaryEventLogReportTest.class);
+		suite.addTestSuite(RecordingReportTest.class);
 		suite.addTestSuite(EpidemicRouterTest.class);
 		suite.addTestSuite(ProphetRouterTest.class);
 		suite.addTestSuite(SettingsTest.class);
 		suite.addTestSuite(DijkstraPathFinderTest.class);
+		suite.addTestSuite(PathCacheTest.class);
+		suite.addTestSuite(PathTest.class);
 		suite.addTestSuite(PointsOfInterestTest.class);
 		suite.addTestSuite(ActivenessHandlerTest.class);
 		suite.addTestSuite(MaxPropDijkstraTest.class);
 		suite.addTestSuite(MaxPropRouterTest.class);
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
 		suite.addTestSuite(MessageTest.class);
+		suite.addTestSuite(MessageIdSetTest.class);
+		suite.addTestSuite(SummaryVectorTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
 		suite.addTestSuite(DTNHostTest.class);
+		suite.addTestSuite(HostStatesTest.class);
 		//$JUnit-END$
 		return suite;
 	}
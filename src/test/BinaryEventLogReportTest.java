@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import report.BinaryEventLog;
+import report.BinaryEventLogReport;
+import report.EventLogAnalyzer;
+import core.Coord;
+import core.DTNHost;
+import core.EventBus;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+public class BinaryEventLogReportTest extends TestCase {
+	private SimClock clock;
+	private File outFile;
+	private BinaryEventLogReport r;
+	private EventBus bus;
+	private TestUtils utils;
+
+	public void setUp() throws IOException {
+		TestSettings ts = new TestSettings();
+		outFile = File.createTempFile("beltest", BinaryEventLog.EXT);
+		outFile.deleteOnExit();
+
+		ts.putSetting("BinaryEventLogReport.output",
+				outFile.getAbsolutePath());
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		r = new BinaryEventLogReport();
+		bus = new EventBus();
+		bus.subscribe(r, r.getEventFilter(), true);
+		Vector<MessageListener> ml = new Vector<MessageListener>();
+		ml.add(bus);
+		this.utils = new TestUtils(null, ml, ts);
+	}
+
+	public void testLogAndStats() {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5));
+
+		h1.createNewMessage(new Message(h1, h2, "tst1", 1));
+		clock.advance(1.5);
+		h1.sendMessage("tst1", h2);
+		h2.messageTransferred("tst1", h1);
+
+		h1.createNewMessage(new Message(h1, h3, "tst2", 1));
+		clock.advance(1.0);
+		h1.sendMessage("tst2", h2);
+		h2.messageTransferred("tst2", h1);
+		clock.advance(2.0);
+		h2.sendMessage("tst2", h3);
+		h3.messageTransferred("tst2", h2);
+		bus.close();
+		r.done();
+
+		BinaryEventLog log = new BinaryEventLog(outFile);
+		assertEquals(8, log.getNrofEvents());
+		assertEquals(1, log.getBlocks().size());
+		assertEquals(2, log.getNrofMessages());
+		assertEquals("tst1", log.getMessageId(0));
+		assertEquals(4.5, log.getEndTime());
+
+		BinaryEventLog.Block b = log.getBlocks().get(0);
+		assertEquals(BinaryEventLog.ACTION_CREATE, b.getAction(0));
+		assertEquals(-1, b.getHost2(0));
+		assertEquals(BinaryEventLog.ACTION_SEND, b.getAction(1));
+		assertEquals(BinaryEventLog.ACTION_DELIVERED, b.getAction(2));
+		assertEquals(1.5, b.getTime(2));
+		assertEquals(h1.getAddress(), b.getHost1(2));
+		assertEquals(h2.getAddress(), b.getHost2(2));
+		assertEquals(h2.toString(), log.getHostName(b.getHost2(2)));
+		assertEquals(BinaryEventLog.ACTION_RELAYED, b.getAction(5));
+		assertEquals(BinaryEventLog.ACTION_DELIVERED, b.getAction(7));
+		assertEquals(2, b.getHopCount(7));
+
+		EventLogAnalyzer.MessageStats s =
+			new EventLogAnalyzer(2, 0, 1).getMessageStats(log);
+		assertEquals(2, s.getNrofCreated());
+		assertEquals(3, s.getNrofStarted());
+		assertEquals(3, s.getNrofRelayed());
+		assertEquals(2, s.getNrofDelivered());
+		assertEquals(1.5, s.getLatencies().get(0));
+		assertEquals(3.0, s.getLatencies().get(1));
+
+		ByteArrayOutputStream dist = new ByteArrayOutputStream();
+		new EventLogAnalyzer(1, 0, 1).printLatencyDistribution(s, true,
+				new PrintStream(dist));
+		assertEquals(String.format("1.5 0.5%n3.0 0.0%n"), dist.toString());
+
+		s = new EventLogAnalyzer(1, 1.0, 1).getMessageStats(log);
+		assertEquals(1, s.getNrofCreated()); // tst1 created during warm up
+		assertEquals(1, s.getNrofDelivered());
+	}
+
+	public void testDiscardedRelay() {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5));
+		h2.getRouter().addApplication(new DroppingApplication());
+
+		h1.createNewMessage(new Message(h1, h3, "tst1", 1));
+		h1.sendMessage("tst1", h2);
+		h2.messageTransferred("tst1", h1); // dropped by the application
+		clock.advance(1.0);
+		bus.close();
+		r.done();
+
+		BinaryEventLog log = new BinaryEventLog(outFile);
+		BinaryEventLog.Block b = log.getBlocks().get(0);
+		assertEquals(BinaryEventLog.ACTION_RELAY_DISCARDED, b.getAction(2));
+
+		EventLogAnalyzer analyzer = new EventLogAnalyzer(1, 0, 1);
+		assertEquals(1, analyzer.getMessageStats(log).getNrofRelayed());
+		ByteArrayOutputStream copies = new ByteArrayOutputStream();
+		analyzer.printCopyCounts(log, 1.0, 10, new PrintStream(copies));
+		// time, messages, median, low and high percentile, total copies
+		assertEquals(String.format("1 1 1 1 1 1%n"), copies.toString());
+	}
+}
@@ -12,6 +12,7 @@ import java.util.Vector;
 
 import junit.framework.TestCase;
 import report.ContactTimesReport;
+import report.ContactTracker;
 import report.InterContactTimesReport;
 import report.Report;
 import core.ConnectionListener;
@@ -31,6 +32,11 @@ public class ContactTimesReportTest extends TestCase {
 	private final static String I_SET_PREFIX = "InterContactTimesReport.";
 
 	private void setUpWithGranularity(double gran) throws IOException {
+		setUpWithGranularity(gran, false);
+	}
+
+	private void setUpWithGranularity(double gran, boolean sharedTracker)
+		throws IOException {
 		ContactTimesReport ctr;
 		InterContactTimesReport ictr;
 		TestSettings ts = new TestSettings();
@@ -56,6 +62,12 @@ public class ContactTimesReportTest extends TestCase {
 		ictr = new InterContactTimesReport();
 
 		Vector<ConnectionListener> cl = new Vector<ConnectionListener>();
+		if (sharedTracker) {
+			ContactTracker tracker = new ContactTracker();
+			ctr.setContactTracker(tracker);
+			ictr.setContactTracker(tracker);
+			cl.add(tracker);
+		}
 		cl.add(ctr);
 		cl.add(ictr);
 
@@ -126,6 +138,16 @@ public class ContactTimesReportTest extends TestCase {
 		assertEquals(null,ictReader.readLine());
 	}
 
+	public void testSharedTracker() throws IOException {
+		String[] ctValues = {"0.0 0", "1.0 0", "2.0 1", "3.0 2", "4.0 0",
+				"5.0 0", "6.0 1", "7.0 0"};
+		String[] ictValues = {"0.0 0", "1.0 0", "2.0 0", "3.0 1",
+				"4.0 0"};
+
+		this.setUpWithGranularity(1.0, true);
+		checkValues(ctValues, ictValues);
+	}
+
 	public void testGranularity2() throws IOException {
 		String[] ctValues = {"0.0 0", "2.0 3", "4.0 0",
 				"6.0 1", "8.0 0"};
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import report.ContactTracker;
+import report.HostPairIndex;
+import core.Coord;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Tests for the contact state of the contact reports
+ */
+public class ContactTrackerTest extends TestCase {
+	private ContactTracker tracker;
+	private SimClock clock;
+	private DTNHost h1, h2, h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		tracker = new ContactTracker();
+
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		h1 = utils.createHost(new Coord(0,0));
+		h2 = utils.createHost(new Coord(1,0));
+		h3 = utils.createHost(new Coord(2,0));
+	}
+
+	private void connect(DTNHost a, DTNHost b) {
+		tracker.hostsConnected(a, b);
+	}
+
+	private void disconnect(DTNHost a, DTNHost b) {
+		tracker.hostsDisconnected(a, b);
+	}
+
+	public void testPairIndex() {
+		HostPairIndex index = new HostPairIndex();
+		assertEquals(HostPairIndex.key(3, 7), HostPairIndex.key(7, 3));
+		assertEquals(3, HostPairIndex.getFirst(HostPairIndex.key(7, 3)));
+		assertEquals(7, HostPairIndex.getSecond(HostPairIndex.key(7, 3)));
+
+		for (int i=0; i<1000; i++) {
+			assertEquals(i, index.add(HostPairIndex.key(i, 10000 - i)));
+		}
+		assertEquals(1000, index.size());
+		for (int i=0; i<1000; i++) {
+			assertEquals(i, index.get(HostPairIndex.key(10000 - i, i)));
+			assertEquals(i, index.add(HostPairIndex.key(i, 10000 - i)));
+		}
+		assertEquals(-1, index.get(HostPairIndex.key(1, 2)));
+		assertEquals(HostPairIndex.key(5, 9995), index.getKey(5));
+	}
+
+	public void testContactTimes() {
+		clock.advance(1);
+		connect(h1, h2);
+		int c = tracker.getContact(h2, h1);
+		assertTrue(c >= 0);
+		assertTrue(tracker.isInContact(c));
+		assertEquals(1.0, tracker.getStartTime(c));
+		assertEquals(ContactTracker.NO_END, tracker.getEndTime(c));
+		assertEquals(1, tracker.getNrofCurrentContacts());
+
+		clock.advance(4);
+		disconnect(h2, h1);
+		assertFalse(tracker.isInContact(c));
+		assertEquals(5.0, tracker.getEndTime(c));
+		assertEquals(0, tracker.getNrofCurrentContacts());
+
+		clock.advance(2);
+		connect(h1, h2);
+		assertEquals(7.0, tracker.getStartTime(c));
+		assertEquals(5.0, tracker.getEndTime(c)); // end of previous contact
+		assertEquals(2, tracker.getNrofContacts(c));
+		assertEquals(-1, tracker.getContact(h1, h3));
+	}
+
+	public void testMultipleConnections() {
+		connect(h1, h2);
+		clock.advance(1);
+		connect(h2, h1); // e.g. another interface
+		int c = tracker.getContact(h1, h2);
+		assertEquals(2, tracker.getNrofConnections(c));
+		assertEquals(0.0, tracker.getStartTime(c));
+
+		clock.advance(1);
+		disconnect(h1, h2);
+		assertTrue(tracker.isInContact(c));
+		clock.advance(1);
+		disconnect(h1, h2);
+		assertFalse(tracker.isInContact(c));
+		assertEquals(3.0, tracker.getEndTime(c));
+		assertEquals(1, tracker.getNrofContacts(c));
+	}
+
+	public void testPairs() {
+		connect(h1, h2);
+		disconnect(h1, h2);
+		connect(h2, h1);
+		connect(h2, h3);
+		assertEquals(2, tracker.getNrofContacts(tracker.getContact(h1, h2)));
+		assertEquals(1, tracker.getNrofContacts(tracker.getContact(h3, h2)));
+		assertEquals(2, tracker.getNrofPairs());
+		assertEquals(2, tracker.getNrofCurrentContacts());
+		assertSame(h3, tracker.getHost(h3.getAddress()));
+	}
+}
@@ -1,6 +1,7 @@
 package test;
 
 
+import core.Connection;
 import core.Coord;
 import core.DTNHost;
 import core.MessageListener;
@@ -18,6 +19,7 @@ import routing.MessageRouter;
 import routing.PassiveRouter;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -67,6 +69,53 @@ public class DTNHostTest extends TestCase {
     assertFalse("Radio reported as active.", host.isRadioActive());
   }
 
+  /**
+   * Tests the connection lists of hosts and tearing down connections when a
+   * host has more than one connection to another host.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testConnections()
+  throws Exception {
+    final TestUtils utils = new TestUtils(null, null, new TestSettings());
+    final DTNHost h1 = utils.createHost();
+    final DTNHost h2 = utils.createHost();
+    final DTNHost h3 = utils.createHost();
+
+    final List<Connection> none = h1.getConnections();
+    assertEquals(0, none.size());
+
+    h1.forceConnection(h2, null, true);
+    final List<Connection> one = h1.getConnections();
+    assertEquals(1, one.size());
+    assertSame("Unchanged connections were copied.", one,
+        h1.getConnections());
+    assertEquals(0, none.size());
+    assertEquals(1, h2.getConnections().size());
+    try {
+      one.clear();
+      fail("Connection list could be modified.");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    h1.forceConnection(h3, null, true);
+    h1.forceConnection(h2, null, true); // 2nd connection to the same host
+    assertEquals(1, one.size());
+    assertEquals(3, h1.getConnections().size());
+    assertEquals(2, h2.getConnections().size());
+
+    h1.forceConnection(h2, null, false);
+    assertEquals(1, h1.getConnections().size());
+    assertEquals(0, h2.getConnections().size());
+    assertSame(h3, h1.getConnections().get(0).getOtherNode(h1));
+
+    h1.forceConnection(h3, null, false);
+    assertEquals(0, h1.getConnections().size());
+    assertEquals(0, h3.getConnections().size());
+  }
+
   private static MovementModel makeMovementModel() {
     return new MovementModel() {
       @Override
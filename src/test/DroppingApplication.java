@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import core.Application;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * A dummy application for testing purposes that drops all the messages
+ * that are relayed through its host
+ */
+public class DroppingApplication extends Application {
+
+	@Override
+	public Message handle(Message msg, DTNHost host) {
+		if (msg.getTo() == host) {
+			return msg;
+		}
+		return null;
+	}
+
+	@Override
+	public void update(DTNHost host) { }
+
+	@Override
+	public Application replicate() {
+		return new DroppingApplication();
+	}
+}
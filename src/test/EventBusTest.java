@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import core.ConnectionListener;
+import core.Coord;
+import core.DTNHost;
+import core.EventBatch;
+import core.EventBatchListener;
+import core.EventBus;
+import core.EventFilter;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+import core.SimError;
+
+/**
+ * Tests for the batched event bus
+ */
+public class EventBusTest extends TestCase {
+	private SimClock clock;
+	private EventBus bus;
+	private TestUtils utils;
+	private DTNHost h1, h2, h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		bus = new EventBus();
+
+		Vector<ConnectionListener> cl = new Vector<ConnectionListener>();
+		cl.add(bus);
+		Vector<MessageListener> ml = new Vector<MessageListener>();
+		ml.add(bus);
+		utils = new TestUtils(cl, ml, new TestSettings());
+		utils.setTransmitRange(3);
+		h1 = utils.createHost(new Coord(0,0));
+		h2 = utils.createHost(new Coord(1,0));
+		utils.setGroupId("x");
+		h3 = utils.createHost(new Coord(2,0));
+	}
+
+	/** Listener that stores the event types and times it gets */
+	private static class Collector implements EventBatchListener {
+		private List<Integer> types = new ArrayList<Integer>();
+		private List<Double> times = new ArrayList<Double>();
+		private int nrofBatches = 0;
+		private List<String> threads = new ArrayList<String>();
+
+		public void eventsDispatched(EventBatch events) {
+			nrofBatches++;
+			threads.add(Thread.currentThread().getName());
+			for (int i=0; i<events.size(); i++) {
+				types.add(events.getType(i));
+				times.add(events.getTime(i));
+			}
+		}
+	}
+
+	private void generateEvents() {
+		h1.connect(h2);
+		h1.createNewMessage(new Message(h1, h2, "M1", 1));
+		clock.advance(1);
+		bus.updated(null);
+
+		h1.sendMessage("M1", h2);
+		h2.messageTransferred("M1", h1);
+		h2.connect(h3);
+		clock.advance(1);
+		bus.updated(null);
+		bus.updated(null); // nothing new -> no batch
+
+		h1.deleteMessage("M1", true);
+	}
+
+	public void testBatches() {
+		Collector all = new Collector();
+		bus.subscribe(all, null, false);
+		generateEvents();
+
+		assertEquals(2, all.nrofBatches);
+		assertEquals(5, all.types.size());
+		assertEquals(EventBatch.CONN_UP, (int)all.types.get(0));
+		assertEquals(EventBatch.MSG_CREATED, (int)all.types.get(1));
+		assertEquals(EventBatch.MSG_STARTED, (int)all.types.get(2));
+		assertEquals(EventBatch.MSG_TRANSFERRED, (int)all.types.get(3));
+		assertEquals(1.0, all.times.get(2));
+
+		bus.close();
+		assertEquals(3, all.nrofBatches);
+		assertEquals(EventBatch.MSG_DELETED, (int)all.types.get(5));
+	}
+
+	public void testBatchValues() {
+		final List<EventBatch> batches = new ArrayList<EventBatch>();
+		bus.subscribe(new EventBatchListener() {
+			public void eventsDispatched(EventBatch events) {
+				batches.add(events);
+			}
+		}, new EventFilter(EventBatch.MESSAGE_EVENTS), false);
+		generateEvents();
+		bus.close();
+
+		EventBatch b = batches.get(1);
+		assertEquals(2.0, b.getUpdateTime());
+		assertEquals(2, b.size());
+		assertSame(h1, b.getHost1(1));
+		assertSame(h2, b.getHost2(1));
+		assertEquals("M1", b.getMessage(1).getId());
+		assertEquals(1, b.getHopCount(1));
+		assertTrue(b.isFirstDelivery(1));
+
+		b = batches.get(2);
+		assertEquals(-1, b.getAddress2(0));
+		assertNull(b.getHost2(0));
+		assertTrue(b.isDropped(0));
+	}
+
+	public void testFilters() {
+		Collector conns = new Collector();
+		bus.subscribe(conns, new EventFilter(EventBatch.CONNECTION_EVENTS),
+				false);
+		Collector group = new Collector();
+		EventFilter f = new EventFilter();
+		f.setGroup("x");
+		bus.subscribe(group, f, false);
+		Collector window = new Collector();
+		f = new EventFilter();
+		f.setTimeWindow(1, 2);
+		bus.subscribe(window, f, false);
+
+		generateEvents();
+		bus.close();
+
+		assertEquals(2, conns.types.size());
+		assertEquals(1, group.types.size()); // h2-h3 connection
+		assertEquals(EventBatch.CONN_UP, (int)group.types.get(0));
+		assertEquals(3, window.types.size());
+		assertEquals(1, window.nrofBatches);
+	}
+
+	public void testOwnThread() {
+		Collector c = new Collector();
+		bus.subscribe(c, null, true);
+		generateEvents();
+		bus.close();
+
+		assertEquals(3, c.nrofBatches);
+		assertEquals(6, c.types.size());
+		for (String t : c.threads) {
+			assertFalse(t.equals(Thread.currentThread().getName()));
+		}
+	}
+
+	public void testThreadError() {
+		bus.subscribe(new EventBatchListener() {
+			public void eventsDispatched(EventBatch events) {
+				throw new IllegalStateException("test");
+			}
+		}, null, true);
+
+		try {
+			generateEvents(); // may notice the error already
+			bus.close();
+			fail("Error of the subscriber thread was not reported");
+		} catch (SimError e) {
+			assertTrue(e.getException() instanceof IllegalStateException);
+		}
+	}
+}
@@ -5,6 +5,8 @@
 package test;
 
 import input.BinaryEventsReader;
+import input.ColumnarEventsReader;
+import input.ConnectionEvent;
 import input.ExternalEvent;
 import input.ExternalEventsQueue;
 import input.ExternalEventsReader;
@@ -65,6 +67,21 @@ public class ExternalEventsQueueTest extends TestCase {
 		checkEeq(eeq, preload);
 	}
 
+	public void testPrefetchingEEQ() {
+		int preload = 3;
+		eeq = new ExternalEventsQueue(tempFile.getAbsolutePath(), preload,
+				true);
+		checkEeq(eeq, preload);
+		assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+
+		eeq = new ExternalEventsQueue(tempFile.getAbsolutePath(), preload,
+				true);
+		eeq.nextEvent();
+		eeq.close();
+		assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+		assertEquals(Double.MAX_VALUE, eeq.nextEvent().getTime());
+	}
+
 
 	public void testBinaryEEQ() throws Exception{
 		int preload = 7;
@@ -82,6 +99,54 @@ public class ExternalEventsQueueTest extends TestCase {
 	}
 
 
+	public void testColumnarEEQ() throws Exception{
+		int preload = 4;
+		File tmpColFile = File.createTempFile("TempColTest",
+				ColumnarEventsReader.COLUMNAR_EXT);
+		String colFileName = tmpColFile.getAbsolutePath();
+		ExternalEventsReader r = new StandardEventsReader(tempFile);
+		int nrof = ColumnarEventsReader.storeToColumnarFile(colFileName, r);
+		assertEquals(msgTimes.length, nrof);
+		assertTrue(ColumnarEventsReader.isColumnarEeFile(tmpColFile));
+
+		eeq = new ExternalEventsQueue(colFileName, preload);
+		checkEeq(eeq, preload);
+
+		assertTrue(tmpColFile.delete());
+	}
+
+	public void testColumnarEvents() throws Exception {
+		File tmpStdFile = File.createTempFile("eeqConnTest", ".tmp");
+		tmpStdFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(tmpStdFile);
+		for (String s : stdinput) {
+			out.println(s);
+		}
+		out.println("106300.000	CONN	p1	p2	up");
+		out.close();
+
+		File tmpColFile = File.createTempFile("TempColTest",
+				ColumnarEventsReader.COLUMNAR_EXT);
+		ColumnarEventsReader.storeToColumnarFile(tmpColFile.getAbsolutePath(),
+				new StandardEventsReader(tmpStdFile));
+
+		ExternalEventsReader r = new ColumnarEventsReader(tmpColFile);
+		List<ExternalEvent> stdEvents = new StandardEventsReader(
+				tmpStdFile).readEvents(100);
+		List<ExternalEvent> colEvents = r.readEvents(100);
+		assertEquals(stdEvents.size(), colEvents.size());
+		for (int i=0; i < stdEvents.size(); i++) {
+			assertEquals(stdEvents.get(i).toString(),
+					colEvents.get(i).toString());
+		}
+		assertTrue(colEvents.get(colEvents.size()-1)
+				instanceof ConnectionEvent);
+		assertEquals(0, r.readEvents(100).size());
+		r.close();
+
+		assertTrue(tmpColFile.delete());
+	}
+
 	private void checkEeq(ExternalEventsQueue eeq, int preloadVal) {
 		ExternalEvent ee;
 		assertEquals(msgTimes[0],eeq.nextEventsTime());
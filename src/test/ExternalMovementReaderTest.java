@@ -51,6 +51,16 @@ public class ExternalMovementReaderTest extends TestCase {
 	}
 
 	public void testReader() {
+		checkReader();
+	}
+
+	public void testPrefetchingReader() {
+		r.setPrefetch(true);
+		checkReader();
+		r.close();
+	}
+
+	private void checkReader() {
 		List<Tuple<String, Coord>> list;
 
 		for (int i=0; i<times.length; i++) {
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ExternalPathMovementReader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+public class ExternalPathMovementReaderTest extends TestCase {
+	private static final String TRACE =
+		"2 100 200 10 50 20 60\n" +
+		"0 100,10,20 110,20,20\n" +
+		"1 100,50,60\n" +
+		"\n" +
+		"0 150,20,20 160,20,30 170,30,30\n" +
+		"2 120,10,20 130,10,30\n";
+	private static final String ACTIVITY =
+		"0 100 200\n" +
+		"1 100 150\n" +
+		"2 120 200\n";
+	/** expected (normalized) paths as time,x,y triplets per node */
+	private static final double[][][] PATHS = {
+		{ {0,0,0, 10,10,0}, {50,10,0, 60,10,10, 70,20,10} },
+		{ {0,40,40} },
+		{ {20,0,0, 30,0,10} } };
+
+	private File activityFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		activityFile = File.createTempFile("EPMRTest", "act");
+		activityFile.deleteOnExit();
+		PrintWriter pw = new PrintWriter(activityFile);
+		pw.print(ACTIVITY);
+		pw.close();
+	}
+
+	public void testTextTrace() throws Exception {
+		File trace = File.createTempFile("EPMRTest", ".txt");
+		trace.deleteOnExit();
+		PrintWriter pw = new PrintWriter(trace);
+		pw.print(TRACE);
+		pw.close();
+
+		checkReader(ExternalPathMovementReader.getInstance(
+				trace.getAbsolutePath(), activityFile.getAbsolutePath()));
+	}
+
+	public void testIndexedGzipTrace() throws Exception {
+		File trace = File.createTempFile("EPMRTest", ".txt.gz");
+		trace.deleteOnExit();
+		PrintWriter pw = new PrintWriter(new GZIPOutputStream(
+				new FileOutputStream(trace)));
+		pw.print(TRACE);
+		pw.close();
+
+		ExternalPathMovementReader r =
+			ExternalPathMovementReader.getIndexedInstance(
+				trace.getAbsolutePath(), activityFile.getAbsolutePath());
+		File index = new File(trace.getAbsolutePath() +
+				ExternalPathMovementReader.INDEX_EXT);
+		index.deleteOnExit();
+		assertTrue(index.exists());
+
+		checkReader(r);
+		checkCursors(r);
+	}
+
+	public void testInvalidTraceIndex() throws Exception {
+		File trace = File.createTempFile("EPMRTest", ".txt");
+		trace.deleteOnExit();
+		PrintWriter pw = new PrintWriter(trace);
+		pw.print(TRACE + "1 130,x,20\n");
+		pw.close();
+		File index = new File(trace.getAbsolutePath() +
+				ExternalPathMovementReader.INDEX_EXT);
+		index.deleteOnExit();
+
+		try {
+			ExternalPathMovementReader.buildIndex(trace.getAbsolutePath(),
+					index.getAbsolutePath());
+			fail("Invalid trace line should fail");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+		assertFalse(index.exists());
+	}
+
+	public void testPrefetchingIndexedTrace() throws Exception {
+		File trace = File.createTempFile("EPMRTest", ".txt");
+		trace.deleteOnExit();
+		PrintWriter pw = new PrintWriter(trace);
+		pw.print(TRACE);
+		pw.close();
+
+		ExternalPathMovementReader r =
+			ExternalPathMovementReader.getIndexedInstance(
+				trace.getAbsolutePath(), activityFile.getAbsolutePath());
+		new File(trace.getAbsolutePath() +
+				ExternalPathMovementReader.INDEX_EXT).deleteOnExit();
+		r.setPrefetch(true);
+		checkCursors(r);
+		checkReader(r);
+
+		/* a path whose reading started before closing is still returned,
+		   but no more paths are read after that */
+		ExternalPathMovementReader.PathCursor c = r.getPathCursor(0);
+		r.close();
+		assertFalse(isPrefetcherAlive());
+		checkPath(PATHS[0][0], c.next());
+		assertFalse(c.hasNext());
+		assertNull(c.next());
+
+		/* reset closes and forgets the readers */
+		r.setPrefetch(true);
+		c = r.getPathCursor(0);
+		ExternalPathMovementReader.reset();
+		assertFalse(isPrefetcherAlive());
+		assertTrue(r != ExternalPathMovementReader.getIndexedInstance(
+				trace.getAbsolutePath(), activityFile.getAbsolutePath()));
+	}
+
+	public void testCloseIndexedTrace() throws Exception {
+		File trace = File.createTempFile("EPMRTest", ".txt");
+		trace.deleteOnExit();
+		PrintWriter pw = new PrintWriter(trace);
+		pw.print(TRACE);
+		pw.close();
+
+		ExternalPathMovementReader r =
+			ExternalPathMovementReader.getIndexedInstance(
+				trace.getAbsolutePath(), activityFile.getAbsolutePath());
+		new File(trace.getAbsolutePath() +
+				ExternalPathMovementReader.INDEX_EXT).deleteOnExit();
+		ExternalPathMovementReader.PathCursor c = r.getPathCursor(0);
+		r.close();
+
+		/* the path that was read already is returned but nothing after it */
+		checkPath(PATHS[0][0], c.next());
+		assertFalse(c.hasNext());
+		assertFalse(r.getPathCursor(2).hasNext());
+		ExternalPathMovementReader.reset();
+	}
+
+	/**
+	 * Returns true if the prefetching thread is alive. The thread may still
+	 * be exiting after the reader has been closed, so this waits for a
+	 * while for it to go away.
+	 */
+	private boolean isPrefetcherAlive() throws InterruptedException {
+		for (int i=0; i<100; i++) {
+			boolean alive = false;
+			for (Thread t : Thread.getAllStackTraces().keySet()) {
+				if (t.getName().equals("ExternalPathPrefetcher") &&
+						t.isAlive()) {
+					alive = true;
+				}
+			}
+			if (!alive) {
+				return false;
+			}
+			Thread.sleep(50);
+		}
+		return true;
+	}
+
+	private void checkReader(ExternalPathMovementReader r) {
+		for (int id=0; id<PATHS.length; id++) {
+			List<List<ExternalPathMovementReader.Entry>> paths = r.getPaths(id);
+			assertEquals(PATHS[id].length, paths.size());
+			for (int i=0; i<PATHS[id].length; i++) {
+				checkPath(PATHS[id][i], paths.get(i));
+			}
+		}
+
+		assertEquals(1, r.getActive(1).size());
+		assertEquals(0.0, r.getActive(1).get(0).start);
+		assertEquals(50.0, r.getActive(1).get(0).end);
+	}
+
+	private void checkCursors(ExternalPathMovementReader r) {
+		for (int id=0; id<PATHS.length; id++) {
+			ExternalPathMovementReader.PathCursor c = r.getPathCursor(id);
+			for (int i=0; i<PATHS[id].length; i++) {
+				assertTrue(c.hasNext());
+				assertEquals(PATHS[id][i][0], c.peek().get(0).time);
+				checkPath(PATHS[id][i], c.next());
+			}
+			assertFalse(c.hasNext());
+			assertNull(c.next());
+		}
+	}
+
+	private void checkPath(double[] expected,
+			List<ExternalPathMovementReader.Entry> path) {
+		assertEquals(expected.length / 3, path.size());
+		for (int i=0; i<path.size(); i++) {
+			ExternalPathMovementReader.Entry e = path.get(i);
+			assertEquals(expected[i*3], e.time);
+			assertEquals(expected[i*3 + 1], e.x);
+			assertEquals(expected[i*3 + 2], e.y);
+		}
+	}
+}
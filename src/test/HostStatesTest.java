@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.Path;
+import core.Coord;
+import core.DTNHost;
+import core.HostStates;
+import core.SimClock;
+
+/**
+ * Tests for the struct-of-arrays host state store and the DTNHost views to
+ * it.
+ */
+public class HostStatesTest extends TestCase {
+	private TestUtils utils;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		DTNHost.reset();
+		utils = new TestUtils(null, null, new TestSettings());
+	}
+
+	public void testMovementState() {
+		Path p = new Path(1.0);
+		p.addWaypoint(new Coord(0, 0));
+		p.addWaypoint(new Coord(10, 0));
+		p.addWaypoint(new Coord(10, 10));
+		DTNHost h = utils.createHost(new PathMovement(p), null);
+		HostStates states = DTNHost.getStates();
+		int a = h.getAddress();
+
+		assertFalse(states.hasDestination(a));
+		h.move(5);
+		assertEquals(5.0, states.getX(a));
+		assertEquals(0.0, states.getY(a));
+		assertTrue(states.hasDestination(a));
+		assertEquals(10.0, states.getDestinationX(a));
+		assertEquals(0.0, states.getDestinationY(a));
+		assertEquals(1.0, states.getSpeed(a));
+
+		h.move(10); // past the 2nd waypoint
+		assertEquals(new Coord(10, 5), h.getLocation());
+		assertEquals(10.0, states.getDestinationY(a));
+
+		h.move(10); // end of the path
+		assertEquals(new Coord(10, 10), h.getLocation());
+		assertEquals(PathMovement.NEXT_PATH, states.getNextMoveTime(a));
+	}
+
+	public void testLocationView() {
+		DTNHost h1 = utils.createHost(new Coord(1, 2));
+		DTNHost h2 = utils.createHost(new Coord(3, 4));
+		HostStates states = DTNHost.getStates();
+
+		assertEquals(1.0, states.getX(h1.getAddress()));
+		assertEquals(4.0, states.getY(h2.getAddress()));
+
+		Coord loc = h1.getLocation();
+		h1.getLocation().translate(1, 1);
+		assertEquals(new Coord(2, 3), loc);
+		assertEquals(2.0, states.getX(h1.getAddress()));
+
+		/* old location objects keep their value when the location is set */
+		h1.setLocation(new Coord(5, 6));
+		assertEquals(new Coord(2, 3), loc);
+		assertEquals(new Coord(5, 6), h1.getLocation());
+		assertEquals(6.0, states.getY(h1.getAddress()));
+		assertEquals(new Coord(3, 4), h2.getLocation());
+
+		Coord c = h1.getLocation().clone();
+		h1.setLocation(new Coord(0, 0));
+		assertEquals(new Coord(5, 6), c);
+	}
+
+	public void testSelectWithinRange() {
+		DTNHost h0 = utils.createHost(new Coord(0, 0));
+		DTNHost h1 = utils.createHost(new Coord(3, 4));
+		DTNHost h2 = utils.createHost(new Coord(3, 4.001));
+		DTNHost h3 = utils.createHost(new Coord(-5, 0));
+		HostStates states = DTNHost.getStates();
+
+		int[] addresses = {h3.getAddress(), h2.getAddress(), h1.getAddress(),
+				h0.getAddress()};
+		int[] selected = new int[addresses.length];
+
+		/* hosts exactly at the range are selected */
+		assertEquals(3, states.selectWithinRange(addresses, 4, 0, 0, 5,
+				selected));
+		assertEquals(0, selected[0]);
+		assertEquals(2, selected[1]);
+		assertEquals(3, selected[2]);
+
+		assertEquals(2, states.selectWithinRange(addresses, 3, 0, 0, 5,
+				selected));
+		assertEquals(0, selected[0]);
+		assertEquals(2, selected[1]);
+
+		assertEquals(2, states.selectWithinRange(addresses, 4, 3, 4, 0.01,
+				selected));
+		assertEquals(1, selected[0]);
+		assertEquals(2, selected[1]);
+
+		assertEquals(0, states.selectWithinRange(addresses, 0, 0, 0, 100,
+				selected));
+	}
+
+	/**
+	 * Movement model that gives one path and then waits
+	 */
+	private static class PathMovement extends MovementModel {
+		private static final double NEXT_PATH = 100;
+		private Path path;
+
+		public PathMovement(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = this.path;
+			this.path = null;
+			return p;
+		}
+
+		@Override
+		public Coord getInitialLocation() {
+			return new Coord(0, 0);
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return this.path == null ? NEXT_PATH : 0;
+		}
+
+		@Override
+		public MovementModel replicate() {
+			return this;
+		}
+	}
+}
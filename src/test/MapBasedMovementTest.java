@@ -10,7 +10,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.Vector;
 
 import junit.framework.TestCase;
 import movement.MapBasedMovement;
@@ -228,6 +231,115 @@ public class MapBasedMovementTest extends TestCase {
 		}
 	}
 
+	/**
+	 * Replicas with their own random number streams must not depend on the
+	 * order they are created in or on the shared stream
+	 */
+	public void testReplicateWithOwnStream() {
+		final int NROF = 20;
+		setupMapData(null, "1,1", "0,10");
+		assertTrue(mbm.canReplicateConcurrently());
+
+		Coord[] locs = new Coord[NROF];
+		double[] waits = new double[NROF];
+		for (int i=0; i<NROF; i++) {
+			MovementModel mm = MovementModel.replicate(mbm,
+					MovementModel.createStream(i));
+			locs[i] = mm.getInitialLocation();
+			waits[i] = mm.nextPathAvailable();
+		}
+
+		mbm.replicate().getInitialLocation(); // uses the shared stream
+		for (int i=NROF-1; i>=0; i--) {
+			MovementModel mm = MovementModel.replicate(mbm,
+					MovementModel.createStream(i));
+			assertEquals(locs[i], mm.getInitialLocation());
+			assertEquals(waits[i], mm.nextPathAvailable());
+		}
+
+		/* different streams should give different results */
+		boolean allSame = true;
+		for (int i=1; i<NROF; i++) {
+			allSame &= waits[i] == waits[0];
+		}
+		assertFalse(allSame);
+	}
+
+	/**
+	 * The random walk must consume the random numbers exactly like the
+	 * original walk that filtered a copy of the neighbor list, so that
+	 * existing scenarios reproduce the same paths
+	 */
+	public void testPathsMatchListWalk() {
+		setupMapData(null, "1,2", null);
+		assertPathsMatchListWalk(null);
+
+		setupMapData("1", "1,2", null);
+		n1.addType(1);
+		n2.addType(1);
+		n6.addType(1);
+		map.getNodeByCoord(new Coord(4,1)).addType(1);
+		map.getNodeByCoord(new Coord(2,0)).addType(1);
+		assertPathsMatchListWalk(new int[] {1});
+	}
+
+	private void assertPathsMatchListWalk(int[] okTypes) {
+		final int NROF = 20;
+		final long SEED = 42;
+		MovementModel mm = MovementModel.replicate(mbm, new Random(SEED));
+		Random rng = new Random(SEED);
+		MovementModel reference = MovementModel.replicate(mbm, rng);
+		assertEquals(mm.getInitialLocation(), reference.getInitialLocation());
+
+		Path first = mm.getPath();
+		MapNode curNode = map.getNodeByCoord(first.getCoords().get(0));
+		for (int i=0; i<NROF; i++) {
+			Path p = (i == 0 ? first : mm.getPath());
+			List<Coord> expected = new ArrayList<Coord>();
+			expected.add(curNode.getLocation());
+			rng.nextDouble(); // speed
+			curNode = listWalk(curNode, rng, okTypes, expected);
+
+			assertEquals(expected, p.getCoords());
+		}
+	}
+
+	/**
+	 * The original random walk of MapBasedMovement.getPath()
+	 */
+	private MapNode listWalk(MapNode curNode, Random rng, int[] okTypes,
+			List<Coord> coords) {
+		MapNode prevNode = curNode;
+		int pathLength = rng.nextInt(100-10) + 10;
+
+		for (int i=0; i<pathLength; i++) {
+			Vector<MapNode> n2 = new Vector<MapNode>(curNode.getNeighbors());
+			n2.remove(prevNode);
+			if (okTypes != null) {
+				for (int j=0; j < n2.size(); ){
+					if (!n2.get(j).isType(okTypes)) {
+						n2.remove(j);
+					}
+					else {
+						j++;
+					}
+				}
+			}
+
+			MapNode nextNode;
+			if (n2.size() == 0) {
+				nextNode = prevNode;
+			}
+			else {
+				nextNode = n2.get(rng.nextInt(n2.size()));
+			}
+			prevNode = curNode;
+			curNode = nextNode;
+			coords.add(curNode.getLocation());
+		}
+		return curNode;
+	}
+
 	private DTNHost setupHost() {
 		TestUtils utils = new TestUtils(null, null, s);
 		DTNHost h1 = utils.createHost(mbm, null);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import report.MessageCopyCountReport;
+import report.MessageLocationReport;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+/**
+ * Tests for the message copy count report and its incremental tracking
+ * of message replicas
+ */
+public class MessageCopyCountReportTest extends TestCase {
+	private SimClock clock;
+	private File outFile;
+	private MessageCopyCountReport r;
+	private TestUtils utils;
+
+	public void setUp() throws IOException {
+		TestSettings ts = new TestSettings();
+		outFile = File.createTempFile("mcctest", ".tmp");
+		outFile.deleteOnExit();
+
+		ts.putSetting("MessageCopyCountReport.output",
+				outFile.getAbsolutePath());
+		ts.putSetting("MessageCopyCountReport." +
+				MessageLocationReport.GRANULARITY, "10");
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		r = new MessageCopyCountReport();
+		Vector<MessageListener> ml = new Vector<MessageListener>();
+		ml.add(r);
+		this.utils = new TestUtils(null, ml, ts);
+	}
+
+	public void testCopyCounts() throws IOException {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5));
+
+		h1.createNewMessage(new Message(h1, h3, "M2", 1));
+		h1.createNewMessage(new Message(h1, h2, "M1", 1));
+		h1.sendMessage("M2", h2);
+		h2.messageTransferred("M2", h1); // relayed -> 2 copies of M2
+		h1.sendMessage("M1", h2);
+		h2.messageTransferred("M1", h1); // delivered -> still 1 copy
+		clock.advance(10);
+		r.updated(utils.getAllHosts());
+
+		h1.deleteMessage("M2", true);
+		h1.deleteMessage("M1", false);
+		clock.advance(10);
+		r.updated(utils.getAllHosts());
+		r.done();
+
+		BufferedReader reader = new BufferedReader(new FileReader(outFile));
+		assertEquals("[10]", reader.readLine());
+		assertEquals("M1 1", reader.readLine());
+		assertEquals("M2 2", reader.readLine());
+		assertEquals("[20]", reader.readLine());
+		assertEquals("M2 1", reader.readLine());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	public void testDroppedByApplication() throws IOException {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5));
+		h2.getRouter().addApplication(new DroppingApplication());
+
+		h1.createNewMessage(new Message(h1, h3, "M1", 1));
+		h1.sendMessage("M1", h2);
+		h2.messageTransferred("M1", h1); // dropped -> still 1 copy
+		clock.advance(10);
+		r.updated(utils.getAllHosts());
+
+		h1.deleteMessage("M1", true);
+		clock.advance(10);
+		r.updated(utils.getAllHosts());
+		r.done();
+
+		BufferedReader reader = new BufferedReader(new FileReader(outFile));
+		assertEquals("[10]", reader.readLine());
+		assertEquals("M1 1", reader.readLine());
+		assertEquals("[20]", reader.readLine());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import report.MessageCopyTracker;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+
+/**
+ * Tests for counting the copies of messages in report message tracking
+ */
+public class MessageCopyTrackerTest extends TestCase {
+	private MessageCopyTracker<String> tracker;
+	private TestUtils utils;
+
+	public void setUp() {
+		tracker = new MessageCopyTracker<String>();
+		utils = new TestUtils(null, new Vector<MessageListener>(),
+				new TestSettings());
+	}
+
+	public void testRelayedAndDeleted() {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(1,0));
+		DTNHost h3 = utils.createHost(new Coord(2,0));
+		Message m = new Message(h1, h3, "M1", 1);
+		h1.createNewMessage(m);
+		tracker.newMessage(m, "info");
+
+		h1.sendMessage("M1", h2);
+		tracker.transferStarted(m);
+		h2.messageTransferred("M1", h1);
+		assertNull(tracker.transferred(m, h2));
+		h1.deleteMessage("M1", true);
+		assertNull(tracker.deleted(m)); // h2 still has a copy
+
+		h2.sendMessage("M1", h3);
+		tracker.transferStarted(m);
+		h3.messageTransferred("M1", h2);
+		assertNull(tracker.transferred(m, h3)); // delivered, not buffered
+		assertEquals(1, tracker.size());
+		h2.deleteMessage("M1", false);
+		assertEquals("info", tracker.deleted(m));
+		assertEquals(0, tracker.size());
+	}
+
+	public void testDroppedByApplication() {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(1,0));
+		DTNHost h3 = utils.createHost(new Coord(2,0));
+		h2.getRouter().addApplication(new DroppingApplication());
+		Message m = new Message(h1, h3, "M1", 1);
+		h1.createNewMessage(m);
+		tracker.newMessage(m, "info");
+
+		h1.sendMessage("M1", h2);
+		tracker.transferStarted(m);
+		h2.messageTransferred("M1", h1);
+		assertNull(tracker.transferred(m, h2));
+		assertFalse(h2.getRouter().hasMessage("M1"));
+
+		h1.deleteMessage("M1", true);
+		assertEquals("info", tracker.deleted(m));
+		assertEquals(0, tracker.size());
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.util.MessageIdSet;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the interned message IDs and the primitive message ID set
+ */
+public class MessageIdSetTest extends TestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Message.reset();
+	}
+
+	public void testIdIndexes() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h = utils.createHost();
+		Message m1 = new Message(h, h, "M1", 10);
+		Message m2 = new Message(h, h, "M2", 10);
+
+		assertEquals(0, m1.getIdIndex());
+		assertEquals(1, m2.getIdIndex());
+		assertEquals(m1.getIdIndex(), m1.replicate().getIdIndex());
+		assertEquals(1, Message.getIdIndex("M2"));
+		assertEquals(-1, Message.getIdIndex("M3"));
+		assertEquals(2, Message.getNrofIds());
+
+		Message.reset();
+		assertEquals(-1, Message.getIdIndex("M1"));
+		assertEquals(0, Message.getNrofIds());
+	}
+
+	public void testNegativeIndex() {
+		MessageIdSet set = new MessageIdSet();
+		assertFalse(set.contains(-1));
+		assertFalse(set.remove(-1));
+		assertEquals(0, set.size());
+
+		set.add(0);
+		assertFalse(set.contains(Message.getIdIndex("unknown")));
+		assertFalse(set.remove(-1));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(0));
+	}
+
+	public void testAddRemove() {
+		MessageIdSet set = new MessageIdSet();
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(5));
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(5));
+		assertEquals(2, set.size());
+
+		assertTrue(set.remove(0));
+		assertFalse(set.remove(0));
+		assertFalse(set.contains(0));
+		assertTrue(set.contains(5));
+		assertEquals(1, set.size());
+
+		MessageIdSet other = new MessageIdSet();
+		other.add(5);
+		other.add(7);
+		set.addAll(other);
+		assertEquals(2, set.size());
+		assertTrue(set.contains(7));
+	}
+
+	public void testAgainstHashSet() {
+		Random rng = new Random(42);
+		MessageIdSet set = new MessageIdSet();
+		Set<Integer> expected = new HashSet<Integer>();
+
+		for (int i=0; i<20000; i++) {
+			int index = rng.nextInt(500);
+			if (rng.nextInt(3) == 0) {
+				assertEquals(expected.remove(index), set.remove(index));
+			}
+			else {
+				assertEquals(expected.add(index), set.add(index));
+			}
+			assertEquals(expected.size(), set.size());
+		}
+		for (int index=0; index<500; index++) {
+			assertEquals(expected.contains(index), set.contains(index));
+		}
+	}
+}
@@ -60,5 +60,49 @@ public class MessageTest extends TestCase {
 		assertEquals(value2, msg.getProperty("bar"));
 	}
 
+	@Test
+	public void testReplicatePath() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		DTNHost h3 = utils.createHost();
+		Message m = new Message(h1, h3, "P", 10);
+
+		Message r1 = m.replicate();
+		r1.addNodeOnPath(h2);
+		Message r2 = r1.replicate();
+		r2.addNodeOnPath(h3);
+		Message r3 = r1.replicate();
+
+		assertEquals(0, m.getHopCount());
+		assertEquals(1, r1.getHopCount());
+		assertEquals(2, r2.getHopCount());
+		assertEquals(1, r3.getHopCount());
+		assertEquals(1, m.getHops().size());
+		assertEquals(h1, r2.getHops().get(0));
+		assertEquals(h2, r2.getHops().get(1));
+		assertEquals(h3, r2.getHops().get(2));
+		assertTrue(r2.getHops().contains(h2));
+		assertFalse(r3.getHops().contains(h3));
+		assertEquals("[" + h1 + ", " + h2 + "]", r1.getHops().toString());
+	}
+
+	@Test
+	public void testReplicateProperties() {
+		msg.addProperty("foo", "1");
+		Message r = msg.replicate();
+		assertEquals("1", r.getProperty("foo"));
+
+		r.updateProperty("foo", "2");
+		r.addProperty("bar", "3");
+		assertEquals("1", msg.getProperty("foo"));
+		assertNull(msg.getProperty("bar"));
+
+		msg.updateProperty("foo", "4");
+		assertEquals("2", r.getProperty("foo"));
+		assertEquals("4", msg.getProperty("foo"));
+		assertEquals("4", msg.replicate().getProperty("foo"));
+	}
+
 
 }
@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import core.ModuleCommunicationBus;
 import core.ModuleCommunicationListener;
+import core.SimError;
 
 public class ModuleCommunicationBusTest extends TestCase {
 
@@ -103,4 +104,64 @@ public class ModuleCommunicationBusTest extends TestCase {
 		assertEquals(-16.7, b.getDouble(key, -1.0));
 	}
 
+	@Test
+	public void testSlots() {
+		String dKey = "slottst.double";
+		String iKey = "slottst.int";
+		int dSlot = ModuleCommunicationBus.registerDouble(dKey);
+		int iSlot = ModuleCommunicationBus.registerInt(iKey);
+		assertEquals(dSlot, ModuleCommunicationBus.registerDouble(dKey));
+		assertEquals(dSlot, ModuleCommunicationBus.getSlot(dKey));
+		assertEquals(-1, ModuleCommunicationBus.getSlot("noslot"));
+		try {
+			ModuleCommunicationBus.registerInt(dKey);
+			fail("Registering a key with another type should fail");
+		} catch (SimError e) {
+			/* expected */
+		}
+
+		assertFalse(b.containsProperty(dSlot));
+		assertEquals(-1.0, b.getDouble(dSlot, -1.0));
+		b.addDouble(dSlot, 15.5);
+		b.addInt(iSlot, 3);
+		assertTrue(b.containsProperty(dKey));
+		assertEquals(15.5, b.getDouble(dKey, -1.0));
+		assertEquals(15.5, b.getProperty(dKey));
+		assertEquals(3, b.getInt(iSlot, -1));
+		assertEquals(3, b.getProperty(iKey));
+		assertEquals(16.5, b.updateDouble(dSlot, 1.0));
+		assertEquals(13.5, b.updateDouble(dKey, -3.0));
+		assertEquals(13.5, b.getDouble(dSlot, -1.0));
+
+		/* listeners are notified only when the value changes */
+		b.subscribe(dKey, mcl);
+		b.setDouble(dSlot, 13.5);
+		assertNull(notifyKey);
+		b.updateProperty(dKey, 2.0);
+		assertEquals(dKey, notifyKey);
+		assertEquals(2.0, notifyValue);
+		b.unsubscribe(dKey, mcl);
+		b.setDouble(dSlot, 1.0);
+		assertEquals(2.0, notifyValue);
+
+		try {
+			b.addDouble(dSlot, 1.0);
+			fail("Adding an existing value should fail");
+		} catch (SimError e) {
+			/* expected */
+		}
+		try {
+			b.getDouble(iSlot, 0);
+			fail("Reading an integer slot as double should fail");
+		} catch (SimError e) {
+			/* expected */
+		}
+		try {
+			b.updateProperty(iKey, 1.0);
+			fail("Storing a double to an integer slot should fail");
+		} catch (SimError e) {
+			/* expected */
+		}
+	}
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.Path;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+import movement.map.PathCache;
+import core.Coord;
+
+public class PathCacheTest extends TestCase {
+	private DijkstraPathFinder finder;
+	private PathCache cache;
+
+	private final MapNode n1 = newNode(0,0);
+	private final MapNode n2 = newNode(10,0);
+	private final MapNode n3 = newNode(20,0);
+	private final MapNode n4 = newNode(20,10);
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestSettings.init(null);
+		PathCache.reset();
+		cache = PathCache.getInstance();
+		finder = new DijkstraPathFinder(null);
+
+		/* n1 - n2 - n3 - n4 */
+		n1.addNeighbor(n2);
+		n2.addNeighbor(n1);
+		n2.addNeighbor(n3);
+		n3.addNeighbor(n2);
+		n3.addNeighbor(n4);
+		n4.addNeighbor(n3);
+	}
+
+	private MapNode newNode(double x, double y) {
+		return new MapNode(new Coord(x,y));
+	}
+
+	public void testHitsAndMisses() {
+		double[] p1 = cache.getShortestPath(finder, n1, n4);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		double[] p2 = cache.getShortestPath(finder, n1, n4);
+		assertSame(p1, p2);
+		assertEquals(1, cache.getHits());
+
+		cache.getShortestPath(finder, n4, n1);
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.getSize());
+
+		/* different OK types must not share the cached path */
+		cache.getShortestPath(new DijkstraPathFinder(new int[] {1}), n1, n1);
+		cache.getShortestPath(finder, n1, n1);
+		assertEquals(4, cache.getMisses());
+	}
+
+	public void testWrappedPath() {
+		double[] coords = cache.getShortestPath(finder, n1, n4);
+		Path p = new Path(coords, 2.0);
+		List<Coord> pCoords = p.getCoords();
+
+		assertEquals(4, pCoords.size());
+		assertEquals(n1.getLocation(), pCoords.get(0));
+		assertEquals(n4.getLocation(), pCoords.get(3));
+
+		p.addWaypoint(new Coord(30, 10));
+		assertEquals(5, p.getCoords().size());
+		assertEquals(8, coords.length); // cached path is not modified
+
+		assertEquals(n1.getLocation(), p.getNextWaypoint());
+		assertEquals(2.0, p.getSpeed());
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.Path;
+import core.Coord;
+
+public class PathTest extends TestCase {
+
+	public void testConstantSpeed() {
+		Path p = new Path(1.5);
+		for (int i=0; i<10; i++) {
+			p.addWaypoint(new Coord(i, i*2));
+		}
+		assertEquals(10, p.getNrofWaypoints());
+
+		Coord c = new Coord(0,0);
+		for (int i=0; i<10; i++) {
+			assertTrue(p.hasNext());
+			assertSame(c, p.getNextWaypoint(c));
+			assertEquals(new Coord(i, i*2), c);
+			assertEquals(1.5, p.getSpeed());
+		}
+		assertFalse(p.hasNext());
+	}
+
+	public void testVariableSpeed() {
+		Path p = new Path();
+		p.addWaypoint(new Coord(0,0), 1);
+		p.addWaypoint(new Coord(1,0), 2);
+		p.addWaypoint(new Coord(2,0), 3);
+
+		assertEquals(3, p.getSpeeds().size());
+		for (int i=0; i<3; i++) {
+			assertEquals(new Coord(i,0), p.getNextWaypoint());
+			assertEquals(i + 1.0, p.getSpeed());
+		}
+	}
+
+	public void testSharedCoordinates() {
+		double[] coords = {0,0, 10,0, 10,10};
+		Path p1 = new Path(coords, 1);
+		Path p2 = new Path(p1);
+
+		p2.addWaypoint(new Coord(20, 10));
+		assertEquals(3, p1.getNrofWaypoints());
+		assertEquals(4, p2.getNrofWaypoints());
+		assertEquals(6, coords.length);
+
+		p1.addWaypoint(new Coord(0, 10));
+		List<Coord> c1 = p1.getCoords();
+		List<Coord> c2 = p2.getCoords();
+		assertEquals(new Coord(0, 10), c1.get(3));
+		assertEquals(new Coord(20, 10), c2.get(3));
+		assertEquals(new Coord(10, 10), c2.get(2));
+		assertEquals(10.0, coords[4]);
+	}
+}
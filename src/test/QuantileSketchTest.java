@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.QuantileSketch;
+
+/**
+ * Tests for the quantile sketch used by the message statistics reports
+ */
+public class QuantileSketchTest extends TestCase {
+
+	public void testExactMode() {
+		QuantileSketch s = new QuantileSketch(200, 1000);
+		Random rng = new Random(1);
+		double[] values = new double[999];
+		double sum = 0;
+		for (int i=0; i<values.length; i++) {
+			values[i] = rng.nextDouble() * 100;
+			sum += values[i];
+			s.add(values[i]);
+		}
+		Arrays.sort(values);
+
+		assertTrue(s.isExact());
+		assertEquals(values.length, s.getCount());
+		assertEquals(sum, s.getSum(), 0.0);
+		assertEquals(values[values.length / 2], s.getMedian(), 0.0);
+		assertEquals(values[(int)(0.9 * values.length)],
+				s.getQuantile(0.9), 0.0);
+		assertEquals(values[0], s.getQuantile(0), 0.0);
+		assertEquals(values[values.length - 1], s.getQuantile(1), 0.0);
+	}
+
+	public void testEmpty() {
+		QuantileSketch s = new QuantileSketch();
+		assertEquals(0, s.getCount());
+		assertTrue(Double.isNaN(s.getMedian()));
+		assertTrue(Double.isNaN(s.getAverage()));
+	}
+
+	public void testSketchMode() {
+		final int n = 100000;
+		QuantileSketch s = new QuantileSketch(200, 1000);
+		Random rng = new Random(2);
+		double[] values = new double[n];
+		double sum = 0;
+		for (int i=0; i<n; i++) {
+			values[i] = rng.nextGaussian() * 1000;
+			sum += values[i];
+			s.add(values[i]);
+		}
+		Arrays.sort(values);
+
+		assertFalse(s.isExact());
+		assertEquals(n, s.getCount());
+		assertEquals(sum, s.getSum(), 0.0);
+
+		QuantileSketch.Sorted sorted = s.getSorted();
+		assertTrue(sorted.size < 2000);
+		long totalWeight = 0;
+		for (int i=0; i<sorted.size; i++) {
+			totalWeight += sorted.weights[i];
+		}
+		assertEquals(n, totalWeight);
+
+		for (double q : new double[] {0.1, 0.25, 0.5, 0.75, 0.9}) {
+			double est = s.getQuantile(q);
+			int rank = Arrays.binarySearch(values, est);
+			assertTrue("Value " + est + " not in input", rank >= 0);
+			assertEquals("Rank of " + q + "-quantile", q * n, rank, 0.02 * n);
+		}
+	}
+
+	public void testDeterministic() {
+		QuantileSketch s1 = new QuantileSketch(50, 10);
+		QuantileSketch s2 = new QuantileSketch(50, 10);
+		Random rng = new Random(3);
+		for (int i=0; i<20000; i++) {
+			double v = rng.nextDouble();
+			s1.add(v);
+			s2.add(v);
+		}
+		assertEquals(s1.getMedian(), s2.getMedian(), 0.0);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import report.BinaryEventLog;
+import report.Recording;
+import report.RecordingReport;
+import core.ConnectionListener;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+public class RecordingReportTest extends TestCase {
+	private SimClock clock;
+	private File outFile;
+	private RecordingReport r;
+	private TestUtils utils;
+
+	public void setUp() throws IOException {
+		TestSettings ts = new TestSettings();
+		outFile = File.createTempFile("rectest", Recording.EXT);
+		outFile.deleteOnExit();
+
+		ts.putSetting("RecordingReport.output", outFile.getAbsolutePath());
+		ts.putSetting("RecordingReport.sampleInterval", "1");
+		SimClock.reset();
+		DTNHost.reset();
+		clock = SimClock.getInstance();
+		r = new RecordingReport();
+		Vector<MessageListener> ml = new Vector<MessageListener>();
+		ml.add(r);
+		Vector<ConnectionListener> cl = new Vector<ConnectionListener>();
+		cl.add(r);
+		this.utils = new TestUtils(cl, ml, ts);
+	}
+
+	public void testRecordAndSeek() {
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2.5,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5));
+		List<DTNHost> hosts = utils.getAllHosts();
+
+		clock.advance(1.0);
+		r.updated(hosts); // frame 0: no events
+		h1.forceConnection(h2, null, true);
+		h1.createNewMessage(new Message(h1, h3, "tst1", 1));
+		clock.advance(0.5);
+		r.updated(hosts); // not sampled (interval is 1 s)
+		h1.sendMessage("tst1", h2);
+		h2.messageTransferred("tst1", h1);
+		clock.advance(0.5);
+		r.updated(hosts); // frame 1: 4 events
+		clock.advance(1.5);
+		h1.createNewMessage(new Message(h1, h2, "tst2", 1));
+		r.done(); // frame 2: the end state
+
+		Recording rec = new Recording(outFile);
+		assertEquals(3, rec.getNrofHosts());
+		assertEquals(h3.toString(), rec.getHostName(2));
+		assertEquals(2, rec.getNrofMessages());
+		assertEquals("tst2", rec.getMessageId(1));
+		assertEquals(3, rec.getNrofFrames());
+		assertEquals(3.5, rec.getEndTime());
+		assertEquals(2.0, rec.getFrameTime(1));
+
+		assertEquals(0, rec.findFrame(0.0));
+		assertEquals(0, rec.findFrame(1.9));
+		assertEquals(1, rec.findFrame(2.0));
+		assertEquals(2, rec.findFrame(100));
+
+		Recording.Frame f = rec.getFrame(0);
+		assertEquals(0, f.getNrofEvents());
+		assertEquals(0, f.getNrofConnections());
+		assertEquals(2.5, f.getX(1));
+		assertEquals(5.0, f.getY(2));
+
+		f = rec.getFrame(1);
+		assertEquals(2.0, f.getTime());
+		assertEquals(3, f.getNrofHosts());
+		assertEquals(1, f.getNrofMessages(0));
+		assertEquals(1, f.getNrofMessages(1));
+		assertEquals(1, f.getNrofConnections());
+		assertEquals(h1.getAddress(), f.getConnectionHost1(0));
+		assertEquals(h2.getAddress(), f.getConnectionHost2(0));
+		assertEquals(1, f.getNrofRanges(0));
+		assertEquals(3, f.getTotalRanges());
+		assertEquals(1.0, f.getRange(2));
+		assertTrue(f.isRadioActive(0));
+
+		assertEquals(4, f.getNrofEvents());
+		assertEquals(BinaryEventLog.ACTION_CONN_UP, f.getAction(0));
+		assertEquals(-1, f.getMessage(0));
+		assertEquals(BinaryEventLog.ACTION_CREATE, f.getAction(1));
+		assertEquals(1.0, f.getEventTime(1));
+		assertEquals(-1, f.getHost2(1));
+		assertEquals(BinaryEventLog.ACTION_SEND, f.getAction(2));
+		assertEquals(BinaryEventLog.ACTION_RELAYED, f.getAction(3));
+		assertEquals(1.5, f.getEventTime(3));
+		assertEquals(h2.getAddress(), f.getHost2(3));
+		assertEquals(0, f.getMessage(3));
+
+		f = rec.getFrame(2);
+		assertEquals(3.5, f.getTime());
+		assertEquals(1, f.getNrofEvents());
+		assertEquals(1, f.getMessage(0));
+		assertEquals(2, f.getNrofMessages(0));
+	}
+}
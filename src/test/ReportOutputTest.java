@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.AsyncReportWriter;
+import report.NumberFormatter;
+
+/**
+ * Tests for the report output helpers
+ */
+public class ReportOutputTest extends TestCase {
+
+	public void testFormatterMatchesStringFormat() {
+		double[] values = {0, -0.0, 1, -1, 0.5, 1.005, 2.5, 0.125, 0.0049999,
+				-0.001, 123456.789, 1e20, -3e-9, Double.NaN,
+				Double.POSITIVE_INFINITY};
+		for (double v : values) {
+			for (int d=0; d<=NumberFormatter.MAX_DECIMALS + 1; d++) {
+				checkFormat(v, d);
+			}
+		}
+
+		Random rng = new Random(42);
+		for (int i=0; i<10000; i++) {
+			checkFormat((rng.nextDouble() - 0.5) * 2000, i % 8);
+			checkFormat(rng.nextInt(100000) / 1000.0, i % 4);
+		}
+	}
+
+	public void testFormatterLocale() {
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault(Locale.GERMANY);
+			NumberFormatter.reset(); // locale is read only when reset
+			checkFormat(-12.345, 2);
+			checkFormat(0.5, 0);
+		} finally {
+			Locale.setDefault(locale);
+			NumberFormatter.reset();
+		}
+		checkFormat(-12.345, 2);
+	}
+
+	private void checkFormat(double value, int decimals) {
+		assertEquals("Formatting " + value + " with " + decimals + " decimals",
+				String.format("%." + decimals + "f", value),
+				NumberFormatter.format(value, decimals));
+	}
+
+	public void testAsyncWriter() {
+		StringWriter target = new StringWriter();
+		PrintWriter out = new PrintWriter(new AsyncReportWriter(target,
+				"test writer", 16, 2));
+		StringBuilder expected = new StringBuilder();
+		for (int i=0; i<1000; i++) {
+			String line = "line " + i;
+			out.println(line);
+			expected.append(line).append(System.getProperty("line.separator"));
+		}
+		out.close();
+
+		assertFalse(out.checkError());
+		assertEquals(expected.toString(), target.toString());
+	}
+}
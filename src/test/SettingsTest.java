@@ -36,7 +36,8 @@ public class SettingsTest extends TestCase {
 		IRS_S + " = [val1 ; val2",
 		CSV_RS_S + " = [" + CSV_RS_V[0]+","+CSV_RS_V[1]+";"+CSV_RS_V[2]+","+CSV_RS_V[3]+"]",
 		"Ns.runSetting = [ ; ; 2; ]",
-		"DefNs.runSetting = 1"
+		"DefNs.runSetting = 1",
+		"fillSetting = %%" + TST + "%%-%%int%%"
 
 	};
 
@@ -147,6 +148,42 @@ public class SettingsTest extends TestCase {
 
 		result = s.valueFillString("%%"+TST+"%%");
 		assertEquals(TST_RES,result);
+
+		result = s.valueFillString(s.getSetting("fillSetting"));
+		assertEquals(TST_RES + "-1", result);
+	}
+
+	public void testDefaultValues() {
+		assertEquals(2.5, s.getDouble("missing", 2.5));
+		assertEquals(3, s.getInt("missing", 3));
+		assertEquals("def", s.getSetting("missing", "def"));
+		assertTrue(s.getBoolean("missing", true));
+		assertEquals(1.1, s.getDouble("double", 2.5));
+		assertFalse(s.getBoolean("booleanFalse", true));
+	}
+
+	public void testAddSettings() throws Exception {
+		File tempFile = File.createTempFile("settingsTest", ".tmp");
+		tempFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(tempFile);
+		out.println("int = 2");
+		out.println("DefNs.newSetting = 3");
+		out.close();
+
+		Settings ns = new Settings("Ns");
+		ns.setSecondaryNamespace("DefNs");
+		assertEquals(1, s.getInt("int"));
+		assertFalse(ns.contains("newSetting"));
+
+		Settings.addSettings(tempFile.getAbsolutePath());
+		assertEquals(2, s.getInt("int"));
+		assertEquals(3, ns.getInt("newSetting"));
+	}
+
+	public void testCsvValuesAreCopies() {
+		String[] values = s.getCsvSetting("csvDoubles");
+		values[0] = "changed";
+		assertEquals("1.1", s.getCsvSetting("csvDoubles")[0]);
 	}
 
 	public void testRunIndex() {
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.util.SummaryVector;
+
+/**
+ * Tests for the message summary vectors
+ */
+public class SummaryVectorTest extends TestCase {
+
+	public void testAddRemove() {
+		SummaryVector sv = new SummaryVector();
+		assertFalse(sv.contains(0));
+		sv.add(1000);
+		sv.add(5);     // below the covered range
+		sv.add(70000); // above the covered range
+		sv.add(5);
+		assertEquals(3, sv.size());
+		assertTrue(sv.contains(5));
+		assertTrue(sv.contains(1000));
+		assertTrue(sv.contains(70000));
+		assertFalse(sv.contains(6));
+		assertFalse(sv.contains(69999));
+
+		sv.remove(1000);
+		sv.remove(1000);
+		assertEquals(2, sv.size());
+		assertFalse(sv.contains(1000));
+		sv.remove(5);
+		sv.remove(70000);
+		assertEquals(0, sv.size());
+		assertFalse(sv.contains(70000));
+	}
+
+	public void testAgainstHashSet() {
+		Random rng = new Random(3);
+		SummaryVector sv = new SummaryVector();
+		Set<Integer> expected = new HashSet<Integer>();
+
+		for (int i=0; i<20000; i++) {
+			/* sliding window of indexes like in a message buffer */
+			int index = i / 10 + rng.nextInt(300);
+			if (rng.nextBoolean()) {
+				sv.add(index);
+				expected.add(index);
+			}
+			else {
+				sv.remove(index);
+				expected.remove(index);
+			}
+			assertEquals(expected.size(), sv.size());
+		}
+		for (int index=0; index<3000; index++) {
+			assertEquals(expected.contains(index), sv.contains(index));
+		}
+	}
+
+	public void testHasMissing() {
+		SummaryVector a = new SummaryVector();
+		SummaryVector b = new SummaryVector();
+		assertFalse(a.hasMissing(b));
+
+		a.add(3);
+		a.add(200);
+		b.add(3);
+		assertTrue(a.hasMissing(b));
+		assertFalse(b.hasMissing(a));
+
+		b.add(200);
+		b.add(5000);
+		assertFalse(a.hasMissing(b));
+		assertTrue(b.hasMissing(a));
+
+		b.remove(200);
+		assertTrue(a.hasMissing(b));
+	}
+
+	public void testBloomFilter() {
+		SummaryVector bloom = new SummaryVector(1000, 0.01);
+		SummaryVector exact = new SummaryVector();
+		assertTrue(bloom.isBloomFilter());
+		assertFalse(exact.isBloomFilter());
+
+		for (int i=0; i<1000; i++) {
+			bloom.add(2 * i);
+			exact.add(2 * i);
+		}
+		for (int i=0; i<1000; i++) {
+			assertTrue(bloom.mightContain(2 * i)); // no false negatives
+		}
+		assertFalse(exact.hasMissing(bloom));
+
+		int falsePositives = 0;
+		for (int i=0; i<10000; i++) {
+			if (bloom.mightContain(2 * i + 1)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("too many false positives: " + falsePositives,
+				falsePositives < 300);
+
+		/* removed messages are not advertised any more (unless they
+		 * collide with the remaining ones) */
+		for (int i=0; i<1000; i++) {
+			bloom.remove(2 * i);
+		}
+		assertEquals(0, bloom.size());
+		for (int i=0; i<1000; i++) {
+			assertFalse(bloom.mightContain(2 * i));
+		}
+	}
+}
@@ -69,6 +69,7 @@ public class TestSettings extends core.Settings {
 		}
 
 		props.put(nameSpace + key, value);
+		settingsChanged();
 	}
 
 }
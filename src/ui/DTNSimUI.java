@@ -6,9 +6,13 @@ package ui;
 
 import java.util.Vector;
 
+import report.ContactReport;
+import report.ContactTracker;
 import report.Report;
 import core.ApplicationListener;
 import core.ConnectionListener;
+import core.EventBatchListener;
+import core.EventBus;
 import core.MessageListener;
 import core.MovementListener;
 import core.Settings;
@@ -58,6 +62,10 @@ public abstract class DTNSimUI {
 	protected SimScenario scen;
 	/** simtime of last UI update */
 	protected double lastUpdate;
+	/** Event bus of the reports that get batched events (or null) */
+	protected EventBus eventBus;
+	/** Contact state shared by the contact reports (or null) */
+	protected ContactTracker contactTracker;
 
 	/**
 	 * Constructor.
@@ -65,6 +73,7 @@ public abstract class DTNSimUI {
 	public DTNSimUI() {
 		this.lastUpdate = 0;
 		this.reports = new Vector<Report>();
+		this.eventBus = null;
 		this.simDone = false;
 		this.simCancelled = false;
 	}
@@ -93,10 +102,12 @@ public abstract class DTNSimUI {
 			this.scen = SimScenario.getInstance();
 
 			// add reports
-			for (int i=1, n = settings.getInt(NROF_REPORT_S); i<=n; i++){
-				String reportClass = settings.getSetting(REPORT_S + i);
-				addReport((Report)settings.createObject(REPORT_PAC +
-						reportClass));
+			if (createsReports()) {
+				for (int i=1, n = settings.getInt(NROF_REPORT_S); i<=n; i++){
+					String reportClass = settings.getSetting(REPORT_S + i);
+					addReport((Report)settings.createObject(REPORT_PAC +
+							reportClass));
+				}
 			}
 
 			double warmupTime = 0;
@@ -123,13 +134,26 @@ public abstract class DTNSimUI {
 		}
 	}
 
+	/**
+	 * Returns true if the reports defined in the settings should be created.
+	 * User interfaces that don't run the simulation can skip the reports.
+	 * @return true if the reports should be created
+	 */
+	protected boolean createsReports() {
+		return true;
+	}
+
 	/**
 	 * Runs maintenance jobs that are needed before exiting.
 	 */
 	public void done() {
+		if (this.eventBus != null) {
+			this.eventBus.close(); // deliver the remaining events
+		}
 		for (Report r : this.reports) {
 			r.done();
 		}
+		this.scen.close();
 	}
 
 	/**
@@ -137,6 +161,15 @@ public abstract class DTNSimUI {
 	 * @param r Report to add
 	 */
 	protected void addReport(Report r) {
+		if (r instanceof ContactReport) {
+			if (this.contactTracker == null) {
+				/* registered before the reports so that it has seen every
+				   connection event before the reports get it */
+				this.contactTracker = new ContactTracker();
+				scen.addConnectionListener(contactTracker);
+			}
+			((ContactReport)r).setContactTracker(contactTracker);
+		}
 		if (r instanceof MessageListener) {
 			scen.addMessageListener((MessageListener)r);
 		}
@@ -152,6 +185,11 @@ public abstract class DTNSimUI {
 		if (r instanceof ApplicationListener) {
 			scen.addApplicationListener((ApplicationListener)r);
 		}
+		if (r instanceof EventBatchListener) {
+			this.eventBus = scen.getEventBus();
+			eventBus.subscribe((EventBatchListener)r, r.getEventFilter(),
+					r.isEventThread());
+		}
 
 		this.reports.add(r);
 	}